@@ -0,0 +1,56 @@
+package chapter11.code.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import common.code.benchmark.CatalogGenerator;
+
+/**
+ * Benchmarks encoding and decoding the payload of an event for 1 book, a
+ * BookAddedEvent, and for batches of books, a BooksAddedEvent, in each
+ * EventPayloadFormat. EventPayloadSizes reports the sizes of the encoded
+ * payloads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventPayloadBenchmark {
+	@Param({ "XML", "XML_NEW_CONTEXT", "SERIALIZATION", "COMPACT" })
+	public EventPayloadFormat format;
+
+	@Param({ "1", "10", "100" })
+	public int books;
+
+	private Object payload;
+	private byte[] encoded;
+
+	@Setup
+	public void setUp() throws Exception {
+		payload = format.createPayload(EventPayloadFormat.getBooks(new CatalogGenerator(), books));
+		encoded = format.encode(payload);
+	}
+
+	@Benchmark
+	public byte[] encode() throws Exception {
+		return format.encode(payload);
+	}
+
+	@Benchmark
+	public Object decode() throws Exception {
+		return format.decode(encoded, payload.getClass());
+	}
+}
@@ -0,0 +1,107 @@
+package chapter11.code.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.JAXBContext;
+
+import chapter11.code.listing.domain.Book;
+import chapter11.code.listing.events.BookAddedEvent;
+import chapter11.code.listing.events.BooksAddedEvent;
+import chapter11.code.listing.events.EventXml;
+
+import common.code.benchmark.CatalogGenerator;
+import common.code.benchmark.GeneratedBook;
+
+/**
+ * The ways a portlet container can pass an event payload to another web
+ * application or portal server. A single book is sent as a BookAddedEvent,
+ * and several books as a BooksAddedEvent.
+ */
+public enum EventPayloadFormat {
+	/** XML marshalled with the JAXBContext cached by EventXml */
+	XML {
+		@Override
+		public byte[] encode(Object payload) throws Exception {
+			return EventXml.toXml(payload).getBytes("UTF-8");
+		}
+
+		@Override
+		public Object decode(byte[] bytes, Class<?> type) throws Exception {
+			return EventXml.fromXml(new String(bytes, "UTF-8"), type);
+		}
+	},
+	/** XML marshalled with a JAXBContext created for each event */
+	XML_NEW_CONTEXT {
+		@Override
+		public byte[] encode(Object payload) throws Exception {
+			StringWriter writer = new StringWriter();
+			newContext().createMarshaller().marshal(payload, writer);
+			return writer.toString().getBytes("UTF-8");
+		}
+
+		@Override
+		public Object decode(byte[] bytes, Class<?> type) throws Exception {
+			return type.cast(newContext().createUnmarshaller().unmarshal(
+					new StringReader(new String(bytes, "UTF-8"))));
+		}
+
+		private JAXBContext newContext() throws Exception {
+			return JAXBContext.newInstance(BookAddedEvent.class, BooksAddedEvent.class);
+		}
+	},
+	/** default serialization, as the payloads were before */
+	SERIALIZATION {
+		@Override
+		public Object createPayload(List<Book> books) {
+			if (books.size() == 1) {
+				return new SerializableBookAddedEvent(books.get(0));
+			}
+			return new SerializableBooksAddedEvent(books);
+		}
+	},
+	/** the Externalizable form of the payloads */
+	COMPACT;
+
+	public Object createPayload(List<Book> books) {
+		if (books.size() == 1) {
+			return new BookAddedEvent(books.get(0));
+		}
+		return new BooksAddedEvent(books);
+	}
+
+	public byte[] encode(Object payload) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(payload);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	public Object decode(byte[] bytes, Class<?> type) throws Exception {
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+		try {
+			return type.cast(in.readObject());
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Returns the first books of the catalog of a CatalogGenerator.
+	 */
+	public static List<Book> getBooks(CatalogGenerator catalog, int count) {
+		List<Book> books = new ArrayList<Book>(count);
+		for (int i = 0; i < count; i++) {
+			GeneratedBook book = catalog.getBook(i);
+			books.add(new Book(book.getCategory(), book.getName(), book.getAuthor(), book.getIsbnNumber()));
+		}
+		return books;
+	}
+}
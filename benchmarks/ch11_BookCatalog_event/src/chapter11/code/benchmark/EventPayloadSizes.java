@@ -0,0 +1,35 @@
+package chapter11.code.benchmark;
+
+import common.code.benchmark.CatalogGenerator;
+
+/**
+ * Reports the bytes of the encoded event payload for 1 book and for batches
+ * of books, in each EventPayloadFormat.
+ *
+ * java -cp ch11_BookCatalog_event/target/benchmarks.jar chapter11.code.benchmark.EventPayloadSizes
+ *     [batch sizes (1 10 100)]
+ */
+public final class EventPayloadSizes {
+	private EventPayloadSizes() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length == 0) {
+			args = new String[] { "1", "10", "100" };
+		}
+		CatalogGenerator catalog = new CatalogGenerator();
+		System.out.printf("%-16s", "books");
+		for (String books : args) {
+			System.out.printf("%10s", books);
+		}
+		System.out.println();
+		for (EventPayloadFormat format : EventPayloadFormat.values()) {
+			System.out.printf("%-16s", format);
+			for (String books : args) {
+				Object payload = format.createPayload(EventPayloadFormat.getBooks(catalog, Integer.parseInt(books)));
+				System.out.printf("%10d", format.encode(payload).length);
+			}
+			System.out.println();
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package chapter11.code.benchmark;
+
+import java.io.Serializable;
+
+import chapter11.code.listing.domain.Book;
+
+/**
+ * BookAddedEvent as it was before it became Externalizable: the payload
+ * with the default serialized form, to compare with.
+ */
+public class SerializableBookAddedEvent implements Serializable {
+	private static final long serialVersionUID = -2232317909090023831L;
+	private String name;
+	private String author;
+	private Long isbnNumber;
+	private String category;
+
+	public SerializableBookAddedEvent(Book book) {
+		this.name = book.getName();
+		this.author = book.getAuthor();
+		this.category = book.getCategory();
+		this.isbnNumber = book.getIsbnNumber();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getAuthor() {
+		return author;
+	}
+
+	public Long getIsbnNumber() {
+		return isbnNumber;
+	}
+
+	public String getCategory() {
+		return category;
+	}
+}
@@ -0,0 +1,26 @@
+package chapter11.code.benchmark;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import chapter11.code.listing.domain.Book;
+
+/**
+ * BooksAddedEvent as it was before it became Externalizable: the payload
+ * with the default serialized form, to compare with.
+ */
+public class SerializableBooksAddedEvent implements Serializable {
+	private static final long serialVersionUID = 4418329409811257316L;
+	private List<SerializableBookAddedEvent> books = new ArrayList<SerializableBookAddedEvent>();
+
+	public SerializableBooksAddedEvent(List<Book> books) {
+		for (Book book : books) {
+			this.books.add(new SerializableBookAddedEvent(book));
+		}
+	}
+
+	public List<SerializableBookAddedEvent> getBooks() {
+		return books;
+	}
+}
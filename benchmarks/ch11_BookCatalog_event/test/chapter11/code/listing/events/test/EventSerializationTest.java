@@ -0,0 +1,213 @@
+package chapter11.code.listing.events.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import chapter11.code.listing.domain.Book;
+import chapter11.code.listing.events.BookAddedEvent;
+import chapter11.code.listing.events.BooksAddedEvent;
+
+/**
+ * JUnit test for the Externalizable forms of BookAddedEvent and
+ * BooksAddedEvent, which the portlet container uses to pass the events to
+ * the portlets of other web applications. ch11_RecentBook_event, which
+ * receives the events, has its own copy of the classes, which must stay the
+ * same as the one of ch11_BookCatalog_event.
+ */
+public class EventSerializationTest {
+	//-- non-ASCII, including a character outside the Basic Multilingual Plane
+	private static final String NAME = "Portlets in Action – Übersicht 日本語 📚";
+	private static final String AUTHOR = "Ashish Sarin, Édouard";
+
+	@Test
+	public void testBookRoundTrip() throws Exception {
+		BookAddedEvent event = new BookAddedEvent(new Book("Java", NAME, AUTHOR, 1935182544L));
+		assertBook(event, roundTrip(event));
+	}
+
+	@Test
+	public void testNullFields() throws Exception {
+		BookAddedEvent read = roundTrip(new BookAddedEvent());
+		assertNull(read.getName());
+		assertNull(read.getAuthor());
+		assertNull(read.getIsbnNumber());
+		assertNull(read.getCategory());
+	}
+
+	@Test
+	public void testSomeNullFields() throws Exception {
+		BookAddedEvent event = new BookAddedEvent();
+		event.setAuthor(AUTHOR);
+		event.setIsbnNumber(Long.valueOf(0));
+		event.setCategory("");
+		assertBook(event, roundTrip(event));
+	}
+
+	@Test
+	public void testBatchRoundTrip() throws Exception {
+		BooksAddedEvent event = new BooksAddedEvent(Arrays.asList(
+				new Book("Java", NAME, AUTHOR, 1935182544L),
+				new Book("Java", "Spring in Action", "Craig Walls", Long.MAX_VALUE)));
+		BookAddedEvent partial = new BookAddedEvent();
+		partial.setName(NAME);
+		event.getBooks().add(partial);
+		BooksAddedEvent read = roundTrip(event);
+		assertEquals(3, read.getBooks().size());
+		for (int i = 0; i < 3; i++) {
+			assertBook(event.getBooks().get(i), read.getBooks().get(i));
+		}
+	}
+
+	@Test
+	public void testEmptyBatch() throws Exception {
+		BooksAddedEvent read = roundTrip(new BooksAddedEvent(new ArrayList<Book>()));
+		assertTrue(read.getBooks().isEmpty());
+	}
+
+	@Test
+	public void testLongStrings() throws Exception {
+		//-- more than the 65535 bytes which writeUTF can write
+		StringBuilder name = new StringBuilder();
+		while (name.length() < 30000) {
+			name.append("日本語 ");
+		}
+		BookAddedEvent event = new BookAddedEvent(new Book("Java", name.toString(), AUTHOR, 1935182544L));
+		assertBook(event, roundTrip(event));
+	}
+
+	@Test
+	public void testVersion1Read() throws Exception {
+		//-- version 1, with the name and the category, written with writeUTF
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeByte(1);
+		out.writeByte(1 | 8);
+		out.writeUTF(NAME);
+		out.writeUTF("Java");
+		out.close();
+		BookAddedEvent read = new BookAddedEvent();
+		read.readExternal(new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		assertEquals(NAME, read.getName());
+		assertNull(read.getAuthor());
+		assertNull(read.getIsbnNumber());
+		assertEquals("Java", read.getCategory());
+	}
+
+	@Test
+	public void testBookVersionRejected() throws Exception {
+		try {
+			new BookAddedEvent().readExternal(input(3, 0));
+			fail("version 3 must be rejected");
+		} catch (InvalidClassException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("unsupported version 3"));
+		}
+	}
+
+	@Test(expected = StreamCorruptedException.class)
+	public void testNegativeStringLengthRejected() throws Exception {
+		//-- version 2, with the name, of length -1
+		new BookAddedEvent().readExternal(input(2, 1, 0xff, 0xff, 0xff, 0xff));
+	}
+
+	@Test
+	public void testBatchVersionRejected() throws Exception {
+		try {
+			new BooksAddedEvent().readExternal(input(0, 0, 0, 0, 0));
+			fail("version 0 must be rejected");
+		} catch (InvalidClassException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("unsupported version 0"));
+		}
+	}
+
+	@Test
+	public void testBookInBatchVersionRejected() throws Exception {
+		//-- version 1, 1 book, of version 3
+		try {
+			new BooksAddedEvent().readExternal(input(1, 0, 0, 0, 1, 3, 0));
+			fail("version 3 of the book must be rejected");
+		} catch (InvalidClassException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("unsupported version 3"));
+		}
+	}
+
+	@Test(expected = StreamCorruptedException.class)
+	public void testNegativeBatchSizeRejected() throws Exception {
+		new BooksAddedEvent().readExternal(input(1, 0xff, 0xff, 0xff, 0xff));
+	}
+
+	@Test
+	public void testRecentBookEventsAreTheSame() throws Exception {
+		for (String name : new String[] { "BookAddedEvent.java", "BooksAddedEvent.java" }) {
+			String path = "/src/chapter11/code/listing/events/" + name;
+			assertTrue(name + " of ch11_RecentBook_event differs from the one of ch11_BookCatalog_event",
+					Arrays.equals(readFile("../../ch11_BookCatalog_event" + path),
+							readFile("../../ch11_RecentBook_event" + path)));
+		}
+	}
+
+	private static void assertBook(BookAddedEvent expected, BookAddedEvent actual) {
+		assertEquals(expected.getName(), actual.getName());
+		assertEquals(expected.getAuthor(), actual.getAuthor());
+		assertEquals(expected.getIsbnNumber(), actual.getIsbnNumber());
+		assertEquals(expected.getCategory(), actual.getCategory());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T roundTrip(T event) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(event);
+		out.close();
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		try {
+			return (T) event.getClass().cast(in.readObject());
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Returns a stream holding the given bytes as the serialized form.
+	 */
+	private static ObjectInputStream input(int... data) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		for (int b : data) {
+			out.writeByte(b);
+		}
+		out.close();
+		return new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+	}
+
+	private static byte[] readFile(String path) throws IOException {
+		File file = new File(path);
+		byte[] content = new byte[(int) file.length()];
+		InputStream in = new FileInputStream(file);
+		try {
+			int read = 0;
+			while (read < content.length) {
+				read += in.read(content, read, content.length - read);
+			}
+		} finally {
+			in.close();
+		}
+		return content;
+	}
+}
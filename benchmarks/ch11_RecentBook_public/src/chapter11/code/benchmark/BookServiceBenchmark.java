@@ -0,0 +1,109 @@
+package chapter11.code.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.portlet.MockPortletContext;
+
+import chapter11.code.listing.domain.Book;
+import chapter11.code.listing.service.BookService;
+import chapter11.code.listing.service.BookServiceImpl;
+import chapter11.code.listing.utils.BookDataObject;
+import chapter11.code.listing.utils.Constants;
+
+import common.code.benchmark.CatalogGenerator;
+
+/**
+ * Benchmarks the BookService of ch11_RecentBook_public, which reads the
+ * catalog from the BookDataObject kept in a PortletContext attribute.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class BookServiceBenchmark {
+	@Param({ "100", "1000", "10000", "100000", "1000000" })
+	public int catalogSize;
+
+	private final CatalogGenerator catalog = new CatalogGenerator();
+	private BookService bookService;
+	private String[] categories;
+	private long existingIsbnNumber;
+	private long missingIsbnNumber;
+	private int nextBook;
+
+	@Setup
+	public void setUp() {
+		BookDataObject bookDataObject = new BookDataObject();
+		CatalogLoader.load(bookDataObject, catalog, catalogSize);
+		MockPortletContext context = new MockPortletContext();
+		context.setAttribute(Constants.BOOK_CATALOG_DATA_ATTR, bookDataObject);
+		bookService = new BookServiceImpl(context);
+		categories = new String[] { CatalogGenerator.CATEGORIES[0], CatalogGenerator.CATEGORIES[1] };
+		//-- in the middle of the catalog, so that a linear search reads half of it
+		existingIsbnNumber = catalog.getIsbnNumber(catalogSize / 2);
+		missingIsbnNumber = catalog.getIsbnNumber(catalogSize);
+		nextBook = catalogSize;
+	}
+
+	@Benchmark
+	public List<Book> getBooks() {
+		return bookService.getBooks();
+	}
+
+	@Benchmark
+	public List<Book> searchBooksCaseSensitive() {
+		return bookService.searchBooks(catalog.getTitleSearchText(), catalog.getAuthorSearchText(),
+				Constants.CASE_SENSITIVE);
+	}
+
+	@Benchmark
+	public List<Book> searchBooksCaseInsensitive() {
+		return bookService.searchBooks(catalog.getTitleSearchText().toLowerCase(),
+				catalog.getAuthorSearchText().toLowerCase(), Constants.CASE_INSENSITIVE);
+	}
+
+	@Benchmark
+	public List<Book> getBooksByCategories() {
+		return bookService.getBooksByCategories(categories);
+	}
+
+	@Benchmark
+	public Book getBook() {
+		return bookService.getBook(existingIsbnNumber);
+	}
+
+	@Benchmark
+	public boolean isUniqueISBN() {
+		return bookService.isUniqueISBN(missingIsbnNumber);
+	}
+
+	/**
+	 * Adds a book and removes it again, so that the size of the catalog
+	 * doesn't change during the benchmark.
+	 */
+	@Benchmark
+	public void addAndRemoveBook() {
+		Book book = CatalogLoader.toBook(catalog.getBook(nextBook++), 0);
+		bookService.addBook(book);
+		bookService.removeBook(book.getIsbnNumber());
+	}
+
+	@Benchmark
+	public Book getRecentBook() {
+		return bookService.getRecentBook();
+	}
+}
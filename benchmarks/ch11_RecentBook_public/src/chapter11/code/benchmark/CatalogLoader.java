@@ -0,0 +1,34 @@
+package chapter11.code.benchmark;
+
+import java.util.List;
+
+import chapter11.code.listing.domain.Book;
+import chapter11.code.listing.utils.BookDataObject;
+
+import common.code.benchmark.CatalogGenerator;
+import common.code.benchmark.GeneratedBook;
+
+/**
+ * Appends the books of a CatalogGenerator to the list of a BookDataObject,
+ * numbering them like BookServiceImpl.addBook does. The list is locked once
+ * for the whole load instead of once per book.
+ */
+public final class CatalogLoader {
+	private CatalogLoader() {
+	}
+
+	public static void load(BookDataObject bookDataObject, CatalogGenerator catalog, int count) {
+		List<Book> books = bookDataObject.getBooks();
+		synchronized (books) {
+			int sequence = books.size();
+			for (int i = 0; i < count; i++) {
+				books.add(toBook(catalog.getBook(i), ++sequence));
+			}
+		}
+	}
+
+	public static Book toBook(GeneratedBook book, int sequence) {
+		return new Book(book.getCategory(), book.getName(), book.getAuthor(), book.getIsbnNumber(),
+				sequence);
+	}
+}
@@ -0,0 +1,65 @@
+package chapter12.code.benchmark;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.nio.SelectChannelConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import chapter12.code.listing.sample.DateTimeServlet;
+import chapter12.code.listing.sample.DateTimeStreamServlet;
+import chapter12.code.listing.sample.DateTimeTicker;
+import chapter12.code.listing.sample.DateTimeTickerListener;
+
+/**
+ * Runs the DateTimeServlet and DateTimeStreamServlet of ch12_DateTime in an
+ * embedded Jetty, with a thread per subscriber of the date/time stream, and
+ * prints the number of subscribers, threads and the used heap every 5
+ * seconds. Run DateTimeStreamSimulator against it, in another JVM:
+ *
+ * java -Xss256k -cp ch12_DateTime/target/benchmarks.jar chapter12.code.benchmark.DateTimeStreamServer
+ *     [port (8080)] [maxThreads (11000)] [maxSubscribers (10000)]
+ *
+ * The subscribers above maxSubscribers only receive a poll event.
+ */
+public final class DateTimeStreamServer {
+	public static final String CONTEXT_PATH = "/ch12_DateTime";
+
+	private DateTimeStreamServer() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+		int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : 11000;
+		int maxSubscribers = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+
+		QueuedThreadPool threadPool = new QueuedThreadPool(maxThreads);
+		Server server = new Server();
+		server.setThreadPool(threadPool);
+		SelectChannelConnector connector = new SelectChannelConnector();
+		connector.setPort(port);
+		connector.setAcceptQueueSize(maxThreads);
+		server.addConnector(connector);
+
+		ServletContextHandler context = new ServletContextHandler();
+		context.setContextPath(CONTEXT_PATH);
+		context.setInitParameter(DateTimeTickerListener.MAX_SUBSCRIBERS_PARAM,
+				String.valueOf(maxSubscribers));
+		context.addEventListener(new DateTimeTickerListener());
+		context.addServlet(DateTimeServlet.class, "/DateTimeServlet");
+		context.addServlet(DateTimeStreamServlet.class, "/DateTimeStream");
+		server.setHandler(context);
+		server.start();
+		System.out.println("Streaming the date/time at http://localhost:" + port + CONTEXT_PATH
+				+ "/DateTimeStream");
+
+		DateTimeTicker ticker = (DateTimeTicker) context.getServletContext().getAttribute(
+				DateTimeTickerListener.TICKER_ATTR);
+		Runtime runtime = Runtime.getRuntime();
+		while (true) {
+			Thread.sleep(5000);
+			long usedHeap = runtime.totalMemory() - runtime.freeMemory();
+			System.out.println("subscribers: " + ticker.getSubscriberCount() + ", threads: "
+					+ threadPool.getThreads() + ", used heap: " + (usedHeap >> 20) + " MB");
+		}
+	}
+}
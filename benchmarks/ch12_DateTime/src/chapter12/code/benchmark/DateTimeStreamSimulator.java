@@ -0,0 +1,174 @@
+package chapter12.code.benchmark;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Simulates the browsers subscribed to the date/time stream. All the
+ * subscribers are non-blocking connections of one selector thread, so that
+ * 10000 subscribers don't need 10000 client threads. Once all subscribers
+ * are connected, it counts the events each one receives for the given
+ * number of seconds; with one tick per second each subscriber should
+ * receive one event per second.
+ *
+ * java -cp ch12_DateTime/target/benchmarks.jar chapter12.code.benchmark.DateTimeStreamSimulator
+ *     [subscribers (10000)] [seconds (30)] [url (http://localhost:8080/ch12_DateTime/DateTimeStream)]
+ */
+public final class DateTimeStreamSimulator {
+	//-- connections which are being opened at the same time
+	private static final int MAX_PENDING_CONNECTIONS = 500;
+	//-- the measurement starts anyway if some subscribers receive no events
+	private static final long CONNECT_TIMEOUT_MILLIS = 60000;
+	private static final byte[] EVENT_DATA = "\ndata:".getBytes();
+
+	private DateTimeStreamSimulator() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		int subscriberCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+		URL url = new URL(args.length > 2 ? args[2] : "http://localhost:8080"
+				+ DateTimeStreamServer.CONTEXT_PATH + "/DateTimeStream");
+		InetSocketAddress address = new InetSocketAddress(url.getHost(),
+				url.getPort() == -1 ? 80 : url.getPort());
+		byte[] request = ("GET " + url.getFile() + " HTTP/1.1\r\nHost: " + url.getHost()
+				+ "\r\nAccept: text/event-stream\r\nCache-Control: no-cache\r\n\r\n").getBytes();
+
+		Selector selector = Selector.open();
+		List<Subscriber> subscribers = new ArrayList<Subscriber>();
+		ByteBuffer buffer = ByteBuffer.allocate(8192);
+		int pending = 0;
+		int failed = 0;
+		long start = System.currentTimeMillis();
+		long measurementStart = 0;
+		long measurementEnd = Long.MAX_VALUE;
+		boolean reset = false;
+
+		while (System.currentTimeMillis() < measurementEnd) {
+			while (subscribers.size() < subscriberCount && pending < MAX_PENDING_CONNECTIONS) {
+				SocketChannel channel = SocketChannel.open();
+				channel.configureBlocking(false);
+				Subscriber subscriber = new Subscriber();
+				subscribers.add(subscriber);
+				if (channel.connect(address)) {
+					subscriber.connected(channel, request);
+					channel.register(selector, SelectionKey.OP_READ, subscriber);
+				} else {
+					channel.register(selector, SelectionKey.OP_CONNECT, subscriber);
+					pending++;
+				}
+			}
+			if (measurementStart == 0 && subscribers.size() == subscriberCount && pending == 0) {
+				int receiving = countReceiving(subscribers);
+				long now = System.currentTimeMillis();
+				if (receiving + failed == subscriberCount || now - start > CONNECT_TIMEOUT_MILLIS) {
+					measurementStart = now;
+					measurementEnd = measurementStart + seconds * 1000L;
+					System.out.println(receiving + " subscribers receiving events after "
+							+ (measurementStart - start) + " ms, " + failed + " failed");
+				}
+			}
+			if (measurementStart > 0 && !reset) {
+				for (Subscriber subscriber : subscribers) {
+					subscriber.events = 0;
+				}
+				reset = true;
+			}
+			selector.select(100);
+			for (Iterator<SelectionKey> i = selector.selectedKeys().iterator(); i.hasNext();) {
+				SelectionKey key = i.next();
+				i.remove();
+				Subscriber subscriber = (Subscriber) key.attachment();
+				SocketChannel channel = (SocketChannel) key.channel();
+				try {
+					if (key.isConnectable()) {
+						pending--;
+						channel.finishConnect();
+						subscriber.connected(channel, request);
+						key.interestOps(SelectionKey.OP_READ);
+					} else if (key.isReadable()) {
+						buffer.clear();
+						if (channel.read(buffer) < 0) {
+							throw new IOException("closed by the server");
+						}
+						buffer.flip();
+						subscriber.read(buffer);
+					}
+				} catch (IOException e) {
+					key.cancel();
+					channel.close();
+					subscriber.failed = true;
+					failed++;
+				}
+			}
+		}
+
+		int minEvents = Integer.MAX_VALUE;
+		int maxEvents = 0;
+		long totalEvents = 0;
+		for (Subscriber subscriber : subscribers) {
+			if (!subscriber.failed) {
+				minEvents = Math.min(minEvents, subscriber.events);
+				maxEvents = Math.max(maxEvents, subscriber.events);
+				totalEvents += subscriber.events;
+			}
+		}
+		int connected = subscriberCount - failed;
+		System.out.println(connected + " subscribers, " + failed + " failed, " + totalEvents
+				+ " events in " + seconds + " s (" + (totalEvents / seconds) + " events/s)");
+		if (connected > 0) {
+			System.out.println("events per subscriber: min " + minEvents + ", avg "
+					+ (totalEvents / connected) + ", max " + maxEvents);
+		}
+		selector.close();
+		System.exit(0);
+	}
+
+	private static int countReceiving(List<Subscriber> subscribers) {
+		int count = 0;
+		for (Subscriber subscriber : subscribers) {
+			if (subscriber.events > 0 && !subscriber.failed) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static class Subscriber {
+		private int events;
+		private boolean failed;
+		//-- number of bytes of EVENT_DATA matched at the end of the last read
+		private int matched;
+
+		void connected(SocketChannel channel, byte[] request) throws IOException {
+			ByteBuffer buffer = ByteBuffer.wrap(request);
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+
+		//-- counts the "data:" lines, which can be split between two reads
+		void read(ByteBuffer buffer) {
+			while (buffer.hasRemaining()) {
+				byte b = buffer.get();
+				if (b == EVENT_DATA[matched]) {
+					matched++;
+					if (matched == EVENT_DATA.length) {
+						events++;
+						matched = 0;
+					}
+				} else {
+					matched = b == EVENT_DATA[0] ? 1 : 0;
+				}
+			}
+		}
+	}
+}
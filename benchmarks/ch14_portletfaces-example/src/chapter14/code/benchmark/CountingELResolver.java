@@ -0,0 +1,74 @@
+package chapter14.code.benchmark;
+
+import java.beans.FeatureDescriptor;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.el.ELContext;
+import javax.el.ELResolver;
+
+/**
+ * ELResolver which resolves nothing and counts the calls of getValue. The
+ * ELResolvers of faces-config.xml come before the ManagedBeanELResolver and
+ * the BeanELResolver in the chain of the Application, so each bean and each
+ * bean property resolved by the views, or looked up by the beans themselves,
+ * passes through it.
+ */
+public class CountingELResolver extends ELResolver {
+	private static final AtomicLong values = new AtomicLong();
+	private static final AtomicLong bookServiceLookups = new AtomicLong();
+
+	public static void reset() {
+		values.set(0);
+		bookServiceLookups.set(0);
+	}
+
+	/**
+	 * Returns the number of bases and properties resolved since the last
+	 * reset.
+	 */
+	public static long getValues() {
+		return values.get();
+	}
+
+	/**
+	 * Returns the number of lookups of the bookService bean since the last
+	 * reset.
+	 */
+	public static long getBookServiceLookups() {
+		return bookServiceLookups.get();
+	}
+
+	@Override
+	public Object getValue(ELContext context, Object base, Object property) {
+		values.incrementAndGet();
+		if (base == null && "bookService".equals(property)) {
+			bookServiceLookups.incrementAndGet();
+		}
+		return null;
+	}
+
+	@Override
+	public Class<?> getType(ELContext context, Object base, Object property) {
+		return null;
+	}
+
+	@Override
+	public void setValue(ELContext context, Object base, Object property, Object value) {
+	}
+
+	@Override
+	public boolean isReadOnly(ELContext context, Object base, Object property) {
+		return false;
+	}
+
+	@Override
+	public Iterator<FeatureDescriptor> getFeatureDescriptors(ELContext context, Object base) {
+		return null;
+	}
+
+	@Override
+	public Class<?> getCommonPropertyType(ELContext context, Object base) {
+		return null;
+	}
+}
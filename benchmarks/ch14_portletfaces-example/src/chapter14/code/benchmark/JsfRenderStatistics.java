@@ -0,0 +1,306 @@
+package chapter14.code.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Serializable;
+import java.io.Writer;
+import java.net.CookieHandler;
+import java.net.CookieManager;
+import java.net.CookiePolicy;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpSessionEvent;
+import javax.servlet.http.HttpSessionListener;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.webapp.WebAppContext;
+
+import com.sun.faces.config.ConfigureListener;
+
+/**
+ * Runs the web application version of ch14_portletfaces-example (web.xml,
+ * faces-config.xml and the web-xhtml views) in an embedded Jetty, and sends
+ * the requests of one user who looks at the book catalog and adds a book.
+ * For each request it reports the ELResolver.getValue calls which reach the
+ * beans, the lookups of the bookService bean among them, and the bytes of
+ * the serialized HTTP session after the request, which is what is
+ * replicated in a cluster. Objects of the session which aren't Serializable
+ * are counted and written as a marker, as a session manager that
+ * replicates the session would fail on them.
+ *
+ * The calls are counted by CountingELResolver, which statistics-faces-config.xml
+ * adds to the faces-config.xml of the application. The webapp is unpacked
+ * from this jar, so build it with -Dportletfaces.dir=<directory> to measure
+ * another copy of ch14_portletfaces-example.
+ *
+ * java -cp ch14_portletfaces-example/target/benchmarks.jar chapter14.code.benchmark.JsfRenderStatistics
+ */
+public final class JsfRenderStatistics {
+	private static final String WEBAPP = "webapp/";
+	private static final String CLASSES = "chapter14/code/listing/";
+	private static final Pattern FORM = Pattern.compile("<form id=\"([^\"]+)\"[^>]* action=\"([^\"]+)\"");
+	private static final Pattern VIEW_STATE = Pattern
+			.compile("name=\"javax.faces.ViewState\"[^>]* value=\"([^\"]+)\"");
+	private static final Pattern ADD_BOOK_BUTTON = Pattern
+			.compile("<input type=\"submit\" name=\"([^\"]+)\" value=\"Add Book\"");
+
+	private static volatile HttpSession session;
+
+	private JsfRenderStatistics() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		File webappDir = unpackWebapp();
+		Server server = new Server(0);
+		WebAppContext webapp = new WebAppContext(webappDir.getPath(), "/bookCatalog");
+		//-- the classes of the application come from this jar, but are also
+		//-- unpacked in WEB-INF/classes for the managed bean annotation scan
+		webapp.setParentLoaderPriority(true);
+		webapp.setInitParameter("javax.faces.CONFIG_FILES", "/WEB-INF/statistics-faces-config.xml");
+		webapp.setInitParameter("com.sun.faces.expressionFactory", "com.sun.el.ExpressionFactoryImpl");
+		webapp.addEventListener(new ConfigureListener());
+		webapp.addEventListener(new HttpSessionListener() {
+			public void sessionCreated(HttpSessionEvent event) {
+				session = event.getSession();
+			}
+
+			public void sessionDestroyed(HttpSessionEvent event) {
+			}
+		});
+		server.setHandler(webapp);
+		server.start();
+		CookieHandler.setDefault(new CookieManager(null, CookiePolicy.ACCEPT_ALL));
+		try {
+			String base = "http://localhost:" + server.getConnectors()[0].getLocalPort();
+			String home = base + "/bookCatalog/xhtml/home.xhtml";
+
+			System.out.printf("%-42s %9s %12s %14s %14s%n", "request", "getValue", "bookService",
+					"session bytes", "not serialized");
+			String page = send("GET home (new session)", home, null);
+			page = send("GET home", home, null);
+			page = send("POST home, Add Book", base + getAction(page), addBookForm(page, null));
+			Map<String, String> book = new LinkedHashMap<String, String>();
+			book.put("title", "Portlets in Action");
+			book.put("author", "Ashish Sarin");
+			book.put("isbnNumber", "1935182544");
+			page = send("POST addBookForm, Add Book", base + getAction(page), addBookForm(page, book));
+			page = send("GET home", home, null);
+			if (!page.contains("Portlets in Action")) {
+				throw new IllegalStateException("The book wasn't added: " + page);
+			}
+
+			System.out.println();
+			System.out.println("Session attributes after the last request:");
+			for (Enumeration<?> names = session.getAttributeNames(); names.hasMoreElements();) {
+				String name = (String) names.nextElement();
+				SessionSize size = getSize(session.getAttribute(name));
+				System.out.printf("  %-70s %7d bytes %3d not serialized%n", name, size.bytes,
+						size.notSerializable);
+			}
+		} finally {
+			server.stop();
+			delete(webappDir);
+		}
+	}
+
+	/**
+	 * Sends a request, and prints the EL resolutions of the request and the
+	 * size of the session after it. Returns the page.
+	 */
+	private static String send(String name, String url, String form) throws IOException {
+		CountingELResolver.reset();
+		HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+		connection.setInstanceFollowRedirects(true);
+		if (form != null) {
+			connection.setDoOutput(true);
+			connection.setRequestMethod("POST");
+			connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+			Writer out = new OutputStreamWriter(connection.getOutputStream(), "UTF-8");
+			out.write(form);
+			out.close();
+		}
+		if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+			throw new IOException(name + ": HTTP " + connection.getResponseCode());
+		}
+		InputStream in = connection.getInputStream();
+		ByteArrayOutputStream page = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		for (int read; (read = in.read(buffer)) != -1;) {
+			page.write(buffer, 0, read);
+		}
+		in.close();
+
+		SessionSize size = new SessionSize();
+		for (Enumeration<?> names = session.getAttributeNames(); names.hasMoreElements();) {
+			String attribute = (String) names.nextElement();
+			SessionSize attributeSize = getSize(attribute, session.getAttribute(attribute));
+			size.bytes += attributeSize.bytes;
+			size.notSerializable += attributeSize.notSerializable;
+		}
+		System.out.printf("%-42s %9d %12d %14d %14d%n", name, CountingELResolver.getValues(),
+				CountingELResolver.getBookServiceLookups(), size.bytes, size.notSerializable);
+		return page.toString("UTF-8");
+	}
+
+	private static String getAction(String page) {
+		Matcher matcher = FORM.matcher(page);
+		if (!matcher.find()) {
+			throw new IllegalStateException("No form in page: " + page);
+		}
+		return matcher.group(2);
+	}
+
+	/**
+	 * Returns the request body which submits the form of the page with its
+	 * Add Book button, and the given values of the inputs.
+	 */
+	private static String addBookForm(String page, Map<String, String> inputs) throws IOException {
+		Matcher form = FORM.matcher(page);
+		Matcher viewState = VIEW_STATE.matcher(page);
+		Matcher button = ADD_BOOK_BUTTON.matcher(page);
+		if (!form.find() || !viewState.find() || !button.find()) {
+			throw new IllegalStateException("No Add Book form in page: " + page);
+		}
+		String formId = form.group(1);
+		StringBuilder body = new StringBuilder();
+		append(body, formId, formId);
+		if (inputs != null) {
+			for (Map.Entry<String, String> input : inputs.entrySet()) {
+				append(body, formId + ":" + input.getKey(), input.getValue());
+			}
+		}
+		append(body, button.group(1), "Add Book");
+		append(body, "javax.faces.ViewState", viewState.group(1).replace("&#58;", ":"));
+		return body.toString();
+	}
+
+	private static void append(StringBuilder body, String name, String value) throws IOException {
+		if (body.length() > 0) {
+			body.append('&');
+		}
+		body.append(URLEncoder.encode(name, "UTF-8")).append('=').append(URLEncoder.encode(value, "UTF-8"));
+	}
+
+	private static SessionSize getSize(Object... objects) throws IOException {
+		CountingOutputStream out = new CountingOutputStream();
+		SessionOutputStream oos = new SessionOutputStream(out);
+		for (Object object : objects) {
+			oos.writeObject(object);
+		}
+		oos.close();
+		SessionSize size = new SessionSize();
+		size.bytes = out.count;
+		size.notSerializable = oos.notSerializable;
+		return size;
+	}
+
+	/**
+	 * Copies the webapp directory and the classes of the application from
+	 * this jar to a temporary directory.
+	 */
+	private static File unpackWebapp() throws IOException {
+		File webappDir = File.createTempFile("portletfaces", "");
+		if (!webappDir.delete() || !webappDir.mkdir()) {
+			throw new IOException("Can't create " + webappDir);
+		}
+		File jar = new File(JsfRenderStatistics.class.getProtectionDomain().getCodeSource().getLocation()
+				.getPath());
+		JarFile jarFile = new JarFile(jar);
+		try {
+			for (Enumeration<JarEntry> entries = jarFile.entries(); entries.hasMoreElements();) {
+				JarEntry entry = entries.nextElement();
+				File file;
+				if (entry.getName().startsWith(WEBAPP)) {
+					file = new File(webappDir, entry.getName().substring(WEBAPP.length()));
+				} else if (entry.getName().startsWith(CLASSES)) {
+					file = new File(webappDir, "WEB-INF/classes/" + entry.getName());
+				} else {
+					continue;
+				}
+				if (entry.isDirectory()) {
+					file.mkdirs();
+					continue;
+				}
+				file.getParentFile().mkdirs();
+				InputStream in = jarFile.getInputStream(entry);
+				OutputStream out = new FileOutputStream(file);
+				byte[] buffer = new byte[8192];
+				for (int read; (read = in.read(buffer)) != -1;) {
+					out.write(buffer, 0, read);
+				}
+				out.close();
+				in.close();
+			}
+		} finally {
+			jarFile.close();
+		}
+		return webappDir;
+	}
+
+	private static void delete(File file) {
+		File[] files = file.listFiles();
+		if (files != null) {
+			for (File child : files) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	private static class SessionSize {
+		private long bytes;
+		private int notSerializable;
+	}
+
+	/**
+	 * ObjectOutputStream which writes a marker in place of each object which
+	 * isn't Serializable, and counts them.
+	 */
+	private static class SessionOutputStream extends ObjectOutputStream {
+		private int notSerializable;
+
+		SessionOutputStream(OutputStream out) throws IOException {
+			super(out);
+			enableReplaceObject(true);
+		}
+
+		@Override
+		protected Object replaceObject(Object object) throws IOException {
+			if (object == null || object instanceof Serializable) {
+				return object;
+			}
+			notSerializable++;
+			return object.getClass().getName();
+		}
+	}
+
+	private static class CountingOutputStream extends OutputStream {
+		private long count;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package chapter14.code.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.wicket.Page;
+import org.apache.wicket.protocol.http.pagestore.AbstractPageStore;
+
+/**
+ * Page store which keeps the serialized pages in memory, in the same form in
+ * which DiskPageStore writes them to disk, so that the size of the page store
+ * of a session can be measured.
+ */
+public class InMemoryPageStore extends AbstractPageStore {
+	private final Map<String, List<SerializedPage>> pagesBySession = new HashMap<String, List<SerializedPage>>();
+
+	public synchronized void storePage(String sessionId, Page page) {
+		List<SerializedPage> pages = pagesBySession.get(sessionId);
+		if (pages == null) {
+			pages = new ArrayList<SerializedPage>();
+			pagesBySession.put(sessionId, pages);
+		}
+		pages.addAll(serializePage(page));
+	}
+
+	public synchronized <T> Page getPage(String sessionId, String pageMapName, int id, int versionNumber,
+			int ajaxVersionNumber) {
+		SerializedPage page = findPage(sessionId, pageMapName, id, versionNumber, ajaxVersionNumber);
+		return page == null ? null : deserializePage(page.getData(), versionNumber);
+	}
+
+	public synchronized boolean containsPage(String sessionId, String pageMapName, int id, int versionNumber) {
+		return findPage(sessionId, pageMapName, id, versionNumber, -1) != null;
+	}
+
+	public void pageAccessed(String sessionId, Page page) {
+	}
+
+	public synchronized void removePage(String sessionId, String pageMapName, int id) {
+		List<SerializedPage> pages = pagesBySession.get(sessionId);
+		if (pages == null) {
+			return;
+		}
+		for (Iterator<SerializedPage> i = pages.iterator(); i.hasNext();) {
+			SerializedPage page = i.next();
+			//-- an id of -1 removes all the pages of the page map
+			if (equal(page.getPageMapName(), pageMapName) && (id == -1 || page.getPageId() == id)) {
+				i.remove();
+			}
+		}
+	}
+
+	public synchronized void unbind(String sessionId) {
+		pagesBySession.remove(sessionId);
+	}
+
+	public synchronized void destroy() {
+		pagesBySession.clear();
+	}
+
+	/**
+	 * Returns the number of bytes of the serialized pages of a session.
+	 */
+	public synchronized long getSize(String sessionId) {
+		long size = 0;
+		List<SerializedPage> pages = pagesBySession.get(sessionId);
+		if (pages != null) {
+			for (SerializedPage page : pages) {
+				size += page.getData().length;
+			}
+		}
+		return size;
+	}
+
+	public synchronized int getPageCount(String sessionId) {
+		List<SerializedPage> pages = pagesBySession.get(sessionId);
+		return pages == null ? 0 : pages.size();
+	}
+
+	//-- a version number of -1 is the latest version, and an Ajax version
+	//-- number of -1 the latest Ajax version of that version
+	private SerializedPage findPage(String sessionId, String pageMapName, int id, int versionNumber,
+			int ajaxVersionNumber) {
+		List<SerializedPage> pages = pagesBySession.get(sessionId);
+		if (pages == null) {
+			return null;
+		}
+		for (int i = pages.size() - 1; i >= 0; i--) {
+			SerializedPage page = pages.get(i);
+			if (page.getPageId() == id && equal(page.getPageMapName(), pageMapName)
+					&& (versionNumber == -1 || page.getVersionNumber() == versionNumber)
+					&& (ajaxVersionNumber == -1 || page.getAjaxVersionNumber() == ajaxVersionNumber)) {
+				return page;
+			}
+		}
+		return null;
+	}
+
+	private static boolean equal(String s1, String s2) {
+		return s1 == null ? s2 == null : s1.equals(s2);
+	}
+}
@@ -0,0 +1,138 @@
+package chapter14.code.benchmark;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.Enumeration;
+
+import javax.servlet.http.HttpSession;
+
+import org.apache.wicket.protocol.http.SecondLevelCacheSessionStore;
+import org.apache.wicket.session.ISessionStore;
+import org.apache.wicket.util.tester.WicketTester;
+
+import chapter14.code.listing.Book;
+import chapter14.code.listing.BookCatalogApp;
+import chapter14.code.listing.Home;
+import chapter14.code.listing.servlet.BookDataObject;
+
+import common.code.benchmark.CatalogGenerator;
+import common.code.benchmark.GeneratedBook;
+
+/**
+ * Simulates users paging the book table of ch14_wicket-example, and reports
+ * the bytes each user keeps in the HTTP session, which is what is replicated
+ * in a cluster, and in the page store, which is what DiskPageStore writes to
+ * disk for each version of the page.
+ *
+ * Each user has its own WicketTester, session and page store, and all users
+ * share one catalog. The users are simulated one after the other, as the
+ * size of a session doesn't depend on the other sessions; the totals are the
+ * bytes the sessions would take if the users were logged in at the same time.
+ *
+ * java -cp ch14_wicket-example/target/benchmarks.jar chapter14.code.benchmark.SessionSizeHarness
+ *     [users (1000)] [pages per user (10)] [catalogSize (1000)]
+ */
+public final class SessionSizeHarness {
+	private static final String NEXT_PAGE_LINK = "table:topToolbars:1:toolbar:span:navigator:next";
+
+	private SessionSizeHarness() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		int users = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int pagesPerUser = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		int catalogSize = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+
+		BookDataObject bookDataObject = new BookDataObject();
+		CatalogGenerator catalog = new CatalogGenerator();
+		for (int i = 0; i < catalogSize; i++) {
+			GeneratedBook book = catalog.getBook(i);
+			bookDataObject.addBook(new Book(book.getName(), book.getAuthor(), book.getIsbnNumber()));
+		}
+
+		long totalSessionBytes = 0;
+		long maxSessionBytes = 0;
+		long totalPageStoreBytes = 0;
+		long maxPageStoreBytes = 0;
+		int pageCount = 0;
+		long start = System.currentTimeMillis();
+		for (int user = 0; user < users; user++) {
+			InMemoryPageStore pageStore = new InMemoryPageStore();
+			WicketTester tester = new WicketTester(new MeasuredBookCatalogApp(pageStore));
+			try {
+				tester.getServletSession().getServletContext().setAttribute("bookCatalog", bookDataObject);
+				tester.startPage(Home.class);
+				for (int page = 1; page < pagesPerUser; page++) {
+					tester.clickLink(NEXT_PAGE_LINK);
+				}
+				long sessionBytes = getSessionSize(tester.getServletSession());
+				String sessionId = tester.getServletSession().getId();
+				long pageStoreBytes = pageStore.getSize(sessionId);
+				totalSessionBytes += sessionBytes;
+				maxSessionBytes = Math.max(maxSessionBytes, sessionBytes);
+				totalPageStoreBytes += pageStoreBytes;
+				maxPageStoreBytes = Math.max(maxPageStoreBytes, pageStoreBytes);
+				pageCount += pageStore.getPageCount(sessionId);
+			} finally {
+				tester.destroy();
+			}
+		}
+		long millis = System.currentTimeMillis() - start;
+
+		System.out.println(users + " users, " + pagesPerUser + " pages of the table each, "
+				+ bookDataObject.size() + " books, " + millis + " ms");
+		System.out.println("HTTP session: " + (totalSessionBytes / users) + " bytes per user (max "
+				+ maxSessionBytes + "), " + totalSessionBytes + " bytes in total");
+		System.out.println("Page store:   " + (totalPageStoreBytes / users) + " bytes per user (max "
+				+ maxPageStoreBytes + "), " + totalPageStoreBytes + " bytes in total, "
+				+ (pageCount == 0 ? 0 : totalPageStoreBytes / pageCount) + " bytes per stored page version");
+	}
+
+	/**
+	 * Returns the number of bytes of the serialized attributes of the session.
+	 */
+	private static long getSessionSize(HttpSession session) throws IOException {
+		CountingOutputStream out = new CountingOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(out);
+		for (Enumeration<?> names = session.getAttributeNames(); names.hasMoreElements();) {
+			String name = (String) names.nextElement();
+			oos.writeObject(name);
+			oos.writeObject(session.getAttribute(name));
+		}
+		oos.close();
+		return out.count;
+	}
+
+	private static class MeasuredBookCatalogApp extends BookCatalogApp {
+		private final InMemoryPageStore pageStore;
+
+		MeasuredBookCatalogApp(InMemoryPageStore pageStore) {
+			this.pageStore = pageStore;
+		}
+
+		@Override
+		public String getConfigurationType() {
+			return DEPLOYMENT;
+		}
+
+		@Override
+		protected ISessionStore newSessionStore() {
+			return new SecondLevelCacheSessionStore(this, pageStore);
+		}
+	}
+
+	private static class CountingOutputStream extends OutputStream {
+		private long count;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+	}
+}
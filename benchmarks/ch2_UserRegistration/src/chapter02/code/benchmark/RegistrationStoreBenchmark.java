@@ -0,0 +1,75 @@
+package chapter02.code.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chapter02.code.listing.RegistrationStore;
+import chapter02.code.listing.User;
+
+/**
+ * Measures the registrations per second of the RegistrationStore of
+ * ch2_UserRegistration, with 16 threads registering at the same time, as
+ * the request threads of the portal do during a burst. The queue is bounded,
+ * so the throughput of QUEUED is the rate at which the writer empties it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class RegistrationStoreBenchmark {
+	@Param({ "QUEUED", "WRITTEN", "SYNCED" })
+	public RegistrationStore.Durability durability;
+
+	private final AtomicLong nextUser = new AtomicLong();
+	private File file;
+	private RegistrationStore store;
+	private User registeredUser;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		file = File.createTempFile("registrations", ".txt");
+		store = new RegistrationStore(file, durability, 10000, 1000);
+		registeredUser = new User("Registered", "User", "registered@example.com");
+		store.register(registeredUser);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		store.close();
+		System.out.println();
+		System.out.println(store.getWrittenCount() + " registrations written in "
+				+ store.getBatchCount() + " batches");
+		file.delete();
+	}
+
+	@Benchmark
+	public RegistrationStore.Result register() throws IOException {
+		long n = nextUser.getAndIncrement();
+		return store.register(new User("First" + n, "Last" + n, "user" + n + "@example.com"));
+	}
+
+	@Benchmark
+	public RegistrationStore.Result registerDuplicate() throws IOException {
+		return store.register(registeredUser);
+	}
+}
@@ -0,0 +1,269 @@
+package chapter02.code.listing.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import chapter02.code.listing.RegistrationStore;
+import chapter02.code.listing.RegistrationStore.Durability;
+import chapter02.code.listing.RegistrationStore.Result;
+import chapter02.code.listing.User;
+
+/**
+ * JUnit test for RegistrationStore: the registrations read back from the
+ * file, the removal of a line cut off by a crash and of a partly written
+ * batch, and the users queued when the store is closed.
+ */
+public class RegistrationStoreTest {
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("registrations", ".txt");
+		file.delete();
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void testRegisterAndReopen() throws Exception {
+		RegistrationStore store = new RegistrationStore(file, Durability.SYNCED, 10, 10);
+		assertEquals(Result.REGISTERED, store.register(new User("Ashish", "Sarin", "Ashish@Example.com")));
+		assertEquals(Result.REGISTERED, store.register(new User("Tab\there", "New\nline", "tab\t@example.com")));
+		assertEquals(Result.DUPLICATE_EMAIL, store.register(new User("A", "S", " ashish@example.com ")));
+		store.close();
+
+		store = new RegistrationStore(file, Durability.SYNCED, 10, 10);
+		try {
+			assertTrue(store.isRegistered("ashish@example.com"));
+			assertTrue(store.isRegistered("TAB\t@example.com"));
+			assertEquals(Result.DUPLICATE_EMAIL, store.register(new User("A", "S", "ASHISH@example.com")));
+		} finally {
+			store.close();
+		}
+		assertEquals(2, readLines().size());
+	}
+
+	@Test
+	public void testIncompleteLineRemoved() throws Exception {
+		String complete = "first@example.com\tFirst\tUser\t1\n";
+		OutputStream out = new FileOutputStream(file);
+		out.write((complete + "cut@example.com\tCut\tOf").getBytes("UTF-8"));
+		out.close();
+
+		RegistrationStore store = new RegistrationStore(file, Durability.SYNCED, 10, 10);
+		try {
+			assertEquals(complete.length(), file.length());
+			assertTrue(store.isRegistered("first@example.com"));
+			assertFalse(store.isRegistered("cut@example.com"));
+			assertEquals(Result.REGISTERED, store.register(new User("Cut", "Off", "cut@example.com")));
+		} finally {
+			store.close();
+		}
+		List<String> lines = readLines();
+		assertEquals(2, lines.size());
+		assertEquals(complete, lines.get(0) + "\n");
+		assertTrue(lines.get(1).startsWith("cut@example.com\tCut\tOff\t"));
+	}
+
+	@Test
+	public void testPartialBatchRolledBack() throws Exception {
+		FailingStore store = new FailingStore(file, false);
+		try {
+			assertEquals(Result.REGISTERED, store.register(new User("First", "User", "first@example.com")));
+			long length = file.length();
+			store.failNextBatch = true;
+			try {
+				store.register(new User("Second", "User", "second@example.com"));
+				fail("The failed batch must fail the registration");
+			} catch (IOException e) {
+				assertEquals("disk full", e.getMessage());
+			}
+			assertEquals(length, file.length());
+			assertFalse(store.isRegistered("second@example.com"));
+
+			//-- the email may be registered again, after the complete lines
+			assertEquals(Result.REGISTERED, store.register(new User("Second", "User", "second@example.com")));
+		} finally {
+			store.close();
+		}
+		List<String> lines = readLines();
+		assertEquals(2, lines.size());
+		assertTrue(lines.get(0).startsWith("first@example.com\t"));
+		assertTrue(lines.get(1).startsWith("second@example.com\t"));
+	}
+
+	@Test
+	public void testPartialBatchNotRemoved() throws Exception {
+		FailingStore store = new FailingStore(file, true);
+		try {
+			store.failNextBatch = true;
+			try {
+				store.register(new User("First", "User", "first@example.com"));
+				fail("The failed batch must fail the registration");
+			} catch (IOException e) {
+				assertEquals("disk full", e.getMessage());
+			}
+			//-- the following batches would be appended to the partial line
+			try {
+				store.register(new User("Second", "User", "second@example.com"));
+				fail("No batch may be written after a partial batch");
+			} catch (IOException e) {
+				assertTrue(e.getMessage().contains("contains a partial batch"));
+			}
+			assertFalse(store.isRegistered("second@example.com"));
+		} finally {
+			store.close();
+		}
+	}
+
+	@Test
+	public void testCloseWritesQueuedUsers() throws Exception {
+		RegistrationStore store = new RegistrationStore(file, Durability.QUEUED, 1000, 10);
+		for (int i = 0; i < 500; i++) {
+			assertEquals(Result.REGISTERED, store.register(new User("User", String.valueOf(i), i + "@example.com")));
+		}
+		store.close();
+		assertEquals(500, store.getWrittenCount());
+		assertEquals(500, readLines().size());
+		try {
+			store.register(new User("Late", "User", "late@example.com"));
+			fail("A closed store must not accept registrations");
+		} catch (IOException e) {
+			assertFalse(store.isRegistered("late@example.com"));
+		}
+	}
+
+	//-- the race of register and close is short, so it is run several times
+	@Test(timeout = 20000)
+	public void testRegisterWhileClosingQueued() throws Exception {
+		for (int i = 0; i < 20; i++) {
+			registerWhileClosing(Durability.QUEUED);
+		}
+	}
+
+	@Test(timeout = 20000)
+	public void testRegisterWhileClosingWritten() throws Exception {
+		for (int i = 0; i < 20; i++) {
+			registerWhileClosing(Durability.WRITTEN);
+		}
+	}
+
+	/**
+	 * Registers users from several threads while the store is closed, and
+	 * checks that each user for which register returned REGISTERED is in
+	 * the file, and that register didn't wait for a write which never comes.
+	 */
+	private void registerWhileClosing(Durability durability) throws Exception {
+		file.delete();
+		final RegistrationStore store = new RegistrationStore(file, durability, 100, 10);
+		final Set<String> registered = Collections.synchronizedSet(new HashSet<String>());
+		final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 8; t++) {
+			final int thread = t;
+			threads.add(new Thread(new Runnable() {
+				public void run() {
+					for (int i = 0;; i++) {
+						String email = thread + "-" + i + "@example.com";
+						try {
+							if (store.register(new User("User", String.valueOf(i), email)) == Result.REGISTERED) {
+								registered.add(email);
+							}
+						} catch (IOException e) {
+							if (!e.getMessage().endsWith("is closed")) {
+								failures.add(e);
+							}
+							return;
+						}
+					}
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		Thread.sleep(2);
+		store.close();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertTrue(failures.toString(), failures.isEmpty());
+
+		Set<String> written = new HashSet<String>();
+		for (String line : readLines()) {
+			written.add(line.substring(0, line.indexOf('\t')));
+		}
+		Set<String> lost = new HashSet<String>(registered);
+		lost.removeAll(written);
+		assertTrue("Registered but not written: " + lost, lost.isEmpty());
+		assertEquals(registered.size(), written.size());
+		assertEquals(registered.size(), store.getWrittenCount());
+	}
+
+	private List<String> readLines() throws IOException {
+		List<String> lines = new ArrayList<String>();
+		BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+		try {
+			for (String line; (line = in.readLine()) != null;) {
+				lines.add(line);
+			}
+		} finally {
+			in.close();
+		}
+		return lines;
+	}
+
+	/**
+	 * Writes half of a batch and fails, when failNextBatch is set. If
+	 * closeChannel is set, it closes the file as well, so that the partial
+	 * batch can't be removed.
+	 */
+	private static class FailingStore extends RegistrationStore {
+		private final boolean closeChannel;
+		private volatile boolean failNextBatch;
+
+		FailingStore(File file, boolean closeChannel) throws IOException {
+			super(file, Durability.WRITTEN, 10, 10);
+			this.closeChannel = closeChannel;
+		}
+
+		@Override
+		protected void writeLines(FileChannel channel, ByteBuffer lines) throws IOException {
+			if (!failNextBatch) {
+				super.writeLines(channel, lines);
+				return;
+			}
+			failNextBatch = false;
+			lines.limit(lines.limit() / 2);
+			super.writeLines(channel, lines);
+			if (closeChannel) {
+				channel.close();
+			}
+			throw new IOException("disk full");
+		}
+	}
+}
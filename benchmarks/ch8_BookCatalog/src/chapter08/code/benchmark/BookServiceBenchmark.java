@@ -0,0 +1,81 @@
+package chapter08.code.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chapter08.code.listing.domain.Book;
+import chapter08.code.listing.service.BookServiceImpl;
+
+import common.code.benchmark.CatalogGenerator;
+
+/**
+ * Benchmarks the in-memory BookService of ch8_BookCatalog. The ch8
+ * BookService has no search, category or recent book methods.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class BookServiceBenchmark {
+	@Param({ "100", "1000", "10000", "100000", "1000000" })
+	public int catalogSize;
+
+	private final CatalogGenerator catalog = new CatalogGenerator();
+	private BookServiceImpl bookService;
+	private Long existingIsbnNumber;
+	private Long missingIsbnNumber;
+	private int nextBook;
+
+	@Setup
+	public void setUp() {
+		bookService = new BookServiceImpl();
+		CatalogLoader.load(bookService, catalog, catalogSize);
+		existingIsbnNumber = catalog.getIsbnNumber(catalogSize / 2);
+		missingIsbnNumber = catalog.getIsbnNumber(catalogSize);
+		nextBook = catalogSize;
+	}
+
+	/**
+	 * Reads the list of books while the catalog doesn't change, which is
+	 * what most renders of the catalog do.
+	 */
+	@Benchmark
+	public List<Book> getBooks() {
+		return bookService.getBooks();
+	}
+
+	@Benchmark
+	public Book getBook() {
+		return bookService.getBook(existingIsbnNumber);
+	}
+
+	@Benchmark
+	public boolean isUniqueISBN() {
+		return bookService.isUniqueISBN(missingIsbnNumber);
+	}
+
+	/**
+	 * Adds a book and removes it again, so that the size of the catalog
+	 * doesn't change during the benchmark.
+	 */
+	@Benchmark
+	public void addAndRemoveBook() {
+		Book book = CatalogLoader.toBook(catalog.getBook(nextBook++));
+		bookService.addBook(book);
+		bookService.removeBook(book.getIsbnNumber());
+	}
+}
@@ -0,0 +1,26 @@
+package chapter08.code.benchmark;
+
+import chapter08.code.listing.domain.Book;
+import chapter08.code.listing.service.BookService;
+
+import common.code.benchmark.CatalogGenerator;
+import common.code.benchmark.GeneratedBook;
+
+/**
+ * Adds the books of a CatalogGenerator to the ch8 BookService, one at a
+ * time, without keeping the generated catalog in memory.
+ */
+public final class CatalogLoader {
+	private CatalogLoader() {
+	}
+
+	public static void load(BookService bookService, CatalogGenerator catalog, int count) {
+		for (int i = 0; i < count; i++) {
+			bookService.addBook(toBook(catalog.getBook(i)));
+		}
+	}
+
+	public static Book toBook(GeneratedBook book) {
+		return new Book(book.getName(), book.getAuthor(), book.getIsbnNumber());
+	}
+}
@@ -0,0 +1,156 @@
+package chapter09.code.benchmark;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import chapter09.code.listing.domain.Book;
+import chapter09.code.listing.service.BookService;
+
+import common.code.benchmark.BookTableLoader;
+import common.code.benchmark.CatalogGenerator;
+import common.code.benchmark.GeneratedBook;
+
+/**
+ * Benchmarks the BookService of ch9_BookCatalogHibernate, with the
+ * HibernateBookDao, HibernateTocDao and ContainsBookSearchStrategy on an
+ * embedded H2 database. The ch9 BookService has no case preference for
+ * searches, and no category or recent book methods.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class BookServiceBenchmark {
+	@Param({ "100", "1000", "10000", "100000", "1000000" })
+	public int catalogSize;
+
+	private final CatalogGenerator catalog = new CatalogGenerator();
+	private ClassPathXmlApplicationContext context;
+	private BookService bookService;
+	private Long existingBookId;
+	private Long missingIsbnNumber;
+	private JdbcTemplate jdbcTemplate;
+
+	@Setup
+	public void setUp() throws Exception {
+		context = new ClassPathXmlApplicationContext("benchmarkContext.xml");
+		bookService = context.getBean("bookService", BookService.class);
+		BookTableLoader.insertBooks(context.getBean("dataSource", DataSource.class), catalog, catalogSize);
+		jdbcTemplate = new JdbcTemplate(context.getBean("dataSource", DataSource.class));
+		existingBookId = jdbcTemplate.queryForLong("select book_id from book_tbl where isbn_number = ?",
+				new Object[] { catalog.getIsbnNumber(catalogSize / 2) });
+		missingIsbnNumber = catalog.getIsbnNumber(catalogSize);
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public List<Book> getBooks() {
+		return bookService.getBooks();
+	}
+
+	@Benchmark
+	public List<Book> searchBooks() {
+		return bookService.searchBooks(catalog.getTitleSearchText(), catalog.getAuthorSearchText());
+	}
+
+	@Benchmark
+	public Book getBook() {
+		return bookService.getBook(existingBookId);
+	}
+
+	@Benchmark
+	public boolean isUniqueISBN() {
+		return bookService.isUniqueISBN(missingIsbnNumber);
+	}
+
+	@Benchmark
+	public void addBook(NewBook added) throws Exception {
+		bookService.addBook(added.book, "benchmark");
+	}
+
+	/**
+	 * Removes a book; removed books stay in book_tbl as inactive rows, till
+	 * the archive job moves them.
+	 */
+	@Benchmark
+	public void removeBook(StoredBook stored) {
+		bookService.removeBook(stored.bookId, "benchmark");
+	}
+
+	/**
+	 * The book added by addBook. It is deleted after each invocation, so that
+	 * the catalog keeps its size.
+	 */
+	@State(Scope.Thread)
+	public static class NewBook {
+		private JdbcTemplate jdbcTemplate;
+		private Book book;
+
+		@Setup(Level.Invocation)
+		public void setUp(BookServiceBenchmark benchmark) {
+			jdbcTemplate = benchmark.jdbcTemplate;
+			GeneratedBook generated = benchmark.catalog.getBook(benchmark.catalogSize + 1);
+			book = new Book(generated.getName(), generated.getAuthor(), generated.getIsbnNumber());
+			//-- set by the AuditAspect in the portlet
+			book.setCreatedDate(new Date());
+		}
+
+		@TearDown(Level.Invocation)
+		public void tearDown() {
+			jdbcTemplate.update("delete from book_tbl where isbn_number = ?",
+					new Object[] { book.getIsbnNumber() });
+		}
+	}
+
+	/**
+	 * The book removed by removeBook. It is inserted before each invocation,
+	 * and deleted after it.
+	 */
+	@State(Scope.Thread)
+	public static class StoredBook {
+		private JdbcTemplate jdbcTemplate;
+		private Long bookId;
+
+		@Setup(Level.Invocation)
+		public void setUp(BookServiceBenchmark benchmark) {
+			jdbcTemplate = benchmark.jdbcTemplate;
+			GeneratedBook generated = benchmark.catalog.getBook(benchmark.catalogSize + 1);
+			jdbcTemplate.update("insert into book_tbl (title, isbn_number, authors, created_date, "
+					+ "created_by, active) values (?, ?, ?, ?, ?, 1)", new Object[] {
+					generated.getName(), generated.getIsbnNumber(), generated.getAuthor(),
+					new Date(), "benchmark" });
+			bookId = jdbcTemplate.queryForLong("select book_id from book_tbl where isbn_number = ?",
+					new Object[] { generated.getIsbnNumber() });
+		}
+
+		@TearDown(Level.Invocation)
+		public void tearDown() {
+			jdbcTemplate.update("delete from book_tbl where book_id = ?", new Object[] { bookId });
+		}
+	}
+}
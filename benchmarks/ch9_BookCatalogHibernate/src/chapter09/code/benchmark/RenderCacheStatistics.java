@@ -0,0 +1,107 @@
+package chapter09.code.benchmark;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import chapter09.code.listing.service.BookService;
+
+import common.code.benchmark.BookTableLoader;
+import common.code.benchmark.CatalogGenerator;
+
+/**
+ * Reports the SQL statements prepared and the second-level cache accesses
+ * of rendering the VIEW mode book list of BookCatalogPortlet twice, with the
+ * second-level cache and the query cache off and on. The caches use the
+ * hibernate-cache.properties and ehcache.xml of ch9_BookCatalogHibernate,
+ * whose MyBook region keeps 10000 books.
+ *
+ * java -cp ch9_BookCatalogHibernate/target/benchmarks.jar chapter09.code.benchmark.RenderCacheStatistics
+ *     [catalog sizes (1000 20000)]
+ */
+public final class RenderCacheStatistics {
+	public static final String BOOK_REGION = "chapter09.code.listing.domain.Book";
+
+	private RenderCacheStatistics() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length == 0) {
+			args = new String[] { "1000", "20000" };
+		}
+		System.out.printf("%8s %6s %7s %11s %10s %12s %10s %10s %12s%n", "books", "cache", "render",
+				"statements", "book hits", "book misses", "book puts", "query hits", "query misses");
+		for (String books : args) {
+			int catalogSize = Integer.parseInt(books);
+			for (boolean cache : new boolean[] { false, true }) {
+				ConfigurableApplicationContext context = createContext(cache, catalogSize);
+				try {
+					BookService bookService = context.getBean("bookService", BookService.class);
+					Statistics statistics = context.getBean("sessionFactory", SessionFactory.class)
+							.getStatistics();
+					for (int render = 1; render <= 2; render++) {
+						statistics.clear();
+						//-- what the VIEW mode of BookCatalogPortlet reads
+						bookService.getBooks();
+						SecondLevelCacheStatistics bookRegion = statistics
+								.getSecondLevelCacheStatistics(BOOK_REGION);
+						System.out.printf("%8d %6s %7d %11d %10d %12d %10d %10d %12d%n", catalogSize,
+								cache ? "on" : "off", render, statistics.getPrepareStatementCount(),
+								bookRegion == null ? 0 : bookRegion.getHitCount(),
+								bookRegion == null ? 0 : bookRegion.getMissCount(),
+								bookRegion == null ? 0 : bookRegion.getPutCount(),
+								statistics.getQueryCacheHitCount(), statistics.getQueryCacheMissCount());
+					}
+				} finally {
+					close(context);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the context of benchmarkContext.xml, with the cache settings of
+	 * hibernate-cache.properties, both caches on or off, statistics on, and
+	 * the given number of books in book_tbl.
+	 */
+	public static ConfigurableApplicationContext createContext(boolean cache, int catalogSize)
+			throws IOException, SQLException {
+		Properties hibernateProperties = PropertiesLoaderUtils.loadAllProperties("hibernate-cache.properties");
+		hibernateProperties.setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+		hibernateProperties.setProperty("hibernate.cache.use_second_level_cache", String.valueOf(cache));
+		hibernateProperties.setProperty("hibernate.cache.use_query_cache", String.valueOf(cache));
+		hibernateProperties.setProperty("hibernate.generate_statistics", "true");
+
+		GenericApplicationContext context = new GenericApplicationContext();
+		new XmlBeanDefinitionReader(context).loadBeanDefinitions("classpath:benchmarkContext.xml");
+		context.getBeanDefinition("sessionFactory").getPropertyValues()
+				.addPropertyValue("hibernateProperties", hibernateProperties);
+		context.refresh();
+		BookTableLoader.insertBooks(context.getBean("dataSource", DataSource.class),
+				new CatalogGenerator(), catalogSize);
+		return context;
+	}
+
+	/**
+	 * Closes the context and drops the tables, which the in-memory database
+	 * keeps for the next context of the JVM.
+	 */
+	public static void close(ConfigurableApplicationContext context) {
+		try {
+			new JdbcTemplate(context.getBean("dataSource", DataSource.class)).execute("DROP ALL OBJECTS");
+		} finally {
+			context.close();
+		}
+	}
+}
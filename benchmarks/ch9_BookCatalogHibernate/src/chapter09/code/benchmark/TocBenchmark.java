@@ -0,0 +1,180 @@
+package chapter09.code.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import chapter09.code.listing.dao.ToCDao;
+import chapter09.code.listing.domain.ToC;
+import chapter09.code.listing.domain.ToCContent;
+import chapter09.code.listing.service.BookService;
+
+import common.code.benchmark.BookTableLoader;
+import common.code.benchmark.CatalogGenerator;
+
+/**
+ * Benchmarks the ToCs of ch9_BookCatalogHibernate on an embedded H2
+ * database, for ToCs of several sizes. Run it with -prof gc to get the bytes
+ * allocated by each operation (gc.alloc.rate.norm):
+ *
+ *   loadToc             - loads a ToC, whose entity doesn't map toc_file
+ *   loadTocWithContent  - also reads toc_file through ToCContent, which is
+ *                         what loading a ToC did when ToC mapped toc_file
+ *                         as a byte[]
+ *   removeToc           - deactivates a ToC with the bulk update, and
+ *                         activates it again
+ *   uploadToc           - streams a ToC to the database, as the portlet does
+ *   uploadTocBuffered   - copies the ToC into a byte array first, as the
+ *                         portlet did before
+ *
+ * java -jar ch9_BookCatalogHibernate/target/benchmarks.jar TocBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class TocBenchmark {
+	private static final int BOOK_COUNT = 100;
+	//-- same buffer as the portlet used to copy the uploaded file
+	private static final int BUFFER_SIZE = 1024;
+
+	@Param({ "4096", "65536", "1048576" })
+	public int tocSize;
+
+	private ClassPathXmlApplicationContext context;
+	private SessionFactory sessionFactory;
+	private TransactionTemplate transactionTemplate;
+	private JdbcTemplate jdbcTemplate;
+	private BookService bookService;
+	private ToCDao tocDao;
+	private byte[] tocFile;
+	private long bookId;
+	private long tocId;
+
+	@Setup
+	public void setUp() throws SQLException {
+		context = new ClassPathXmlApplicationContext("benchmarkContext.xml");
+		DataSource dataSource = context.getBean("dataSource", DataSource.class);
+		CatalogGenerator catalog = new CatalogGenerator(tocSize);
+		BookTableLoader.insertBooks(dataSource, catalog, BOOK_COUNT);
+		sessionFactory = context.getBean("sessionFactory", SessionFactory.class);
+		transactionTemplate = new TransactionTemplate(context.getBean("txManager",
+				PlatformTransactionManager.class));
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		bookService = context.getBean("bookService", BookService.class);
+		tocDao = context.getBean("tocDao", ToCDao.class);
+		tocFile = catalog.getToc(BOOK_COUNT / 2);
+		bookId = jdbcTemplate.queryForLong("select book_id from book_tbl where isbn_number = ?",
+				new Object[] { catalog.getIsbnNumber(BOOK_COUNT / 2) });
+		tocId = jdbcTemplate.queryForLong("select toc_id from toc_tbl where book_id = ?",
+				new Object[] { bookId });
+	}
+
+	/**
+	 * Deletes the ToCs replaced by the uploads, so that the database doesn't
+	 * grow with each iteration, and activates the ToC of the book again.
+	 */
+	@TearDown(Level.Iteration)
+	public void deleteReplacedTocs() {
+		jdbcTemplate.update("delete from toc_tbl where active = 0");
+		if (jdbcTemplate.queryForInt("select count(*) from toc_tbl where book_id = ?",
+				new Object[] { bookId }) == 0) {
+			bookService.uploadToc(new ToC(bookId, "toc.txt", "txt"), new ByteArrayInputStream(tocFile), "benchmark");
+		}
+		tocId = jdbcTemplate.queryForLong("select toc_id from toc_tbl where book_id = ? and active = 1",
+				new Object[] { bookId });
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public Object loadToc() {
+		return transactionTemplate.execute(new TransactionCallback<Object>() {
+			public Object doInTransaction(TransactionStatus status) {
+				return sessionFactory.getCurrentSession().get(ToC.class, tocId);
+			}
+		});
+	}
+
+	@Benchmark
+	public Object loadTocWithContent() {
+		return transactionTemplate.execute(new TransactionCallback<Object>() {
+			public Object doInTransaction(TransactionStatus status) {
+				Session session = sessionFactory.getCurrentSession();
+				ToC toc = (ToC) session.get(ToC.class, tocId);
+				ToCContent content = (ToCContent) session.get(ToCContent.class, tocId);
+				try {
+					return new Object[] { toc,
+							content.getToc_file().getBytes(1, (int) content.getToc_file().length()) };
+				} catch (SQLException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		});
+	}
+
+	@Benchmark
+	public Object removeToc() {
+		return transactionTemplate.execute(new TransactionCallback<Object>() {
+			public Object doInTransaction(TransactionStatus status) {
+				tocDao.removeToc(bookId);
+				return sessionFactory.getCurrentSession()
+						.createSQLQuery("update toc_tbl set active = 1 where toc_id = ?")
+						.setLong(0, tocId).executeUpdate();
+			}
+		});
+	}
+
+	@Benchmark
+	public void uploadToc() {
+		bookService.uploadToc(new ToC(bookId, "toc.txt", "txt"), new ByteArrayInputStream(tocFile), "benchmark");
+	}
+
+	@Benchmark
+	public void uploadTocBuffered() throws IOException {
+		InputStream stream = new ByteArrayInputStream(tocFile);
+		ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+		byte[] buffer = new byte[BUFFER_SIZE];
+		while (true) {
+			int bytes = stream.read(buffer);
+			if (bytes <= 0) {
+				break;
+			}
+			outStream.write(buffer, 0, bytes);
+		}
+		bookService.uploadToc(new ToC(bookId, "toc.txt", "txt"),
+				new ByteArrayInputStream(outStream.toByteArray()), "benchmark");
+	}
+}
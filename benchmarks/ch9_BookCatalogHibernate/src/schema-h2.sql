@@ -0,0 +1,29 @@
+-- H2 version of book_tbl.sql and toc_tbl.sql of ch9_BookCatalogHibernate
+
+CREATE TABLE book_tbl (
+  book_id int NOT NULL AUTO_INCREMENT,
+  title varchar(100) NOT NULL,
+  isbn_number bigint NOT NULL,
+  authors varchar(250) NOT NULL,
+  created_date datetime NOT NULL,
+  created_by varchar(100) NOT NULL,
+  modified_date datetime DEFAULT NULL,
+  modified_by varchar(100) DEFAULT NULL,
+  active int DEFAULT 1,
+  PRIMARY KEY (book_id)
+);
+CREATE INDEX book_tbl_title_idx ON book_tbl (title);
+CREATE INDEX book_tbl_authors_idx ON book_tbl (authors);
+CREATE INDEX book_tbl_active_isbn_idx ON book_tbl (active, isbn_number);
+
+CREATE TABLE toc_tbl (
+  toc_id int NOT NULL AUTO_INCREMENT,
+  book_id int NOT NULL,
+  toc_file blob DEFAULT NULL,
+  file_name varchar(100) DEFAULT NULL,
+  extension varchar(3) DEFAULT NULL,
+  active int DEFAULT 1,
+  PRIMARY KEY (toc_id),
+  CONSTRAINT toc_tbl_fk1 FOREIGN KEY (book_id) REFERENCES book_tbl (book_id)
+);
+CREATE INDEX toc_tbl_book_active_idx ON toc_tbl (book_id, active);
@@ -0,0 +1,76 @@
+package chapter09.code.listing.dao.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Date;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import chapter09.code.benchmark.RenderCacheStatistics;
+import chapter09.code.listing.domain.Book;
+import chapter09.code.listing.service.BookService;
+
+/**
+ * JUnit test for the second-level cache and query cache of getBooks, with
+ * the hibernate-cache.properties and ehcache.xml of ch9_BookCatalogHibernate,
+ * on an embedded H2 database.
+ */
+public class HibernateBookDaoCacheTest {
+	private static final int BOOKS = 100;
+
+	@Test
+	public void testCacheOff() throws Exception {
+		ConfigurableApplicationContext context = RenderCacheStatistics.createContext(false, BOOKS);
+		try {
+			BookService bookService = context.getBean("bookService", BookService.class);
+			Statistics statistics = getStatistics(context);
+			bookService.getBooks();
+			statistics.clear();
+			assertEquals(BOOKS, bookService.getBooks().size());
+			assertEquals(1, statistics.getPrepareStatementCount());
+		} finally {
+			RenderCacheStatistics.close(context);
+		}
+	}
+
+	@Test
+	public void testCacheOn() throws Exception {
+		ConfigurableApplicationContext context = RenderCacheStatistics.createContext(true, BOOKS);
+		try {
+			BookService bookService = context.getBean("bookService", BookService.class);
+			Statistics statistics = getStatistics(context);
+			bookService.getBooks();
+			statistics.clear();
+			assertEquals(BOOKS, bookService.getBooks().size());
+			assertEquals(0, statistics.getPrepareStatementCount());
+			assertEquals(1, statistics.getQueryCacheHitCount());
+			assertEquals(BOOKS, statistics.getSecondLevelCacheStatistics(
+					RenderCacheStatistics.BOOK_REGION).getHitCount());
+		} finally {
+			RenderCacheStatistics.close(context);
+		}
+	}
+
+	@Test
+	public void testAddedBookInvalidatesQuery() throws Exception {
+		ConfigurableApplicationContext context = RenderCacheStatistics.createContext(true, BOOKS);
+		try {
+			BookService bookService = context.getBean("bookService", BookService.class);
+			bookService.getBooks();
+			Book book = new Book("Portlets in Action", "Ashish Sarin", 1935182544L);
+			//-- set by the AuditAspect, which benchmarkContext.xml leaves out
+			book.setCreatedDate(new Date());
+			bookService.addBook(book, "test");
+			assertEquals(BOOKS + 1, bookService.getBooks().size());
+		} finally {
+			RenderCacheStatistics.close(context);
+		}
+	}
+
+	private Statistics getStatistics(ConfigurableApplicationContext context) {
+		return context.getBean("sessionFactory", SessionFactory.class).getStatistics();
+	}
+}
@@ -0,0 +1,31 @@
+-- H2 version of book_archive_tbl.sql and toc_archive_tbl.sql of ch9_BookCatalogSpringJdbc
+
+CREATE TABLE book_archive_tbl (
+  archive_id int NOT NULL AUTO_INCREMENT,
+  book_id int NOT NULL,
+  title varchar(100) NOT NULL,
+  isbn_number bigint NOT NULL,
+  authors varchar(250) NOT NULL,
+  created_date datetime NOT NULL,
+  created_by varchar(100) NOT NULL,
+  modified_date datetime DEFAULT NULL,
+  modified_by varchar(100) DEFAULT NULL,
+  active int DEFAULT 0,
+  archived_date datetime NOT NULL,
+  PRIMARY KEY (archive_id)
+);
+CREATE INDEX book_archive_tbl_book_idx ON book_archive_tbl (book_id);
+
+CREATE TABLE toc_archive_tbl (
+  archive_id int NOT NULL AUTO_INCREMENT,
+  toc_id int NOT NULL,
+  book_id int NOT NULL,
+  toc_file blob DEFAULT NULL,
+  file_name varchar(100) DEFAULT NULL,
+  extension varchar(3) DEFAULT NULL,
+  active int DEFAULT 0,
+  archived_date datetime NOT NULL,
+  PRIMARY KEY (archive_id)
+);
+CREATE INDEX toc_archive_tbl_toc_idx ON toc_archive_tbl (toc_id);
+CREATE INDEX toc_archive_tbl_book_idx ON toc_archive_tbl (book_id);
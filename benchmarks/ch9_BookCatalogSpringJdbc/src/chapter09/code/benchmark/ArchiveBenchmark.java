@@ -0,0 +1,110 @@
+package chapter09.code.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import chapter09.code.listing.domain.Book;
+import chapter09.code.listing.service.ArchiveService;
+import chapter09.code.listing.service.BookService;
+
+import common.code.benchmark.BookTableLoader;
+import common.code.benchmark.CatalogGenerator;
+
+/**
+ * Measures the BookService queries on a book_tbl in which 70% of the books
+ * were removed, before and after the ArchiveService moved the removed books
+ * to book_archive_tbl. The same books are active in both cases, so the
+ * queries return the same results; only the inactive rows they have to skip
+ * differ.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ArchiveBenchmark {
+	//-- the books with book_id % 10 < 7 are removed
+	private static final int REMOVED_PER_TEN = 7;
+	private static final int ARCHIVE_BATCH_SIZE = 500;
+
+	@Param({ "10000", "100000", "1000000" })
+	public int catalogSize;
+
+	@Param({ "false", "true" })
+	public boolean archived;
+
+	private final CatalogGenerator catalog = new CatalogGenerator();
+	private ClassPathXmlApplicationContext context;
+	private BookService bookService;
+	private Long activeBookId;
+	private Long activeIsbnNumber;
+
+	@Setup
+	public void setUp() throws Exception {
+		context = new ClassPathXmlApplicationContext("archiveBenchmarkContext.xml");
+		bookService = context.getBean("bookService", BookService.class);
+		BookTableLoader.insertBooks(context.getBean("dataSource", DataSource.class), catalog, catalogSize);
+		JdbcTemplate jdbcTemplate = context.getBean("jdbcTemplate", JdbcTemplate.class);
+		jdbcTemplate.update("update book_tbl set active = 0 where mod(book_id, 10) < ?",
+				new Object[] { REMOVED_PER_TEN });
+		if (archived) {
+			ArchiveService archiveService = context.getBean("archiveService", ArchiveService.class);
+			while (archiveService.archiveRemovedBooks(ARCHIVE_BATCH_SIZE) > 0) {
+				//-- as the ArchiveJob does, one batch per transaction
+			}
+			//-- the statistics of book_tbl, as after the job on MySQL
+			jdbcTemplate.execute("analyze");
+		}
+		activeBookId = jdbcTemplate.queryForLong(
+				"select min(book_id) from book_tbl where active = 1 and book_id > ?",
+				new Object[] { catalogSize / 2 });
+		activeIsbnNumber = jdbcTemplate.queryForLong("select isbn_number from book_tbl where book_id = ?",
+				new Object[] { activeBookId });
+		System.out.println("book_tbl rows: " + jdbcTemplate.queryForInt("select count(*) from book_tbl")
+				+ ", active: " + jdbcTemplate.queryForInt("select count(*) from book_tbl where active = 1")
+				+ ", archived: " + jdbcTemplate.queryForInt("select count(*) from book_archive_tbl"));
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public List<Book> getBooks() {
+		return bookService.getBooks();
+	}
+
+	@Benchmark
+	public List<Book> searchBooks() {
+		return bookService.searchBooks(catalog.getTitleSearchText(), catalog.getAuthorSearchText());
+	}
+
+	@Benchmark
+	public Book getBook() {
+		return bookService.getBook(activeBookId);
+	}
+
+	@Benchmark
+	public boolean isUniqueISBN() {
+		return bookService.isUniqueISBN(activeIsbnNumber);
+	}
+}
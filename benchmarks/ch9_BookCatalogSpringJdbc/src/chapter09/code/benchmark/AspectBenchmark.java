@@ -0,0 +1,107 @@
+package chapter09.code.benchmark;
+
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import chapter09.code.listing.base.MetricsAspect;
+import chapter09.code.listing.dao.ToCOutput;
+import chapter09.code.listing.domain.Book;
+import chapter09.code.listing.domain.ToC;
+import chapter09.code.listing.service.BookService;
+
+/**
+ * Measures the time the aspect around the BookService methods adds to each
+ * call: none, the old LoggingAspect (with INFO disabled by log4j.properties)
+ * or MetricsAspect. The BookService does no work, so that only the Spring AOP
+ * proxy and the advice are measured. Run it with -prof gc to compare the
+ * garbage of the log messages with that of the metrics.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AspectBenchmark {
+	@Param({ "none", "logging", "metrics" })
+	public String aspect;
+
+	private BookService bookService;
+	private final Long isbnNumber = Long.valueOf(1933988053L);
+
+	@Setup
+	public void setUp() {
+		BookService target = new NoOpBookService();
+		if ("none".equals(aspect)) {
+			bookService = target;
+			return;
+		}
+		AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+		proxyFactory.addAspect("logging".equals(aspect) ? new LoggingAspect() : new MetricsAspect());
+		bookService = proxyFactory.getProxy();
+	}
+
+	@Benchmark
+	public Book getBook() {
+		return bookService.getBook(isbnNumber);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public Book getBookConcurrent() {
+		return bookService.getBook(isbnNumber);
+	}
+
+	private static class NoOpBookService implements BookService {
+		private final Book book = new Book("Portlets in Action", "Ashish Sarin", 1933988053L);
+
+		public List<Book> getBooks() {
+			return Collections.singletonList(book);
+		}
+
+		public void addBook(Book book, String user) {
+		}
+
+		public boolean isUniqueISBN(Long isbnNumber) {
+			return false;
+		}
+
+		public Book getBook(Long isbnNumber) {
+			return book;
+		}
+
+		public void removeBook(Long isbnNumber, String user) {
+		}
+
+		public List<Book> searchBooks(String bookName, String authorName) {
+			return getBooks();
+		}
+
+		public void uploadToc(ToC toc, InputStream tocStream, String user) {
+		}
+
+		public ToC getToc(long book_id) {
+			return null;
+		}
+
+		public boolean writeToc(long book_id, ToCOutput output) {
+			return false;
+		}
+	}
+}
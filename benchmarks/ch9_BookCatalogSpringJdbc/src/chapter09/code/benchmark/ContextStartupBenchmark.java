@@ -0,0 +1,78 @@
+package chapter09.code.benchmark;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.ClassPathBeanDefinitionScanner;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Measures the cold start of the context of WEB-INF/applicationContext.xml:
+ * a single refresh in a new JVM, with the JNDI DataSource replaced by the
+ * embedded H2 database of startupBenchmarkContext.xml. components=scan adds
+ * the classpath scan of chapter09.code.listing, as context:component-scan
+ * did before the components were listed in applicationContext.xml; the scan
+ * finds the listed components again, so both cases create the same beans.
+ * lazyDaos=true turns the LazyDaoPostProcessor on.
+ *
+ * The classes are scanned in benchmarks.jar, not in the WEB-INF/classes
+ * directory of the portlet, so the scan also goes through the entries of
+ * the libraries shaded into the jar.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class ContextStartupBenchmark {
+	@Param({ "scan", "explicit" })
+	public String components;
+
+	@Param({ "false", "true" })
+	public boolean lazyDaos;
+
+	private GenericApplicationContext context;
+
+	@Benchmark
+	public ApplicationContext refresh() {
+		context = new GenericApplicationContext();
+		new XmlBeanDefinitionReader(context).loadBeanDefinitions(new String[] {
+				"classpath:applicationContext.xml", "classpath:startupBenchmarkContext.xml" });
+		if ("scan".equals(components)) {
+			new ClassPathBeanDefinitionScanner(context).scan("chapter09.code.listing");
+		}
+		if (lazyDaos) {
+			context.getBeanDefinition("lazyDaoPostProcessor").getPropertyValues()
+					.addPropertyValue("enabled", "true");
+		}
+		context.refresh();
+		return context;
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() throws InterruptedException {
+		// the first ArchiveJob run starts when the context is refreshed; let it
+		// finish before the database goes away
+		ScheduledExecutorService scheduler = context.getBean("archiveScheduler",
+				ThreadPoolTaskScheduler.class).getScheduledExecutor();
+		scheduler.shutdown();
+		scheduler.awaitTermination(30, TimeUnit.SECONDS);
+		context.close();
+	}
+}
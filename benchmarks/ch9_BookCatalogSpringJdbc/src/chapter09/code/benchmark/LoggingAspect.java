@@ -1,10 +1,14 @@
-package chapter09.code.listing.base;
+package chapter09.code.benchmark;
 
 import org.apache.log4j.Logger;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 
+/**
+ * The LoggingAspect which the ch9 examples used before MetricsAspect, kept as
+ * the baseline of AspectBenchmark.
+ */
 @Aspect
 public class LoggingAspect {
 	@Around("execution(* chapter09.code.listing.service.BookService.*(..))")
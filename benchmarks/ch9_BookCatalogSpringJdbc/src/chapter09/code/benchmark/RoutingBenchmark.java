@@ -0,0 +1,97 @@
+package chapter09.code.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import chapter09.code.listing.domain.Book;
+import chapter09.code.listing.service.BookService;
+import chapter09.code.listing.utils.ReadWriteRoutingDataSource;
+
+import common.code.benchmark.BookTableLoader;
+import common.code.benchmark.CatalogGenerator;
+
+/**
+ * Measures the throughput of the read-only BookService methods when the
+ * reads are spread across 0, 1 or 2 replicas by the ReadWriteRoutingDataSource.
+ * Every database is an embedded H2 database with a pool of 2 connections, so
+ * with 0 replicas all the benchmark threads share the 2 connections of the
+ * primary. All the databases run in the benchmark JVM: the results show how
+ * the routing spreads the load, but the gain is bounded by the CPUs of the
+ * machine, not by the capacity of separate database servers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class RoutingBenchmark {
+	private static final int CATALOG_SIZE = 10000;
+	private static final String[] REPLICAS = { "replica1DataSource", "replica2DataSource" };
+
+	@Param({ "0", "1", "2" })
+	public int replicas;
+
+	private final CatalogGenerator catalog = new CatalogGenerator();
+	private ClassPathXmlApplicationContext context;
+	private BookService bookService;
+	private Long existingBookId;
+
+	@Setup
+	public void setUp() throws Exception {
+		context = new ClassPathXmlApplicationContext("routingBenchmarkContext.xml");
+		bookService = context.getBean("bookService", BookService.class);
+		//-- the replicas hold a copy of the primary's books
+		BookTableLoader.insertBooks(context.getBean("primaryDataSource", DataSource.class), catalog, CATALOG_SIZE);
+		List<DataSource> replicaDataSources = new ArrayList<DataSource>();
+		for (int i = 0; i < REPLICAS.length; i++) {
+			DataSource replica = context.getBean(REPLICAS[i], DataSource.class);
+			BookTableLoader.insertBooks(replica, catalog, CATALOG_SIZE);
+			if (i < replicas) {
+				replicaDataSources.add(replica);
+			}
+		}
+		ReadWriteRoutingDataSource routingDataSource = context.getBean("routingDataSource",
+				ReadWriteRoutingDataSource.class);
+		routingDataSource.setReplicaDataSources(replicaDataSources);
+		routingDataSource.afterPropertiesSet();
+		existingBookId = new JdbcTemplate(context.getBean("primaryDataSource", DataSource.class)).queryForLong(
+				"select book_id from book_tbl where isbn_number = ?",
+				new Object[] { catalog.getIsbnNumber(CATALOG_SIZE / 2) });
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public Book getBook() {
+		return bookService.getBook(existingBookId);
+	}
+
+	@Benchmark
+	public List<Book> searchBooks() {
+		return bookService.searchBooks(catalog.getTitleSearchText(), catalog.getAuthorSearchText());
+	}
+}
@@ -0,0 +1,99 @@
+package chapter09.code.listing.dao.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import chapter09.code.listing.dao.ToCDao;
+import chapter09.code.listing.dao.ToCOutput;
+import chapter09.code.listing.domain.ToC;
+
+/**
+ * JUnit test for JdbcTocDao.writeToc, on the embedded H2 database of
+ * benchmarkContext.xml.
+ */
+public class JdbcTocDaoTest {
+	private static ClassPathXmlApplicationContext context;
+	private static ToCDao tocDao;
+	private static JdbcTemplate jdbcTemplate;
+
+	@BeforeClass
+	public static void setUp() {
+		context = new ClassPathXmlApplicationContext("benchmarkContext.xml");
+		tocDao = context.getBean("tocDao", ToCDao.class);
+		jdbcTemplate = context.getBean("jdbcTemplate", JdbcTemplate.class);
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		context.close();
+	}
+
+	@Test
+	public void testWriteToc() {
+		long bookId = insertBook(1);
+		byte[] file = new byte[10000];
+		for (int i = 0; i < file.length; i++) {
+			file[i] = (byte) i;
+		}
+		tocDao.uploadToc(new ToC(bookId, "toc.pdf", "pdf"), new ByteArrayInputStream(file));
+
+		RecordingOutput output = new RecordingOutput();
+		assertTrue(tocDao.writeToc(bookId, output));
+		assertEquals(bookId, output.toc.getBook_id());
+		assertEquals("toc.pdf", output.toc.getFile_name());
+		assertEquals("pdf", output.toc.getExtension());
+		assertArrayEquals(file, output.file.toByteArray());
+	}
+
+	@Test
+	public void testNoToc() {
+		long bookId = insertBook(2);
+		assertFalse(tocDao.writeToc(bookId, new FailingOutput()));
+	}
+
+	@Test
+	public void testRemovedToc() {
+		long bookId = insertBook(3);
+		tocDao.uploadToc(new ToC(bookId, "toc.pdf", "pdf"), new ByteArrayInputStream(new byte[1]));
+		//-- as JdbcTocDao.removeToc does, which then throws to show rollbacks
+		jdbcTemplate.update("update toc_tbl set active = 0 where book_id = ?", bookId);
+		assertFalse(tocDao.writeToc(bookId, new FailingOutput()));
+	}
+
+	private long insertBook(long isbnNumber) {
+		jdbcTemplate.update("insert into book_tbl(title, isbn_number, authors, created_date, created_by)"
+				+ " values('Portlets in Action', ?, 'Ashish Sarin', now(), 'test')", isbnNumber);
+		return jdbcTemplate.queryForLong("select book_id from book_tbl where isbn_number = ?", isbnNumber);
+	}
+
+	private static class RecordingOutput implements ToCOutput {
+		private ToC toc;
+		private ByteArrayOutputStream file = new ByteArrayOutputStream();
+
+		public OutputStream open(ToC toc) {
+			this.toc = toc;
+			return file;
+		}
+	}
+
+	private static class FailingOutput implements ToCOutput {
+		public OutputStream open(ToC toc) throws IOException {
+			fail("opened for " + toc);
+			return null;
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package common.code.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jmh.Main;
+
+/**
+ * Main class of the benchmarks.jar files. Runs JMH with the given command
+ * line options and, unless the result format or file is given, writes the
+ * results as JSON to jmh-result.json in the working directory, so that the
+ * results of two runs can be compared.
+ */
+public class BenchmarkRunner {
+	public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+	public static void main(String[] args) throws Exception {
+		List<String> options = new ArrayList<String>(Arrays.asList(args));
+		if (!options.contains("-rf")) {
+			options.add("-rf");
+			options.add("json");
+		}
+		if (!options.contains("-rff")) {
+			options.add("-rff");
+			options.add(DEFAULT_RESULT_FILE);
+		}
+		Main.main(options.toArray(new String[options.size()]));
+	}
+}
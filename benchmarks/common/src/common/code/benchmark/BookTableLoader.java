@@ -0,0 +1,122 @@
+package common.code.benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+import javax.sql.DataSource;
+
+/**
+ * Inserts the books of a CatalogGenerator into the book_tbl table of the
+ * ch9 examples, and their ToCs into toc_tbl if the generator creates ToCs.
+ * The books are streamed to the database in JDBC batches, without going
+ * through the BookService, so that large catalogs are loaded in seconds.
+ *
+ * Run the main method to fill the MySQL database of the ch9 examples, with
+ * the JDBC driver on the classpath:
+ *
+ * java -cp benchmarks.jar:mysql-connector-java.jar common.code.benchmark.BookTableLoader
+ *     "jdbc:mysql://localhost/myportaldb?rewriteBatchedStatements=true" root password 1000000 [tocSize]
+ */
+public final class BookTableLoader {
+	private static final int BATCH_SIZE = 1000;
+	private static final String INSERT_BOOK = "insert into book_tbl (title, isbn_number, authors, "
+			+ "created_date, created_by, active) values (?, ?, ?, ?, ?, 1)";
+	//-- the generated keys of batches are not returned by every driver, so
+	//-- the book_id is looked up by the ISBN number
+	private static final String INSERT_TOC = "insert into toc_tbl (book_id, toc_file, file_name, extension) "
+			+ "select book_id, ?, ?, ? from book_tbl where isbn_number = ? and active = 1";
+
+	private BookTableLoader() {
+	}
+
+	public static void insertBooks(DataSource dataSource, CatalogGenerator catalog, int count)
+			throws SQLException {
+		Connection connection = dataSource.getConnection();
+		try {
+			insertBooks(connection, catalog, count);
+		} finally {
+			connection.close();
+		}
+	}
+
+	public static void insertBooks(Connection connection, CatalogGenerator catalog, int count)
+			throws SQLException {
+		boolean autoCommit = connection.getAutoCommit();
+		connection.setAutoCommit(false);
+		try {
+			PreparedStatement ps = connection.prepareStatement(INSERT_BOOK);
+			try {
+				Timestamp createdDate = new Timestamp(System.currentTimeMillis());
+				for (int i = 0; i < count; i++) {
+					GeneratedBook book = catalog.getBook(i);
+					ps.setString(1, book.getName());
+					ps.setLong(2, book.getIsbnNumber());
+					ps.setString(3, book.getAuthor());
+					ps.setTimestamp(4, createdDate);
+					ps.setString(5, "loader");
+					ps.addBatch();
+					if ((i + 1) % BATCH_SIZE == 0) {
+						ps.executeBatch();
+						connection.commit();
+					}
+				}
+				ps.executeBatch();
+				connection.commit();
+			} finally {
+				ps.close();
+			}
+			if (catalog.getTocSize() > 0) {
+				insertTocs(connection, catalog, count);
+			}
+		} finally {
+			connection.setAutoCommit(autoCommit);
+		}
+	}
+
+	private static void insertTocs(Connection connection, CatalogGenerator catalog, int count)
+			throws SQLException {
+		PreparedStatement ps = connection.prepareStatement(INSERT_TOC);
+		try {
+			//-- keeps the batch below 4 MB, the default max_allowed_packet of MySQL
+			int batchSize = Math.max(1, Math.min(BATCH_SIZE, 4 * 1024 * 1024 / catalog.getTocSize()));
+			for (int i = 0; i < count; i++) {
+				ps.setBytes(1, catalog.getToc(i));
+				ps.setString(2, "toc" + i + ".txt");
+				ps.setString(3, "txt");
+				ps.setLong(4, catalog.getIsbnNumber(i));
+				ps.addBatch();
+				if ((i + 1) % batchSize == 0) {
+					ps.executeBatch();
+					connection.commit();
+				}
+			}
+			ps.executeBatch();
+			connection.commit();
+		} finally {
+			ps.close();
+		}
+	}
+
+	public static void main(String[] args) throws SQLException {
+		if (args.length < 4) {
+			System.err.println("Usage: BookTableLoader <jdbcUrl> <user> <password> <count> [tocSize]");
+			System.exit(1);
+		}
+		int count = Integer.parseInt(args[3]);
+		int tocSize = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+		CatalogGenerator catalog = new CatalogGenerator(tocSize);
+		Connection connection = DriverManager.getConnection(args[0], args[1], args[2]);
+		try {
+			long start = System.currentTimeMillis();
+			insertBooks(connection, catalog, count);
+			long millis = Math.max(1, System.currentTimeMillis() - start);
+			System.out.println("Inserted " + count + " books in " + millis + " ms ("
+					+ (count * 1000L / millis) + " books/s)");
+		} finally {
+			connection.close();
+		}
+	}
+}
@@ -0,0 +1,243 @@
+package common.code.benchmark;
+
+import java.util.Arrays;
+
+/**
+ * Generates large book catalogs for the benchmarks and load tests. A book
+ * depends only on the seed, the settings and its index, so the same catalog
+ * is generated on every run, and any book can be generated without
+ * generating the books before it. Catalogs are therefore never kept in
+ * memory; the loaders stream the books into the BookServices and tables.
+ *
+ * The title words and the authors are drawn from synthetic vocabularies
+ * with a Zipf distribution, like the words of real titles: the word of rank
+ * k is drawn 1 / k^exponent times as often as the most frequent one. The
+ * categories follow the same distribution. ISBN numbers are valid ISBN-13s
+ * with the 978 prefix, in the order of the books.
+ */
+public class CatalogGenerator {
+	public static final long DEFAULT_SEED = 20100101L;
+	public static final int DEFAULT_WORD_COUNT = 2000;
+	public static final int DEFAULT_AUTHOR_COUNT = 1000;
+	public static final double DEFAULT_EXPONENT = 1.0;
+	public static final String[] CATEGORIES = { "java", "portlets", "spring", "hibernate", "ajax",
+			"web", "testing", "messaging", "search", "databases" };
+	private static final String[] SYLLABLES = { "por", "let", "sprin", "ber", "na", "as", "pec",
+			"ja", "va", "mq", "do", "op", "li", "fe", "ray", "wic", "ket", "stru", "lu", "cen",
+			"groo", "vy", "jax", "jo", "ma", "ven", "ant", "ri", "so", "tel" };
+	private static final String[] FIRST_NAMES = { "Ashish", "Ramnivas", "Bruce", "Dejan", "Rob",
+			"Chuck", "Petar", "Felipe", "Vincent", "Gary", "Craig", "Christian", "Gavin", "Martijn",
+			"Eelco", "Steve", "Erik", "Otis", "Dierk", "Andres" };
+	//-- 9-digit body of the ISBN numbers, after the 978 prefix
+	private static final int MAX_BOOKS = 1000000000;
+	//-- constants of the SplitMix64 generator
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+	private static final long FIELD_GAMMA = 0xD1B54A32D192ED03L;
+	private static final int TITLE_WORDS_FIELD = 1;
+	private static final int TITLE_FIELD = 2;
+	private static final int AUTHOR_FIELD = 10;
+	private static final int CATEGORY_FIELD = 20;
+
+	private final long seed;
+	private final int tocSize;
+	private final String[] words;
+	private final double[] wordCdf;
+	private final String[] authors;
+	private final double[] authorCdf;
+	private final double[] categoryCdf;
+
+	/**
+	 * Generator with the default settings and no ToCs.
+	 */
+	public CatalogGenerator() {
+		this(0);
+	}
+
+	/**
+	 * Generator with the default settings and ToCs of the given size.
+	 */
+	public CatalogGenerator(int tocSize) {
+		this(DEFAULT_SEED, DEFAULT_WORD_COUNT, DEFAULT_AUTHOR_COUNT, DEFAULT_EXPONENT, tocSize);
+	}
+
+	/**
+	 * @param tocSize size in bytes of the ToC file of each book; 0 for books
+	 *            without ToC
+	 */
+	public CatalogGenerator(long seed, int wordCount, int authorCount, double exponent, int tocSize) {
+		if (wordCount < 1 || authorCount < 1 || exponent < 0 || tocSize < 0) {
+			throw new IllegalArgumentException("Invalid catalog settings: wordCount " + wordCount
+					+ ", authorCount " + authorCount + ", exponent " + exponent + ", tocSize " + tocSize);
+		}
+		this.seed = seed;
+		this.tocSize = tocSize;
+		words = new String[wordCount];
+		for (int i = 0; i < wordCount; i++) {
+			words[i] = capitalize(syllables(i, 0));
+		}
+		authors = new String[authorCount];
+		for (int i = 0; i < authorCount; i++) {
+			authors[i] = FIRST_NAMES[i % FIRST_NAMES.length] + " "
+					+ capitalize(syllables(i / FIRST_NAMES.length, 7));
+		}
+		wordCdf = zipfCdf(wordCount, exponent);
+		authorCdf = zipfCdf(authorCount, exponent);
+		categoryCdf = zipfCdf(CATEGORIES.length, exponent);
+	}
+
+	public int getTocSize() {
+		return tocSize;
+	}
+
+	public GeneratedBook getBook(int index) {
+		checkIndex(index);
+		return new GeneratedBook(index, getCategory(index), getTitle(index), getAuthor(index),
+				getIsbnNumber(index));
+	}
+
+	/**
+	 * Two to four title words, e.g. "Porlet Sprin Ja".
+	 */
+	public String getTitle(int index) {
+		int wordCount = 2 + (int) (random(index, TITLE_WORDS_FIELD) * 3);
+		StringBuilder title = new StringBuilder();
+		for (int i = 0; i < wordCount; i++) {
+			if (i > 0) {
+				title.append(' ');
+			}
+			title.append(words[sample(wordCdf, random(index, TITLE_FIELD + i))]);
+		}
+		return title.toString();
+	}
+
+	/**
+	 * One author, or two authors for 1 in 4 books.
+	 */
+	public String getAuthor(int index) {
+		String author = authors[sample(authorCdf, random(index, AUTHOR_FIELD))];
+		if (random(index, AUTHOR_FIELD + 1) < 0.25) {
+			author = author + " and " + authors[sample(authorCdf, random(index, AUTHOR_FIELD + 2))];
+		}
+		return author;
+	}
+
+	public String getCategory(int index) {
+		return CATEGORIES[sample(categoryCdf, random(index, CATEGORY_FIELD))];
+	}
+
+	/**
+	 * Valid ISBN-13 of the book; books with a higher index have a higher
+	 * ISBN number, and no generated ISBN number is the ISBN number of one of
+	 * the example books.
+	 */
+	public long getIsbnNumber(int index) {
+		checkIndex(index);
+		return toIsbn13(978000000000L + index);
+	}
+
+	/**
+	 * Contents of the ToC file of the book: numbered chapter lines, filled
+	 * up to the ToC size. Returns null if the generator creates no ToCs.
+	 */
+	public byte[] getToc(int index) {
+		if (tocSize == 0) {
+			return null;
+		}
+		byte[] toc = new byte[tocSize];
+		int length = 0;
+		for (int chapter = 1; length < tocSize; chapter++) {
+			byte[] line = ("Chapter " + chapter + " " + words[sample(wordCdf, random(index, chapter))]
+					+ "\r\n").getBytes();
+			int count = Math.min(line.length, tocSize - length);
+			System.arraycopy(line, 0, toc, length, count);
+			length += count;
+		}
+		return toc;
+	}
+
+	/**
+	 * Most frequent title word; the search text which matches the most books.
+	 */
+	public String getTitleSearchText() {
+		return words[0];
+	}
+
+	/**
+	 * Most frequent author; the search text which matches the most books.
+	 */
+	public String getAuthorSearchText() {
+		return authors[0];
+	}
+
+	/**
+	 * Adds the check digit to the first 12 digits of an ISBN-13.
+	 */
+	static long toIsbn13(long first12Digits) {
+		int sum = 0;
+		long digits = first12Digits;
+		//-- the last of the 12 digits has weight 3, the one before it 1, and so on
+		for (int position = 0; position < 12; position++) {
+			int digit = (int) (digits % 10);
+			sum += position % 2 == 0 ? digit * 3 : digit;
+			digits /= 10;
+		}
+		return first12Digits * 10 + (10 - sum % 10) % 10;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= MAX_BOOKS) {
+			throw new IllegalArgumentException("Book index " + index + " is not between 0 and "
+					+ (MAX_BOOKS - 1));
+		}
+	}
+
+	/**
+	 * Uniformly distributed number in [0, 1), which depends only on the seed,
+	 * the index of the book and the field being generated.
+	 */
+	private double random(int index, int field) {
+		long z = seed + (index + 1) * GOLDEN_GAMMA + field * FIELD_GAMMA;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		z = z ^ (z >>> 31);
+		return (z >>> 11) * 0x1.0p-53;
+	}
+
+	private static int sample(double[] cdf, double random) {
+		int rank = Arrays.binarySearch(cdf, random);
+		//-- not found: the insertion point is the first rank with cdf > random
+		return rank >= 0 ? rank + 1 : -rank - 1;
+	}
+
+	private static double[] zipfCdf(int size, double exponent) {
+		double[] cdf = new double[size];
+		double sum = 0;
+		for (int rank = 0; rank < size; rank++) {
+			sum += 1 / Math.pow(rank + 1, exponent);
+			cdf[rank] = sum;
+		}
+		for (int rank = 0; rank < size; rank++) {
+			cdf[rank] /= sum;
+		}
+		//-- rounding must not leave a gap above the last rank
+		cdf[size - 1] = 1.0;
+		return cdf;
+	}
+
+	/**
+	 * Word made of two or more syllables, a different word for each number.
+	 */
+	private static String syllables(int number, int offset) {
+		StringBuilder word = new StringBuilder();
+		int rest = number;
+		do {
+			word.append(SYLLABLES[(rest + offset) % SYLLABLES.length]);
+			rest /= SYLLABLES.length;
+		} while (rest > 0 || word.length() < 4);
+		return word.toString();
+	}
+
+	private static String capitalize(String word) {
+		return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+	}
+}
@@ -0,0 +1,41 @@
+package common.code.benchmark;
+
+/**
+ * Book generated by the CatalogGenerator, independent of the Book classes
+ * of the examples.
+ */
+public class GeneratedBook {
+	private final int index;
+	private final String category;
+	private final String name;
+	private final String author;
+	private final long isbnNumber;
+
+	GeneratedBook(int index, String category, String name, String author, long isbnNumber) {
+		this.index = index;
+		this.category = category;
+		this.name = name;
+		this.author = author;
+		this.isbnNumber = isbnNumber;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public String getCategory() {
+		return category;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getAuthor() {
+		return author;
+	}
+
+	public long getIsbnNumber() {
+		return isbnNumber;
+	}
+}
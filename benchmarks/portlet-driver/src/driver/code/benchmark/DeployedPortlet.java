@@ -0,0 +1,251 @@
+package driver.code.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.Set;
+
+import javax.portlet.ActionRequest;
+import javax.portlet.ActionResponse;
+import javax.portlet.EventPortlet;
+import javax.portlet.EventRequest;
+import javax.portlet.EventResponse;
+import javax.portlet.Portlet;
+import javax.portlet.PortletException;
+import javax.portlet.PortletRequest;
+import javax.portlet.PreferencesValidator;
+import javax.portlet.ReadOnlyException;
+import javax.portlet.RenderRequest;
+import javax.portlet.RenderResponse;
+import javax.portlet.ResourceRequest;
+import javax.portlet.ResourceResponse;
+import javax.portlet.ResourceServingPortlet;
+import javax.portlet.filter.ActionFilter;
+import javax.portlet.filter.EventFilter;
+import javax.portlet.filter.PortletFilter;
+import javax.portlet.filter.RenderFilter;
+import javax.portlet.filter.ResourceFilter;
+import javax.xml.namespace.QName;
+
+import org.springframework.mock.web.portlet.MockPortletConfig;
+import org.springframework.mock.web.portlet.MockPortletPreferences;
+
+import driver.code.benchmark.PortletAppDescriptor.FilterDefinition;
+import driver.code.benchmark.PortletAppDescriptor.PortletDefinition;
+
+/**
+ * A portlet of a PortletApplication, with its PortletConfig and the filters
+ * of each phase. The phase methods run the filters and the portlet with the
+ * class loader of the module as context class loader.
+ */
+public class DeployedPortlet {
+	private final PortletApplication application;
+	private final PortletDefinition definition;
+	private final MockPortletConfig config;
+	private final Portlet portlet;
+	private final PreferencesValidator preferencesValidator;
+	private final List<PortletFilter> actionFilters = new ArrayList<PortletFilter>();
+	private final List<PortletFilter> eventFilters = new ArrayList<PortletFilter>();
+	private final List<PortletFilter> renderFilters = new ArrayList<PortletFilter>();
+	private final List<PortletFilter> resourceFilters = new ArrayList<PortletFilter>();
+
+	DeployedPortlet(PortletApplication application, PortletDefinition definition,
+			Map<String, PortletFilter> filters) throws PortletException {
+		this.application = application;
+		this.definition = definition;
+		this.config = createConfig();
+		this.portlet = application.newInstance(definition.getClassName(), Portlet.class);
+		this.preferencesValidator = definition.getPreferencesValidator() == null ? null
+				: application.newInstance(definition.getPreferencesValidator(), PreferencesValidator.class);
+		for (FilterDefinition filterDefinition : application.getDescriptor().getFilters(definition.getName())) {
+			PortletFilter filter = filters.get(filterDefinition.getName());
+			addFilter(filterDefinition, filter, PortletRequest.ACTION_PHASE, ActionFilter.class, actionFilters);
+			addFilter(filterDefinition, filter, PortletRequest.EVENT_PHASE, EventFilter.class, eventFilters);
+			addFilter(filterDefinition, filter, PortletRequest.RENDER_PHASE, RenderFilter.class, renderFilters);
+			addFilter(filterDefinition, filter, PortletRequest.RESOURCE_PHASE, ResourceFilter.class, resourceFilters);
+		}
+	}
+
+	void init() throws PortletException {
+		portlet.init(config);
+	}
+
+	void destroy() {
+		portlet.destroy();
+	}
+
+	public void processAction(ActionRequest request, ActionResponse response) throws IOException, PortletException {
+		ClassLoader previous = application.enter();
+		try {
+			new PortletFilterChain(actionFilters, portlet).doFilter(request, response);
+		} finally {
+			application.exit(previous);
+		}
+	}
+
+	public void processEvent(EventRequest request, EventResponse response) throws IOException, PortletException {
+		if (!(portlet instanceof EventPortlet)) {
+			throw new PortletException(getName() + " is not an EventPortlet");
+		}
+		ClassLoader previous = application.enter();
+		try {
+			new PortletFilterChain(eventFilters, portlet).doFilter(request, response);
+		} finally {
+			application.exit(previous);
+		}
+	}
+
+	public void render(RenderRequest request, RenderResponse response) throws IOException, PortletException {
+		ClassLoader previous = application.enter();
+		try {
+			new PortletFilterChain(renderFilters, portlet).doFilter(request, response);
+		} finally {
+			application.exit(previous);
+		}
+	}
+
+	public void serveResource(ResourceRequest request, ResourceResponse response) throws IOException,
+			PortletException {
+		if (!(portlet instanceof ResourceServingPortlet)) {
+			throw new PortletException(getName() + " is not a ResourceServingPortlet");
+		}
+		ClassLoader previous = application.enter();
+		try {
+			new PortletFilterChain(resourceFilters, portlet).doFilter(request, response);
+		} finally {
+			application.exit(previous);
+		}
+	}
+
+	/**
+	 * Creates the preferences of a user, with the values of portlet.xml.
+	 */
+	public MockPortletPreferences createPreferences() {
+		MockPortletPreferences preferences = new MockPortletPreferences();
+		try {
+			for (Map.Entry<String, String[]> preference : definition.getPreferences().entrySet()) {
+				preferences.setValues(preference.getKey(), preference.getValue());
+				preferences.setReadOnly(preference.getKey(), definition.isReadOnlyPreference(preference.getKey()));
+			}
+		} catch (ReadOnlyException e) {
+			throw new IllegalStateException(e);
+		}
+		if (preferencesValidator != null) {
+			preferences.setPreferencesValidator(preferencesValidator);
+		}
+		return preferences;
+	}
+
+	public boolean isProcessingEvent(QName eventName) {
+		return definition.getProcessingEvents().contains(eventName);
+	}
+
+	public String getName() {
+		return definition.getName();
+	}
+
+	public PortletApplication getApplication() {
+		return application;
+	}
+
+	public PortletDefinition getDefinition() {
+		return definition;
+	}
+
+	private MockPortletConfig createConfig() {
+		MockPortletConfig config = new MockPortletConfig(application.getPortletContext(), definition.getName());
+		for (Map.Entry<String, String> parameter : definition.getInitParameters().entrySet()) {
+			config.addInitParameter(parameter.getKey(), parameter.getValue());
+		}
+		config.setDefaultNamespace(definition.getDefaultNamespace());
+		for (QName event : definition.getProcessingEvents()) {
+			config.addProcessingEventQName(event);
+		}
+		for (QName event : definition.getPublishingEvents()) {
+			config.addPublishingEventQName(event);
+		}
+		for (String identifier : definition.getPublicRenderParameters().keySet()) {
+			config.addPublicRenderParameterName(identifier);
+		}
+		for (Map.Entry<String, String> option : definition.getContainerRuntimeOptions().entrySet()) {
+			config.addContainerRuntimeOption(option.getKey(), option.getValue());
+		}
+		//-- the locale of the requests of the driver, and of the JVM
+		for (Locale locale : new Locale[] { Locale.ENGLISH, Locale.getDefault() }) {
+			config.setResourceBundle(locale, new PortletInfoBundle(loadBundle(locale)));
+		}
+		return config;
+	}
+
+	private ResourceBundle loadBundle(Locale locale) {
+		if (definition.getResourceBundle() == null) {
+			return null;
+		}
+		try {
+			return ResourceBundle.getBundle(definition.getResourceBundle(), locale, application.getClassLoader());
+		} catch (MissingResourceException e) {
+			throw new IllegalStateException("Resource bundle " + definition.getResourceBundle() + " of "
+					+ getName() + " not found; is the module built?", e);
+		}
+	}
+
+	private static void addFilter(FilterDefinition definition, PortletFilter filter, String phase,
+			Class<? extends PortletFilter> type, List<PortletFilter> phaseFilters) {
+		if (definition.appliesTo(phase) && type.isInstance(filter)) {
+			phaseFilters.add(filter);
+		}
+	}
+
+	/**
+	 * The resource bundle of the portlet, with the portlet-info of
+	 * portlet.xml for the keys which the bundle doesn't have, as the portal
+	 * provides them.
+	 */
+	private final class PortletInfoBundle extends ResourceBundle {
+		private final ResourceBundle bundle;
+
+		PortletInfoBundle(ResourceBundle bundle) {
+			this.bundle = bundle;
+		}
+
+		@Override
+		protected Object handleGetObject(String key) {
+			if (bundle != null && bundle.containsKey(key)) {
+				return bundle.getObject(key);
+			}
+			if ("javax.portlet.title".equals(key)) {
+				return definition.getTitle();
+			} else if ("javax.portlet.short-title".equals(key)) {
+				return definition.getShortTitle();
+			} else if ("javax.portlet.keywords".equals(key)) {
+				return definition.getKeywords();
+			}
+			return null;
+		}
+
+		@Override
+		public Enumeration<String> getKeys() {
+			Set<String> keys = new HashSet<String>();
+			if (bundle != null) {
+				keys.addAll(Collections.list(bundle.getKeys()));
+			}
+			if (definition.getTitle() != null) {
+				keys.add("javax.portlet.title");
+			}
+			if (definition.getShortTitle() != null) {
+				keys.add("javax.portlet.short-title");
+			}
+			if (definition.getKeywords() != null) {
+				keys.add("javax.portlet.keywords");
+			}
+			return Collections.enumeration(keys);
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package driver.code.benchmark;
+
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.portlet.MimeResponse;
+import javax.portlet.PortletException;
+import javax.portlet.PortletRequest;
+import javax.portlet.PortletRequestDispatcher;
+import javax.portlet.PortletResponse;
+import javax.portlet.RenderRequest;
+import javax.portlet.RenderResponse;
+import javax.portlet.filter.PortletResponseWrapper;
+import javax.servlet.ServletContext;
+
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.mock.web.portlet.MockMimeResponse;
+import org.springframework.mock.web.portlet.MockPortletContext;
+
+/**
+ * PortletContext of a module. The attributes and init parameters are those
+ * of the ServletContext of the module. JSPs are not run: the request
+ * dispatchers capture the path which was included or forwarded to, in the
+ * response and in the counts of the context.
+ */
+public class DriverPortletContext extends MockPortletContext {
+	private final ServletContext servletContext;
+	private final ConcurrentMap<String, AtomicLong> dispatchCounts = new ConcurrentHashMap<String, AtomicLong>();
+
+	public DriverPortletContext(String resourceBasePath, ServletContext servletContext) {
+		super(resourceBasePath, new DefaultResourceLoader());
+		this.servletContext = servletContext;
+		setPortletContextName(servletContext.getServletContextName());
+	}
+
+	@Override
+	public PortletRequestDispatcher getRequestDispatcher(String path) {
+		return new CapturingDispatcher(path);
+	}
+
+	@Override
+	public PortletRequestDispatcher getNamedDispatcher(String path) {
+		return new CapturingDispatcher("named:" + path);
+	}
+
+	@Override
+	public Object getAttribute(String name) {
+		return servletContext.getAttribute(name);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Enumeration<String> getAttributeNames() {
+		return servletContext.getAttributeNames();
+	}
+
+	@Override
+	public void setAttribute(String name, Object value) {
+		servletContext.setAttribute(name, value);
+	}
+
+	@Override
+	public void removeAttribute(String name) {
+		servletContext.removeAttribute(name);
+	}
+
+	@Override
+	public String getInitParameter(String name) {
+		return servletContext.getInitParameter(name);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Enumeration<String> getInitParameterNames() {
+		return servletContext.getInitParameterNames();
+	}
+
+	/**
+	 * Returns the number of includes and forwards of each path, such as
+	 * "include /WEB-INF/jsp/home.jsp".
+	 */
+	public Map<String, Long> getDispatchCounts() {
+		Map<String, Long> counts = new TreeMap<String, Long>();
+		for (Map.Entry<String, AtomicLong> entry : dispatchCounts.entrySet()) {
+			counts.put(entry.getKey(), entry.getValue().get());
+		}
+		return counts;
+	}
+
+	private void count(String dispatch) {
+		AtomicLong count = dispatchCounts.get(dispatch);
+		if (count == null) {
+			AtomicLong newCount = new AtomicLong();
+			count = dispatchCounts.putIfAbsent(dispatch, newCount);
+			if (count == null) {
+				count = newCount;
+			}
+		}
+		count.incrementAndGet();
+	}
+
+	private final class CapturingDispatcher implements PortletRequestDispatcher {
+		private final String path;
+
+		CapturingDispatcher(String path) {
+			this.path = path;
+		}
+
+		public void include(RenderRequest request, RenderResponse response) throws PortletException, IOException {
+			include((PortletRequest) request, (PortletResponse) response);
+		}
+
+		public void include(PortletRequest request, PortletResponse response) throws PortletException, IOException {
+			count("include " + path);
+			PortletResponse unwrapped = unwrap(response);
+			if (unwrapped instanceof DriverResponse) {
+				((DriverResponse) unwrapped).addInclude(path);
+			} else if (unwrapped instanceof MockMimeResponse) {
+				((MockMimeResponse) unwrapped).setIncludedUrl(path);
+			}
+		}
+
+		public void forward(PortletRequest request, PortletResponse response) throws PortletException, IOException {
+			count("forward " + path);
+			PortletResponse unwrapped = unwrap(response);
+			if (unwrapped instanceof MimeResponse && ((MimeResponse) unwrapped).isCommitted()) {
+				throw new IllegalStateException("Cannot forward to " + path + " after the response was committed");
+			}
+			if (unwrapped instanceof MockMimeResponse) {
+				((MockMimeResponse) unwrapped).setForwardedUrl(path);
+			}
+		}
+
+		//-- the filters may wrap the response of the driver
+		private PortletResponse unwrap(PortletResponse response) {
+			while (response instanceof PortletResponseWrapper) {
+				response = ((PortletResponseWrapper) response).getResponse();
+			}
+			return response;
+		}
+	}
+}
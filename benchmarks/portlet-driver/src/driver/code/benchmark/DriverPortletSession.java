@@ -0,0 +1,76 @@
+package driver.code.benchmark;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Map;
+
+import javax.portlet.PortletContext;
+import javax.portlet.PortletSession;
+
+import org.springframework.mock.web.portlet.MockPortletSession;
+
+/**
+ * PortletSession of a user and a portlet. The portlet scope belongs to the
+ * portlet, while the application scope is shared by the sessions of the
+ * user with the other portlets of the same portlet application.
+ */
+public class DriverPortletSession extends MockPortletSession {
+	private final Map<String, Object> applicationAttributes;
+
+	public DriverPortletSession(PortletContext portletContext, Map<String, Object> applicationAttributes) {
+		super(portletContext);
+		this.applicationAttributes = applicationAttributes;
+	}
+
+	@Override
+	public Object getAttribute(String name, int scope) {
+		if (scope == PortletSession.APPLICATION_SCOPE) {
+			return applicationAttributes.get(name);
+		}
+		return super.getAttribute(name, scope);
+	}
+
+	@Override
+	public Enumeration<String> getAttributeNames(int scope) {
+		if (scope == PortletSession.APPLICATION_SCOPE) {
+			return Collections.enumeration(applicationAttributes.keySet());
+		}
+		return super.getAttributeNames(scope);
+	}
+
+	@Override
+	public void setAttribute(String name, Object value, int scope) {
+		if (scope == PortletSession.APPLICATION_SCOPE) {
+			if (value == null) {
+				applicationAttributes.remove(name);
+			} else {
+				applicationAttributes.put(name, value);
+			}
+		} else {
+			super.setAttribute(name, value, scope);
+		}
+	}
+
+	@Override
+	public void removeAttribute(String name, int scope) {
+		if (scope == PortletSession.APPLICATION_SCOPE) {
+			applicationAttributes.remove(name);
+		} else {
+			super.removeAttribute(name, scope);
+		}
+	}
+
+	@Override
+	public Map<String, Object> getAttributeMap(int scope) {
+		if (scope == PortletSession.APPLICATION_SCOPE) {
+			return Collections.unmodifiableMap(applicationAttributes);
+		}
+		return super.getAttributeMap(scope);
+	}
+
+	@Override
+	public void invalidate() {
+		super.invalidate();
+		applicationAttributes.clear();
+	}
+}
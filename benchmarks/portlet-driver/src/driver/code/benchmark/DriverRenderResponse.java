@@ -0,0 +1,80 @@
+package driver.code.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.portlet.PortalContext;
+import javax.portlet.PortletURL;
+import javax.portlet.PortletURLGenerationListener;
+import javax.portlet.RenderRequest;
+import javax.portlet.ResourceURL;
+
+import org.springframework.mock.web.portlet.MockRenderResponse;
+
+/**
+ * RenderResponse which captures the included paths, and passes the URLs it
+ * creates to the PortletURLGenerationListeners of the portlet application.
+ * As in a portlet container, the content type may have a charset, as in
+ * text/html;charset=ISO-8859-1, which the Spring views set.
+ */
+public class DriverRenderResponse extends MockRenderResponse implements DriverResponse {
+	private final List<PortletURLGenerationListener> urlListeners;
+	private final List<String> includes = new ArrayList<String>(2);
+
+	public DriverRenderResponse(PortalContext portalContext, RenderRequest request,
+			List<PortletURLGenerationListener> urlListeners) {
+		super(portalContext, request);
+		this.urlListeners = urlListeners;
+	}
+
+	@Override
+	public void setContentType(String contentType) {
+		int semicolon = contentType == null ? -1 : contentType.indexOf(';');
+		if (semicolon < 0) {
+			super.setContentType(contentType);
+			return;
+		}
+		super.setContentType(contentType.substring(0, semicolon).trim());
+		String parameters = contentType.substring(semicolon + 1).trim();
+		if (parameters.toLowerCase().startsWith("charset=")) {
+			setCharacterEncoding(parameters.substring("charset=".length()).trim());
+		}
+	}
+
+	@Override
+	public PortletURL createActionURL() {
+		PortletURL url = super.createActionURL();
+		for (PortletURLGenerationListener listener : urlListeners) {
+			listener.filterActionURL(url);
+		}
+		return url;
+	}
+
+	@Override
+	public PortletURL createRenderURL() {
+		PortletURL url = super.createRenderURL();
+		for (PortletURLGenerationListener listener : urlListeners) {
+			listener.filterRenderURL(url);
+		}
+		return url;
+	}
+
+	@Override
+	public ResourceURL createResourceURL() {
+		ResourceURL url = super.createResourceURL();
+		for (PortletURLGenerationListener listener : urlListeners) {
+			listener.filterResourceURL(url);
+		}
+		return url;
+	}
+
+	public void addInclude(String path) {
+		includes.add(path);
+		setIncludedUrl(path);
+	}
+
+	public List<String> getIncludes() {
+		return Collections.unmodifiableList(includes);
+	}
+}
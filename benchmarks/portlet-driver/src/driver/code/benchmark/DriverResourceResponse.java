@@ -0,0 +1,60 @@
+package driver.code.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.portlet.PortletURL;
+import javax.portlet.PortletURLGenerationListener;
+import javax.portlet.ResourceURL;
+
+import org.springframework.mock.web.portlet.MockResourceResponse;
+
+/**
+ * ResourceResponse which captures the included paths, and passes the URLs it
+ * creates to the PortletURLGenerationListeners of the portlet application.
+ */
+public class DriverResourceResponse extends MockResourceResponse implements DriverResponse {
+	private final List<PortletURLGenerationListener> urlListeners;
+	private final List<String> includes = new ArrayList<String>(2);
+
+	public DriverResourceResponse(List<PortletURLGenerationListener> urlListeners) {
+		this.urlListeners = urlListeners;
+	}
+
+	@Override
+	public PortletURL createActionURL() {
+		PortletURL url = super.createActionURL();
+		for (PortletURLGenerationListener listener : urlListeners) {
+			listener.filterActionURL(url);
+		}
+		return url;
+	}
+
+	@Override
+	public PortletURL createRenderURL() {
+		PortletURL url = super.createRenderURL();
+		for (PortletURLGenerationListener listener : urlListeners) {
+			listener.filterRenderURL(url);
+		}
+		return url;
+	}
+
+	@Override
+	public ResourceURL createResourceURL() {
+		ResourceURL url = super.createResourceURL();
+		for (PortletURLGenerationListener listener : urlListeners) {
+			listener.filterResourceURL(url);
+		}
+		return url;
+	}
+
+	public void addInclude(String path) {
+		includes.add(path);
+		setIncludedUrl(path);
+	}
+
+	public List<String> getIncludes() {
+		return Collections.unmodifiableList(includes);
+	}
+}
@@ -0,0 +1,16 @@
+package driver.code.benchmark;
+
+import java.util.List;
+
+/**
+ * A render or resource response of the driver, which captures the paths
+ * included by the portlet instead of running the JSPs.
+ */
+public interface DriverResponse {
+	void addInclude(String path);
+
+	/**
+	 * Returns the included paths, in the order in which they were included.
+	 */
+	List<String> getIncludes();
+}
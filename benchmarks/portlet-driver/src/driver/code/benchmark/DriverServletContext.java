@@ -0,0 +1,47 @@
+package driver.code.benchmark;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.mock.web.MockServletContext;
+
+/**
+ * ServletContext of a module, which reads its resources from the module
+ * directory, given as a file: URL. The attributes are kept in a ConcurrentHashMap, as they are
+ * read by all the threads of the driver; the PortletContext of the module
+ * shares them, as in a portlet container.
+ */
+public class DriverServletContext extends MockServletContext {
+	private final ConcurrentMap<String, Object> attributes = new ConcurrentHashMap<String, Object>();
+
+	public DriverServletContext(String resourceBasePath) {
+		super(resourceBasePath, new DefaultResourceLoader());
+	}
+
+	@Override
+	public Object getAttribute(String name) {
+		return attributes.get(name);
+	}
+
+	@Override
+	public Enumeration<String> getAttributeNames() {
+		return Collections.enumeration(attributes.keySet());
+	}
+
+	@Override
+	public void setAttribute(String name, Object value) {
+		if (value == null) {
+			attributes.remove(name);
+		} else {
+			attributes.put(name, value);
+		}
+	}
+
+	@Override
+	public void removeAttribute(String name) {
+		attributes.remove(name);
+	}
+}
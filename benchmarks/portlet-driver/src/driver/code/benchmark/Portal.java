@@ -0,0 +1,139 @@
+package driver.code.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.portlet.PortalContext;
+import javax.portlet.PortletException;
+import javax.portlet.PortletMode;
+import javax.portlet.WindowState;
+import javax.xml.namespace.QName;
+
+import org.springframework.mock.web.portlet.MockPortalContext;
+
+/**
+ * The portlet applications deployed in the driver. Events are delivered to
+ * the portlets of all the applications, as on a portal page which shows
+ * portlets of several modules.
+ */
+public class Portal {
+	private final List<PortletApplication> applications;
+	private final PortalContext portalContext;
+
+	public Portal(List<PortletApplication> applications) {
+		this.applications = new ArrayList<PortletApplication>(applications);
+		List<PortletMode> portletModes = new ArrayList<PortletMode>();
+		Collections.addAll(portletModes, PortletMode.VIEW, PortletMode.EDIT, PortletMode.HELP);
+		List<WindowState> windowStates = new ArrayList<WindowState>();
+		Collections.addAll(windowStates, WindowState.NORMAL, WindowState.MAXIMIZED, WindowState.MINIMIZED);
+		for (PortletApplication application : applications) {
+			for (String mode : application.getDescriptor().getCustomPortletModes()) {
+				PortletMode portletMode = new PortletMode(mode);
+				if (!portletModes.contains(portletMode)) {
+					portletModes.add(portletMode);
+				}
+			}
+			for (String state : application.getDescriptor().getCustomWindowStates()) {
+				WindowState windowState = new WindowState(state);
+				if (!windowStates.contains(windowState)) {
+					windowStates.add(windowState);
+				}
+			}
+		}
+		this.portalContext = new MockPortalContext(portletModes, windowStates);
+	}
+
+	/**
+	 * Starts the applications in turn; if one fails, the applications which
+	 * were started are stopped again.
+	 */
+	public void start() throws PortletException {
+		for (int i = 0; i < applications.size(); i++) {
+			try {
+				applications.get(i).start();
+			} catch (PortletException e) {
+				for (int j = i; j >= 0; j--) {
+					applications.get(j).stop();
+				}
+				throw e;
+			}
+		}
+	}
+
+	public void stop() {
+		for (int i = applications.size() - 1; i >= 0; i--) {
+			applications.get(i).stop();
+		}
+	}
+
+	public PortalContext getPortalContext() {
+		return portalContext;
+	}
+
+	public List<PortletApplication> getApplications() {
+		return Collections.unmodifiableList(applications);
+	}
+
+	/**
+	 * Returns the portlet with the given name, which is qualified with the
+	 * name of its module, as in bookCatalog@ch11_BookCatalog_event, when
+	 * several modules have a portlet with the name.
+	 */
+	public DeployedPortlet getPortlet(String reference) {
+		int at = reference.indexOf('@');
+		String portletName = at < 0 ? reference : reference.substring(0, at);
+		String applicationName = at < 0 ? null : reference.substring(at + 1);
+		DeployedPortlet found = null;
+		for (PortletApplication application : applications) {
+			if (applicationName != null && !applicationName.equals(application.getName())) {
+				continue;
+			}
+			DeployedPortlet portlet = application.getPortlet(portletName);
+			if (portlet != null) {
+				if (found != null) {
+					throw new IllegalArgumentException("Several modules have a portlet " + portletName
+							+ "; use " + portletName + "@<module>");
+				}
+				found = portlet;
+			}
+		}
+		if (found == null) {
+			throw new IllegalArgumentException("No portlet " + reference);
+		}
+		return found;
+	}
+
+	/**
+	 * Returns the portlets which process the event, in the order in which
+	 * they were deployed.
+	 */
+	public List<DeployedPortlet> getEventProcessors(QName eventName) {
+		List<DeployedPortlet> processors = new ArrayList<DeployedPortlet>();
+		for (PortletApplication application : applications) {
+			for (DeployedPortlet portlet : application.getPortlets()) {
+				if (portlet.isProcessingEvent(eventName)) {
+					processors.add(portlet);
+				}
+			}
+		}
+		return processors;
+	}
+
+	/**
+	 * Returns the number of includes and forwards of each path, prefixed
+	 * with the name of the module if there are several.
+	 */
+	public Map<String, Long> getDispatchCounts() {
+		Map<String, Long> counts = new TreeMap<String, Long>();
+		for (PortletApplication application : applications) {
+			String prefix = applications.size() > 1 ? application.getName() + " " : "";
+			for (Map.Entry<String, Long> count : application.getPortletContext().getDispatchCounts().entrySet()) {
+				counts.put(prefix + count.getKey(), count.getValue());
+			}
+		}
+		return counts;
+	}
+}
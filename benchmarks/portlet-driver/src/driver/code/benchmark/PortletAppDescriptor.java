@@ -0,0 +1,398 @@
+package driver.code.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+/**
+ * The parts of the WEB-INF/portlet.xml and WEB-INF/web.xml of a module
+ * which the driver uses: the portlets, filters and listeners, and the
+ * context parameters and listeners of web.xml. Servlets and servlet filters
+ * are not read, as the driver doesn't serve HTTP requests.
+ */
+public final class PortletAppDescriptor {
+	private final String defaultNamespace;
+	private final List<PortletDefinition> portlets = new ArrayList<PortletDefinition>();
+	private final List<FilterDefinition> filters = new ArrayList<FilterDefinition>();
+	private final List<String[]> filterMappings = new ArrayList<String[]>();
+	private final List<String> urlGenerationListeners = new ArrayList<String>();
+	private final Map<String, QName> publicRenderParameters = new LinkedHashMap<String, QName>();
+	private final Map<String, String> containerRuntimeOptions = new LinkedHashMap<String, String>();
+	private final List<String> customPortletModes = new ArrayList<String>();
+	private final List<String> customWindowStates = new ArrayList<String>();
+	private final Map<String, String> contextParameters = new LinkedHashMap<String, String>();
+	private final List<String> contextListeners = new ArrayList<String>();
+
+	private PortletAppDescriptor(Element portletApp, Element webApp) {
+		String namespace = text(portletApp, "default-namespace");
+		defaultNamespace = namespace == null ? "" : namespace;
+		for (Element option : children(portletApp, "container-runtime-option")) {
+			containerRuntimeOptions.put(text(option, "name"), text(option, "value"));
+		}
+		for (Element parameter : children(portletApp, "public-render-parameter")) {
+			publicRenderParameters.put(text(parameter, "identifier"), qname(parameter));
+		}
+		for (Element mode : children(portletApp, "custom-portlet-mode")) {
+			customPortletModes.add(text(mode, "portlet-mode"));
+		}
+		for (Element state : children(portletApp, "custom-window-state")) {
+			customWindowStates.add(text(state, "window-state"));
+		}
+		for (Element portlet : children(portletApp, "portlet")) {
+			portlets.add(new PortletDefinition(portlet));
+		}
+		for (Element filter : children(portletApp, "filter")) {
+			filters.add(new FilterDefinition(filter));
+		}
+		for (Element mapping : children(portletApp, "filter-mapping")) {
+			for (Element portletName : children(mapping, "portlet-name")) {
+				filterMappings.add(new String[] { text(mapping, "filter-name"), trim(portletName) });
+			}
+		}
+		for (Element listener : children(portletApp, "listener")) {
+			urlGenerationListeners.add(text(listener, "listener-class"));
+		}
+		if (webApp != null) {
+			for (Element parameter : children(webApp, "context-param")) {
+				contextParameters.put(text(parameter, "param-name"), text(parameter, "param-value"));
+			}
+			for (Element listener : children(webApp, "listener")) {
+				contextListeners.add(text(listener, "listener-class"));
+			}
+		}
+	}
+
+	/**
+	 * Reads the WEB-INF/portlet.xml, and the WEB-INF/web.xml if there is
+	 * one, of the module.
+	 */
+	public static PortletAppDescriptor read(File moduleDir) throws IOException {
+		File webInf = new File(moduleDir, "WEB-INF");
+		File webXml = new File(webInf, "web.xml");
+		try {
+			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+			factory.setNamespaceAware(true);
+			DocumentBuilder builder = factory.newDocumentBuilder();
+			Element portletApp = builder.parse(new File(webInf, "portlet.xml")).getDocumentElement();
+			Element webApp = webXml.isFile() ? builder.parse(webXml).getDocumentElement() : null;
+			return new PortletAppDescriptor(portletApp, webApp);
+		} catch (ParserConfigurationException e) {
+			throw new IllegalStateException(e);
+		} catch (SAXException e) {
+			throw new IOException("Could not parse the descriptors of " + moduleDir + ": " + e.getMessage());
+		}
+	}
+
+	public List<PortletDefinition> getPortlets() {
+		return Collections.unmodifiableList(portlets);
+	}
+
+	/**
+	 * Returns the filters mapped to the portlet, in the order of their
+	 * filter-mapping elements.
+	 */
+	public List<FilterDefinition> getFilters(String portletName) {
+		List<FilterDefinition> result = new ArrayList<FilterDefinition>();
+		for (String[] mapping : filterMappings) {
+			if (matches(mapping[1], portletName)) {
+				FilterDefinition filter = getFilter(mapping[0]);
+				if (filter != null && !result.contains(filter)) {
+					result.add(filter);
+				}
+			}
+		}
+		return result;
+	}
+
+	public List<FilterDefinition> getFilters() {
+		return Collections.unmodifiableList(filters);
+	}
+
+	public List<String> getUrlGenerationListeners() {
+		return Collections.unmodifiableList(urlGenerationListeners);
+	}
+
+	public List<String> getCustomPortletModes() {
+		return Collections.unmodifiableList(customPortletModes);
+	}
+
+	public List<String> getCustomWindowStates() {
+		return Collections.unmodifiableList(customWindowStates);
+	}
+
+	public Map<String, String> getContextParameters() {
+		return Collections.unmodifiableMap(contextParameters);
+	}
+
+	public List<String> getContextListeners() {
+		return Collections.unmodifiableList(contextListeners);
+	}
+
+	private FilterDefinition getFilter(String name) {
+		for (FilterDefinition filter : filters) {
+			if (filter.getName().equals(name)) {
+				return filter;
+			}
+		}
+		return null;
+	}
+
+	//-- a portlet-name of a filter-mapping may end with a * wildcard
+	private static boolean matches(String pattern, String portletName) {
+		if (pattern.endsWith("*")) {
+			return portletName.startsWith(pattern.substring(0, pattern.length() - 1));
+		}
+		return pattern.equals(portletName);
+	}
+
+	private QName qname(Element parent) {
+		Element qname = child(parent, "qname");
+		if (qname != null) {
+			String value = trim(qname);
+			int colon = value.indexOf(':');
+			if (colon < 0) {
+				return new QName(value);
+			}
+			String prefix = value.substring(0, colon);
+			return new QName(qname.lookupNamespaceURI(prefix), value.substring(colon + 1), prefix);
+		}
+		return new QName(defaultNamespace, text(parent, "name"));
+	}
+
+	private static List<Element> children(Element parent, String localName) {
+		List<Element> result = new ArrayList<Element>();
+		for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+			if (node instanceof Element && localName.equals(node.getLocalName())) {
+				result.add((Element) node);
+			}
+		}
+		return result;
+	}
+
+	private static Element child(Element parent, String localName) {
+		List<Element> children = children(parent, localName);
+		return children.isEmpty() ? null : children.get(0);
+	}
+
+	private static String text(Element parent, String localName) {
+		Element child = child(parent, localName);
+		return child == null ? null : trim(child);
+	}
+
+	private static String trim(Element element) {
+		return element.getTextContent().trim();
+	}
+
+	private static Map<String, String> initParameters(Element parent) {
+		Map<String, String> parameters = new LinkedHashMap<String, String>();
+		for (Element parameter : children(parent, "init-param")) {
+			parameters.put(text(parameter, "name"), text(parameter, "value"));
+		}
+		return parameters;
+	}
+
+	/**
+	 * A portlet element of portlet.xml. The container runtime options of the
+	 * portlet application apply to the portlet unless the portlet sets them.
+	 */
+	public final class PortletDefinition {
+		private final String name;
+		private final String className;
+		private final Map<String, String> initParameters;
+		private final String resourceBundle;
+		private final String title;
+		private final String shortTitle;
+		private final String keywords;
+		private final Map<String, String[]> preferences = new LinkedHashMap<String, String[]>();
+		private final Set<String> readOnlyPreferences = new HashSet<String>();
+		private final String preferencesValidator;
+		private final List<QName> processingEvents = new ArrayList<QName>();
+		private final List<QName> publishingEvents = new ArrayList<QName>();
+		private final List<String> publicRenderParameters = new ArrayList<String>();
+		private final Map<String, String> containerRuntimeOptions;
+		private final Map<String, String> securityRoleLinks = new LinkedHashMap<String, String>();
+
+		PortletDefinition(Element portlet) {
+			name = text(portlet, "portlet-name");
+			className = text(portlet, "portlet-class");
+			initParameters = initParameters(portlet);
+			resourceBundle = text(portlet, "resource-bundle");
+			Element info = child(portlet, "portlet-info");
+			title = info == null ? null : text(info, "title");
+			shortTitle = info == null ? null : text(info, "short-title");
+			keywords = info == null ? null : text(info, "keywords");
+			Element portletPreferences = child(portlet, "portlet-preferences");
+			if (portletPreferences != null) {
+				for (Element preference : children(portletPreferences, "preference")) {
+					List<Element> values = children(preference, "value");
+					String[] strings = new String[values.size()];
+					for (int i = 0; i < strings.length; i++) {
+						strings[i] = trim(values.get(i));
+					}
+					String preferenceName = text(preference, "name");
+					preferences.put(preferenceName, strings);
+					if ("true".equals(text(preference, "read-only"))) {
+						readOnlyPreferences.add(preferenceName);
+					}
+				}
+				preferencesValidator = text(portletPreferences, "preferences-validator");
+			} else {
+				preferencesValidator = null;
+			}
+			for (Element event : children(portlet, "supported-processing-event")) {
+				processingEvents.add(qname(event));
+			}
+			for (Element event : children(portlet, "supported-publishing-event")) {
+				publishingEvents.add(qname(event));
+			}
+			for (Element parameter : children(portlet, "supported-public-render-parameter")) {
+				publicRenderParameters.add(trim(parameter));
+			}
+			containerRuntimeOptions = new LinkedHashMap<String, String>(PortletAppDescriptor.this.containerRuntimeOptions);
+			for (Element option : children(portlet, "container-runtime-option")) {
+				containerRuntimeOptions.put(text(option, "name"), text(option, "value"));
+			}
+			for (Element role : children(portlet, "security-role-ref")) {
+				String link = text(role, "role-link");
+				securityRoleLinks.put(text(role, "role-name"), link == null ? text(role, "role-name") : link);
+			}
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getClassName() {
+			return className;
+		}
+
+		public Map<String, String> getInitParameters() {
+			return Collections.unmodifiableMap(initParameters);
+		}
+
+		public String getResourceBundle() {
+			return resourceBundle;
+		}
+
+		public String getTitle() {
+			return title;
+		}
+
+		public String getShortTitle() {
+			return shortTitle;
+		}
+
+		public String getKeywords() {
+			return keywords;
+		}
+
+		public Map<String, String[]> getPreferences() {
+			return Collections.unmodifiableMap(preferences);
+		}
+
+		public boolean isReadOnlyPreference(String preferenceName) {
+			return readOnlyPreferences.contains(preferenceName);
+		}
+
+		public String getPreferencesValidator() {
+			return preferencesValidator;
+		}
+
+		public String getDefaultNamespace() {
+			return defaultNamespace;
+		}
+
+		public List<QName> getProcessingEvents() {
+			return Collections.unmodifiableList(processingEvents);
+		}
+
+		public List<QName> getPublishingEvents() {
+			return Collections.unmodifiableList(publishingEvents);
+		}
+
+		/**
+		 * Returns the qualified names of the public render parameters of the
+		 * portlet, by their identifier.
+		 */
+		public Map<String, QName> getPublicRenderParameters() {
+			Map<String, QName> result = new LinkedHashMap<String, QName>();
+			for (String identifier : publicRenderParameters) {
+				QName qname = PortletAppDescriptor.this.publicRenderParameters.get(identifier);
+				if (qname != null) {
+					result.put(identifier, qname);
+				}
+			}
+			return result;
+		}
+
+		public Map<String, String> getContainerRuntimeOptions() {
+			return Collections.unmodifiableMap(containerRuntimeOptions);
+		}
+
+		public boolean isActionScopedRequestAttributes() {
+			return "true".equalsIgnoreCase(containerRuntimeOptions.get("javax.portlet.actionScopedRequestAttributes"));
+		}
+
+		/**
+		 * Returns the role links of the security-role-ref elements, by role
+		 * name.
+		 */
+		public Map<String, String> getSecurityRoleLinks() {
+			return Collections.unmodifiableMap(securityRoleLinks);
+		}
+	}
+
+	/**
+	 * A filter element of portlet.xml.
+	 */
+	public static final class FilterDefinition {
+		private final String name;
+		private final String className;
+		private final Set<String> lifecycles = new HashSet<String>();
+		private final Map<String, String> initParameters;
+
+		FilterDefinition(Element filter) {
+			name = text(filter, "filter-name");
+			className = text(filter, "filter-class");
+			for (Element lifecycle : children(filter, "lifecycle")) {
+				lifecycles.add(trim(lifecycle));
+			}
+			initParameters = initParameters(filter);
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getClassName() {
+			return className;
+		}
+
+		/**
+		 * Returns true if the filter applies to the phase, such as
+		 * RENDER_PHASE.
+		 */
+		public boolean appliesTo(String phase) {
+			return lifecycles.contains(phase);
+		}
+
+		public Map<String, String> getInitParameters() {
+			return Collections.unmodifiableMap(initParameters);
+		}
+	}
+}
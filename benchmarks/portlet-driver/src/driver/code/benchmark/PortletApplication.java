@@ -0,0 +1,228 @@
+package driver.code.benchmark;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.portlet.PortletContext;
+import javax.portlet.PortletException;
+import javax.portlet.PortletURLGenerationListener;
+import javax.portlet.filter.FilterConfig;
+import javax.portlet.filter.PortletFilter;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+import driver.code.benchmark.PortletAppDescriptor.FilterDefinition;
+import driver.code.benchmark.PortletAppDescriptor.PortletDefinition;
+
+/**
+ * A module deployed in the driver. The classes of the module are loaded by
+ * a class loader of their own, which delegates to the driver first, so the
+ * module shares the Portlet and Servlet APIs of the driver.
+ *
+ * start calls the ServletContextListeners of web.xml, and then creates and
+ * initializes the filters and portlets of portlet.xml; stop destroys them in
+ * the reverse order. The portlets are called with the class loader of the
+ * module as context class loader, as in a portlet container.
+ */
+public class PortletApplication {
+	private final String name;
+	private final PortletAppDescriptor descriptor;
+	private final URLClassLoader classLoader;
+	private final DriverServletContext servletContext;
+	private final DriverPortletContext portletContext;
+	private final List<ServletContextListener> contextListeners = new ArrayList<ServletContextListener>();
+	private final List<PortletURLGenerationListener> urlListeners = new ArrayList<PortletURLGenerationListener>();
+	private final Map<String, PortletFilter> filters = new LinkedHashMap<String, PortletFilter>();
+	private final Map<String, DeployedPortlet> portlets = new LinkedHashMap<String, DeployedPortlet>();
+
+	public PortletApplication(File moduleDir, List<File> classPath) throws IOException {
+		this.name = moduleDir.getCanonicalFile().getName();
+		this.descriptor = PortletAppDescriptor.read(moduleDir);
+		URL[] urls = new URL[classPath.size()];
+		for (int i = 0; i < urls.length; i++) {
+			urls[i] = classPath.get(i).toURI().toURL();
+		}
+		this.classLoader = new URLClassLoader(urls, PortletApplication.class.getClassLoader());
+		String resourceBasePath = "file:" + moduleDir.getCanonicalPath();
+		this.servletContext = new DriverServletContext(resourceBasePath);
+		servletContext.setServletContextName(name);
+		servletContext.setContextPath("/" + name);
+		for (Map.Entry<String, String> parameter : descriptor.getContextParameters().entrySet()) {
+			servletContext.addInitParameter(parameter.getKey(), parameter.getValue());
+		}
+		this.portletContext = new DriverPortletContext(resourceBasePath, servletContext);
+	}
+
+	/**
+	 * Returns the class path of a module built by Ant or Maven:
+	 * WEB-INF/classes, target/classes and the jars of WEB-INF/lib.
+	 */
+	public static List<File> getClassPath(File moduleDir) {
+		List<File> classPath = new ArrayList<File>();
+		for (String directory : new String[] { "WEB-INF/classes", "target/classes" }) {
+			File classes = new File(moduleDir, directory);
+			if (classes.isDirectory()) {
+				classPath.add(classes);
+			}
+		}
+		File[] jars = new File(moduleDir, "WEB-INF/lib").listFiles(new FileFilter() {
+			public boolean accept(File file) {
+				return file.getName().endsWith(".jar");
+			}
+		});
+		if (jars != null) {
+			Arrays.sort(jars);
+			classPath.addAll(Arrays.asList(jars));
+		}
+		return classPath;
+	}
+
+	public synchronized void start() throws PortletException {
+		ClassLoader previous = enter();
+		try {
+			ServletContextEvent event = new ServletContextEvent(servletContext);
+			for (String className : descriptor.getContextListeners()) {
+				ServletContextListener listener = newInstance(className, ServletContextListener.class);
+				listener.contextInitialized(event);
+				contextListeners.add(listener);
+			}
+			for (String className : descriptor.getUrlGenerationListeners()) {
+				urlListeners.add(newInstance(className, PortletURLGenerationListener.class));
+			}
+			for (FilterDefinition definition : descriptor.getFilters()) {
+				PortletFilter filter = newInstance(definition.getClassName(), PortletFilter.class);
+				filter.init(new DriverFilterConfig(definition));
+				filters.put(definition.getName(), filter);
+			}
+			for (PortletDefinition definition : descriptor.getPortlets()) {
+				DeployedPortlet portlet = new DeployedPortlet(this, definition, getFilters(definition));
+				portlet.init();
+				portlets.put(definition.getName(), portlet);
+			}
+		} finally {
+			exit(previous);
+		}
+	}
+
+	public synchronized void stop() {
+		ClassLoader previous = enter();
+		try {
+			for (DeployedPortlet portlet : portlets.values()) {
+				portlet.destroy();
+			}
+			portlets.clear();
+			for (PortletFilter filter : filters.values()) {
+				filter.destroy();
+			}
+			filters.clear();
+			urlListeners.clear();
+			ServletContextEvent event = new ServletContextEvent(servletContext);
+			for (int i = contextListeners.size() - 1; i >= 0; i--) {
+				contextListeners.get(i).contextDestroyed(event);
+			}
+			contextListeners.clear();
+		} finally {
+			exit(previous);
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public PortletAppDescriptor getDescriptor() {
+		return descriptor;
+	}
+
+	public ClassLoader getClassLoader() {
+		return classLoader;
+	}
+
+	public DriverPortletContext getPortletContext() {
+		return portletContext;
+	}
+
+	public DeployedPortlet getPortlet(String portletName) {
+		return portlets.get(portletName);
+	}
+
+	public Collection<DeployedPortlet> getPortlets() {
+		return Collections.unmodifiableCollection(portlets.values());
+	}
+
+	List<PortletURLGenerationListener> getUrlListeners() {
+		return urlListeners;
+	}
+
+	/**
+	 * Makes the class loader of the module the context class loader of the
+	 * current thread, and returns the previous one for exit.
+	 */
+	ClassLoader enter() {
+		Thread thread = Thread.currentThread();
+		ClassLoader previous = thread.getContextClassLoader();
+		thread.setContextClassLoader(classLoader);
+		return previous;
+	}
+
+	void exit(ClassLoader previous) {
+		Thread.currentThread().setContextClassLoader(previous);
+	}
+
+	<T> T newInstance(String className, Class<T> type) throws PortletException {
+		try {
+			return Class.forName(className, true, classLoader).asSubclass(type).newInstance();
+		} catch (ClassNotFoundException e) {
+			throw new PortletException("Class " + className + " of " + name + " not found; is the module built?", e);
+		} catch (ClassCastException e) {
+			throw new PortletException(className + " of " + name + " is not a " + type.getName(), e);
+		} catch (InstantiationException e) {
+			throw new PortletException("Could not create a " + className, e);
+		} catch (IllegalAccessException e) {
+			throw new PortletException("Could not create a " + className, e);
+		}
+	}
+
+	private Map<String, PortletFilter> getFilters(PortletDefinition portlet) {
+		Map<String, PortletFilter> result = new LinkedHashMap<String, PortletFilter>();
+		for (FilterDefinition definition : descriptor.getFilters(portlet.getName())) {
+			result.put(definition.getName(), filters.get(definition.getName()));
+		}
+		return result;
+	}
+
+	private final class DriverFilterConfig implements FilterConfig {
+		private final FilterDefinition definition;
+
+		DriverFilterConfig(FilterDefinition definition) {
+			this.definition = definition;
+		}
+
+		public String getFilterName() {
+			return definition.getName();
+		}
+
+		public PortletContext getPortletContext() {
+			return portletContext;
+		}
+
+		public String getInitParameter(String parameterName) {
+			return definition.getInitParameters().get(parameterName);
+		}
+
+		public Enumeration<String> getInitParameterNames() {
+			return Collections.enumeration(definition.getInitParameters().keySet());
+		}
+	}
+}
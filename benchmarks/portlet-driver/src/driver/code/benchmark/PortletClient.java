@@ -0,0 +1,361 @@
+package driver.code.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.portlet.ActionRequest;
+import javax.portlet.PortletException;
+import javax.portlet.PortletMode;
+import javax.portlet.PortletPreferences;
+import javax.portlet.StateAwareResponse;
+import javax.portlet.WindowState;
+import javax.xml.namespace.QName;
+
+import org.springframework.mock.web.portlet.MockActionRequest;
+import org.springframework.mock.web.portlet.MockActionResponse;
+import org.springframework.mock.web.portlet.MockEvent;
+import org.springframework.mock.web.portlet.MockEventRequest;
+import org.springframework.mock.web.portlet.MockEventResponse;
+import org.springframework.mock.web.portlet.MockPortletRequest;
+import org.springframework.mock.web.portlet.MockRenderRequest;
+import org.springframework.mock.web.portlet.MockResourceRequest;
+import org.springframework.mock.web.portlet.MockStateAwareResponse;
+
+/**
+ * A user of the portal, with the state the portal keeps for the user: the
+ * sessions, preferences, portlet modes, window states and render
+ * parameters of the portlets, and the public render parameters.
+ *
+ * After an action, the events published by the portlet are delivered to
+ * the portlets which process them, and the events those portlets publish in
+ * turn. The request attributes of an action and its events are kept for the
+ * render requests which follow, if the portlet asks for action scoped
+ * request attributes. A client is used by one thread at a time.
+ */
+public class PortletClient {
+	private static final int MAX_EVENT_DEPTH = 16;
+
+	private final Portal portal;
+	private final String userName;
+	private final Collection<String> roles;
+	private final Map<DeployedPortlet, Window> windows = new HashMap<DeployedPortlet, Window>();
+	private final Map<PortletApplication, Map<String, Object>> applicationSessions = new HashMap<PortletApplication, Map<String, Object>>();
+	private final Map<QName, String[]> publicRenderParameters = new HashMap<QName, String[]>();
+
+	/**
+	 * Creates a client for a user who is logged in with the given roles, or
+	 * for a guest if the user name is null.
+	 */
+	public PortletClient(Portal portal, String userName, Collection<String> roles) {
+		this.portal = portal;
+		this.userName = userName;
+		this.roles = new ArrayList<String>(roles);
+	}
+
+	/**
+	 * Sends an action request with the given parameters to the portlet, and
+	 * delivers the events it publishes. The action name is sent as the
+	 * javax.portlet.action parameter, unless it is null.
+	 */
+	public MockActionResponse action(String portletName, String actionName, Map<String, String[]> parameters)
+			throws IOException, PortletException {
+		DeployedPortlet portlet = portal.getPortlet(portletName);
+		Window window = getWindow(portlet);
+		MockActionRequest request = new MockActionRequest(portal.getPortalContext(), portlet.getApplication()
+				.getPortletContext());
+		prepare(request, portlet, window);
+		request.setParameters(parameters);
+		if (actionName != null) {
+			request.setParameter(ActionRequest.ACTION_NAME, actionName);
+		}
+		MockActionResponse response = new MockActionResponse(portal.getPortalContext());
+		window.actionScopedAttributes.clear();
+		portlet.processAction(request, response);
+		update(portlet, window, request, response);
+		deliverEvents(response, 0);
+		return response;
+	}
+
+	/**
+	 * Sends a render request to the portlet. The render parameters replace
+	 * those of the portlet, as a render URL does; if they are null, the
+	 * render parameters of the last action or render are sent again.
+	 */
+	public DriverRenderResponse render(String portletName, Map<String, String[]> parameters) throws IOException,
+			PortletException {
+		return render(portletName, null, parameters);
+	}
+
+	/**
+	 * Sends a render request to the portlet in the given portlet mode, which
+	 * is kept for the next requests; if the mode is null, the portlet mode
+	 * doesn't change.
+	 */
+	public DriverRenderResponse render(String portletName, PortletMode portletMode, Map<String, String[]> parameters)
+			throws IOException, PortletException {
+		DeployedPortlet portlet = portal.getPortlet(portletName);
+		Window window = getWindow(portlet);
+		if (portletMode != null) {
+			window.portletMode = portletMode;
+		}
+		if (parameters != null) {
+			setRenderParameters(portlet, window, parameters);
+		}
+		MockRenderRequest request = new MockRenderRequest(portal.getPortalContext(), portlet.getApplication()
+				.getPortletContext());
+		prepare(request, portlet, window);
+		request.setParameters(window.renderParameters);
+		addPublicRenderParameters(request, portlet);
+		for (Map.Entry<String, Object> attribute : window.actionScopedAttributes.entrySet()) {
+			request.setAttribute(attribute.getKey(), attribute.getValue());
+		}
+		DriverRenderResponse response = new DriverRenderResponse(portal.getPortalContext(), request, portlet
+				.getApplication().getUrlListeners());
+		portlet.render(request, response);
+		return response;
+	}
+
+	/**
+	 * Sends a resource request with the given resource ID and parameters to
+	 * the portlet. The request also has the render parameters of the
+	 * portlet, unless the parameters have the same name.
+	 */
+	public DriverResourceResponse resource(String portletName, String resourceId, Map<String, String[]> parameters)
+			throws IOException, PortletException {
+		DeployedPortlet portlet = portal.getPortlet(portletName);
+		Window window = getWindow(portlet);
+		MockResourceRequest request = new MockResourceRequest(portal.getPortalContext(), portlet.getApplication()
+				.getPortletContext());
+		prepare(request, portlet, window);
+		request.setResourceID(resourceId);
+		request.setParameters(window.renderParameters);
+		addPublicRenderParameters(request, portlet);
+		for (Map.Entry<String, String[]> parameter : parameters.entrySet()) {
+			request.setParameter(parameter.getKey(), parameter.getValue());
+		}
+		for (Map.Entry<String, String[]> parameter : window.renderParameters.entrySet()) {
+			request.addPrivateRenderParameter(parameter.getKey(), parameter.getValue());
+		}
+		DriverResourceResponse response = new DriverResourceResponse(portlet.getApplication().getUrlListeners());
+		portlet.serveResource(request, response);
+		return response;
+	}
+
+	/**
+	 * Delivers an event to the portlets which process it, as if a portlet
+	 * published it.
+	 */
+	public void event(QName eventName, Serializable value) throws IOException, PortletException {
+		for (DeployedPortlet portlet : portal.getEventProcessors(eventName)) {
+			processEvent(portlet, eventName, value, 0);
+		}
+	}
+
+	public PortletPreferences getPreferences(String portletName) {
+		return getWindow(portal.getPortlet(portletName)).preferences;
+	}
+
+	private void processEvent(DeployedPortlet portlet, QName eventName, Serializable value, int depth)
+			throws IOException, PortletException {
+		if (depth >= MAX_EVENT_DEPTH) {
+			throw new PortletException("Event " + eventName + " was published by " + MAX_EVENT_DEPTH
+					+ " nested events; do the portlets publish events in a loop?");
+		}
+		Window window = getWindow(portlet);
+		MockEvent event = new MockEvent(eventName, transfer(value, portlet.getApplication().getClassLoader()));
+		MockEventRequest request = new MockEventRequest(event, portal.getPortalContext(), portlet.getApplication()
+				.getPortletContext());
+		prepare(request, portlet, window);
+		request.setParameters(window.renderParameters);
+		addPublicRenderParameters(request, portlet);
+		MockEventResponse response = new MockEventResponse();
+		portlet.processEvent(request, response);
+		update(portlet, window, request, response);
+		deliverEvents(response, depth + 1);
+	}
+
+	private void deliverEvents(MockStateAwareResponse response, int depth) throws IOException, PortletException {
+		for (Iterator<QName> names = response.getEventNames(); names.hasNext();) {
+			QName eventName = names.next();
+			Serializable value = response.getEvent(eventName);
+			for (DeployedPortlet portlet : portal.getEventProcessors(eventName)) {
+				processEvent(portlet, eventName, value, depth);
+			}
+		}
+	}
+
+	private void prepare(MockPortletRequest request, DeployedPortlet portlet, Window window) {
+		PortletApplication application = portlet.getApplication();
+		if (window.session == null || window.session.isInvalid()) {
+			Map<String, Object> applicationSession = applicationSessions.get(application);
+			if (applicationSession == null) {
+				applicationSession = new HashMap<String, Object>();
+				applicationSessions.put(application, applicationSession);
+			}
+			window.session = new DriverPortletSession(application.getPortletContext(), applicationSession);
+		}
+		request.setSession(window.session);
+		request.setPreferences(window.preferences);
+		request.setPortletMode(window.portletMode);
+		request.setWindowState(window.windowState);
+		request.setContextPath("/" + application.getName());
+		request.setWindowID(portlet.getName() + "@" + application.getName());
+		if (userName != null) {
+			request.setRemoteUser(userName);
+			request.setUserPrincipal(new UserPrincipal(userName));
+			for (String role : roles) {
+				request.addUserRole(role);
+			}
+			for (Map.Entry<String, String> link : portlet.getDefinition().getSecurityRoleLinks().entrySet()) {
+				if (roles.contains(link.getValue())) {
+					request.addUserRole(link.getKey());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Keeps the portlet mode, window state and render parameters set by an
+	 * action or event, and the request attributes if they are action scoped.
+	 */
+	private void update(DeployedPortlet portlet, Window window, MockPortletRequest request,
+			StateAwareResponse response) {
+		if (response.getPortletMode() != null) {
+			window.portletMode = response.getPortletMode();
+		}
+		if (response.getWindowState() != null) {
+			window.windowState = response.getWindowState();
+		}
+		setRenderParameters(portlet, window, response.getRenderParameterMap());
+		if (portlet.getDefinition().isActionScopedRequestAttributes()) {
+			for (Enumeration<String> names = request.getAttributeNames(); names.hasMoreElements();) {
+				String name = names.nextElement();
+				if (!name.startsWith("javax.portlet.")) {
+					window.actionScopedAttributes.put(name, request.getAttribute(name));
+				}
+			}
+		}
+	}
+
+	private void setRenderParameters(DeployedPortlet portlet, Window window, Map<String, String[]> parameters) {
+		Map<String, QName> publicNames = portlet.getDefinition().getPublicRenderParameters();
+		window.renderParameters = new LinkedHashMap<String, String[]>();
+		for (Map.Entry<String, String[]> parameter : parameters.entrySet()) {
+			QName publicName = publicNames.get(parameter.getKey());
+			if (publicName != null) {
+				publicRenderParameters.put(publicName, parameter.getValue());
+			} else {
+				window.renderParameters.put(parameter.getKey(), parameter.getValue());
+			}
+		}
+	}
+
+	private void addPublicRenderParameters(MockPortletRequest request, DeployedPortlet portlet) {
+		for (Map.Entry<String, QName> parameter : portlet.getDefinition().getPublicRenderParameters().entrySet()) {
+			String[] values = publicRenderParameters.get(parameter.getValue());
+			if (values != null) {
+				request.setParameter(parameter.getKey(), values);
+				request.registerPublicParameter(parameter.getKey());
+			}
+		}
+	}
+
+	private Window getWindow(DeployedPortlet portlet) {
+		Window window = windows.get(portlet);
+		if (window == null) {
+			window = new Window(portlet.createPreferences());
+			windows.put(portlet, window);
+		}
+		return window;
+	}
+
+	/**
+	 * Passes the value of an event to a portlet of another module by
+	 * serializing it, if the module has its own copy of the class of the
+	 * value, as portals do.
+	 */
+	private static Serializable transfer(Serializable value, final ClassLoader classLoader)
+			throws PortletException {
+		if (value == null || value.getClass().getClassLoader() == null || isLoadedBy(classLoader, value.getClass())) {
+			return value;
+		}
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream out = new ObjectOutputStream(bytes);
+			out.writeObject(value);
+			out.close();
+			ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())) {
+				@Override
+				protected Class<?> resolveClass(ObjectStreamClass description) throws IOException,
+						ClassNotFoundException {
+					try {
+						return Class.forName(description.getName(), false, classLoader);
+					} catch (ClassNotFoundException e) {
+						return super.resolveClass(description);
+					}
+				}
+			};
+			return (Serializable) in.readObject();
+		} catch (IOException e) {
+			throw new PortletException("Could not pass the event value " + value, e);
+		} catch (ClassNotFoundException e) {
+			throw new PortletException("Could not pass the event value " + value, e);
+		}
+	}
+
+	private static boolean isLoadedBy(ClassLoader classLoader, Class<?> type) {
+		try {
+			return Class.forName(type.getName(), false, classLoader) == type;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * What the portal keeps for a portlet of the user.
+	 */
+	private static final class Window {
+		private final PortletPreferences preferences;
+		private final Map<String, Object> actionScopedAttributes = new HashMap<String, Object>();
+		private Map<String, String[]> renderParameters = Collections.emptyMap();
+		private PortletMode portletMode = PortletMode.VIEW;
+		private WindowState windowState = WindowState.NORMAL;
+		private DriverPortletSession session;
+
+		Window(PortletPreferences preferences) {
+			this.preferences = preferences;
+		}
+	}
+
+	private static final class UserPrincipal implements Principal, Serializable {
+		private static final long serialVersionUID = 1L;
+		private final String name;
+
+		UserPrincipal(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+}
@@ -0,0 +1,284 @@
+package driver.code.benchmark;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.namespace.QName;
+
+import org.springframework.mock.web.portlet.MockActionResponse;
+import org.springframework.mock.web.portlet.MockMimeResponse;
+import org.springframework.mock.web.portlet.MockRenderResponse;
+
+/**
+ * Deploys the portlets of one or more modules in the driver, and runs a
+ * scenario of requests for a number of users on a number of threads, without
+ * a portal. After a warmup, it reports the throughput and the latency
+ * percentiles of each step of the scenario, and the JSPs the portlets
+ * included. The modules must be built first, with Ant or Maven.
+ *
+ * java -cp portlet-driver/target/benchmarks.jar driver.code.benchmark.PortletDriver
+ *     -module ../ch2_UserRegistration -threads 8 -users 100 -warmup 5 -duration 30
+ *     "action:UserRegistrationPortlet/registerUserAction?email=user{n}@example.com"
+ *     "render:UserRegistrationPortlet"
+ *
+ * Options:
+ *   -module dir      a module to deploy; may be repeated
+ *   -threads n       threads which send the requests (8)
+ *   -users n         users, shared out among the threads (the number of threads)
+ *   -warmup s        seconds before the measurement (5)
+ *   -duration s      seconds of measurement (30)
+ *   -user name       the remote user of the requests; guest if not given
+ *   -roles a,b       the roles of the user
+ *   -check           runs the scenario once and prints the responses
+ */
+public class PortletDriver {
+	private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+	private final Portal portal;
+	private final List<ScenarioStep> steps;
+	private final String userName;
+	private final List<String> roles;
+	private final AtomicLong iterations = new AtomicLong();
+	private volatile boolean measuring;
+	private volatile boolean stopped;
+
+	public PortletDriver(Portal portal, List<ScenarioStep> steps, String userName, List<String> roles) {
+		this.portal = portal;
+		this.steps = steps;
+		this.userName = userName;
+		this.roles = roles;
+	}
+
+	public static void main(String[] args) throws Exception {
+		List<PortletApplication> applications = new ArrayList<PortletApplication>();
+		List<ScenarioStep> steps = new ArrayList<ScenarioStep>();
+		int threads = 8;
+		int users = -1;
+		int warmup = 5;
+		int duration = 30;
+		String userName = null;
+		List<String> roles = Collections.emptyList();
+		boolean check = false;
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if ("-module".equals(arg)) {
+				File moduleDir = new File(args[++i]);
+				applications.add(new PortletApplication(moduleDir, PortletApplication.getClassPath(moduleDir)));
+			} else if ("-threads".equals(arg)) {
+				threads = Integer.parseInt(args[++i]);
+			} else if ("-users".equals(arg)) {
+				users = Integer.parseInt(args[++i]);
+			} else if ("-warmup".equals(arg)) {
+				warmup = Integer.parseInt(args[++i]);
+			} else if ("-duration".equals(arg)) {
+				duration = Integer.parseInt(args[++i]);
+			} else if ("-user".equals(arg)) {
+				userName = args[++i];
+			} else if ("-roles".equals(arg)) {
+				roles = Arrays.asList(args[++i].split(","));
+			} else if ("-check".equals(arg)) {
+				check = true;
+			} else {
+				steps.add(ScenarioStep.parse(arg));
+			}
+		}
+		if (applications.isEmpty() || steps.isEmpty()) {
+			System.err.println("Usage: PortletDriver -module <dir> [-module <dir>...] [-threads n] [-users n]"
+					+ " [-warmup s] [-duration s] [-user name] [-roles a,b] [-check] <step>...");
+			System.exit(1);
+		}
+		Portal portal = new Portal(applications);
+		portal.start();
+		try {
+			PortletDriver driver = new PortletDriver(portal, steps, userName, roles);
+			if (check) {
+				driver.check();
+			} else {
+				driver.run(threads, users < 0 ? threads : users, warmup, duration);
+			}
+		} finally {
+			portal.stop();
+		}
+	}
+
+	/**
+	 * Runs the scenario once for one user, and prints what each step
+	 * returned.
+	 */
+	public void check() throws Exception {
+		PortletClient client = new PortletClient(portal, userName, roles);
+		for (ScenarioStep step : steps) {
+			System.out.println(step);
+			System.out.println(describe(step.run(client, 0, 0)));
+		}
+	}
+
+	public void run(int threadCount, int userCount, int warmupSeconds, int durationSeconds)
+			throws InterruptedException {
+		List<Worker> workers = new ArrayList<Worker>();
+		for (int i = 0; i < threadCount; i++) {
+			List<Integer> users = new ArrayList<Integer>();
+			for (int user = i; user < userCount; user += threadCount) {
+				users.add(user);
+			}
+			if (!users.isEmpty()) {
+				workers.add(new Worker(users));
+			}
+		}
+		for (Worker worker : workers) {
+			worker.start();
+		}
+		Thread.sleep(warmupSeconds * 1000L);
+		long start = System.nanoTime();
+		measuring = true;
+		Thread.sleep(durationSeconds * 1000L);
+		stopped = true;
+		double seconds = (System.nanoTime() - start) / 1e9;
+		for (Worker worker : workers) {
+			worker.join();
+		}
+		report(workers, seconds, userCount);
+	}
+
+	private void report(List<Worker> workers, double seconds, int userCount) {
+		System.out.println(workers.size() + " threads, " + userCount + " users, " + Math.round(seconds) + " s");
+		System.out.println();
+		System.out.println(String.format("%-60s %10s %8s %9s %9s %9s %9s %9s", "Step", "ops/s", "errors",
+				"p50 us", "p90 us", "p99 us", "p99.9 us", "max us"));
+		for (int i = 0; i <= steps.size(); i++) {
+			LatencyHistogram histogram = new LatencyHistogram();
+			long errors = 0;
+			for (Worker worker : workers) {
+				histogram.add(worker.histograms[i]);
+				errors += worker.errors[i];
+			}
+			String name = i < steps.size() ? steps.get(i).toString() : "scenario";
+			StringBuilder line = new StringBuilder(String.format("%-60s %10.0f %8d", abbreviate(name, 60),
+					histogram.getCount() / seconds, errors));
+			for (double percentile : PERCENTILES) {
+				line.append(String.format(" %9.1f", histogram.getPercentile(percentile) / 1000.0));
+			}
+			line.append(String.format(" %9.1f", histogram.getMax() / 1000.0));
+			System.out.println(line);
+		}
+		System.out.println();
+		System.out.println("Includes and forwards:");
+		for (Map.Entry<String, Long> count : portal.getDispatchCounts().entrySet()) {
+			System.out.println(String.format("%12d  %s", count.getValue(), count.getKey()));
+		}
+	}
+
+	private static String abbreviate(String text, int length) {
+		return text.length() <= length ? text : text.substring(0, length - 3) + "...";
+	}
+
+	private static String describe(Object response) throws UnsupportedEncodingException {
+		if (response == null) {
+			return "  (event delivered)";
+		}
+		StringBuilder text = new StringBuilder();
+		if (response instanceof MockActionResponse) {
+			MockActionResponse actionResponse = (MockActionResponse) response;
+			text.append("  render parameters: ").append(toString(actionResponse.getRenderParameterMap()));
+			for (Iterator<QName> names = actionResponse.getEventNames(); names.hasNext();) {
+				QName name = names.next();
+				text.append("\n  event: ").append(name).append(" = ").append(actionResponse.getEvent(name));
+			}
+			if (actionResponse.getRedirectedUrl() != null) {
+				text.append("\n  redirect: ").append(actionResponse.getRedirectedUrl());
+			}
+		}
+		if (response instanceof MockRenderResponse) {
+			text.append("  title: ").append(((MockRenderResponse) response).getTitle()).append('\n');
+		}
+		if (response instanceof DriverResponse) {
+			text.append("  includes: ").append(((DriverResponse) response).getIncludes()).append('\n');
+		}
+		if (response instanceof MockMimeResponse) {
+			String content = ((MockMimeResponse) response).getContentAsString();
+			text.append("  content: ").append(abbreviate(content.replaceAll("\\s+", " ").trim(), 200));
+		}
+		return text.toString();
+	}
+
+	private static String toString(Map<String, String[]> parameters) {
+		StringBuilder text = new StringBuilder("{");
+		for (Map.Entry<String, String[]> parameter : parameters.entrySet()) {
+			if (text.length() > 1) {
+				text.append(", ");
+			}
+			text.append(parameter.getKey()).append('=').append(Arrays.toString(parameter.getValue()));
+		}
+		return text.append('}').toString();
+	}
+
+	/**
+	 * Runs the scenario for its users in turn. The latencies of the steps,
+	 * and of the whole scenario, are recorded while measuring; a failed step
+	 * counts as an error, and the first failure of each step is printed.
+	 */
+	private final class Worker extends Thread {
+		private final List<PortletClient> clients = new ArrayList<PortletClient>();
+		private final List<Integer> users;
+		private final LatencyHistogram[] histograms = new LatencyHistogram[steps.size() + 1];
+		private final long[] errors = new long[steps.size() + 1];
+
+		Worker(List<Integer> users) {
+			super("PortletDriver worker " + users.get(0));
+			this.users = users;
+			for (int i = 0; i < users.size(); i++) {
+				clients.add(new PortletClient(portal, userName, roles));
+			}
+			for (int i = 0; i < histograms.length; i++) {
+				histograms[i] = new LatencyHistogram();
+			}
+		}
+
+		@Override
+		public void run() {
+			boolean[] failed = new boolean[steps.size()];
+			while (!stopped) {
+				for (int u = 0; u < clients.size() && !stopped; u++) {
+					long iteration = iterations.getAndIncrement();
+					boolean measured = measuring;
+					long scenarioStart = System.nanoTime();
+					boolean scenarioFailed = false;
+					for (int i = 0; i < steps.size(); i++) {
+						long start = System.nanoTime();
+						try {
+							steps.get(i).run(clients.get(u), users.get(u), iteration);
+						} catch (Exception e) {
+							scenarioFailed = true;
+							if (measured) {
+								errors[i]++;
+							}
+							if (!failed[i]) {
+								failed[i] = true;
+								System.err.println(getName() + ": step " + steps.get(i) + " failed");
+								e.printStackTrace();
+							}
+							continue;
+						}
+						if (measured) {
+							histograms[i].record(System.nanoTime() - start);
+						}
+					}
+					if (measured) {
+						if (scenarioFailed) {
+							errors[steps.size()]++;
+						} else {
+							histograms[steps.size()].record(System.nanoTime() - scenarioStart);
+						}
+					}
+				}
+			}
+		}
+	}
+}
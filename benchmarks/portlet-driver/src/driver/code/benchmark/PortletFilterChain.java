@@ -0,0 +1,71 @@
+package driver.code.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+
+import javax.portlet.ActionRequest;
+import javax.portlet.ActionResponse;
+import javax.portlet.EventPortlet;
+import javax.portlet.EventRequest;
+import javax.portlet.EventResponse;
+import javax.portlet.Portlet;
+import javax.portlet.PortletException;
+import javax.portlet.RenderRequest;
+import javax.portlet.RenderResponse;
+import javax.portlet.ResourceRequest;
+import javax.portlet.ResourceResponse;
+import javax.portlet.ResourceServingPortlet;
+import javax.portlet.filter.ActionFilter;
+import javax.portlet.filter.EventFilter;
+import javax.portlet.filter.FilterChain;
+import javax.portlet.filter.PortletFilter;
+import javax.portlet.filter.RenderFilter;
+import javax.portlet.filter.ResourceFilter;
+
+/**
+ * Runs the filters of one request in turn, and then the portlet. The filters
+ * are those of the phase of the request, so a chain is used for one phase
+ * only.
+ */
+final class PortletFilterChain implements FilterChain {
+	private final List<PortletFilter> filters;
+	private final Portlet portlet;
+	private int position;
+
+	PortletFilterChain(List<PortletFilter> filters, Portlet portlet) {
+		this.filters = filters;
+		this.portlet = portlet;
+	}
+
+	public void doFilter(ActionRequest request, ActionResponse response) throws IOException, PortletException {
+		if (position < filters.size()) {
+			((ActionFilter) filters.get(position++)).doFilter(request, response, this);
+		} else {
+			portlet.processAction(request, response);
+		}
+	}
+
+	public void doFilter(EventRequest request, EventResponse response) throws IOException, PortletException {
+		if (position < filters.size()) {
+			((EventFilter) filters.get(position++)).doFilter(request, response, this);
+		} else {
+			((EventPortlet) portlet).processEvent(request, response);
+		}
+	}
+
+	public void doFilter(RenderRequest request, RenderResponse response) throws IOException, PortletException {
+		if (position < filters.size()) {
+			((RenderFilter) filters.get(position++)).doFilter(request, response, this);
+		} else {
+			portlet.render(request, response);
+		}
+	}
+
+	public void doFilter(ResourceRequest request, ResourceResponse response) throws IOException, PortletException {
+		if (position < filters.size()) {
+			((ResourceFilter) filters.get(position++)).doFilter(request, response, this);
+		} else {
+			((ResourceServingPortlet) portlet).serveResource(request, response);
+		}
+	}
+}
@@ -0,0 +1,146 @@
+package driver.code.benchmark;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.portlet.PortletException;
+import javax.portlet.PortletMode;
+import javax.xml.namespace.QName;
+
+/**
+ * A request of the scenario of the driver, written as
+ *
+ *   action:portlet[/actionName][?parameters]
+ *   render:portlet[/portletMode][?parameters]
+ *   resource:portlet[/resourceId][?parameters]
+ *   event:{namespace}name[?value=text]
+ *
+ * where the parameters are URL encoded, as in a query string. {user} and
+ * {n} in the parameter values are replaced by the number of the user and
+ * of the iteration of the scenario, so that each request can send other
+ * data. A render step without parameters keeps the render parameters of the
+ * portlet.
+ */
+final class ScenarioStep {
+	enum Phase {
+		ACTION, RENDER, RESOURCE, EVENT
+	}
+
+	private final String text;
+	private final Phase phase;
+	private final String target;
+	private final String id;
+	private final List<String[]> parameters;
+
+	private ScenarioStep(String text, Phase phase, String target, String id, List<String[]> parameters) {
+		this.text = text;
+		this.phase = phase;
+		this.target = target;
+		this.id = id;
+		this.parameters = parameters;
+	}
+
+	static ScenarioStep parse(String text) {
+		int colon = text.indexOf(':');
+		if (colon < 0) {
+			throw new IllegalArgumentException("Step " + text + " has no phase, as in render:portlet");
+		}
+		Phase phase;
+		try {
+			phase = Phase.valueOf(text.substring(0, colon).toUpperCase());
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Step " + text + " has an unknown phase");
+		}
+		String rest = text.substring(colon + 1);
+		List<String[]> parameters = null;
+		int question = rest.indexOf('?');
+		if (question >= 0) {
+			parameters = parseParameters(rest.substring(question + 1));
+			rest = rest.substring(0, question);
+		}
+		String target = rest;
+		String id = null;
+		//-- the namespace of an event name may have slashes
+		int slash = phase == Phase.EVENT ? -1 : rest.indexOf('/');
+		if (slash >= 0) {
+			target = rest.substring(0, slash);
+			id = rest.substring(slash + 1);
+		}
+		return new ScenarioStep(text, phase, target, id, parameters);
+	}
+
+	/**
+	 * Sends the request of the step, and returns the response, or null for
+	 * an event.
+	 */
+	Object run(PortletClient client, int user, long iteration) throws IOException, PortletException {
+		switch (phase) {
+		case ACTION:
+			return client.action(target, id, getParameters(user, iteration));
+		case RENDER:
+			return client.render(target, id == null ? null : new PortletMode(id), parameters == null ? null
+					: getParameters(user, iteration));
+		case RESOURCE:
+			return client.resource(target, id, getParameters(user, iteration));
+		default:
+			String[] value = getParameters(user, iteration).get("value");
+			client.event(QName.valueOf(target), value == null ? null : value[0]);
+			return null;
+		}
+	}
+
+	private Map<String, String[]> getParameters(int user, long iteration) {
+		Map<String, String[]> result = new LinkedHashMap<String, String[]>();
+		if (parameters == null) {
+			return result;
+		}
+		String userText = String.valueOf(user);
+		String iterationText = String.valueOf(iteration);
+		for (String[] parameter : parameters) {
+			String value = parameter[1].replace("{user}", userText).replace("{n}", iterationText);
+			String[] values = result.get(parameter[0]);
+			if (values == null) {
+				values = new String[] { value };
+			} else {
+				String[] added = new String[values.length + 1];
+				System.arraycopy(values, 0, added, 0, values.length);
+				added[values.length] = value;
+				values = added;
+			}
+			result.put(parameter[0], values);
+		}
+		return result;
+	}
+
+	private static List<String[]> parseParameters(String query) {
+		List<String[]> parameters = new ArrayList<String[]>();
+		for (String pair : query.split("&")) {
+			if (pair.length() == 0) {
+				continue;
+			}
+			int equals = pair.indexOf('=');
+			String name = equals < 0 ? pair : pair.substring(0, equals);
+			String value = equals < 0 ? "" : pair.substring(equals + 1);
+			parameters.add(new String[] { decode(name), decode(value) });
+		}
+		return parameters;
+	}
+
+	private static String decode(String text) {
+		try {
+			return URLDecoder.decode(text, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return text;
+	}
+}
@@ -0,0 +1,64 @@
+package chapter10.code.listing.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import org.apache.log4j.Logger;
+
+/**
+ * StaticAssets maps the paths of the CSS and JavaScript files of the portlet
+ * to the bundles created by the assets target of build.xml. The bundles have
+ * the hash of their content in their name, and are listed in the
+ * assets.properties manifest. If the module wasn't built with Ant, there is
+ * no manifest, and the paths are used as they are.
+ */
+public class StaticAssets {
+	private static final String MANIFEST = "assets.properties";
+	private static Logger logger = Logger.getLogger(StaticAssets.class);
+	private static final Properties manifest = loadManifest();
+
+	/**
+	 * Returns the path of the bundle of a file, as /css/bookCatalog.0123456789.css
+	 * for /css/bookCatalog.css, or the path as it is if the manifest has no
+	 * bundle for it.
+	 */
+	public static String getPath(String path) {
+		String bundlePath = getOptionalPath(path);
+		return bundlePath == null ? path : bundlePath;
+	}
+
+	/**
+	 * Returns the path of the bundle of a file which not every module has, or
+	 * null if the manifest has no bundle for it. Without a manifest the path
+	 * is returned as it is.
+	 */
+	public static String getOptionalPath(String path) {
+		if (manifest == null) {
+			return path;
+		}
+		return manifest.getProperty(path);
+	}
+
+	private static Properties loadManifest() {
+		InputStream in = StaticAssets.class.getClassLoader().getResourceAsStream(MANIFEST);
+		if (in == null) {
+			logger.info(MANIFEST + " not found; the CSS and JavaScript files aren't bundled");
+			return null;
+		}
+		Properties properties = new Properties();
+		try {
+			properties.load(in);
+		} catch (IOException e) {
+			logger.error("Could not read " + MANIFEST, e);
+			return null;
+		} finally {
+			try {
+				in.close();
+			} catch (IOException e) {
+				//-- nothing to do
+			}
+		}
+		return properties;
+	}
+}
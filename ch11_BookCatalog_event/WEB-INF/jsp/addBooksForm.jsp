@@ -0,0 +1,59 @@
+<%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core"%>
+<%@ taglib prefix="fmt" uri="http://java.sun.com/jsp/jstl/fmt"%>
+<%@ page contentType="text/html" isELIgnored="false"%>
+<%@ taglib prefix="portlet" uri="http://java.sun.com/portlet_2_0"%>
+
+<div class="bookCatalogPortlet_ch10">
+<form name="<portlet:namespace/>addBooksForm" method="post" action='<portlet:actionURL name="addBooksAction"/>' enctype="application/x-www-form-urlencoded">
+<table>
+	<tr>
+		<a class="anchor" href='<portlet:renderURL portletMode="view"/>'><b>HOME</b></a>
+	</tr>
+</table>
+<c:if test="${not empty requestScope.errorMsg}">
+	<font style="color: #C11B17;"><c:out value="${requestScope.errorMsg}" /></font>
+</c:if>
+<table>
+	<tr>
+		<td><b>Category:</b><font style="color: #C11B17;">*</font></td>
+		<td><b>Name:</b><font style="color: #C11B17;">*</font></td>
+		<td><b>Author:</b><font style="color: #C11B17;">*</font></td>
+		<td><b>ISBN:</b><font style="color: #C11B17;">*</font></td>
+		<td>&nbsp;</td>
+	</tr>
+	<%-- one row for each book; the rows left empty are ignored --%>
+	<c:forEach var="row" items="${requestScope.bookRows}">
+	<tr>
+		<td><select name="<portlet:namespace/>category">
+				<option value="java" <c:if test="${row.category eq 'java'}">selected</c:if>>Java</option>
+				<option value=".net" <c:if test="${row.category eq '.net'}">selected</c:if>>.NET</option>
+				<option value="mobile" <c:if test="${row.category eq 'mobile'}">selected</c:if>>Mobile Technology</option>
+				<option value="softwareEng" <c:if test="${row.category eq 'softwareEng'}">selected</c:if>>Software Engineering</option>
+			</select>
+			</td>
+		<td><input type="text" name="<portlet:namespace/>name"
+			value='<c:out value="${row.name}"/>' /></td>
+		<td><input type="text" name="<portlet:namespace/>author"
+			value='<c:out value="${row.author}"/>' /></td>
+		<td><input type="text" name="<portlet:namespace/>isbnNumber"
+			value='<c:out value="${row.isbnNumber}"/>' /></td>
+		<td><font style="color: #C11B17;"><c:out
+			value="${row.errors}" /></font></td>
+	</tr>
+	</c:forEach>
+	<tr align="center">
+		<td colspan="4"><input type="submit" value="Add Books" /></td>
+	</tr>
+	<tr>
+		<td>&nbsp;</td>
+	</tr>
+</table>
+<table align="right">
+	<tr>
+		<td><b>Powered by:</b> <i>${portalInfo}</i></td>
+	</tr>
+</table>
+</form>
+</div>
+<br></br>
+<br></br>
@@ -0,0 +1,46 @@
+package chapter11.code.listing.servlet.filter;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * CacheControlFilter lets the browsers cache the bundles created by the
+ * assets target of build.xml, as /css/bookCatalog.0123456789.css, for maxAge
+ * seconds without revalidating them: a bundle is never modified, as a new
+ * release of the portlet has bundles with other names. The other files are
+ * served as before.
+ */
+public class CacheControlFilter implements Filter {
+	private static final Pattern BUNDLE = Pattern.compile("\\.[0-9a-f]{10}\\.(css|js)$");
+	//-- a year, the maximum of HTTP/1.1
+	private long maxAge = 365L * 24 * 60 * 60;
+
+	public void init(FilterConfig config) throws ServletException {
+		String maxAgeParam = config.getInitParameter("maxAge");
+		if (maxAgeParam != null) {
+			maxAge = Long.parseLong(maxAgeParam);
+		}
+	}
+
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException,
+			ServletException {
+		if (BUNDLE.matcher(((HttpServletRequest) request).getRequestURI()).find()) {
+			HttpServletResponse httpResponse = (HttpServletResponse) response;
+			httpResponse.setHeader("Cache-Control", "public, max-age=" + maxAge);
+			httpResponse.setDateHeader("Expires", System.currentTimeMillis() + maxAge * 1000);
+		}
+		chain.doFilter(request, response);
+	}
+
+	public void destroy() {
+	}
+}
@@ -38,6 +38,7 @@ import chapter11.code.listing.domain.Book;
 import chapter11.code.listing.service.BookService;
 import chapter11.code.listing.service.BookServiceImpl;
 import chapter11.code.listing.utils.Constants;
+import chapter11.code.listing.utils.StaticAssets;
 
 /**
  * BookCatalogPortlet class represents the portlet class responsible for
@@ -90,19 +91,22 @@ public class BookCatalogPortlet extends GenericPortlet {
 			Element cssElement = response.createElement("link");
 			// --encoding URLs is important
 			cssElement.setAttribute("href", response.encodeURL((request
-					.getContextPath() + "/css/bookCatalog.css")));
+					.getContextPath() + StaticAssets.getPath("/css/bookCatalog.css"))));
 			cssElement.setAttribute("rel", "stylesheet");
 			cssElement.setAttribute("type", "text/css");
 			response.addProperty(MimeResponse.MARKUP_HEAD_ELEMENT, cssElement);
 
-			// -- add JavaScript
-			Element jsElement = response.createElement("script");
+			// -- add JavaScript, if the portlet has any
+			String jsPath = StaticAssets.getOptionalPath("/js/bookCatalog.js");
+			if (jsPath != null) {
+				Element jsElement = response.createElement("script");
 
-			// --encoding URLs to resources is important
-			jsElement.setAttribute("src", response.encodeURL((request
-					.getContextPath() + "/js/bookCatalog.js")));
-			jsElement.setAttribute("type", "text/javascript");
-			response.addProperty(MimeResponse.MARKUP_HEAD_ELEMENT, jsElement);
+				// --encoding URLs to resources is important
+				jsElement.setAttribute("src", response.encodeURL((request
+						.getContextPath() + jsPath)));
+				jsElement.setAttribute("type", "text/javascript");
+				response.addProperty(MimeResponse.MARKUP_HEAD_ELEMENT, jsElement);
+			}
 		}
 	}
 
@@ -22,4 +22,10 @@
 		<td bgcolor="#99CCFF"><b>Book ISBN</b></td>
 		<td><%=renderRequest.getParameter("isbnNumber") %></td>
 	</tr>
+	<% if (renderRequest.getParameter("booksAdded") != null && !"1".equals(renderRequest.getParameter("booksAdded"))) { %>
+	<tr>
+		<td bgcolor="#99CCFF"><b>Books added</b></td>
+		<td><%=renderRequest.getParameter("booksAdded") %></td>
+	</tr>
+	<% } %>
 </table>
\ No newline at end of file
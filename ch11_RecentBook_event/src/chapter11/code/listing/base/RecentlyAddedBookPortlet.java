@@ -1,6 +1,9 @@
 package chapter11.code.listing.base;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import javax.portlet.Event;
 import javax.portlet.EventRequest;
@@ -15,9 +18,14 @@ import javax.portlet.RenderResponse;
 import org.apache.log4j.Logger;
 
 import chapter11.code.listing.events.BookAddedEvent;
+import chapter11.code.listing.events.BooksAddedEvent;
 import chapter11.code.listing.utils.Constants;
 
 public class RecentlyAddedBookPortlet extends GenericPortlet {
+	//-- request attribute with the number of books added by the events
+	//-- processed so far in the request cycle, for each portlet window
+	private static final String BOOKS_ADDED_ATTRIBUTE = "chapter11.booksAdded.";
+
 	private Logger logger = Logger.getLogger(RecentlyAddedBookPortlet.class);
 	
 	@RenderMode(name="view")
@@ -35,9 +43,46 @@ public class RecentlyAddedBookPortlet extends GenericPortlet {
 		logger.info("Processing bookAddedEvent.....");
 		Event event = request.getEvent();
 		BookAddedEvent bookAddedEvent = (BookAddedEvent)event.getValue();
-		eventResponse.setRenderParameter("category", bookAddedEvent.getCategory());
-		eventResponse.setRenderParameter("name", bookAddedEvent.getName());
-		eventResponse.setRenderParameter("author", bookAddedEvent.getAuthor());
-		eventResponse.setRenderParameter("isbnNumber", String.valueOf(bookAddedEvent.getIsbnNumber()));
+		showRecentBook(request, eventResponse, bookAddedEvent, 1);
+	}
+	
+	/**
+	 * Processes the event sent when several books are added at once. Only the
+	 * last of the books is shown, with the number of books added, so the
+	 * render parameters are set once for the whole batch.
+	 */
+	@ProcessEvent(qname="{http://www.mynamespace.com}booksAddedEvent")
+	public void processAddedBooksEvent(EventRequest request, EventResponse eventResponse)
+		throws IOException, PortletException {
+		Event event = request.getEvent();
+		List<BookAddedEvent> books = ((BooksAddedEvent)event.getValue()).getBooks();
+		logger.info("Processing booksAddedEvent with " + books.size() + " books.....");
+		if (books.isEmpty()) {
+			return;
+		}
+		showRecentBook(request, eventResponse, books.get(books.size() - 1), books.size());
+	}
+	
+	//-- replaces the render parameters of the portlet with the ones of the
+	//-- book to show, in a single call. booksAdded counts the books of all
+	//-- the events of the request cycle: the render parameters still hold
+	//-- the count of the previous cycle, so the count of the cycle is kept
+	//-- in a request attribute. A portlet container which doesn't share the
+	//-- request attributes between the event requests of a cycle shows the
+	//-- count of the last event
+	private void showRecentBook(EventRequest request, EventResponse eventResponse,
+			BookAddedEvent book, int books) {
+		String attribute = BOOKS_ADDED_ATTRIBUTE + request.getWindowID();
+		Integer previousBooks = (Integer) request.getAttribute(attribute);
+		int booksAdded = previousBooks == null ? books : previousBooks.intValue() + books;
+		request.setAttribute(attribute, Integer.valueOf(booksAdded));
+
+		Map<String, String[]> parameters = new HashMap<String, String[]>();
+		parameters.put("category", new String[] { book.getCategory() });
+		parameters.put("name", new String[] { book.getName() });
+		parameters.put("author", new String[] { book.getAuthor() });
+		parameters.put("isbnNumber", new String[] { String.valueOf(book.getIsbnNumber()) });
+		parameters.put("booksAdded", new String[] { String.valueOf(booksAdded) });
+		eventResponse.setRenderParameters(parameters);
 	}
 }
\ No newline at end of file
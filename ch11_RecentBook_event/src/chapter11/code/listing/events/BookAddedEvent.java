@@ -1,14 +1,36 @@
 package chapter11.code.listing.events;
 
-import java.io.Serializable;
+import java.io.ByteArrayOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.StreamCorruptedException;
 
 import javax.xml.bind.annotation.XmlRootElement;
 
 import chapter11.code.listing.domain.Book;
 
+/**
+ * Event sent when a book is added to the catalog. The portlet container
+ * sends it as XML, with JAXB, to portlets of other portal servers, and
+ * serialized to the portlets of other web applications. The serialized form
+ * is a version byte, a byte whose bits tell which fields are set, and the
+ * fields which are set. Each string is written as its number of bytes and
+ * its UTF-8 bytes, as writeUTF can't write strings of more than 65535
+ * bytes; version 1 of the form, which used writeUTF, is still read.
+ */
 @XmlRootElement
-public class BookAddedEvent implements Serializable {
+public class BookAddedEvent implements Externalizable {
 	private static final long serialVersionUID = -2232317909090023831L;
+	//-- version of the serialized form, to be incremented when it changes
+	private static final byte VERSION = 2;
+	private static final byte UTF_VERSION = 1;
+	private static final int NAME = 1;
+	private static final int AUTHOR = 2;
+	private static final int ISBN_NUMBER = 4;
+	private static final int CATEGORY = 8;
 	private String name;
 	private String author;
 	private Long isbnNumber;
@@ -49,4 +71,62 @@ public class BookAddedEvent implements Serializable {
 	public void setCategory(String category) {
 		this.category = category;
 	}
-}
\ No newline at end of file
+
+	public void writeExternal(ObjectOutput out) throws IOException {
+		int fields = (name != null ? NAME : 0) | (author != null ? AUTHOR : 0)
+				| (isbnNumber != null ? ISBN_NUMBER : 0) | (category != null ? CATEGORY : 0);
+		out.writeByte(VERSION);
+		out.writeByte(fields);
+		if (name != null) {
+			writeString(out, name);
+		}
+		if (author != null) {
+			writeString(out, author);
+		}
+		if (isbnNumber != null) {
+			out.writeLong(isbnNumber);
+		}
+		if (category != null) {
+			writeString(out, category);
+		}
+	}
+
+	public void readExternal(ObjectInput in) throws IOException {
+		byte version = in.readByte();
+		if (version != VERSION && version != UTF_VERSION) {
+			throw new InvalidClassException(BookAddedEvent.class.getName(),
+					"unsupported version " + version + " of the serialized form");
+		}
+		int fields = in.readByte();
+		name = (fields & NAME) != 0 ? readString(in, version) : null;
+		author = (fields & AUTHOR) != 0 ? readString(in, version) : null;
+		isbnNumber = (fields & ISBN_NUMBER) != 0 ? Long.valueOf(in.readLong()) : null;
+		category = (fields & CATEGORY) != 0 ? readString(in, version) : null;
+	}
+
+	private static void writeString(ObjectOutput out, String value) throws IOException {
+		byte[] bytes = value.getBytes("UTF-8");
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(ObjectInput in, byte version) throws IOException {
+		if (version == UTF_VERSION) {
+			return in.readUTF();
+		}
+		int length = in.readInt();
+		if (length < 0) {
+			throw new StreamCorruptedException("invalid string length " + length);
+		}
+		//-- the length isn't trusted to size the buffer beyond the usual fields
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.min(length, 256));
+		byte[] buffer = new byte[Math.min(length, 8192)];
+		while (length > 0) {
+			int count = Math.min(length, buffer.length);
+			in.readFully(buffer, 0, count);
+			bytes.write(buffer, 0, count);
+			length -= count;
+		}
+		return bytes.toString("UTF-8");
+	}
+}
@@ -2,8 +2,6 @@ package chapter12.code.listing.sample;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -12,6 +10,10 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.apache.log4j.Logger;
 
+/**
+ * Returns the server date/time. The date/time is formatted once per second by
+ * the shared DateTimeTicker, instead of on each request.
+ */
 public class DateTimeServlet extends HttpServlet {
 
 	private static final long serialVersionUID = -7000894049885643392L;
@@ -20,10 +22,9 @@ public class DateTimeServlet extends HttpServlet {
 	public void doGet(HttpServletRequest request, HttpServletResponse response)
 			throws IOException, ServletException {
 		logger.info("invoking  DateTimeServlet");
-		SimpleDateFormat sdf = new SimpleDateFormat("dd-MMM-yyyy hh:mm:ss a");
+		DateTimeTicker ticker = (DateTimeTicker) getServletContext().getAttribute(
+				DateTimeTickerListener.TICKER_ATTR);
 		OutputStream outStream = response.getOutputStream();
-		StringBuffer buffer = new StringBuffer();
-		buffer.append("<p>Hello World (<i> " + sdf.format(new Date()) + " </i>)</p>");
-		outStream.write(buffer.toString().getBytes());
+		outStream.write(ticker.getMessage().getBytes());
 	}
 }
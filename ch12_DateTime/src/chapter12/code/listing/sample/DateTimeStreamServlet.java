@@ -0,0 +1,32 @@
+package chapter12.code.listing.sample;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Streams the server date/time to the client as Server-Sent Events, one
+ * event per second, instead of the client polling DateTimeServlet.
+ */
+public class DateTimeStreamServlet extends HttpServlet {
+
+	private static final long serialVersionUID = 3217751926387417285L;
+	private Logger logger = Logger.getLogger(DateTimeStreamServlet.class);
+
+	public void doGet(HttpServletRequest request, HttpServletResponse response)
+			throws IOException, ServletException {
+		DateTimeTicker ticker = (DateTimeTicker) getServletContext().getAttribute(
+				DateTimeTickerListener.TICKER_ATTR);
+		response.setContentType(DateTimeTicker.CONTENT_TYPE);
+		response.setHeader("Cache-Control", "no-cache");
+		logger.debug("subscribing to the date/time stream, subscribers: " + ticker.getSubscriberCount());
+		if (!ticker.stream(response.getOutputStream())) {
+			logger.debug("too many subscribers, the client polls DateTimeServlet instead");
+		}
+	}
+}
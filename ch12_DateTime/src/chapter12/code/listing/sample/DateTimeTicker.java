@@ -0,0 +1,204 @@
+package chapter12.code.listing.sample;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Publishes the server date/time to the clients of the date/time stream, as
+ * Server-Sent Events. A single scheduler thread formats the date/time once
+ * per tick, and wakes up the request threads of the subscribers, which all
+ * write the same bytes to their clients, without taking a lock. The
+ * SimpleDateFormat is only used by the scheduler thread, so it is never
+ * shared between threads.
+ *
+ * Each subscriber keeps its request thread while it is subscribed, so the
+ * number of subscribers is limited to maxSubscribers; the clients above the
+ * limit are sent a single poll event, with the latest date/time, and poll
+ * the date/time instead of keeping a request thread.
+ */
+public class DateTimeTicker {
+	public static final String CONTENT_TYPE = "text/event-stream;charset=UTF-8";
+	//-- a comment line, which keeps proxies from closing an idle stream
+	private static final byte[] KEEP_ALIVE = toBytes(": keep-alive\n\n");
+	private static final long KEEP_ALIVE_MILLIS = 15000;
+	//-- the event which tells the client to poll instead of subscribing
+	public static final String POLL_EVENT = "poll";
+	public static final int DEFAULT_MAX_SUBSCRIBERS = 50;
+
+	private final SimpleDateFormat dateFormat;
+	private final String messagePattern;
+	private final long periodMillis;
+	private final AtomicInteger subscriberCount = new AtomicInteger();
+	private volatile int maxSubscribers = DEFAULT_MAX_SUBSCRIBERS;
+	private ScheduledExecutorService scheduler;
+	private volatile Tick tick;
+	private volatile boolean stopped;
+
+	/**
+	 * @param datePattern SimpleDateFormat pattern of the date/time
+	 * @param messagePattern the message sent to the clients, in which {0} is
+	 *            replaced with the date/time
+	 * @param periodMillis time between two ticks
+	 */
+	public DateTimeTicker(String datePattern, String messagePattern, long periodMillis) {
+		this.dateFormat = new SimpleDateFormat(datePattern);
+		this.messagePattern = messagePattern;
+		this.periodMillis = periodMillis;
+	}
+
+	public synchronized void start() {
+		if (scheduler != null) {
+			return;
+		}
+		//-- the first tick is published before start returns, so that
+		//-- getMessage never returns null
+		publishTick();
+		scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "DateTimeTicker");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		scheduler.scheduleAtFixedRate(new Runnable() {
+			public void run() {
+				publishTick();
+			}
+		}, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops the ticks; the streams of the subscribers end.
+	 */
+	public synchronized void stop() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+		stopped = true;
+		if (tick != null) {
+			tick.next.countDown();
+		}
+	}
+
+	/**
+	 * Returns the message of the latest tick.
+	 */
+	public String getMessage() {
+		return tick.message;
+	}
+
+	public int getSubscriberCount() {
+		return subscriberCount.get();
+	}
+
+	public int getMaxSubscribers() {
+		return maxSubscribers;
+	}
+
+	/**
+	 * Sets the maximum number of subscribers streamed at the same time; it
+	 * must be lower than the number of request threads of the server.
+	 */
+	public void setMaxSubscribers(int maxSubscribers) {
+		if (maxSubscribers < 0) {
+			throw new IllegalArgumentException("maxSubscribers must not be negative: "
+					+ maxSubscribers);
+		}
+		this.maxSubscribers = maxSubscribers;
+	}
+
+	/**
+	 * Writes each tick to the stream, until the client disconnects or the
+	 * ticker is stopped. The caller must have set the CONTENT_TYPE of the
+	 * response. If maxSubscribers clients are already subscribed, only a
+	 * POLL_EVENT is written and the method returns at once.
+	 * 
+	 * @return false if the client was told to poll instead
+	 */
+	public boolean stream(OutputStream out) {
+		if (subscriberCount.incrementAndGet() > maxSubscribers) {
+			subscriberCount.decrementAndGet();
+			try {
+				writeEvent(out, POLL_EVENT, tick.message);
+			} catch (IOException e) {
+				//-- the client closed the connection
+			}
+			return false;
+		}
+		try {
+			Tick current = tick;
+			out.write(current.event);
+			out.flush();
+			while (!stopped) {
+				//-- a subscriber which is too slow skips to the latest tick
+				if (current.next.await(KEEP_ALIVE_MILLIS, TimeUnit.MILLISECONDS)) {
+					if (stopped) {
+						return true;
+					}
+					current = tick;
+					out.write(current.event);
+				} else {
+					out.write(KEEP_ALIVE);
+				}
+				out.flush();
+			}
+		} catch (IOException e) {
+			//-- the client closed the connection
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			subscriberCount.decrementAndGet();
+		}
+		return true;
+	}
+
+	/**
+	 * Writes a single event with the given name, for example to tell the
+	 * client why it isn't subscribed.
+	 */
+	public static void writeEvent(OutputStream out, String eventName, String data)
+			throws IOException {
+		out.write(toBytes("event: " + eventName + "\ndata: " + data + "\n\n"));
+		out.flush();
+	}
+
+	private void publishTick() {
+		String message = messagePattern.replace("{0}", dateFormat.format(new Date()));
+		Tick previous = tick;
+		tick = new Tick(previous == null ? 0 : previous.sequence + 1, message);
+		if (previous != null) {
+			previous.next.countDown();
+		}
+	}
+
+	private static byte[] toBytes(String text) {
+		try {
+			return text.getBytes("UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static final class Tick {
+		private final long sequence;
+		private final String message;
+		private final byte[] event;
+		//-- counted down when the next tick is published
+		private final CountDownLatch next = new CountDownLatch(1);
+
+		Tick(long sequence, String message) {
+			this.sequence = sequence;
+			this.message = message;
+			this.event = toBytes("id: " + sequence + "\ndata: " + message + "\n\n");
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package chapter12.code.listing.sample;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+/**
+ * Starts the DateTimeTicker shared by DateTimeServlet and
+ * DateTimeStreamServlet, and keeps it in the dateTimeTicker attribute of
+ * the ServletContext. The maxStreamSubscribers context parameter limits the
+ * number of streams.
+ */
+public class DateTimeTickerListener implements ServletContextListener {
+	public static final String TICKER_ATTR = "dateTimeTicker";
+	public static final String MAX_SUBSCRIBERS_PARAM = "maxStreamSubscribers";
+
+	public void contextInitialized(ServletContextEvent event) {
+		DateTimeTicker ticker = new DateTimeTicker("dd-MMM-yyyy hh:mm:ss a",
+				"<p>Hello World (<i> {0} </i>)</p>", 1000);
+		String maxSubscribers = event.getServletContext().getInitParameter(MAX_SUBSCRIBERS_PARAM);
+		if (maxSubscribers != null) {
+			ticker.setMaxSubscribers(Integer.parseInt(maxSubscribers.trim()));
+		}
+		ticker.start();
+		event.getServletContext().setAttribute(TICKER_ATTR, ticker);
+	}
+
+	public void contextDestroyed(ServletContextEvent event) {
+		DateTimeTicker ticker = (DateTimeTicker) event.getServletContext().getAttribute(TICKER_ATTR);
+		event.getServletContext().removeAttribute(TICKER_ATTR);
+		if (ticker != null) {
+			ticker.stop();
+		}
+	}
+}
@@ -13,6 +13,31 @@
 		xhr.open("GET", url, true);
 		xhr.send();
 	}
+
+	//-- the server pushes the date/time every second to the browsers which
+	//-- support Server-Sent Events; the other browsers use the Refresh link.
+	//-- When the server already streams to too many clients it sends a poll
+	//-- event, and the browser polls the date/time every 5 seconds instead
+	function <portlet:namespace/>streamCurrentDateTime() {
+		if (typeof EventSource == "undefined") {
+			return;
+		}
+		var eventSource = new EventSource("<%=request.getAttribute("dateTimeStreamResourceURL")%>");
+		var showMessage = function(event) {
+			var messageText = document.getElementById("<portlet:namespace/>messageText");
+			messageText.innerHTML = event.data;
+		};
+		eventSource.onmessage = showMessage;
+		eventSource.addEventListener("unauthorized", function(event) {
+			showMessage(event);
+			eventSource.close();
+		}, false);
+		eventSource.addEventListener("poll", function(event) {
+			showMessage(event);
+			eventSource.close();
+			setInterval(<portlet:namespace/>setCurrentDateTime, 5000);
+		}, false);
+	}
 </script>
 
 <table>
@@ -22,4 +47,7 @@
 </table>
 <br/>
 <div id="<portlet:namespace/>messageText">
-</div>
\ No newline at end of file
+</div>
+<script type='text/javascript'>
+	<portlet:namespace/>streamCurrentDateTime();
+</script>
\ No newline at end of file
@@ -2,8 +2,6 @@ package chapter12.code.listing.sample;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 
 import javax.portlet.GenericPortlet;
 import javax.portlet.PortletException;
@@ -18,15 +16,43 @@ import javax.portlet.ResourceURL;
  * DateTimePortlet class represents the portlet class responsible for handling
  * portlet requests.
  * 
+ * The date/time is formatted once per second by a DateTimeTicker shared by
+ * all the users. The dateTime resource returns the latest date/time, and the
+ * dateTimeStream resource streams it as Server-Sent Events; the role of the
+ * user is checked once for the whole stream. The number of streams is
+ * limited by the maxStreamSubscribers init parameter.
+ * 
  * @author asarin
  */
 public class DateTimePortlet extends GenericPortlet {
+	private static final String NOT_AUTHORIZED_MESSAGE = "<font color=\"red\"> You are not authorized to view server date/time";
+	private DateTimeTicker ticker;
+
+	public void init() throws PortletException {
+		super.init();
+		ticker = new DateTimeTicker("dd-MMM-yyyy hh:mm:ss a", "Hello World (<i> {0} </i>)", 1000);
+		//-- the subscribers above maxStreamSubscribers poll the dateTime resource
+		String maxSubscribers = getInitParameter("maxStreamSubscribers");
+		if (maxSubscribers != null) {
+			ticker.setMaxSubscribers(Integer.parseInt(maxSubscribers.trim()));
+		}
+		ticker.start();
+	}
+
+	public void destroy() {
+		ticker.stop();
+		super.destroy();
+	}
+
 	@RenderMode(name = "view")
 	public void showHomePage(RenderRequest request, RenderResponse response)
 			throws IOException, PortletException {
 		ResourceURL dateTimeResourceURL = response.createResourceURL();
 		dateTimeResourceURL.setResourceID("dateTime");
 		request.setAttribute("dateTimeResourceURL", dateTimeResourceURL);
+		ResourceURL dateTimeStreamResourceURL = response.createResourceURL();
+		dateTimeStreamResourceURL.setResourceID("dateTimeStream");
+		request.setAttribute("dateTimeStreamResourceURL", dateTimeStreamResourceURL);
 		
 		getPortletContext().getRequestDispatcher(
 				response.encodeURL("/WEB-INF/jsp/home.jsp")).include(request,
@@ -35,17 +61,29 @@ public class DateTimePortlet extends GenericPortlet {
 
 	public void serveResource(ResourceRequest request, ResourceResponse response)
 			throws IOException, PortletException {
+		if ("dateTimeStream".equals(request.getResourceID())) {
+			streamDateTime(request, response);
+			return;
+		}
 		response.getCacheControl().setExpirationTime(100);
 		OutputStream outStream = response.getPortletOutputStream();
-		StringBuffer buffer = new StringBuffer();
 		if (request.isUserInRole("User")) {
-			SimpleDateFormat sdf = new SimpleDateFormat(
-					"dd-MMM-yyyy hh:mm:ss a");
-			buffer.append("Hello World (<i> " + sdf.format(new Date())
-					+ " </i>)");
+			outStream.write(ticker.getMessage().getBytes());
+		} else {
+			outStream.write(NOT_AUTHORIZED_MESSAGE.getBytes());
+		}
+	}
+
+	private void streamDateTime(ResourceRequest request, ResourceResponse response)
+			throws IOException {
+		response.setContentType(DateTimeTicker.CONTENT_TYPE);
+		response.setProperty("Cache-Control", "no-cache");
+		OutputStream outStream = response.getPortletOutputStream();
+		//-- the role is checked once, when the client subscribes
+		if (request.isUserInRole("User")) {
+			ticker.stream(outStream);
 		} else {
-			buffer.append("<font color=\"red\"> You are not authorized to view server date/time");
+			DateTimeTicker.writeEvent(outStream, "unauthorized", NOT_AUTHORIZED_MESSAGE);
 		}
-		outStream.write(buffer.toString().getBytes());
 	}
 }
@@ -0,0 +1,20 @@
+/*
+ * Sets the baseUrl of Dojo, from which it loads its modules and resources,
+ * when Dojo is part of the bookCatalog bundle created by the assets target of
+ * build.xml: Dojo looks for it in the src of a dojo.js script element only.
+ */
+var djConfig = djConfig || {};
+(function() {
+	if (djConfig.baseUrl) {
+		return;
+	}
+	var scripts = document.getElementsByTagName("script");
+	for (var i = scripts.length - 1; i >= 0; i--) {
+		var src = scripts[i].getAttribute("src");
+		var index = src ? src.indexOf("/js/bookCatalog.") : -1;
+		if (index >= 0) {
+			djConfig.baseUrl = src.substring(0, index) + "/js/dojo/";
+			return;
+		}
+	}
+})();
@@ -2,28 +2,40 @@ package chapter12.code.listing.controller;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 
 import javax.portlet.RenderResponse;
 import javax.portlet.ResourceRequest;
 import javax.portlet.ResourceResponse;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.portlet.bind.annotation.RenderMapping;
 import org.springframework.web.portlet.bind.annotation.ResourceMapping;
 
+import chapter12.code.listing.service.DateTimeTicker;
+
 /**
  * DateTimeController shows the add book form and handles requests
  * for adding a book to the catalog.
  * 
+ * The date/time is formatted once per second by the DateTimeTicker shared by
+ * all the users. The dateTime resource returns the latest date/time, and the
+ * dateTimeStream resource streams it as Server-Sent Events; the role of the
+ * user is checked once for the whole stream. The number of streams is
+ * limited by the maxSubscribers of the DateTimeTicker.
+ * 
  * @author asarin
  *
  */
 @Controller(value="dateTimeController")
 @RequestMapping(value = "VIEW")
 public class DateTimeController {
+	private static final String NOT_AUTHORIZED_MESSAGE = "<font color=\"red\"> You are not authorized to view server date/time";
+
+	@Autowired
+	private DateTimeTicker dateTimeTicker;
+
 	@RenderMapping
 	public String showBooks(RenderResponse response) {
 		return "home";
@@ -32,15 +44,23 @@ public class DateTimeController {
 	@ResourceMapping("dateTime")
 	public void getDateTime(ResourceRequest request, ResourceResponse response) throws IOException {
 		OutputStream outStream = response.getPortletOutputStream();
-		StringBuffer buffer = new StringBuffer();
 		if (request.isUserInRole("User")) {
-			SimpleDateFormat sdf = new SimpleDateFormat(
-					"dd-MMM-yyyy hh:mm:ss a");
-			buffer.append("Hello World (<i> " + sdf.format(new Date())
-					+ " </i>)");
+			outStream.write(dateTimeTicker.getMessage().getBytes());
+		} else {
+			outStream.write(NOT_AUTHORIZED_MESSAGE.getBytes());
+		}
+	}
+
+	@ResourceMapping("dateTimeStream")
+	public void streamDateTime(ResourceRequest request, ResourceResponse response) throws IOException {
+		response.setContentType(DateTimeTicker.CONTENT_TYPE);
+		response.setProperty("Cache-Control", "no-cache");
+		OutputStream outStream = response.getPortletOutputStream();
+		//-- the role is checked once, when the client subscribes
+		if (request.isUserInRole("User")) {
+			dateTimeTicker.stream(outStream);
 		} else {
-			buffer.append("<font color=\"red\"> You are not authorized to view server date/time");
+			DateTimeTicker.writeEvent(outStream, "unauthorized", NOT_AUTHORIZED_MESSAGE);
 		}
-		outStream.write(buffer.toString().getBytes());
 	}
 }
\ No newline at end of file
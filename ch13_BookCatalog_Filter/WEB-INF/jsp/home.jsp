@@ -156,6 +156,9 @@
 	<tr>
 		<td><input type="submit"
 			value="<fmt:message key="label.add.book"/>" /></td>
+		<td><a class="anchor" href='<portlet:renderURL>
+          <portlet:param name="<%=Constants.MYACTION_PARAM%>" value="addBooksForm"/> 
+    </portlet:renderURL>'><b><fmt:message key="label.add.books" /></b></a></td>
 	</tr>
 </table>
 <table align="right">
@@ -26,6 +26,7 @@ import javax.portlet.RenderRequest;
 import javax.portlet.RenderResponse;
 import javax.portlet.ValidatorException;
 import javax.portlet.WindowState;
+import javax.xml.bind.JAXBException;
 import javax.xml.namespace.QName;
 
 import org.apache.commons.fileupload.FileItemIterator;
@@ -37,9 +38,12 @@ import org.w3c.dom.Element;
 
 import chapter13.code.listing.domain.Book;
 import chapter13.code.listing.events.BookAddedEvent;
+import chapter13.code.listing.events.BooksAddedEvent;
+import chapter13.code.listing.events.EventXml;
 import chapter13.code.listing.service.BookService;
 import chapter13.code.listing.service.BookServiceImpl;
 import chapter13.code.listing.utils.Constants;
+import chapter13.code.listing.utils.StaticAssets;
 
 /**
  * BookCatalogPortlet class represents the portlet class responsible for
@@ -51,6 +55,8 @@ public class BookCatalogPortlet extends GenericPortlet {
 
 	// -- represents the maximum size of the uploaded file = 1 MB
 	private static final long MAX_UPLOAD_FILE_SIZE = 1024 * 1024;
+	// -- number of books which can be entered in the add books form
+	private static final int ADD_BOOKS_FORM_ROWS = 5;
 	private Logger logger = Logger.getLogger(BookCatalogPortlet.class);
 	private static BookService bookService;
 
@@ -92,19 +98,22 @@ public class BookCatalogPortlet extends GenericPortlet {
 			Element cssElement = response.createElement("link");
 			// --encoding URLs is important
 			cssElement.setAttribute("href", response.encodeURL((request
-					.getContextPath() + "/css/bookCatalog.css")));
+					.getContextPath() + StaticAssets.getPath("/css/bookCatalog.css"))));
 			cssElement.setAttribute("rel", "stylesheet");
 			cssElement.setAttribute("type", "text/css");
 			response.addProperty(MimeResponse.MARKUP_HEAD_ELEMENT, cssElement);
 
-			// -- add JavaScript
-			Element jsElement = response.createElement("script");
+			// -- add JavaScript, if the portlet has any
+			String jsPath = StaticAssets.getOptionalPath("/js/bookCatalog.js");
+			if (jsPath != null) {
+				Element jsElement = response.createElement("script");
 
-			// --encoding URLs to resources is important
-			jsElement.setAttribute("src", response.encodeURL((request
-					.getContextPath() + "/js/bookCatalog.js")));
-			jsElement.setAttribute("type", "text/javascript");
-			response.addProperty(MimeResponse.MARKUP_HEAD_ELEMENT, jsElement);
+				// --encoding URLs to resources is important
+				jsElement.setAttribute("src", response.encodeURL((request
+						.getContextPath() + jsPath)));
+				jsElement.setAttribute("type", "text/javascript");
+				response.addProperty(MimeResponse.MARKUP_HEAD_ELEMENT, jsElement);
+			}
 		}
 	}
 
@@ -283,6 +292,17 @@ public class BookCatalogPortlet extends GenericPortlet {
 		if ("addBookForm".equalsIgnoreCase(myaction)) {
 			jspPage = "addBookForm.jsp";
 		}
+		if ("addBooksForm".equalsIgnoreCase(myaction)) {
+			//-- the rows are set by addBooks if the validation failed
+			if (request.getAttribute("bookRows") == null) {
+				List<Map<String, String>> bookRows = new ArrayList<Map<String, String>>();
+				for (int i = 0; i < ADD_BOOKS_FORM_ROWS; i++) {
+					bookRows.add(new HashMap<String, String>());
+				}
+				request.setAttribute("bookRows", bookRows);
+			}
+			jspPage = "addBooksForm.jsp";
+		}
 		if ("refreshResults".equalsIgnoreCase(myaction)) {
 			String bookNameSearchField = (String) request.getPortletSession()
 					.getAttribute("bookNameSearchField");
@@ -578,23 +598,8 @@ public class BookCatalogPortlet extends GenericPortlet {
 				+ ", ISBN number: " + isbnNumber);
 
 		// --contains map of field names to error message
-		Map<String, String> errorMap = new HashMap<String, String>();
-
-		if (category == null || category.trim().equalsIgnoreCase("")) {
-			errorMap.put("category", "Please enter category");
-		}
-		if (name == null || name.trim().equalsIgnoreCase("")) {
-			errorMap.put("name", "Please enter book name");
-		}
-		if (author == null || author.trim().equalsIgnoreCase("")) {
-			errorMap.put("author", "Please enter author name");
-		}
-		if (isbnNumber == null || isbnNumber.trim().equalsIgnoreCase("")) {
-			errorMap.put("isbnNumber", "Please enter ISBN number");
-		}
-		if (isbnNumber == null || !StringUtils.isNumeric(isbnNumber)) {
-			errorMap.put("isbnNumber", "Please enter a valid ISBN number");
-		}
+		Map<String, String> errorMap = validateBook(category, name, author,
+				isbnNumber);
 
 		// --if no error found, go ahead and save the book
 		if (errorMap.isEmpty()) {
@@ -607,7 +612,9 @@ public class BookCatalogPortlet extends GenericPortlet {
 			//-- now that the Book is successfully saved. Lets set the event that will
 			//-- be sent to receiver portlets.
 			QName eventName = new QName("http://www.mynamespace.com", "bookAddedEvent");
-			response.setEvent(eventName, new BookAddedEvent(book));
+			BookAddedEvent event = new BookAddedEvent(book);
+			response.setEvent(eventName, event);
+			logEvent(eventName, event);
 		} else {
 			logger
 					.info("validation error occurred. re-showing the add book form");
@@ -632,6 +639,127 @@ public class BookCatalogPortlet extends GenericPortlet {
 		}
 	}
 
+	/**
+	 * Adds the books entered in the rows of the add books form to the
+	 * catalog. The books are added only if all the rows are valid, and the
+	 * receiver portlets are sent a single booksAddedEvent for all of them,
+	 * instead of a bookAddedEvent for each book.
+	 *
+	 * @param request
+	 * @param response
+	 * @throws PortletException
+	 * @throws IOException
+	 */
+	@ProcessAction(name = "addBooksAction")
+	public void addBooks(ActionRequest request, ActionResponse response)
+			throws PortletException, IOException {
+		logger.info("addBooks action invoked");
+		String[] categories = request.getParameterValues("category");
+		String[] names = request.getParameterValues("name");
+		String[] authors = request.getParameterValues("author");
+		String[] isbnNumbers = request.getParameterValues("isbnNumber");
+
+		List<Book> books = new ArrayList<Book>();
+		// -- contains the values entered in each row, and the validation
+		// -- errors of the row, for re-rendering the form
+		List<Map<String, String>> bookRows = new ArrayList<Map<String, String>>();
+		boolean valid = true;
+		int rows = names == null ? 0 : names.length;
+		for (int i = 0; i < rows; i++) {
+			String category = getValue(categories, i);
+			String name = getValue(names, i);
+			String author = getValue(authors, i);
+			String isbnNumber = getValue(isbnNumbers, i);
+			Map<String, String> valuesMap = new HashMap<String, String>();
+			valuesMap.put("name", name);
+			valuesMap.put("author", author);
+			valuesMap.put("isbnNumber", isbnNumber);
+			valuesMap.put("category", category);
+			bookRows.add(valuesMap);
+
+			// --the rows left empty are ignored
+			if (StringUtils.isBlank(name) && StringUtils.isBlank(author)
+					&& StringUtils.isBlank(isbnNumber)) {
+				continue;
+			}
+			Map<String, String> errorMap = validateBook(category, name,
+					author, isbnNumber);
+			if (errorMap.isEmpty()) {
+				books.add(new Book(category, name, author, Long
+						.valueOf(isbnNumber)));
+			} else {
+				valuesMap.put("errors", StringUtils.join(errorMap.values()
+						.iterator(), ", "));
+				valid = false;
+			}
+		}
+
+		if (valid && !books.isEmpty()) {
+			logger.info("adding " + books.size() + " books to the data store");
+			for (Book book : books) {
+				bookService.addBook(book);
+			}
+			response
+					.setRenderParameter(Constants.MYACTION_PARAM, "showCatalog");
+			QName eventName = new QName("http://www.mynamespace.com", "booksAddedEvent");
+			BooksAddedEvent event = new BooksAddedEvent(books);
+			response.setEvent(eventName, event);
+			logEvent(eventName, event);
+		} else {
+			logger
+					.info("validation error occurred. re-showing the add books form");
+			if (valid) {
+				request.setAttribute("errorMsg", "Please enter at least one book");
+			}
+			request.setAttribute("bookRows", bookRows);
+			response
+					.setRenderParameter(Constants.MYACTION_PARAM, "addBooksForm");
+		}
+	}
+
+	//-- logs the XML which the portlet container sends to remote portlets
+	private void logEvent(QName eventName, Object event) {
+		if (logger.isDebugEnabled()) {
+			try {
+				logger.debug(eventName + " event: " + EventXml.toXml(event));
+			} catch (JAXBException e) {
+				logger.warn("Could not marshal the " + eventName + " event", e);
+			}
+		}
+	}
+
+	//-- returns the map of field names to error message for the values
+	//-- entered for a book
+	private Map<String, String> validateBook(String category, String name,
+			String author, String isbnNumber) {
+		Map<String, String> errorMap = new HashMap<String, String>();
+
+		if (category == null || category.trim().equalsIgnoreCase("")) {
+			errorMap.put("category", "Please enter category");
+		}
+		if (name == null || name.trim().equalsIgnoreCase("")) {
+			errorMap.put("name", "Please enter book name");
+		}
+		if (author == null || author.trim().equalsIgnoreCase("")) {
+			errorMap.put("author", "Please enter author name");
+		}
+		if (isbnNumber == null || isbnNumber.trim().equalsIgnoreCase("")) {
+			errorMap.put("isbnNumber", "Please enter ISBN number");
+		}
+		if (isbnNumber == null || !StringUtils.isNumeric(isbnNumber)) {
+			errorMap.put("isbnNumber", "Please enter a valid ISBN number");
+		}
+		return errorMap;
+	}
+
+	//-- returns the value at index, or null if the field wasn't submitted
+	private String getValue(String[] values, int index) {
+		if (values == null || index >= values.length) {
+			return null;
+		}
+		return values[index];
+	}
+
 	//-- Print supported portlet modes by the portal server
 	private void printSupportedPortletModes(PortalContext context) {
 		// -- supported portlet modes by the portal server
@@ -0,0 +1,76 @@
+package chapter13.code.listing.events;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import chapter13.code.listing.domain.Book;
+
+/**
+ * Event sent when several books are added to the catalog at once, in place
+ * of a BookAddedEvent for each of them. The books are in the order in which
+ * they were added. The serialized form is a version byte, the number of
+ * books, and the serialized form of each BookAddedEvent, without the
+ * class descriptor and handle which ObjectOutputStream writes for each
+ * object.
+ */
+@XmlRootElement
+public class BooksAddedEvent implements Externalizable {
+	private static final long serialVersionUID = 4418329409811257316L;
+	//-- version of the serialized form, to be incremented when it changes
+	private static final byte VERSION = 1;
+	private List<BookAddedEvent> books = new ArrayList<BookAddedEvent>();
+	
+	public BooksAddedEvent() {
+		//-- do nothing
+	}
+	
+	public BooksAddedEvent(List<Book> books) {
+		for (Book book : books) {
+			this.books.add(new BookAddedEvent(book));
+		}
+	}
+	
+	@XmlElement(name = "book")
+	public List<BookAddedEvent> getBooks() {
+		return books;
+	}
+	public void setBooks(List<BookAddedEvent> books) {
+		this.books = books;
+	}
+
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeByte(VERSION);
+		out.writeInt(books.size());
+		for (BookAddedEvent book : books) {
+			book.writeExternal(out);
+		}
+	}
+
+	public void readExternal(ObjectInput in) throws IOException {
+		byte version = in.readByte();
+		if (version != VERSION) {
+			throw new InvalidClassException(BooksAddedEvent.class.getName(),
+					"unsupported version " + version + " of the serialized form");
+		}
+		int size = in.readInt();
+		if (size < 0) {
+			throw new StreamCorruptedException("invalid number of books " + size);
+		}
+		//-- the number isn't trusted to size the list beyond the usual batches
+		books = new ArrayList<BookAddedEvent>(Math.min(size, 100));
+		for (int i = 0; i < size; i++) {
+			BookAddedEvent book = new BookAddedEvent();
+			book.readExternal(in);
+			books.add(book);
+		}
+	}
+}
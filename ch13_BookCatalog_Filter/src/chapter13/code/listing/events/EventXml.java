@@ -0,0 +1,39 @@
+package chapter13.code.listing.events;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+
+/**
+ * EventXml converts the event payloads to and from the XML which the
+ * portlet containers send to remote portlets. Creating a JAXBContext loads
+ * and introspects the payload classes, which takes far longer than
+ * marshalling an event, so a single context is created for all the payloads
+ * and shared. The context is thread-safe; the Marshallers and Unmarshallers
+ * it creates aren't, and are created for each call.
+ */
+public class EventXml {
+	private static volatile JAXBContext context;
+
+	public static JAXBContext getContext() throws JAXBException {
+		JAXBContext result = context;
+		if (result == null) {
+			//-- two threads may both create a context; either one can be kept
+			result = JAXBContext.newInstance(BookAddedEvent.class, BooksAddedEvent.class);
+			context = result;
+		}
+		return result;
+	}
+
+	public static String toXml(Object payload) throws JAXBException {
+		StringWriter writer = new StringWriter();
+		getContext().createMarshaller().marshal(payload, writer);
+		return writer.toString();
+	}
+
+	public static <T> T fromXml(String xml, Class<T> type) throws JAXBException {
+		return type.cast(getContext().createUnmarshaller().unmarshal(new StringReader(xml)));
+	}
+}
@@ -0,0 +1,84 @@
+/* Javascript file that is used by the add book form of the Book Catalog portlet.
+ *
+ * Validates the fields of the form with Ajax requests as the user types.
+ * The validation of a field is sent only after the user stopped typing for
+ * KEYUP_DELAY ms, or BLUR_DELAY ms after the user left the field, and only
+ * if its value changed since it was last validated. The fields changed in
+ * the meantime are validated together, with one request which executes
+ * all of them and renders all of their messages.
+ *
+ * bookValidation.stats counts the validation events and the requests sent.
+ */
+var bookValidation = function() {
+	var KEYUP_DELAY = 500;
+	var BLUR_DELAY = 100;
+	var timer = null;
+	var source = null;
+	var executeIds = {};
+	var renderIds = {};
+	var validatedValues = {};
+	var stats = { events : 0, requests : 0 };
+
+	//-- the ids of the messages are relative to the naming container of the
+	//-- field, which is the form, or the form in the portlet namespace
+	var toClientId = function(field, id) {
+		var separator = field.id.lastIndexOf(":");
+		return separator < 0 ? id : field.id.substring(0, separator + 1) + id;
+	};
+
+	var keys = function(ids) {
+		var result = [];
+		for ( var id in ids) {
+			if (ids.hasOwnProperty(id)) {
+				result.push(id);
+			}
+		}
+		return result.join(" ");
+	};
+
+	var send = function() {
+		timer = null;
+		var execute = keys(executeIds);
+		if (execute.length == 0) {
+			return;
+		}
+		var render = keys(renderIds);
+		executeIds = {};
+		renderIds = {};
+		stats.requests++;
+		//-- jsf.ajax queues the request if another one is still running
+		jsf.ajax.request(source, null, {
+			execute : execute,
+			render : render
+		});
+	};
+
+	return {
+		stats : stats,
+
+		/**
+		 * Schedules the validation of a field; call it from the onkeyup and
+		 * onblur handlers of the field, with the ids of the messages to
+		 * render, separated by spaces.
+		 */
+		validate : function(field, event, messageIds) {
+			stats.events++;
+			if (validatedValues[field.id] !== field.value) {
+				validatedValues[field.id] = field.value;
+				source = field;
+				executeIds[field.id] = true;
+				var ids = messageIds.split(" ");
+				for ( var i = 0; i < ids.length; i++) {
+					renderIds[toClientId(field, ids[i])] = true;
+				}
+			} else if (timer == null) {
+				return;
+			}
+			//-- leaving a field sends the pending validations sooner
+			if (timer != null) {
+				clearTimeout(timer);
+			}
+			timer = setTimeout(send, event && event.type == "blur" ? BLUR_DELAY : KEYUP_DELAY);
+		}
+	};
+}();
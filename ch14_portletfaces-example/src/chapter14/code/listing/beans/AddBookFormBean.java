@@ -0,0 +1,40 @@
+package chapter14.code.listing.beans;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.faces.bean.ManagedBean;
+import javax.faces.bean.ViewScoped;
+
+/**
+ * State of the add book form: the book being entered, and the errors of the
+ * ISBN number validation. The bean lives in the view map of the addBookForm
+ * view. With server side state saving the view map is kept in the user's
+ * session along with the view state, so the form state still takes session
+ * memory while the view is kept there. A new addBookForm view starts with a
+ * new Book.
+ */
+@ManagedBean(name = "addBookFormBean")
+@ViewScoped
+public class AddBookFormBean implements Serializable {
+	private static final long serialVersionUID = -2841063387915532817L;
+	private Book book = new Book();
+	private Map<String, String> errorMap = new HashMap<String, String>();
+
+	public Book getBook() {
+		return book;
+	}
+
+	public void setBook(Book book) {
+		this.book = book;
+	}
+
+	public Map<String, String> getErrorMap() {
+		return errorMap;
+	}
+
+	public void setErrorMap(Map<String, String> errorMap) {
+		this.errorMap = errorMap;
+	}
+}
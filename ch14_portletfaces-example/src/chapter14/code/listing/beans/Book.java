@@ -1,6 +1,9 @@
 package chapter14.code.listing.beans;
 
-public class Book {
+import java.io.Serializable;
+
+public class Book implements Serializable {
+	private static final long serialVersionUID = 4469301826583721170L;
 	private String name;
 	private String author;
 	private Long isbnNumber;
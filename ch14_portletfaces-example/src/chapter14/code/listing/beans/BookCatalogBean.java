@@ -1,44 +1,42 @@
 package chapter14.code.listing.beans;
 
 import java.io.IOException;
-import java.io.Serializable;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import javax.el.ELResolver;
 import javax.faces.bean.ManagedBean;
-import javax.faces.bean.SessionScoped;
+import javax.faces.bean.ManagedProperty;
+import javax.faces.bean.RequestScoped;
 import javax.faces.component.UIInput;
 import javax.faces.context.FacesContext;
+import javax.faces.event.PhaseId;
 import javax.faces.event.ValueChangeEvent;
 
 import org.apache.log4j.Logger;
 
 import chapter14.code.listing.service.BookService;
 
+/**
+ * Actions of the book catalog views. The BookService is injected when the
+ * bean is created for a request, instead of being resolved through the
+ * ELResolver in each method. The bean itself isn't kept in the session; the
+ * state of the add book form is kept by the view scoped AddBookFormBean.
+ */
 @ManagedBean(name = "bookCatalogBean")
-@SessionScoped
-public class BookCatalogBean implements Serializable {
-	private static final long serialVersionUID = -6642447430627752746L;
-	private Book book = new Book();
+@RequestScoped
+public class BookCatalogBean {
 	private Logger logger = Logger.getLogger(BookCatalogBean.class);
-	private Map<String, String> errorMap = new HashMap<String, String>();
 
-	public Book getBook() {
-		return book;
-	}
-
-	public void setBook(Book book) {
-		this.book = book;
-	}
+	@ManagedProperty(value = "#{bookService}")
+	private BookService bookService;
 
-	public Map<String, String> getErrorMap() {
-		return errorMap;
-	}
+	//-- the dataTable evaluates #{bookCatalogBean.books} several times in
+	//-- each phase, so the books are read once per phase
+	private List<Book> books;
+	private PhaseId booksPhaseId;
 
-	public void setErrorMap(Map<String, String> errorMap) {
-		this.errorMap = errorMap;
+	public void setBookService(BookService bookService) {
+		this.bookService = bookService;
 	}
 
 	public String showAddBookForm() throws IOException {
@@ -46,11 +44,12 @@ public class BookCatalogBean implements Serializable {
 	}
 
 	public List<Book> getBooks() {
-		FacesContext fc = FacesContext.getCurrentInstance();
-		ELResolver elResolver = fc.getApplication().getELResolver();
-		BookService bookService = (BookService) elResolver.getValue(fc
-				.getELContext(), null, "bookService");
-		return bookService.getBooks();
+		PhaseId phaseId = FacesContext.getCurrentInstance().getCurrentPhaseId();
+		if (books == null || booksPhaseId != phaseId) {
+			books = bookService.getBooks();
+			booksPhaseId = phaseId;
+		}
+		return books;
 	}
 
 	public void validateIsbn(ValueChangeEvent vce) {
@@ -59,10 +58,7 @@ public class BookCatalogBean implements Serializable {
 		Long isbnNumber = (Long) isbnComponent.getValue();
 		logger.info("Book ISBN field value : " + isbnNumber); 
 
-		FacesContext fc = FacesContext.getCurrentInstance();
-		ELResolver elResolver = fc.getApplication().getELResolver();
-		BookService bookService = (BookService) elResolver.getValue(fc
-				.getELContext(), null, "bookService");
+		Map<String, String> errorMap = getAddBookFormBean().getErrorMap();
         Book matchingBook = bookService.getBook(Long.valueOf(isbnNumber));
         if(matchingBook != null) {
         	logger.info("ISBN number match found");
@@ -73,12 +69,10 @@ public class BookCatalogBean implements Serializable {
 	}
 
 	public String addBook() {
-		FacesContext fc = FacesContext.getCurrentInstance();
-		ELResolver elResolver = fc.getApplication().getELResolver();
-		BookService bookService = (BookService) elResolver.getValue(fc
-				.getELContext(), null, "bookService");
-		if(errorMap.isEmpty()) {
-			bookService.addBook(book);
+		AddBookFormBean addBookFormBean = getAddBookFormBean();
+		if(addBookFormBean.getErrorMap().isEmpty()) {
+			bookService.addBook(addBookFormBean.getBook());
+			books = null;
 		}
 		return "home";
 	}
@@ -88,10 +82,16 @@ public class BookCatalogBean implements Serializable {
 		String isbnNumber = fc.getExternalContext().getRequestParameterMap()
 				.get("isbnNumber");
 		logger.info(("removing book with isbnNumber: " + isbnNumber));
-		ELResolver elResolver = fc.getApplication().getELResolver();
-		BookService bookService = (BookService) elResolver.getValue(fc
-				.getELContext(), null, "bookService");
 		bookService.removeBook(Long.valueOf(isbnNumber));
+		books = null;
 		return "";
 	}
+
+	//-- resolved only by the actions of the form, so that the views which
+	//-- only show the books don't create the view scoped form bean
+	private AddBookFormBean getAddBookFormBean() {
+		FacesContext fc = FacesContext.getCurrentInstance();
+		return fc.getApplication().evaluateExpressionGet(fc, "#{addBookFormBean}",
+				AddBookFormBean.class);
+	}
 }
\ No newline at end of file
@@ -3,53 +3,82 @@ package chapter14.code.listing.service;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.faces.bean.ApplicationScoped;
 import javax.faces.bean.ManagedBean;
 
 import chapter14.code.listing.beans.Book;
 
+/**
+ * Catalog of books shared by all users. Besides the list of books, it keeps
+ * the books by ISBN number, so that the ISBN number validation, which runs
+ * while the user types the ISBN number, finds a book without scanning and
+ * locking the list. The index is changed together with the list, while
+ * holding the lock of the list.
+ */
 @ManagedBean(eager=true, name="bookService")
 @ApplicationScoped
 public class BookService {
 	private List<Book> books = Collections
 			.synchronizedList(new ArrayList<Book>());
+	private Map<Long, Book> booksByIsbnNumber = new ConcurrentHashMap<Long, Book>();
 
 	public BookService() {
-		books.add(new Book("Java", "AspectJ in Action, Second Edition",
+		addBook(new Book("Java", "AspectJ in Action, Second Edition",
 				"Ramnivas Laddad", Long.valueOf("1933988053")));
-		books.add(new Book("Java", "ActiveMQ in Action",
+		addBook(new Book("Java", "ActiveMQ in Action",
 				"Bruce Snyder, Dejan Bosanac, and Rob Davies", Long
 						.valueOf("1933988940")));
-		books.add(new Book("Java", "Hadoop in Action", "Chuck Lam", Long
+		addBook(new Book("Java", "Hadoop in Action", "Chuck Lam", Long
 				.valueOf("9781935182191")));
-		books
-				.add(new Book("Java", 
+		addBook(new Book("Java", 
 						"JUnit in Action, Second Edition",
 						"Petar Tahchiev, Felipe Leme, Vincent Massol, and Gary Gregory",
 						Long.valueOf("9781935182023")));
 	}
 
+	/**
+	 * Returns an unmodifiable view of the books; use addBook and removeBook
+	 * to change the catalog, so that the ISBN number index is kept up to date.
+	 */
 	public List<Book> getBooks() {
-		return books;
+		return Collections.unmodifiableList(books);
 	}
 	
 	public void removeBook(Long isbnNumber) {
-		getBooks().remove(getBook(isbnNumber));
+		synchronized (books) {
+			Book book = booksByIsbnNumber.remove(isbnNumber);
+			if (book == null) {
+				return;
+			}
+			books.remove(book);
+			//-- another book with the same ISBN number is found next
+			for (Book otherBook : books) {
+				if (otherBook.getIsbnNumber().equals(isbnNumber)) {
+					booksByIsbnNumber.put(isbnNumber, otherBook);
+					break;
+				}
+			}
+		}
 	}
 	
 	public void addBook(Book book) {
-		books.add(book);
+		synchronized (books) {
+			books.add(book);
+			//-- getBook returns the first book added with the ISBN number
+			if (book.getIsbnNumber() != null
+					&& !booksByIsbnNumber.containsKey(book.getIsbnNumber())) {
+				booksByIsbnNumber.put(book.getIsbnNumber(), book);
+			}
+		}
 	}
 	
 	public Book getBook(Long isbnNumber) {
-		Book matchingBook = null;
-		for(Book book : getBooks()) {
-			if(book.getIsbnNumber().equals(isbnNumber)) {
-				matchingBook = book;
-				break;
-			}
+		if (isbnNumber == null) {
+			return null;
 		}
-		return matchingBook;
+		return booksByIsbnNumber.get(isbnNumber);
 	}
 }
\ No newline at end of file
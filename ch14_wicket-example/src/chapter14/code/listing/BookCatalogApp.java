@@ -1,11 +1,28 @@
 package chapter14.code.listing;
 
+import org.apache.wicket.Application;
 import org.apache.wicket.protocol.http.WebApplication;
 
+import chapter14.code.listing.servlet.BookDataObject;
+
 public class BookCatalogApp extends WebApplication
 {
+    public static BookCatalogApp get()
+    {
+        return (BookCatalogApp) Application.get();
+    }
+
     public Class<Home> getHomePage()
     {
         return Home.class;
     }
+
+    /**
+     * Returns the book catalog, which BookCatalogContextListener keeps in a
+     * ServletContext attribute.
+     */
+    public BookDataObject getBookDataObject()
+    {
+        return (BookDataObject) getServletContext().getAttribute("bookCatalog");
+    }
 }
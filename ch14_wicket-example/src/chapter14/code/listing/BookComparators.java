@@ -0,0 +1,105 @@
+package chapter14.code.listing;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.Comparator;
+
+/**
+ * Creates the comparators used to sort the books on a property. The
+ * comparators of the Book properties call the getters directly; for any
+ * other property the getter is looked up once, when the comparator is
+ * created, instead of on each comparison. Null values come first.
+ */
+public final class BookComparators {
+	private BookComparators() {
+	}
+
+	public static Comparator<Book> forProperty(String property) {
+		if ("name".equals(property)) {
+			return new NameComparator();
+		} else if ("author".equals(property)) {
+			return new AuthorComparator();
+		} else if ("isbnNumber".equals(property)) {
+			return new IsbnNumberComparator();
+		}
+		return new GetterComparator(property);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static int compareValues(Comparable value1, Comparable value2) {
+		if (value1 == null) {
+			return value2 == null ? 0 : -1;
+		} else if (value2 == null) {
+			return 1;
+		}
+		return value1.compareTo(value2);
+	}
+
+	private static class NameComparator implements Comparator<Book> {
+		public int compare(Book b1, Book b2) {
+			return compareValues(b1.getName(), b2.getName());
+		}
+	}
+
+	private static class AuthorComparator implements Comparator<Book> {
+		public int compare(Book b1, Book b2) {
+			return compareValues(b1.getAuthor(), b2.getAuthor());
+		}
+	}
+
+	private static class IsbnNumberComparator implements Comparator<Book> {
+		public int compare(Book b1, Book b2) {
+			return compareValues(b1.getIsbnNumber(), b2.getIsbnNumber());
+		}
+	}
+
+	private static class GetterComparator implements Comparator<Book> {
+		private final String property;
+		private final Method getter;
+
+		GetterComparator(String property) {
+			this.property = property;
+			this.getter = findGetter(property);
+		}
+
+		@SuppressWarnings("rawtypes")
+		public int compare(Book b1, Book b2) {
+			return compareValues((Comparable) getValue(b1), (Comparable) getValue(b2));
+		}
+
+		private Object getValue(Book book) {
+			try {
+				return getter.invoke(book);
+			} catch (Exception e) {
+				throw new IllegalStateException("Could not read property " + property
+						+ " of book " + book.getIsbnNumber(), e);
+			}
+		}
+
+		private static Method findGetter(String property) {
+			try {
+				BeanInfo beanInfo = Introspector.getBeanInfo(Book.class);
+				for (PropertyDescriptor descriptor : beanInfo.getPropertyDescriptors()) {
+					if (descriptor.getName().equals(property) && descriptor.getReadMethod() != null
+							&& Comparable.class.isAssignableFrom(wrap(descriptor.getPropertyType()))) {
+						return descriptor.getReadMethod();
+					}
+				}
+			} catch (IntrospectionException e) {
+				throw new IllegalArgumentException("Could not inspect the properties of Book", e);
+			}
+			throw new IllegalArgumentException("Book has no readable, comparable property " + property);
+		}
+
+		private static Class<?> wrap(Class<?> type) {
+			if (!type.isPrimitive()) {
+				return type;
+			}
+			//-- all primitive wrappers except Void are Comparable
+			return type == void.class ? Void.class : Comparable.class;
+		}
+	}
+}
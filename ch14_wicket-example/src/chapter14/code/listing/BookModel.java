@@ -0,0 +1,56 @@
+package chapter14.code.listing;
+
+import org.apache.wicket.model.LoadableDetachableModel;
+
+/**
+ * Model of a row of the book table. Only the ISBN number of the book is kept
+ * in the page, and so in the page store and HTTP session; the book is loaded
+ * from the BookDataObject when the row is rendered, and is dropped again
+ * when the page is detached at the end of the request.
+ *
+ * The models of two rows are equal if they show the same book, so that the
+ * table can reuse the rows of the books which are still on the page.
+ */
+public class BookModel extends LoadableDetachableModel<Book> {
+	private static final long serialVersionUID = 2876305197324532915L;
+	private final Long isbnNumber;
+
+	public BookModel(Book book) {
+		super(book);
+		this.isbnNumber = book.getIsbnNumber();
+	}
+
+	public BookModel(Long isbnNumber) {
+		this.isbnNumber = isbnNumber;
+	}
+
+	/**
+	 * Loads the book, or returns null if the book was removed from the
+	 * catalog since the page was rendered.
+	 */
+	@Override
+	protected Book load() {
+		return BookCatalogApp.get().getBookDataObject().getBook(isbnNumber);
+	}
+
+	public Long getIsbnNumber() {
+		return isbnNumber;
+	}
+
+	@Override
+	public boolean equals(Object otherObject) {
+		if (this == otherObject) {
+			return true;
+		}
+		if (!(otherObject instanceof BookModel)) {
+			return false;
+		}
+		Long otherIsbnNumber = ((BookModel) otherObject).isbnNumber;
+		return isbnNumber == null ? otherIsbnNumber == null : isbnNumber.equals(otherIsbnNumber);
+	}
+
+	@Override
+	public int hashCode() {
+		return isbnNumber == null ? 0 : isbnNumber.hashCode();
+	}
+}
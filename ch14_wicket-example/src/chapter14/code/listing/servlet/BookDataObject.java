@@ -1,25 +1,246 @@
 package chapter14.code.listing.servlet;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
 
 import chapter14.code.listing.Book;
+import chapter14.code.listing.BookComparators;
 
+/**
+ * Book catalog shared by all the users. Besides the books in the order in
+ * which they were added, it keeps an index of the books sorted on each
+ * property the table was sorted on. The indexes are created on the first
+ * request for a property and updated when a book is added or removed, so a
+ * page of sorted books is read without sorting.
+ *
+ * The books and indexes are immutable arrays, replaced on each change, so
+ * readers never lock and never see a catalog which is being changed. A
+ * descending index is the ascending index read backwards. Books must not be
+ * changed once added; remove the book and add the changed book instead.
+ * The books are also kept by ISBN number, so that the table rows, which only
+ * keep the ISBN number of their book, load their book in O(1) time.
+ */
 public class BookDataObject {
-	private List<Book> books = Collections.synchronizedList(new ArrayList<Book>());
-	
+	private volatile Catalog catalog = new Catalog(new Book[0], new HashMap<Long, Book>(),
+			new HashMap<String, Index>());
+
 	public BookDataObject() {
-		books.add(new Book("AspectJ in Action, Second Edition", "Ramnivas Laddad", Long.valueOf("1933988053")));
-		books.add(new Book("ActiveMQ in Action", "Bruce Snyder, Dejan Bosanac, and Rob Davies", Long.valueOf("1933988940")));
-		books.add(new Book("Hadoop in Action", "Chuck Lam", Long.valueOf("9781935182191")));
-		books.add(new Book("JUnit in Action, Second Edition", "Petar Tahchiev, Felipe Leme, Vincent Massol, and Gary Gregory", Long.valueOf("9781935182023")));
-		books.add(new Book("Griffon in Action", "Andres Almiray and Danno Ferrin", Long.valueOf("9781935182238")));
-		books.add(new Book("Lift in Action", "Timothy Perrett", Long.valueOf("9781935182801")));
-		books.add(new Book("OSGi in Action", "Richard S. Hall, Karl Pauls, Stuart McCulloch, and David Savage", Long.valueOf("1933988916")));
-	}
-	
+		addBook(new Book("AspectJ in Action, Second Edition", "Ramnivas Laddad", Long.valueOf("1933988053")));
+		addBook(new Book("ActiveMQ in Action", "Bruce Snyder, Dejan Bosanac, and Rob Davies", Long.valueOf("1933988940")));
+		addBook(new Book("Hadoop in Action", "Chuck Lam", Long.valueOf("9781935182191")));
+		addBook(new Book("JUnit in Action, Second Edition", "Petar Tahchiev, Felipe Leme, Vincent Massol, and Gary Gregory", Long.valueOf("9781935182023")));
+		addBook(new Book("Griffon in Action", "Andres Almiray and Danno Ferrin", Long.valueOf("9781935182238")));
+		addBook(new Book("Lift in Action", "Timothy Perrett", Long.valueOf("9781935182801")));
+		addBook(new Book("OSGi in Action", "Richard S. Hall, Karl Pauls, Stuart McCulloch, and David Savage", Long.valueOf("1933988916")));
+	}
+
+	/**
+	 * Returns an unmodifiable list of the books, in the order in which they
+	 * were added.
+	 */
 	public List<Book> getBooks() {
-		return books;
+		return new BookList(catalog.books, true);
+	}
+
+	/**
+	 * Returns an unmodifiable list of the books sorted on the given property.
+	 * Books with the same value keep the order in which they were added, or
+	 * the reverse order if sorted descending.
+	 */
+	public List<Book> getBooks(String property, boolean ascending) {
+		Index index = catalog.indexes.get(property);
+		if (index == null) {
+			index = createIndex(property);
+		}
+		return new BookList(index.books, ascending);
+	}
+
+	/**
+	 * Returns the book with the given ISBN number, or null if there is no
+	 * such book. If several books have the ISBN number, the book which was
+	 * added last is returned.
+	 */
+	public Book getBook(Long isbnNumber) {
+		return catalog.booksByIsbnNumber.get(isbnNumber);
+	}
+
+	public int size() {
+		return catalog.books.length;
+	}
+
+	public synchronized void addBook(Book book) {
+		Catalog current = catalog;
+		Book[] books = new Book[current.books.length + 1];
+		System.arraycopy(current.books, 0, books, 0, current.books.length);
+		books[current.books.length] = book;
+		Map<Long, Book> booksByIsbnNumber = new HashMap<Long, Book>(current.booksByIsbnNumber);
+		booksByIsbnNumber.put(book.getIsbnNumber(), book);
+		Map<String, Index> indexes = new HashMap<String, Index>();
+		for (Map.Entry<String, Index> entry : current.indexes.entrySet()) {
+			indexes.put(entry.getKey(), entry.getValue().add(book));
+		}
+		catalog = new Catalog(books, booksByIsbnNumber, indexes);
+	}
+
+	/**
+	 * Removes the book with the given ISBN number; returns false if there is
+	 * no such book.
+	 */
+	public synchronized boolean removeBook(Long isbnNumber) {
+		Catalog current = catalog;
+		if (!current.booksByIsbnNumber.containsKey(isbnNumber)) {
+			return false;
+		}
+		int position = -1;
+		for (int i = 0; i < current.books.length; i++) {
+			if (current.books[i].getIsbnNumber().equals(isbnNumber)) {
+				position = i;
+				break;
+			}
+		}
+		Book book = current.books[position];
+		Map<Long, Book> booksByIsbnNumber = new HashMap<Long, Book>(current.booksByIsbnNumber);
+		//-- the books added after it with the same ISBN number are still there
+		if (booksByIsbnNumber.get(isbnNumber) == book) {
+			booksByIsbnNumber.remove(isbnNumber);
+		}
+		Map<String, Index> indexes = new HashMap<String, Index>();
+		for (Map.Entry<String, Index> entry : current.indexes.entrySet()) {
+			indexes.put(entry.getKey(), entry.getValue().remove(book));
+		}
+		catalog = new Catalog(remove(current.books, position), booksByIsbnNumber, indexes);
+		return true;
+	}
+
+	private synchronized Index createIndex(String property) {
+		Catalog current = catalog;
+		Index index = current.indexes.get(property);
+		if (index == null) {
+			index = Index.create(BookComparators.forProperty(property), current.books);
+			Map<String, Index> indexes = new HashMap<String, Index>(current.indexes);
+			indexes.put(property, index);
+			catalog = new Catalog(current.books, current.booksByIsbnNumber, indexes);
+		}
+		return index;
+	}
+
+	private static Book[] remove(Book[] books, int position) {
+		Book[] result = new Book[books.length - 1];
+		System.arraycopy(books, 0, result, 0, position);
+		System.arraycopy(books, position + 1, result, position, result.length - position);
+		return result;
+	}
+
+	private static final class Catalog {
+		private final Book[] books;
+		private final Map<Long, Book> booksByIsbnNumber;
+		private final Map<String, Index> indexes;
+
+		Catalog(Book[] books, Map<Long, Book> booksByIsbnNumber, Map<String, Index> indexes) {
+			this.books = books;
+			this.booksByIsbnNumber = Collections.unmodifiableMap(booksByIsbnNumber);
+			this.indexes = Collections.unmodifiableMap(indexes);
+		}
+	}
+
+	/**
+	 * The books sorted with a comparator, which is created once per property.
+	 */
+	private static final class Index {
+		private final Comparator<Book> comparator;
+		private final Book[] books;
+
+		private Index(Comparator<Book> comparator, Book[] sortedBooks) {
+			this.comparator = comparator;
+			this.books = sortedBooks;
+		}
+
+		static Index create(Comparator<Book> comparator, Book[] unsortedBooks) {
+			Book[] books = unsortedBooks.clone();
+			//-- a stable sort, so equal books stay in the order in which they were added
+			Arrays.sort(books, comparator);
+			return new Index(comparator, books);
+		}
+
+		Index add(Book book) {
+			//-- after the books which are equal to it, which were added before it
+			int position = upperBound(book);
+			Book[] result = new Book[books.length + 1];
+			System.arraycopy(books, 0, result, 0, position);
+			result[position] = book;
+			System.arraycopy(books, position, result, position + 1, books.length - position);
+			return new Index(comparator, result);
+		}
+
+		Index remove(Book book) {
+			for (int i = lowerBound(book); i < books.length; i++) {
+				if (books[i] == book) {
+					return new Index(comparator, BookDataObject.remove(books, i));
+				}
+			}
+			return this;
+		}
+
+		private int lowerBound(Book book) {
+			int low = 0;
+			int high = books.length;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (comparator.compare(books[middle], book) < 0) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			return low;
+		}
+
+		private int upperBound(Book book) {
+			int low = 0;
+			int high = books.length;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (comparator.compare(books[middle], book) <= 0) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			return low;
+		}
+	}
+
+	/**
+	 * Unmodifiable view of an array of books, read forwards or backwards.
+	 * subList and iterator are views as well, so reading a page of count
+	 * books takes O(count) time.
+	 */
+	private static final class BookList extends AbstractList<Book> implements RandomAccess {
+		private final Book[] books;
+		private final boolean forwards;
+
+		BookList(Book[] books, boolean forwards) {
+			this.books = books;
+			this.forwards = forwards;
+		}
+
+		@Override
+		public Book get(int index) {
+			if (index < 0 || index >= books.length) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + books.length);
+			}
+			return forwards ? books[index] : books[books.length - 1 - index];
+		}
+
+		@Override
+		public int size() {
+			return books.length;
+		}
 	}
 }
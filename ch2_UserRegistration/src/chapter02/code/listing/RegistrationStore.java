@@ -0,0 +1,369 @@
+package chapter02.code.listing;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Stores the registered users in an append-only file, one line per user.
+ * register only checks the email and queues the user; a writer thread
+ * appends the queued users to the file in batches, so that a burst of
+ * registrations costs one write, and one fsync, per batch instead of per
+ * user. The durability decides when register returns:
+ *
+ * QUEUED  - once the user is queued; the queued users are lost if the JVM stops
+ * WRITTEN - once the batch of the user is written; it is lost if the OS stops
+ * SYNCED  - once the batch of the user is forced to the disk
+ *
+ * Emails are compared ignoring case, and each email is registered once. The
+ * emails of the file are read when the store is created, and a line which
+ * was cut off by a crash is removed. close writes each user which register
+ * queued before it, and register fails once close was called. A batch which could not be written is
+ * removed from the file as well; if it can't be removed, the following
+ * batches fail, so that no user is appended to a partial line.
+ */
+public class RegistrationStore {
+	public enum Durability {
+		QUEUED, WRITTEN, SYNCED
+	}
+
+	public enum Result {
+		REGISTERED, DUPLICATE_EMAIL
+	}
+
+	//-- how long register waits for room in a full queue, and for the write
+	private static final long OFFER_TIMEOUT_SECONDS = 5;
+	private static final long WRITE_TIMEOUT_SECONDS = 30;
+	private static final Registration CLOSE = new Registration(null, null);
+	private static final String ENCODING = "UTF-8";
+
+	private final Logger logger = Logger.getLogger(RegistrationStore.class);
+	private final File file;
+	private final Durability durability;
+	private final int maxBatchSize;
+	private final ConcurrentMap<String, Boolean> emails = new ConcurrentHashMap<String, Boolean>();
+	private final BlockingQueue<Registration> queue;
+	private final FileChannel channel;
+	private final Thread writer;
+	private final AtomicLong writtenCount = new AtomicLong();
+	private final AtomicLong batchCount = new AtomicLong();
+	//-- set by the writer thread if a partial batch could not be removed
+	private IOException rollbackFailure;
+	//-- register queues the users while holding the read lock, and close
+	//-- sets closed while holding the write lock, so that no user is queued
+	//-- after the CLOSE marker
+	private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+	private boolean closed;
+
+	public RegistrationStore(File file, Durability durability, int queueCapacity, int maxBatchSize)
+			throws IOException {
+		this.file = file;
+		this.durability = durability;
+		this.maxBatchSize = maxBatchSize;
+		this.queue = new ArrayBlockingQueue<Registration>(queueCapacity);
+		long length = readEmails();
+		this.channel = new RandomAccessFile(file, "rw").getChannel();
+		if (channel.size() > length) {
+			channel.truncate(length);
+		}
+		channel.position(length);
+		writer = new Thread(new Runnable() {
+			public void run() {
+				writeBatches();
+			}
+		}, "RegistrationStore writer " + file.getName());
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Registers the user, unless its email is registered already. Throws an
+	 * IOException if the queue stays full, or if the user could not be
+	 * written; the email may then be registered again.
+	 */
+	public Result register(User user) throws IOException {
+		String email = normalize(user.getEmail());
+		Registration registration = new Registration(user, email);
+		try {
+			closeLock.readLock().lock();
+			try {
+				if (closed) {
+					throw new IOException("The registration store " + file + " is closed");
+				}
+				if (emails.putIfAbsent(email, Boolean.TRUE) != null) {
+					return Result.DUPLICATE_EMAIL;
+				}
+				if (!queue.offer(registration, OFFER_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+					emails.remove(email);
+					throw new IOException("The registration queue of " + file + " is full");
+				}
+			} finally {
+				closeLock.readLock().unlock();
+			}
+			if (durability != Durability.QUEUED) {
+				if (!registration.done.await(WRITE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+					//-- the email stays registered, as the user may still be written
+					throw new IOException("The registration was not written to " + file + " in time");
+				}
+				if (registration.failure != null) {
+					throw registration.failure;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while registering " + email);
+		}
+		return Result.REGISTERED;
+	}
+
+	public boolean isRegistered(String email) {
+		return emails.containsKey(normalize(email));
+	}
+
+	public Durability getDurability() {
+		return durability;
+	}
+
+	public int getQueueSize() {
+		return queue.size();
+	}
+
+	public long getWrittenCount() {
+		return writtenCount.get();
+	}
+
+	public long getBatchCount() {
+		return batchCount.get();
+	}
+
+	/**
+	 * Stops accepting registrations, writes the queued users and closes the
+	 * file.
+	 */
+	public void close() throws IOException {
+		closeLock.writeLock().lock();
+		try {
+			if (closed) {
+				return;
+			}
+			closed = true;
+		} finally {
+			closeLock.writeLock().unlock();
+		}
+		try {
+			queue.put(CLOSE);
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			channel.close();
+		}
+	}
+
+	private void writeBatches() {
+		List<Registration> batch = new ArrayList<Registration>(maxBatchSize);
+		boolean closing = false;
+		while (!closing) {
+			try {
+				batch.add(queue.take());
+			} catch (InterruptedException e) {
+				//-- only close stops the writer
+				continue;
+			}
+			queue.drainTo(batch, maxBatchSize - 1);
+			//-- CLOSE is the last element of the queue
+			closing = batch.remove(CLOSE);
+			if (!batch.isEmpty()) {
+				write(batch);
+			}
+			batch.clear();
+		}
+	}
+
+	private void write(List<Registration> batch) {
+		if (rollbackFailure != null) {
+			IOException e = new IOException("The registration file " + file
+					+ " contains a partial batch");
+			e.initCause(rollbackFailure);
+			fail(batch, e);
+			return;
+		}
+		long position = -1;
+		try {
+			position = channel.position();
+			StringBuilder lines = new StringBuilder(batch.size() * 64);
+			for (Registration registration : batch) {
+				User user = registration.user;
+				appendField(lines, user.getEmail()).append('\t');
+				appendField(lines, user.getFirstName()).append('\t');
+				appendField(lines, user.getLastName()).append('\t');
+				lines.append(registration.registeredTime).append('\n');
+			}
+			writeLines(channel, ByteBuffer.wrap(lines.toString().getBytes(ENCODING)));
+			if (durability == Durability.SYNCED) {
+				channel.force(false);
+			}
+			writtenCount.addAndGet(batch.size());
+			batchCount.incrementAndGet();
+			for (Registration registration : batch) {
+				registration.done.countDown();
+			}
+		} catch (IOException e) {
+			logger.error("Could not write " + batch.size() + " registrations to " + file, e);
+			if (position >= 0) {
+				rollBack(position);
+			}
+			fail(batch, e);
+		}
+	}
+
+	/**
+	 * Writes the lines of a batch at the position of the channel. Called by
+	 * the writer thread.
+	 */
+	protected void writeLines(FileChannel channel, ByteBuffer lines) throws IOException {
+		while (lines.hasRemaining()) {
+			channel.write(lines);
+		}
+	}
+
+	/**
+	 * Removes the bytes of a batch which was only partly written.
+	 */
+	private void rollBack(long position) {
+		try {
+			if (channel.size() > position) {
+				channel.truncate(position);
+			}
+			channel.position(position);
+		} catch (IOException e) {
+			logger.error("Could not remove the partial batch from " + file, e);
+			rollbackFailure = e;
+		}
+	}
+
+	private void fail(List<Registration> batch, IOException e) {
+		for (Registration registration : batch) {
+			emails.remove(registration.email);
+			registration.fail(e);
+		}
+	}
+
+	/**
+	 * Reads the emails of the file, and returns the length of its complete
+	 * lines.
+	 */
+	private long readEmails() throws IOException {
+		if (!file.exists()) {
+			return 0;
+		}
+		long length = 0;
+		long position = 0;
+		ByteArrayOutputStream email = new ByteArrayOutputStream(64);
+		boolean inEmail = true;
+		InputStream in = new BufferedInputStream(new FileInputStream(file), 64 * 1024);
+		try {
+			int b;
+			while ((b = in.read()) != -1) {
+				position++;
+				if (b == '\n') {
+					emails.put(normalize(unescape(email.toString(ENCODING))), Boolean.TRUE);
+					email.reset();
+					inEmail = true;
+					length = position;
+				} else if (b == '\t') {
+					inEmail = false;
+				} else if (inEmail) {
+					email.write(b);
+				}
+			}
+		} finally {
+			in.close();
+		}
+		if (position > length) {
+			logger.warn("Removing the incomplete last line of " + file);
+		}
+		return length;
+	}
+
+	private static StringBuilder appendField(StringBuilder lines, String value) {
+		if (value == null) {
+			return lines;
+		}
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\\') {
+				lines.append("\\\\");
+			} else if (c == '\t') {
+				lines.append("\\t");
+			} else if (c == '\n') {
+				lines.append("\\n");
+			} else if (c == '\r') {
+				lines.append("\\r");
+			} else {
+				lines.append(c);
+			}
+		}
+		return lines;
+	}
+
+	private static String unescape(String value) {
+		if (value.indexOf('\\') < 0) {
+			return value;
+		}
+		StringBuilder result = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\\' && i + 1 < value.length()) {
+				char next = value.charAt(++i);
+				result.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+			} else {
+				result.append(c);
+			}
+		}
+		return result.toString();
+	}
+
+	private static String normalize(String email) {
+		return email.trim().toLowerCase(Locale.ENGLISH);
+	}
+
+	private static final class Registration {
+		private final User user;
+		private final String email;
+		private final long registeredTime = System.currentTimeMillis();
+		private final CountDownLatch done = new CountDownLatch(1);
+		private volatile IOException failure;
+
+		Registration(User user, String email) {
+			this.user = user;
+			this.email = email;
+		}
+
+		void fail(IOException e) {
+			failure = e;
+			done.countDown();
+		}
+	}
+}
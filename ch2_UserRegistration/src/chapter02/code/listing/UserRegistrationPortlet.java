@@ -1,6 +1,8 @@
 package chapter02.code.listing;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.ResourceBundle;
 
 import javax.portlet.ActionRequest;
@@ -22,6 +24,7 @@ import javax.portlet.RenderResponse;
  */
 public class UserRegistrationPortlet extends GenericPortlet {
 	private String defaultEmail;
+	private RegistrationStore registrationStore;
 
 	/*
 	 * Overrides the init method of the GenericPortlet class to obtain the value
@@ -30,8 +33,74 @@ public class UserRegistrationPortlet extends GenericPortlet {
 	 * 
 	 * @see javax.portlet.GenericPortlet#init()
 	 */
-	public void init() {
+	public void init() throws PortletException {
 		defaultEmail = getPortletConfig().getInitParameter("defaultEmail");
+		registrationStore = createRegistrationStore();
+	}
+
+	/**
+	 * Creates the store of the registered users from the registrationFile
+	 * and registrationDurability initialization parameters. The durability is
+	 * SYNCED by default if a registrationFile is configured.
+	 * 
+	 * Without a registrationFile the users are stored in the temporary
+	 * directory of the web application, which the container may delete, for
+	 * example when the portlet is redeployed. This default isn't durable, so
+	 * its durability is WRITTEN, and SYNCED requires a registrationFile.
+	 */
+	private RegistrationStore createRegistrationStore() throws PortletException {
+		String fileName = getInitParameter("registrationFile");
+		String durabilityName = getInitParameter("registrationDurability");
+		RegistrationStore.Durability durability;
+		if (durabilityName != null) {
+			try {
+				durability = RegistrationStore.Durability.valueOf(durabilityName.trim());
+			} catch (IllegalArgumentException e) {
+				throw new PortletException("Unknown registrationDurability " + durabilityName
+						+ "; the valid values are "
+						+ Arrays.toString(RegistrationStore.Durability.values()), e);
+			}
+		} else if (fileName != null) {
+			durability = RegistrationStore.Durability.SYNCED;
+		} else {
+			durability = RegistrationStore.Durability.WRITTEN;
+		}
+		File registrationFile;
+		if (fileName != null) {
+			registrationFile = new File(fileName);
+		} else if (durability == RegistrationStore.Durability.SYNCED) {
+			throw new PortletException("The SYNCED registrationDurability requires a "
+					+ "registrationFile outside the temporary directory");
+		} else {
+			File tempDir = (File) getPortletContext().getAttribute(
+					"javax.servlet.context.tempdir");
+			if (tempDir == null) {
+				tempDir = new File(System.getProperty("java.io.tmpdir"));
+			}
+			registrationFile = new File(tempDir, "registrations.txt");
+			getPortletContext().log("No registrationFile, the registered users are kept in "
+					+ registrationFile + ", which isn't durable");
+		}
+		try {
+			return new RegistrationStore(registrationFile, durability, 10000, 1000);
+		} catch (IOException e) {
+			throw new PortletException("Could not open the registration file "
+					+ registrationFile, e);
+		}
+	}
+
+	/*
+	 * Writes the queued registrations before the portlet is taken out of
+	 * service. (non-Javadoc)
+	 * 
+	 * @see javax.portlet.GenericPortlet#destroy()
+	 */
+	public void destroy() {
+		try {
+			registrationStore.close();
+		} catch (IOException e) {
+			getPortletContext().log("Could not close the registration file", e);
+		}
 	}
 
 	/**
@@ -78,8 +147,8 @@ public class UserRegistrationPortlet extends GenericPortlet {
 	}
 
 	/**
-	 * Registers the user with the system. The current implementation of this
-	 * method doesn't save user information.
+	 * Registers the user with the system. The user is saved by the
+	 * registration store, and an email can only be registered once.
 	 * 
 	 * @param request
 	 * @param response
@@ -95,27 +164,40 @@ public class UserRegistrationPortlet extends GenericPortlet {
 		// -- NOTE : You can't transfer complex objects
 		// -- from action request to render request using setRenderParameter
 		//-- method
-		request.setAttribute("user", new User(
-				request.getParameter("firstName"), request
-						.getParameter("lastName"), email));
+		User user = new User(request.getParameter("firstName"), request
+				.getParameter("lastName"), email);
+		request.setAttribute("user", user);
 		
 		//-- if email is not entered, show an error message. the
 		//-- message is read from the resource bundle and forwarded
 		//-- to render request as request attribute
 		if (email == null || email.trim().equals("")) {
-			ResourceBundle bundle = getPortletConfig().getResourceBundle(
-					request.getLocale());
-			request.setAttribute("errorMsg", bundle
-					.getString("email.errorMsg.missing"));
-			
-			//--set actionStatus to error
-			request.setAttribute("actionStatus", "error");
-		} else {
-			// --save the user information in the database - not implemented yet
-			// -- to show the success page, pass the information of success to
-			// render method
-			request.setAttribute("actionStatus", "success");
+			setError(request, "email.errorMsg.missing");
+			return;
+		}
+		// --save the user information in the registration store
+		try {
+			if (registrationStore.register(user) == RegistrationStore.Result.DUPLICATE_EMAIL) {
+				setError(request, "email.errorMsg.registered");
+				return;
+			}
+		} catch (IOException e) {
+			getPortletContext().log("Could not register " + email, e);
+			setError(request, "registration.errorMsg.failed");
+			return;
 		}
+		// -- to show the success page, pass the information of success to
+		// render method
+		request.setAttribute("actionStatus", "success");
+	}
+
+	private void setError(ActionRequest request, String messageKey) {
+		ResourceBundle bundle = getPortletConfig().getResourceBundle(
+				request.getLocale());
+		request.setAttribute("errorMsg", bundle.getString(messageKey));
+
+		//--set actionStatus to error
+		request.setAttribute("actionStatus", "error");
 	}
 
 	/**
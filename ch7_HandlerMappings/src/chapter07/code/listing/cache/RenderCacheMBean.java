@@ -0,0 +1,14 @@
+package chapter07.code.listing.cache;
+
+/**
+ * JMX management interface of RenderCache.
+ */
+public interface RenderCacheMBean {
+	/**
+	 * @return the hits, misses and hit ratio of each handler
+	 */
+	String[] getHandlerStatistics();
+	int getSize();
+	void resetStatistics();
+	void evictAll();
+}
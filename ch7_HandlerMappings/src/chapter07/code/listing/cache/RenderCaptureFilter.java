@@ -0,0 +1,114 @@
+package chapter07.code.listing.cache;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+
+import javax.portlet.PortletException;
+import javax.portlet.RenderRequest;
+import javax.portlet.RenderResponse;
+import javax.portlet.filter.FilterChain;
+import javax.portlet.filter.FilterConfig;
+import javax.portlet.filter.RenderFilter;
+import javax.portlet.filter.RenderResponseWrapper;
+
+/**
+ * Render filter which lets the RenderCacheInterceptor capture the output of
+ * the render request. The output is written to the portlet response as
+ * usual, and copied to a buffer once the interceptor has started the
+ * capture.
+ */
+public class RenderCaptureFilter implements RenderFilter {
+	static final String CAPTURE_ATTR = RenderCaptureFilter.class.getName() + ".capture";
+
+	public void init(FilterConfig filterConfig) throws PortletException {
+	}
+
+	public void doFilter(RenderRequest request, RenderResponse response,
+			FilterChain filterChain) throws IOException, PortletException {
+		CapturingResponseWrapper responseWrapper = new CapturingResponseWrapper(response);
+		request.setAttribute(CAPTURE_ATTR, responseWrapper);
+		try {
+			filterChain.doFilter(request, responseWrapper);
+		} finally {
+			request.removeAttribute(CAPTURE_ATTR);
+		}
+	}
+
+	public void destroy() {
+	}
+
+	static class CapturingResponseWrapper extends RenderResponseWrapper {
+		private CharArrayWriter capture;
+		private boolean captureFailed;
+		private PrintWriter writer;
+
+		CapturingResponseWrapper(RenderResponse response) {
+			super(response);
+		}
+
+		void startCapture() {
+			capture = new CharArrayWriter();
+		}
+
+		/**
+		 * @return the output written since the capture started, or null if
+		 *         it could not be captured
+		 */
+		String getCapturedOutput() {
+			return capture == null || captureFailed ? null : capture.toString();
+		}
+
+		public PrintWriter getWriter() throws IOException {
+			if (writer == null) {
+				writer = new PrintWriter(new TeeWriter(super.getWriter()));
+			}
+			return writer;
+		}
+
+		public OutputStream getPortletOutputStream() throws IOException {
+			//-- binary output is not cached
+			captureFailed = true;
+			return super.getPortletOutputStream();
+		}
+
+		public void reset() {
+			super.reset();
+			if (capture != null) {
+				capture.reset();
+			}
+		}
+
+		public void resetBuffer() {
+			super.resetBuffer();
+			if (capture != null) {
+				capture.reset();
+			}
+		}
+
+		private class TeeWriter extends Writer {
+			private final Writer out;
+
+			TeeWriter(Writer out) {
+				this.out = out;
+			}
+
+			public void write(char[] cbuf, int off, int len) throws IOException {
+				out.write(cbuf, off, len);
+				if (capture != null) {
+					capture.write(cbuf, off, len);
+				}
+			}
+
+			public void flush() throws IOException {
+				out.flush();
+			}
+
+			public void close() throws IOException {
+				out.close();
+			}
+		}
+	}
+}
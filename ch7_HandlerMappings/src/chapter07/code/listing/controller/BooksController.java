@@ -12,6 +12,7 @@ import org.springframework.ui.ModelMap;
 import org.springframework.web.portlet.ModelAndView;
 import org.springframework.web.portlet.mvc.AbstractController;
 
+import chapter07.code.listing.cache.CachedRender;
 import chapter07.code.listing.domain.Book;
 import chapter07.code.listing.service.BookService;
 
@@ -21,6 +22,7 @@ import chapter07.code.listing.service.BookService;
  * @author asarin
  *
  */
+@CachedRender
 public class BooksController extends AbstractController {
 	private BookService bookService;
 	
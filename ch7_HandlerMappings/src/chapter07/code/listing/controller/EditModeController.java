@@ -10,12 +10,15 @@ import javax.portlet.RenderResponse;
 
 import org.springframework.web.portlet.ModelAndView;
 import org.springframework.web.portlet.mvc.Controller;
+
+import chapter07.code.listing.cache.CachedRender;
 /**
  * Controller that handles portlet requests in EDIT mode.
  * 
  * @author asarin
  *
  */
+@CachedRender(shared = true)
 public class EditModeController implements Controller {
 
 	public void handleActionRequest(ActionRequest request, ActionResponse response)
@@ -15,6 +15,7 @@ import org.springframework.ui.ModelMap;
 import org.springframework.web.portlet.ModelAndView;
 import org.springframework.web.portlet.mvc.Controller;
 
+import chapter07.code.listing.cache.CachedRender;
 import chapter07.code.listing.domain.Book;
 import chapter07.code.listing.exceptions.MissingParameterException;
 import chapter07.code.listing.service.BookService;
@@ -26,6 +27,7 @@ import chapter07.code.listing.service.BookService;
  * @author asarin
  *
  */
+@CachedRender(params = { "myaction", "isbnNumber" }, skipIfAttributes = "errors")
 public class ViewModeController implements Controller {
 	private BookService bookService;
 	private Logger logger = Logger.getLogger(ViewModeController.class);
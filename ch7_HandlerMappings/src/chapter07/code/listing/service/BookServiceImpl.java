@@ -3,19 +3,24 @@ package chapter07.code.listing.service;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
+import chapter07.code.listing.cache.RenderVersionSupplier;
 import chapter07.code.listing.domain.Book;
 
 /**
- * Implementation of BookService interface.
+ * Implementation of BookService interface. The version of the catalog is
+ * used as part of the key of the cached render output.
  * 
  * @author asarin
  *
  */
-public class BookServiceImpl implements BookService {
+public class BookServiceImpl implements BookService, RenderVersionSupplier {
 
 	private List<Book> books = Collections
 			.synchronizedList(new ArrayList<Book>());
+	//-- incremented each time the catalog is changed
+	private final AtomicLong version = new AtomicLong();
 
 	public BookServiceImpl() {
 		books.add(new Book("AspectJ in Action, Second Edition",
@@ -36,14 +41,20 @@ public class BookServiceImpl implements BookService {
 		return books;
 	}
 
+	public long getVersion() {
+		return version.get();
+	}
+
 	public void addBook(Book book) {
 		books.add(book);
+		version.incrementAndGet();
 	}
 
 	public void removeBook(Long isbnNumber) {
 		synchronized (books) {
 			books.remove(getBook(isbnNumber));
 		}
+		version.incrementAndGet();
 	}
 
 	public boolean isUniqueISBN(Long isbnNumber) {
@@ -93,5 +104,6 @@ public class BookServiceImpl implements BookService {
 			books.remove(matchingBook);
 			books.add(book);
 		}
+		version.incrementAndGet();
 	}
 }
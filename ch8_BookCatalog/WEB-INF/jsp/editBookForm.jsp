@@ -17,6 +17,7 @@
 			<a href="${homeUrl}">Home</a>
 		</tr>
 	</table>
+	<font style="color: #C11B17;"><form:errors /></font>
 	<table>
 		<tr>
 			<td>Title:<font style="color: #C11B17;">*</font></td>
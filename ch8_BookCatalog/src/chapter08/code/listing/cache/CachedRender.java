@@ -0,0 +1,41 @@
+package chapter08.code.listing.cache;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a handler whose render output can be cached by the
+ * RenderCacheInterceptor. The output is cached per portlet window, portlet
+ * mode, window state, locale, version of the RenderVersionSupplier and the
+ * values of the given request parameters, and, unless shared is true, per
+ * portlet session.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CachedRender {
+	/**
+	 * Request parameters whose values select the output.
+	 */
+	String[] params() default {};
+
+	/**
+	 * Seconds for which the output is cached.
+	 */
+	int expirationSeconds() default 300;
+
+	/**
+	 * Set to true if the output is the same for every user. Output which
+	 * contains action URLs or user data must not be shared.
+	 */
+	boolean shared() default false;
+
+	/**
+	 * Request attributes which, when set, make the output uncacheable, for
+	 * instance the validation errors of a form.
+	 */
+	String[] skipIfAttributes() default {};
+}
@@ -0,0 +1,225 @@
+package chapter08.code.listing.cache;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Least recently used cache of render output, used by the
+ * RenderCacheInterceptor. Keeps hit and miss counts per handler and offers
+ * methods to evict the output of all handlers or of a single handler, for
+ * changes which are not reflected by the RenderVersionSupplier. If an
+ * objectName is set, the hit and miss counts are exported over JMX.
+ */
+public class RenderCache implements RenderCacheMBean {
+	private Logger logger = Logger.getLogger(RenderCache.class);
+	private int maxEntries = 1000;
+	private String objectName;
+	private volatile boolean registrationAttempted;
+	private ObjectName registeredName;
+	private final Map<String, CachedOutput> entries = new LinkedHashMap<String, CachedOutput>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		protected boolean removeEldestEntry(Map.Entry<String, CachedOutput> eldest) {
+			return size() > maxEntries;
+		}
+	};
+	private final ConcurrentMap<String, HandlerStatistics> statistics = new ConcurrentHashMap<String, HandlerStatistics>();
+
+	public void setMaxEntries(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	public void setObjectName(String objectName) {
+		this.objectName = objectName;
+	}
+
+	/**
+	 * Registers the cache with the platform MBeanServer under objectName, with
+	 * a context key holding the context path of the portlet application, so
+	 * that the caches of several applications don't collide. Only requests
+	 * know the context path, so the RenderCacheInterceptor registers the cache
+	 * on the first render request. The portlet libraries don't include
+	 * spring-aop, which the Spring MBeanExporter needs, so the cache registers
+	 * itself.
+	 */
+	public void registerMBean(String contextPath) {
+		if (objectName == null || registrationAttempted) {
+			return;
+		}
+		synchronized (this) {
+			if (registrationAttempted) {
+				return;
+			}
+			registrationAttempted = true;
+			try {
+				ObjectName name = new ObjectName(objectName + ",context=" + ObjectName.quote(contextPath));
+				ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+				registeredName = name;
+			} catch (JMException e) {
+				//-- e.g. an earlier deployment of the same context path was not shut down
+				logger.warn("RenderCache is not exported over JMX", e);
+			}
+		}
+	}
+
+	/**
+	 * Unregisters the MBean registered by this cache, if any.
+	 */
+	public synchronized void unregisterMBean() throws JMException {
+		if (registeredName == null) {
+			return;
+		}
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		if (server.isRegistered(registeredName)) {
+			server.unregisterMBean(registeredName);
+		}
+		registeredName = null;
+	}
+
+	/**
+	 * @return the name the cache is registered under, or null if it is not
+	 *         registered
+	 */
+	public synchronized ObjectName getRegisteredName() {
+		return registeredName;
+	}
+
+	/**
+	 * Returns the cached output, and counts a hit or a miss for the handler.
+	 */
+	public CachedOutput get(String handlerName, String key) {
+		CachedOutput entry;
+		synchronized (entries) {
+			entry = entries.get(key);
+			if (entry != null && entry.expiresAt <= System.currentTimeMillis()) {
+				entries.remove(key);
+				entry = null;
+			}
+		}
+		HandlerStatistics handlerStatistics = getStatistics(handlerName);
+		if (entry == null) {
+			handlerStatistics.misses.incrementAndGet();
+		} else {
+			handlerStatistics.hits.incrementAndGet();
+		}
+		return entry;
+	}
+
+	public void put(String handlerName, String key, String output,
+			String contentType, int expirationSeconds) {
+		CachedOutput entry = new CachedOutput(handlerName, output, contentType,
+				System.currentTimeMillis() + expirationSeconds * 1000L);
+		synchronized (entries) {
+			entries.put(key, entry);
+		}
+	}
+
+	/**
+	 * Removes the output of all handlers.
+	 */
+	public void evictAll() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	/**
+	 * Removes the output of the given handler.
+	 */
+	public void evict(Class<?> handlerType) {
+		String handlerName = handlerType.getName();
+		synchronized (entries) {
+			for (Iterator<CachedOutput> it = entries.values().iterator(); it.hasNext();) {
+				if (it.next().handlerName.equals(handlerName)) {
+					it.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return hits and misses per handler class name
+	 */
+	public Map<String, String> getStatistics() {
+		Map<String, String> result = new TreeMap<String, String>();
+		for (Map.Entry<String, HandlerStatistics> entry : statistics.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().toString());
+		}
+		return result;
+	}
+
+	public String[] getHandlerStatistics() {
+		List<String> result = new ArrayList<String>();
+		for (Map.Entry<String, String> entry : getStatistics().entrySet()) {
+			result.add(entry.getKey() + ": " + entry.getValue());
+		}
+		return result.toArray(new String[result.size()]);
+	}
+
+	public int getSize() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	public void resetStatistics() {
+		statistics.clear();
+	}
+
+	private HandlerStatistics getStatistics(String handlerName) {
+		HandlerStatistics handlerStatistics = statistics.get(handlerName);
+		if (handlerStatistics == null) {
+			statistics.putIfAbsent(handlerName, new HandlerStatistics());
+			handlerStatistics = statistics.get(handlerName);
+		}
+		return handlerStatistics;
+	}
+
+	public static class CachedOutput {
+		private final String handlerName;
+		private final String output;
+		private final String contentType;
+		private final long expiresAt;
+
+		CachedOutput(String handlerName, String output, String contentType, long expiresAt) {
+			this.handlerName = handlerName;
+			this.output = output;
+			this.contentType = contentType;
+			this.expiresAt = expiresAt;
+		}
+
+		public String getOutput() {
+			return output;
+		}
+
+		public String getContentType() {
+			return contentType;
+		}
+	}
+
+	private static class HandlerStatistics {
+		private final AtomicLong hits = new AtomicLong();
+		private final AtomicLong misses = new AtomicLong();
+
+		public String toString() {
+			long hitCount = hits.get();
+			long total = hitCount + misses.get();
+			return "hits=" + hitCount + ", misses=" + (total - hitCount)
+					+ ", hitRatio=" + (total == 0 ? 0 : hitCount * 100 / total) + "%";
+		}
+	}
+}
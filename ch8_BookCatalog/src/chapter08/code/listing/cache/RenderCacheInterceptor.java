@@ -0,0 +1,167 @@
+package chapter08.code.listing.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.portlet.PortletSession;
+import javax.portlet.RenderRequest;
+import javax.portlet.RenderResponse;
+
+import org.apache.log4j.Logger;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.web.portlet.ModelAndView;
+import org.springframework.web.portlet.handler.HandlerInterceptorAdapter;
+
+/**
+ * Interceptor which caches the render output of the handlers annotated with
+ * CachedRender. On a cache hit the cached output is written to the response
+ * and neither the handler nor the view is invoked. On a miss the output is
+ * captured through the RenderCaptureFilter, which must be mapped to the
+ * portlet in portlet.xml, and cached if the handler completed normally.
+ * Output which is cached per session is not cached for requests without a
+ * portlet session, so that the interceptor never creates a session.
+ */
+public class RenderCacheInterceptor extends HandlerInterceptorAdapter {
+	private static final String KEY_ATTR = RenderCacheInterceptor.class.getName() + ".key";
+	private static final String HANDLED_ATTR = RenderCacheInterceptor.class.getName() + ".handled";
+	//-- handler classes which are not annotated are mapped to this value
+	private static final CachedRender NOT_CACHED = NotCached.class.getAnnotation(CachedRender.class);
+	private Logger logger = Logger.getLogger(RenderCacheInterceptor.class);
+
+	private RenderCache renderCache;
+	private RenderVersionSupplier versionSupplier;
+	private final Map<Class<?>, CachedRender> annotations = new ConcurrentHashMap<Class<?>, CachedRender>();
+
+	public void setRenderCache(RenderCache renderCache) {
+		this.renderCache = renderCache;
+	}
+
+	public void setVersionSupplier(RenderVersionSupplier versionSupplier) {
+		this.versionSupplier = versionSupplier;
+	}
+
+	public boolean preHandleRender(RenderRequest request,
+			RenderResponse response, Object handler) throws Exception {
+		//-- the context path is needed for the MBean name
+		renderCache.registerMBean(request.getContextPath());
+		CachedRender cachedRender = getCachedRender(handler);
+		if (cachedRender == null) {
+			return true;
+		}
+		for (String attribute : cachedRender.skipIfAttributes()) {
+			if (request.getAttribute(attribute) != null) {
+				return true;
+			}
+		}
+		String handlerName = handler.getClass().getName();
+		String key = buildKey(request, response, handlerName, cachedRender);
+		if (key == null) {
+			return true;
+		}
+		RenderCache.CachedOutput entry = renderCache.get(handlerName, key);
+		if (entry != null) {
+			if (entry.getContentType() != null) {
+				response.setContentType(entry.getContentType());
+			}
+			response.getWriter().write(entry.getOutput());
+			return false;
+		}
+		RenderCaptureFilter.CapturingResponseWrapper capture = getCapture(request);
+		if (capture != null) {
+			capture.startCapture();
+			request.setAttribute(KEY_ATTR, key);
+		} else {
+			logger.warn("RenderCaptureFilter is not mapped to the portlet, output of "
+					+ handlerName + " is not cached");
+		}
+		return true;
+	}
+
+	public void postHandleRender(RenderRequest request,
+			RenderResponse response, Object handler, ModelAndView modelAndView)
+			throws Exception {
+		//-- only called if the handler did not throw an exception, otherwise
+		//-- the output is the error view of the exception resolver
+		if (request.getAttribute(KEY_ATTR) != null) {
+			request.setAttribute(HANDLED_ATTR, Boolean.TRUE);
+		}
+	}
+
+	public void afterRenderCompletion(RenderRequest request,
+			RenderResponse response, Object handler, Exception ex)
+			throws Exception {
+		String key = (String) request.getAttribute(KEY_ATTR);
+		if (key == null) {
+			return;
+		}
+		boolean handled = request.getAttribute(HANDLED_ATTR) != null;
+		request.removeAttribute(KEY_ATTR);
+		request.removeAttribute(HANDLED_ATTR);
+		RenderCaptureFilter.CapturingResponseWrapper capture = getCapture(request);
+		if (ex != null || !handled || capture == null) {
+			return;
+		}
+		String output = capture.getCapturedOutput();
+		//-- nothing is captured if the portlet container unwraps the response
+		//-- when including the view
+		if (output != null && output.length() > 0) {
+			renderCache.put(handler.getClass().getName(), key, output,
+					response.getContentType(), getCachedRender(handler).expirationSeconds());
+		}
+	}
+
+	/**
+	 * @return the cache key, or null if the output is cached per session and
+	 *         the request has no portlet session
+	 */
+	private String buildKey(RenderRequest request, RenderResponse response,
+			String handlerName, CachedRender cachedRender) {
+		PortletSession session = null;
+		if (!cachedRender.shared()) {
+			session = request.getPortletSession(false);
+			if (session == null) {
+				return null;
+			}
+		}
+		StringBuilder key = new StringBuilder(handlerName);
+		key.append('|').append(response.getNamespace());
+		key.append('|').append(request.getPortletMode());
+		key.append('|').append(request.getWindowState());
+		key.append('|').append(request.getLocale());
+		if (versionSupplier != null) {
+			key.append('|').append(versionSupplier.getVersion());
+		}
+		for (String param : cachedRender.params()) {
+			key.append('|').append(param).append('=');
+			String[] values = request.getParameterValues(param);
+			if (values != null) {
+				for (String value : values) {
+					key.append(value).append(',');
+				}
+			}
+		}
+		if (session != null) {
+			key.append('|').append(session.getId());
+		}
+		return key.toString();
+	}
+
+	private CachedRender getCachedRender(Object handler) {
+		Class<?> handlerType = handler.getClass();
+		CachedRender cachedRender = annotations.get(handlerType);
+		if (cachedRender == null) {
+			cachedRender = AnnotationUtils.findAnnotation(handlerType, CachedRender.class);
+			annotations.put(handlerType, cachedRender == null ? NOT_CACHED : cachedRender);
+		}
+		return cachedRender == NOT_CACHED ? null : cachedRender;
+	}
+
+	private RenderCaptureFilter.CapturingResponseWrapper getCapture(RenderRequest request) {
+		return (RenderCaptureFilter.CapturingResponseWrapper) request
+				.getAttribute(RenderCaptureFilter.CAPTURE_ATTR);
+	}
+
+	@CachedRender
+	private static class NotCached {
+	}
+}
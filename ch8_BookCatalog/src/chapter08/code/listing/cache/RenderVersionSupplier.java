@@ -0,0 +1,13 @@
+package chapter08.code.listing.cache;
+
+/**
+ * Supplies the version of the data shown by the cached handlers. The version
+ * is part of the cache key, so changing it makes the RenderCacheInterceptor
+ * render the output again.
+ */
+public interface RenderVersionSupplier {
+	/**
+	 * @return a number which changes each time the data changes
+	 */
+	long getVersion();
+}
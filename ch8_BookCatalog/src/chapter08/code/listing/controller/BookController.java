@@ -4,6 +4,7 @@ import java.util.List;
 
 import javax.portlet.RenderResponse;
 
+import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Controller;
@@ -12,8 +13,10 @@ import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.portlet.bind.annotation.RenderMapping;
 
+import chapter08.code.listing.cache.CachedRender;
 import chapter08.code.listing.domain.Book;
 import chapter08.code.listing.service.BookService;
+import chapter08.code.listing.utils.LazyList;
 
 /**
  * BookController shows the books in the book Catalog.
@@ -22,6 +25,7 @@ import chapter08.code.listing.service.BookService;
  */
 @Controller(value="bookController")
 @RequestMapping(value = "VIEW")
+@CachedRender
 public class BookController {
 
 	// -- auto-wiring of service dependency
@@ -44,9 +48,14 @@ public class BookController {
 		return "errorPage";
 	}
 	
-	// -- @ModelAttribute here works as the referenceData method
+	// -- @ModelAttribute here works as the referenceData method. The books
+	// -- are read from the BookService only when the view accesses the list
 	@ModelAttribute(value="books")
 	public List<Book> getBooks() {
-		return bookService.getBooks();
+		return new LazyList<Book>(new ObjectFactory<List<Book>>() {
+			public List<Book> getObject() {
+				return bookService.getBooks();
+			}
+		});
 	}
 }
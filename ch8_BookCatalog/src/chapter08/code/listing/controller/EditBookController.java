@@ -19,6 +19,7 @@ import org.springframework.web.portlet.bind.annotation.ActionMapping;
 import org.springframework.web.portlet.bind.annotation.RenderMapping;
 
 import chapter08.code.listing.domain.Book;
+import chapter08.code.listing.service.BookConflictException;
 import chapter08.code.listing.service.BookService;
 import chapter08.code.listing.utils.LongNumberPropertyEditor;
 
@@ -48,26 +49,45 @@ public class EditBookController {
 	public void editBook(@ModelAttribute("book") Book book, BindingResult bindingResult, ActionResponse response, SessionStatus sessionStatus)  {
 		myValidator.validate(book, bindingResult);
 		if (!bindingResult.hasErrors()) {
-			bookService.editBook(book);
-			response.setRenderParameter("myaction", "books");
-			sessionStatus.setComplete();
-		} else {
-			//--this is required. the getBook method is not invoked but the @RequestParam
-			//--is still evaluated
-			response.setRenderParameter("isbnNumber", book.getIsbnNumber().toString());
-			response.setRenderParameter("myaction", "editBookForm");
+			try {
+				bookService.editBook(book);
+				response.setRenderParameter("myaction", "books");
+				sessionStatus.setComplete();
+				return;
+			} catch (BookConflictException ex) {
+				Book currentBook = ex.getCurrentBook();
+				if (currentBook == null) {
+					//--the book was removed, so there is nothing left to edit
+					response.setRenderParameter("myaction", "books");
+					sessionStatus.setComplete();
+					return;
+				}
+				//--show the book as edited by the other user, so that the changes
+				//--can be made again on the latest version
+				book.setName(currentBook.getName());
+				book.setAuthor(currentBook.getAuthor());
+				book.setVersion(currentBook.getVersion());
+				bindingResult.reject("conflict.book");
+			}
 		}
+		//--this is required. the getBook method is not invoked but the @RequestParam
+		//--is still evaluated
+		response.setRenderParameter("isbnNumber", book.getIsbnNumber().toString());
+		response.setRenderParameter("myaction", "editBookForm");
 	}
 	
 	@InitBinder("book")
 	public void initBinder(WebDataBinder binder) {
 		binder.registerCustomEditor(Long.class, new LongNumberPropertyEditor());
-		binder.setDisallowedFields(new String[] {"isbnNumber"});
+		binder.setDisallowedFields(new String[] {"isbnNumber", "version"});
 	}
 	
 	@ModelAttribute("book")
 	public Book getBook(@RequestParam Long isbnNumber) {
-		return bookService.getBook(isbnNumber);
+		//--the book returned by the BookService is read-only, the form is bound
+		//--to a copy which also remembers the version of the book being edited
+		Book book = bookService.getBook(isbnNumber);
+		return book == null ? null : new Book(book);
 	}
 	
 	@ExceptionHandler({ Exception.class })
@@ -17,6 +17,8 @@ public class Book {
 	private String author;
 	@Unique
 	private Long isbnNumber;
+	//-- incremented by the BookService each time the book is edited
+	private long version;
 	
 	public Book(String name, String author, long isbnNumber) {
 		this.name = name;
@@ -25,6 +27,16 @@ public class Book {
 	}
 	public Book() {
 	}
+	
+	/**
+	 * Creates a copy of the given book.
+	 */
+	public Book(Book book) {
+		this.name = book.name;
+		this.author = book.author;
+		this.isbnNumber = book.isbnNumber;
+		this.version = book.version;
+	}
 	public String getName() {
 		return name;
 	}
@@ -48,6 +60,14 @@ public class Book {
 	public void setIsbnNumber(Long isbnNumber) {
 		this.isbnNumber = isbnNumber;
 	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public void setVersion(long version) {
+		this.version = version;
+	}
 	
 	@Override
 	public boolean equals(Object otherObject) {
@@ -0,0 +1,26 @@
+package chapter08.code.listing.service;
+
+import chapter08.code.listing.domain.Book;
+
+/**
+ * Thrown by the BookService when a book can't be added or edited because
+ * another request changed the same book first.
+ */
+public class BookConflictException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+	private final Book currentBook;
+
+	public BookConflictException(String message, Book currentBook) {
+		super(message);
+		this.currentBook = currentBook;
+	}
+
+	/**
+	 * The book as it is now in the catalog.
+	 * 
+	 * @return the current book, or null if the book was removed
+	 */
+	public Book getCurrentBook() {
+		return currentBook;
+	}
+}
@@ -14,7 +14,7 @@ public interface BookService {
 	/**
 	 * Retrieve book list.
 	 * 
-	 * @return all books in the catalog
+	 * @return all books in the catalog. The list and the books can't be modified
 	 */
 	List<Book> getBooks();
 	
@@ -22,6 +22,7 @@ public interface BookService {
 	 * Adds a book to the catalog
 	 * 
 	 * @param book to added to the catalog
+	 * @throws BookConflictException if a book with the same ISBN number exists
 	 */
 	void addBook(Book book);
 	
@@ -34,11 +35,33 @@ public interface BookService {
 	 */
 	boolean isUniqueISBN(Long isbnNumber);
 	
+	/**
+	 * Reserves the ISBN number for the owner, so that other owners can't
+	 * reserve it till the reservation is released, expires or the book is
+	 * added to the catalog. Reserving the same ISBN number again renews the
+	 * reservation of the owner.
+	 * 
+	 * @param isbnNumber ISBN number to reserve
+	 * @param owner identifies the user who is adding the book, for instance the session id
+	 * 
+	 * @return true if no book with matching isbnNumber is found in the catalog and
+	 * the ISBN number is not reserved by another owner
+	 */
+	boolean reserveISBN(Long isbnNumber, String owner);
+	
+	/**
+	 * Releases the ISBN numbers reserved by the owner.
+	 * 
+	 * @param owner owner of the reservations
+	 */
+	void releaseISBNReservations(String owner);
+	
 	/**
 	 * Retrieve a book based on its ISBN number.
 	 * 
 	 * @param isbnNumber ISBN number of the book which needs to be retrieved
-	 * @return book with the specified ISBN number
+	 * @return book with the specified ISBN number. The book can't be modified,
+	 * use the Book(Book) constructor to get a copy which can be edited
 	 */
 	Book getBook(Long isbnNumber);
 	
@@ -53,6 +76,8 @@ public interface BookService {
 	 * Update the Book in the catalog.
 	 * 
 	 * @param book the modified Book
+	 * @throws BookConflictException if the book was edited or removed since
+	 * the version of the modified Book was read
 	 */
 	void editBook(Book book);
 }
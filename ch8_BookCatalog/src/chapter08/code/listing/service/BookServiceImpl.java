@@ -2,82 +2,217 @@ package chapter08.code.listing.service;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.springframework.stereotype.Service;
 
+import chapter08.code.listing.cache.RenderVersionSupplier;
 import chapter08.code.listing.domain.Book;
+
+/**
+ * BookService which keeps the catalog in memory, in a map keyed by ISBN
+ * number. The books returned to the readers are read-only and shared, so
+ * no copy is made when a book is read. Each edit replaces the book with a
+ * new one having the next version number, and fails with a
+ * BookConflictException if the book was edited by somebody else since it
+ * was read.
+ *
+ * A user adding a book reserves its ISBN number while the book is validated,
+ * so that no other user can add a book with the same ISBN number in the
+ * meantime. The reservation ends when the book is added, when it is released
+ * or when it expires.
+ */
 @Service(value="myBookService")
-public class BookServiceImpl implements BookService {
-	private List<Book> books = Collections.synchronizedList(new ArrayList<Book>());
+public class BookServiceImpl implements BookService, RenderVersionSupplier {
+	//-- 10 minutes, the time a user may take to correct the add book form
+	private static final long DEFAULT_RESERVATION_TTL_MILLIS = 10 * 60 * 1000;
+	private final ConcurrentMap<Long, Entry> books = new ConcurrentHashMap<Long, Entry>();
+	//-- orders the books in the order in which they were added
+	private final AtomicLong nextSequence = new AtomicLong();
+	//-- incremented after each change to the books map
+	private final AtomicLong modCount = new AtomicLong();
+	private volatile Snapshot snapshot;
+	private final ConcurrentMap<Long, Reservation> reservations = new ConcurrentHashMap<Long, Reservation>();
+	private volatile long reservationTtlMillis = DEFAULT_RESERVATION_TTL_MILLIS;
 
 	public BookServiceImpl() {
-		books.add(new Book("AspectJ in Action, Second Edition", "Ramnivas Laddad", Long.valueOf("1933988053")));
-		books.add(new Book("ActiveMQ in Action", "Bruce Snyder, Dejan Bosanac, and Rob Davies", Long.valueOf("1933988940")));
-		books.add(new Book("Hadoop in Action", "Chuck Lam", Long.valueOf("9781935182191")));
-		books.add(new Book("JUnit in Action, Second Edition", "Petar Tahchiev, Felipe Leme, Vincent Massol, and Gary Gregory", Long.valueOf("9781935182023")));
+		addBook(new Book("AspectJ in Action, Second Edition", "Ramnivas Laddad", Long.valueOf("1933988053")));
+		addBook(new Book("ActiveMQ in Action", "Bruce Snyder, Dejan Bosanac, and Rob Davies", Long.valueOf("1933988940")));
+		addBook(new Book("Hadoop in Action", "Chuck Lam", Long.valueOf("9781935182191")));
+		addBook(new Book("JUnit in Action, Second Edition", "Petar Tahchiev, Felipe Leme, Vincent Massol, and Gary Gregory", Long.valueOf("9781935182023")));
+	}
+
+	/**
+	 * Returns a number which changes each time a book is added, edited or
+	 * removed. Used as part of the key of the cached render output.
+	 */
+	public long getVersion() {
+		return modCount.get();
+	}
+
+	public void setReservationTtlMillis(long reservationTtlMillis) {
+		this.reservationTtlMillis = reservationTtlMillis;
 	}
 
+	/**
+	 * Returns an unmodifiable list of the books. The list is rebuilt only
+	 * when the catalog has changed since the last call.
+	 */
 	public List<Book> getBooks() {
-		return books;
+		long count = modCount.get();
+		Snapshot current = snapshot;
+		if (current != null && current.modCount == count) {
+			return current.books;
+		}
+		List<Entry> entries = new ArrayList<Entry>(books.values());
+		Collections.sort(entries, new Comparator<Entry>() {
+			public int compare(Entry e1, Entry e2) {
+				return e1.sequence < e2.sequence ? -1 : (e1.sequence == e2.sequence ? 0 : 1);
+			}
+		});
+		List<Book> bookList = new ArrayList<Book>(entries.size());
+		for (Entry entry : entries) {
+			bookList.add(entry.book);
+		}
+		current = new Snapshot(count, Collections.unmodifiableList(bookList));
+		snapshot = current;
+		return current.books;
 	}
 
 	public void addBook(Book book) {
-		books.add(book);
+		Entry entry = new Entry(new ReadOnlyBook(book, 0), nextSequence.getAndIncrement());
+		Entry existing = books.putIfAbsent(book.getIsbnNumber(), entry);
+		if (existing != null) {
+			throw new BookConflictException("Book " + book.getIsbnNumber()
+					+ " already exists", existing.book);
+		}
+		modCount.incrementAndGet();
+		//-- the book now holds the ISBN number, the reservation is not needed
+		reservations.remove(book.getIsbnNumber());
 	}
 
 	public void removeBook(Long isbnNumber) {
-		synchronized(books) {
-			books.remove(getBook(isbnNumber));
+		if (isbnNumber != null && books.remove(isbnNumber) != null) {
+			modCount.incrementAndGet();
 		}
 	}
-	
+
 	public boolean isUniqueISBN(Long isbnNumber) {
-		boolean isUnique = true;
-		for(Book book : books) {
-			if(book.getIsbnNumber().equals(isbnNumber)) {
-				isUnique = false;
+		return isbnNumber == null || !books.containsKey(isbnNumber);
+	}
+
+	public boolean reserveISBN(Long isbnNumber, String owner) {
+		if (isbnNumber == null) {
+			return true;
+		}
+		long now = System.currentTimeMillis();
+		Reservation reservation = new Reservation(owner, now + reservationTtlMillis);
+		while (true) {
+			if (books.containsKey(isbnNumber)) {
+				return false;
+			}
+			Reservation existing = reservations.putIfAbsent(isbnNumber, reservation);
+			if (existing == null) {
+				break;
+			}
+			if (!existing.owner.equals(owner) && existing.expiresAt > now) {
+				return false;
+			}
+			//-- renew the owner's reservation or take over an expired one
+			if (reservations.replace(isbnNumber, existing, reservation)) {
 				break;
 			}
 		}
-		return isUnique;
+		//-- a book added without a reservation, while the ISBN number was
+		//-- being reserved, wins
+		if (books.containsKey(isbnNumber)) {
+			reservations.remove(isbnNumber, reservation);
+			return false;
+		}
+		return true;
 	}
 
-	public Book getBook(Long isbnNumber) {
-		Book matchingBook = null;
-		Book returnBook = null;
-
-		synchronized (books) {
-			for (Book book : books) {
-				if (book.getIsbnNumber().equals(isbnNumber)) {
-					matchingBook = book;
-					break;
-				}
-			}
-			// --create shallow copy of the Book object
-			if (matchingBook != null) {
-				returnBook = new Book();
-				returnBook.setAuthor(matchingBook.getAuthor());
-				returnBook.setIsbnNumber(matchingBook.getIsbnNumber());
-				returnBook.setName(matchingBook.getName());
+	public void releaseISBNReservations(String owner) {
+		for (Map.Entry<Long, Reservation> entry : reservations.entrySet()) {
+			if (entry.getValue().owner.equals(owner)) {
+				reservations.remove(entry.getKey(), entry.getValue());
 			}
 		}
-		return returnBook;
 	}
-	
+
+	/**
+	 * Returns the read-only book with the given ISBN number. Use the
+	 * Book(Book) constructor to get a copy which can be edited.
+	 */
+	public Book getBook(Long isbnNumber) {
+		if (isbnNumber == null) {
+			return null;
+		}
+		Entry entry = books.get(isbnNumber);
+		return entry == null ? null : entry.book;
+	}
+
+	/**
+	 * Replaces the book having the same ISBN number, if its version is still
+	 * the version of the given book.
+	 *
+	 * @throws BookConflictException if the book was edited or removed since
+	 *             the given book was read
+	 */
 	public void editBook(Book book) {
 		Long isbnNumber = book.getIsbnNumber();
-		Book matchingBook = null;
-		
-		synchronized (books) {
-			for (Book book_ : books) {
-				if (book_.getIsbnNumber().equals(isbnNumber)) {
-					matchingBook = book_;
-					break;
-				}
-			}
-			books.remove(matchingBook);
-			books.add(book);
+		Entry current = books.get(isbnNumber);
+		if (current == null) {
+			throw new BookConflictException("Book " + isbnNumber + " was removed", null);
+		}
+		if (current.book.getVersion() != book.getVersion()) {
+			throw new BookConflictException("Book " + isbnNumber
+					+ " was edited by another user", current.book);
+		}
+		Entry edited = new Entry(new ReadOnlyBook(book, book.getVersion() + 1), current.sequence);
+		if (!books.replace(isbnNumber, current, edited)) {
+			Entry latest = books.get(isbnNumber);
+			throw new BookConflictException("Book " + isbnNumber
+					+ " was edited by another user", latest == null ? null : latest.book);
+		}
+		modCount.incrementAndGet();
+	}
+
+	//-- uses identity equals, so that replace only succeeds if the entry
+	//-- is the one that was read
+	private static final class Entry {
+		private final Book book;
+		private final long sequence;
+
+		Entry(Book book, long sequence) {
+			this.book = book;
+			this.sequence = sequence;
+		}
+	}
+
+	//-- uses identity equals, like Entry
+	private static final class Reservation {
+		private final String owner;
+		private final long expiresAt;
+
+		Reservation(String owner, long expiresAt) {
+			this.owner = owner;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	private static final class Snapshot {
+		private final long modCount;
+		private final List<Book> books;
+
+		Snapshot(long modCount, List<Book> books) {
+			this.modCount = modCount;
+			this.books = books;
 		}
 	}
 }
@@ -0,0 +1,37 @@
+package chapter08.code.listing.service;
+
+import chapter08.code.listing.domain.Book;
+
+/**
+ * Book returned by BookServiceImpl to its readers. The books in the catalog
+ * are shared by all the readers, so the setters throw an exception instead
+ * of changing the book. To change a book, create a copy with the
+ * Book(Book) constructor and pass it to BookService's editBook method.
+ */
+class ReadOnlyBook extends Book {
+
+	ReadOnlyBook(Book book, long version) {
+		super(book);
+		super.setVersion(version);
+	}
+
+	@Override
+	public void setName(String name) {
+		throw new UnsupportedOperationException("Book " + getIsbnNumber() + " is read-only");
+	}
+
+	@Override
+	public void setAuthor(String author) {
+		throw new UnsupportedOperationException("Book " + getIsbnNumber() + " is read-only");
+	}
+
+	@Override
+	public void setIsbnNumber(Long isbnNumber) {
+		throw new UnsupportedOperationException("Book " + getIsbnNumber() + " is read-only");
+	}
+
+	@Override
+	public void setVersion(long version) {
+		throw new UnsupportedOperationException("Book " + getIsbnNumber() + " is read-only");
+	}
+}
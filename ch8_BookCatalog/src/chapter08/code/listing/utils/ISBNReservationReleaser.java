@@ -0,0 +1,34 @@
+package chapter08.code.listing.utils;
+
+import java.io.Serializable;
+
+import javax.servlet.http.HttpSessionBindingEvent;
+import javax.servlet.http.HttpSessionBindingListener;
+
+import chapter08.code.listing.service.BookService;
+
+/**
+ * Session attribute which releases the ISBN numbers reserved by the session
+ * when the session is invalidated or times out. If the session is moved to
+ * another server the reservations are not released, and simply expire.
+ */
+public class ISBNReservationReleaser implements HttpSessionBindingListener, Serializable {
+	private static final long serialVersionUID = 1L;
+	private transient BookService bookService;
+	private final String owner;
+
+	public ISBNReservationReleaser(BookService bookService, String owner) {
+		this.bookService = bookService;
+		this.owner = owner;
+	}
+
+	public void valueBound(HttpSessionBindingEvent event) {
+		//-- do nothing
+	}
+
+	public void valueUnbound(HttpSessionBindingEvent event) {
+		if (bookService != null) {
+			bookService.releaseISBNReservations(owner);
+		}
+	}
+}
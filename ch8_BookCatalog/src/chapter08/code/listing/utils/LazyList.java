@@ -0,0 +1,51 @@
+package chapter08.code.listing.utils;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.springframework.beans.factory.ObjectFactory;
+
+/**
+ * Read-only list whose elements are obtained from an ObjectFactory the first
+ * time the list is accessed. Returned by @ModelAttribute methods, so that the
+ * data is read only if the view actually uses it, and not for every request
+ * handled by the controller. A model attribute is used by one request at a
+ * time, so the list is not thread-safe.
+ */
+public class LazyList<E> extends AbstractList<E> {
+	private final ObjectFactory<List<E>> factory;
+	private List<E> list;
+
+	public LazyList(ObjectFactory<List<E>> factory) {
+		this.factory = factory;
+	}
+
+	/**
+	 * @return true if the elements have been obtained from the ObjectFactory
+	 */
+	public boolean isLoaded() {
+		return list != null;
+	}
+
+	public E get(int index) {
+		return getList().get(index);
+	}
+
+	public int size() {
+		return getList().size();
+	}
+
+	public Iterator<E> iterator() {
+		return Collections.unmodifiableList(getList()).iterator();
+	}
+
+	private List<E> getList() {
+		if (list == null) {
+			List<E> loaded = factory.getObject();
+			list = loaded == null ? Collections.<E>emptyList() : loaded;
+		}
+		return list;
+	}
+}
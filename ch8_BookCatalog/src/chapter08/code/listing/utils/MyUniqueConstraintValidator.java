@@ -5,16 +5,23 @@ import javax.validation.ConstraintValidatorContext;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 import chapter08.code.listing.service.BookService;
 
 /**
- * Validator for the Unique constraint annotation.
+ * Validator for the Unique constraint annotation. While a request is being
+ * processed, the ISBN number is reserved for the user's session, so that two
+ * users submitting the same ISBN number at the same time can't both pass
+ * the validation. The reservations of a session are released when the
+ * session ends.
  * 
  * @author asarin
  *
  */
 public class MyUniqueConstraintValidator implements ConstraintValidator<Unique, Long> {
+	private static final String RESERVATION_RELEASER_ATTR = "isbnReservationReleaser";
 	@Autowired
 	@Qualifier("myBookService")
 	private BookService bookService;
@@ -24,6 +31,19 @@ public class MyUniqueConstraintValidator implements ConstraintValidator<Unique,
 	}
 
 	public boolean isValid(Long isbnNumber, ConstraintValidatorContext context) {
-		return bookService.isUniqueISBN(isbnNumber);
+		RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+		if (requestAttributes == null) {
+			//-- not validating a request, for instance in a unit test
+			return bookService.isUniqueISBN(isbnNumber);
+		}
+		String owner = requestAttributes.getSessionId();
+		if (!bookService.reserveISBN(isbnNumber, owner)) {
+			return false;
+		}
+		if (requestAttributes.getAttribute(RESERVATION_RELEASER_ATTR, RequestAttributes.SCOPE_SESSION) == null) {
+			requestAttributes.setAttribute(RESERVATION_RELEASER_ATTR,
+					new ISBNReservationReleaser(bookService, owner), RequestAttributes.SCOPE_SESSION);
+		}
+		return true;
 	}
 }
@@ -0,0 +1,161 @@
+package chapter08.code.listing.cache.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+
+import javax.portlet.ActionRequest;
+import javax.portlet.ActionResponse;
+import javax.portlet.EventRequest;
+import javax.portlet.EventResponse;
+import javax.portlet.PortletException;
+import javax.portlet.RenderRequest;
+import javax.portlet.RenderResponse;
+import javax.portlet.ResourceRequest;
+import javax.portlet.ResourceResponse;
+import javax.portlet.filter.FilterChain;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.portlet.MockPortletSession;
+import org.springframework.mock.web.portlet.MockRenderRequest;
+import org.springframework.mock.web.portlet.MockRenderResponse;
+
+import chapter08.code.listing.cache.CachedRender;
+import chapter08.code.listing.cache.RenderCache;
+import chapter08.code.listing.cache.RenderCacheInterceptor;
+import chapter08.code.listing.cache.RenderCaptureFilter;
+import chapter08.code.listing.cache.RenderVersionSupplier;
+
+/**
+ * JUnit test for RenderCacheInterceptor. The render requests go through the
+ * RenderCaptureFilter and the interceptor the way the DispatcherPortlet calls
+ * them around a handler, which writes the current version to the response.
+ */
+public class RenderCacheInterceptorTest {
+	private RenderCache renderCache;
+	private RenderCacheInterceptor interceptor;
+	private RenderCaptureFilter filter;
+	private long version;
+	private int renders;
+
+	@Before
+	public void setUp() {
+		renderCache = new RenderCache();
+		interceptor = new RenderCacheInterceptor();
+		interceptor.setRenderCache(renderCache);
+		interceptor.setVersionSupplier(new RenderVersionSupplier() {
+			public long getVersion() {
+				return version;
+			}
+		});
+		filter = new RenderCaptureFilter();
+	}
+
+	@Test
+	public void testRepeatedRenderIsCached() throws Exception {
+		MockPortletSession session = new MockPortletSession();
+		assertEquals("catalog version 0", render(new CatalogHandler(), session));
+		assertEquals("catalog version 0", render(new CatalogHandler(), session));
+		assertEquals(1, renders);
+		assertEquals(1, renderCache.getSize());
+		assertArrayEquals(new String[] { CatalogHandler.class.getName() + ": hits=1, misses=1, hitRatio=50%" },
+				renderCache.getHandlerStatistics());
+	}
+
+	@Test
+	public void testVersionChangeRendersAgain() throws Exception {
+		MockPortletSession session = new MockPortletSession();
+		render(new CatalogHandler(), session);
+		version++;
+		assertEquals("catalog version 1", render(new CatalogHandler(), session));
+		assertEquals(2, renders);
+		assertEquals("catalog version 1", render(new CatalogHandler(), session));
+		assertEquals(2, renders);
+	}
+
+	@Test
+	public void testOutputIsCachedPerSession() throws Exception {
+		MockPortletSession firstSession = new MockPortletSession();
+		MockPortletSession secondSession = new MockPortletSession();
+		render(new CatalogHandler(), firstSession);
+		render(new CatalogHandler(), secondSession);
+		assertEquals(2, renders);
+		render(new CatalogHandler(), firstSession);
+		render(new CatalogHandler(), secondSession);
+		assertEquals(2, renders);
+		assertEquals(2, renderCache.getSize());
+	}
+
+	@Test
+	public void testRequestWithoutSessionIsNotCached() throws Exception {
+		MockRenderRequest request = new MockRenderRequest();
+		render(new CatalogHandler(), request);
+		render(new CatalogHandler(), request);
+		assertEquals(2, renders);
+		assertEquals(0, renderCache.getSize());
+		//-- the interceptor must not create a session
+		assertNull(request.getPortletSession(false));
+	}
+
+	@Test
+	public void testSharedOutputIsCachedWithoutSession() throws Exception {
+		MockRenderRequest request = new MockRenderRequest();
+		render(new SharedHandler(), request);
+		assertEquals("catalog version 0", render(new SharedHandler(), new MockRenderRequest()));
+		assertEquals(1, renders);
+		assertNull(request.getPortletSession(false));
+	}
+
+	private String render(Object handler, MockPortletSession session) throws Exception {
+		MockRenderRequest request = new MockRenderRequest();
+		request.setSession(session);
+		return render(handler, request);
+	}
+
+	private String render(final Object handler, MockRenderRequest request) throws Exception {
+		MockRenderResponse response = new MockRenderResponse();
+		filter.doFilter(request, response, new RenderFilterChain() {
+			public void doFilter(RenderRequest request, RenderResponse response)
+					throws IOException, PortletException {
+				try {
+					if (interceptor.preHandleRender(request, response, handler)) {
+						renders++;
+						response.getWriter().write("catalog version " + version);
+						interceptor.postHandleRender(request, response, handler, null);
+					}
+					interceptor.afterRenderCompletion(request, response, handler, null);
+				} catch (IOException e) {
+					throw e;
+				} catch (Exception e) {
+					throw new PortletException(e);
+				}
+			}
+		});
+		return response.getContentAsString();
+	}
+
+	@CachedRender
+	private static class CatalogHandler {
+	}
+
+	@CachedRender(shared = true)
+	private static class SharedHandler {
+	}
+
+	private abstract static class RenderFilterChain implements FilterChain {
+		public void doFilter(ActionRequest request, ActionResponse response) {
+			throw new UnsupportedOperationException();
+		}
+
+		public void doFilter(EventRequest request, EventResponse response) {
+			throw new UnsupportedOperationException();
+		}
+
+		public void doFilter(ResourceRequest request, ResourceResponse response) {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
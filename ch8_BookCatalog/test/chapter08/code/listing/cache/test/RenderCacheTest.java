@@ -0,0 +1,94 @@
+package chapter08.code.listing.cache.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import chapter08.code.listing.cache.RenderCache;
+
+/**
+ * JUnit test for the JMX registration of RenderCache, with two portlet
+ * applications using the same objectName.
+ */
+public class RenderCacheTest {
+	private static final String OBJECT_NAME = "chapter08.test:type=RenderCache";
+	private MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+	private RenderCache first;
+	private RenderCache second;
+
+	@Before
+	public void setUp() {
+		first = new RenderCache();
+		first.setObjectName(OBJECT_NAME);
+		second = new RenderCache();
+		second.setObjectName(OBJECT_NAME);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		first.unregisterMBean();
+		second.unregisterMBean();
+	}
+
+	@Test
+	public void testNameHoldsContextPath() throws Exception {
+		first.registerMBean("/bookCatalog");
+		assertEquals(new ObjectName(OBJECT_NAME + ",context=\"/bookCatalog\""), first.getRegisteredName());
+		assertTrue(server.isRegistered(first.getRegisteredName()));
+	}
+
+	@Test
+	public void testApplicationsDontReplaceEachOther() throws Exception {
+		first.registerMBean("/bookCatalog");
+		second.registerMBean("/bookCatalogCopy");
+		assertTrue(server.isRegistered(first.getRegisteredName()));
+		assertTrue(server.isRegistered(second.getRegisteredName()));
+		assertFalse(first.getRegisteredName().equals(second.getRegisteredName()));
+	}
+
+	@Test
+	public void testExistingMBeanIsKept() throws Exception {
+		first.registerMBean("/bookCatalog");
+		ObjectName name = first.getRegisteredName();
+		second.registerMBean("/bookCatalog");
+		assertNull(second.getRegisteredName());
+		assertTrue(server.isRegistered(name));
+		//-- unregistering the second cache leaves the first one registered
+		second.unregisterMBean();
+		assertTrue(server.isRegistered(name));
+	}
+
+	@Test
+	public void testRegisteredOnce() throws Exception {
+		first.registerMBean("/bookCatalog");
+		ObjectName name = first.getRegisteredName();
+		first.registerMBean("/bookCatalog");
+		assertSame(name, first.getRegisteredName());
+		first.unregisterMBean();
+		assertFalse(server.isRegistered(name));
+	}
+
+	@Test
+	public void testRootContext() throws Exception {
+		first.registerMBean("");
+		assertEquals(new ObjectName(OBJECT_NAME + ",context=\"\""), first.getRegisteredName());
+	}
+
+	@Test
+	public void testNotRegisteredWithoutObjectName() throws Exception {
+		RenderCache cache = new RenderCache();
+		cache.registerMBean("/bookCatalog");
+		assertNull(cache.getRegisteredName());
+	}
+}
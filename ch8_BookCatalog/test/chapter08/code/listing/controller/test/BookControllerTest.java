@@ -0,0 +1,55 @@
+package chapter08.code.listing.controller.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.portlet.MockRenderResponse;
+
+import chapter08.code.listing.controller.BookController;
+import chapter08.code.listing.domain.Book;
+/**
+ * JUnit test for BookController.
+ *
+ */
+public class BookControllerTest {
+	private BookController bookController;
+	private int bookReads;
+
+	@Before
+	public void setUp() {
+		bookReads = 0;
+		bookController = new BookController();
+		bookController.setBookService(new MockBookService() {
+			public List<Book> getBooks() {
+				bookReads++;
+				List<Book> books = new ArrayList<Book>();
+				books.add(new Book("Portlets in Action", "Ashish Sarin", 1234567890L));
+				return books;
+			}
+		});
+	}
+
+	@Test
+	public void testShowBooks() {
+		List<Book> books = bookController.getBooks();
+		assertEquals("home", bookController.showBooks(new MockRenderResponse()));
+		assertEquals(0, bookReads);
+		//-- the view renders the list
+		assertEquals(1, books.size());
+		for (Book book : books) {
+			assertEquals("Portlets in Action", book.getName());
+		}
+		assertEquals(1, bookReads);
+	}
+
+	@Test
+	public void testBooksNotReadOnError() {
+		bookController.getBooks();
+		assertEquals("errorPage", bookController.handleException());
+		assertEquals(0, bookReads);
+	}
+}
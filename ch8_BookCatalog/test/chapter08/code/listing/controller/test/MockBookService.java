@@ -48,6 +48,16 @@ public class MockBookService implements BookService {
 		return false;
 	}
 
+	//--this method is not currently being tested
+	public boolean reserveISBN(Long isbnNumber, String owner) {
+		return false;
+	}
+
+	//--this method is not currently being tested
+	public void releaseISBNReservations(String owner) {
+		//-- does nothing
+	}
+
 	//--this method is not currently being tested
 	public void removeBook(Long isbnNumber) {
 		//-- does nothing
@@ -0,0 +1,115 @@
+package chapter08.code.listing.service.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import chapter08.code.listing.domain.Book;
+import chapter08.code.listing.service.BookConflictException;
+import chapter08.code.listing.service.BookServiceImpl;
+/**
+ * JUnit test for BookServiceImpl.
+ *
+ */
+public class BookServiceImplTest {
+	private static final Long ISBN = Long.valueOf("1933988053");
+	private BookServiceImpl bookService;
+
+	@Before
+	public void setUp() {
+		bookService = new BookServiceImpl();
+	}
+
+	@Test
+	public void testEditBook() {
+		Book book = new Book(bookService.getBook(ISBN));
+		book.setName("AspectJ in Action, Third Edition");
+		bookService.editBook(book);
+		assertEquals("AspectJ in Action, Third Edition", bookService.getBook(ISBN).getName());
+		assertEquals(1, bookService.getBook(ISBN).getVersion());
+	}
+
+	@Test
+	public void testConcurrentEditFails() {
+		Book first = new Book(bookService.getBook(ISBN));
+		Book second = new Book(bookService.getBook(ISBN));
+		first.setName("First edit of the book");
+		second.setName("Second edit of the book");
+		bookService.editBook(first);
+		try {
+			bookService.editBook(second);
+			fail("the second edit must not overwrite the first one");
+		} catch (BookConflictException ex) {
+			assertEquals("First edit of the book", ex.getCurrentBook().getName());
+		}
+		assertEquals("First edit of the book", bookService.getBook(ISBN).getName());
+	}
+
+	@Test
+	public void testEditRemovedBookFails() {
+		Book book = new Book(bookService.getBook(ISBN));
+		bookService.removeBook(ISBN);
+		try {
+			bookService.editBook(book);
+			fail("a removed book must not be added again by an edit");
+		} catch (BookConflictException ex) {
+			assertNull(ex.getCurrentBook());
+		}
+		assertNull(bookService.getBook(ISBN));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testReturnedBookIsReadOnly() {
+		bookService.getBook(ISBN).setName("changed without editBook");
+	}
+
+	@Test
+	public void testGetBooks() {
+		List<Book> books = bookService.getBooks();
+		assertEquals(4, books.size());
+		assertEquals(ISBN, books.get(0).getIsbnNumber());
+		assertSame(books, bookService.getBooks());
+
+		bookService.addBook(new Book("Portlets in Action", "Ashish Sarin", 1234567890L));
+		books = bookService.getBooks();
+		assertEquals(5, books.size());
+		assertEquals(Long.valueOf(1234567890L), books.get(4).getIsbnNumber());
+		assertFalse(bookService.isUniqueISBN(1234567890L));
+	}
+
+	@Test
+	public void testReserveISBN() {
+		Long isbn = Long.valueOf(1234567890L);
+		assertTrue(bookService.reserveISBN(isbn, "session1"));
+		assertFalse(bookService.reserveISBN(isbn, "session2"));
+		assertTrue(bookService.reserveISBN(isbn, "session1"));
+		assertFalse(bookService.reserveISBN(ISBN, "session1"));
+
+		bookService.addBook(new Book("Portlets in Action", "Ashish Sarin", isbn));
+		assertFalse(bookService.reserveISBN(isbn, "session1"));
+	}
+
+	@Test
+	public void testReleaseISBNReservations() {
+		Long isbn = Long.valueOf(1234567890L);
+		assertTrue(bookService.reserveISBN(isbn, "session1"));
+		bookService.releaseISBNReservations("session1");
+		assertTrue(bookService.reserveISBN(isbn, "session2"));
+	}
+
+	@Test
+	public void testExpiredReservationIsTakenOver() {
+		Long isbn = Long.valueOf(1234567890L);
+		bookService.setReservationTtlMillis(-1);
+		assertTrue(bookService.reserveISBN(isbn, "session1"));
+		assertTrue(bookService.reserveISBN(isbn, "session2"));
+	}
+}
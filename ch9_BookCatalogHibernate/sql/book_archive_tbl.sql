@@ -0,0 +1,23 @@
+DROP TABLE IF EXISTS `book_archive_tbl`;
+CREATE TABLE `book_archive_tbl` (
+  `archive_Id` int(11) NOT NULL AUTO_INCREMENT,
+  `Book_Id` int(11) NOT NULL,
+  `title` varchar(100) NOT NULL,
+  `isbn_number` bigint(13) NOT NULL,
+  `authors` varchar(250) NOT NULL,
+  `created_date` datetime NOT NULL,
+  `created_by` varchar(100) NOT NULL,
+  `modified_date` datetime DEFAULT NULL,
+  `modified_by` varchar(100) DEFAULT NULL,
+  `active` int(1) DEFAULT 0,
+  `archived_date` datetime NOT NULL,
+  PRIMARY KEY (`archive_Id`),
+  KEY `book_archive_tbl_book_idx` (`book_Id`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+
+#
+#  book_Id isn't unique here: the AUTO_INCREMENT counter of book_tbl can be
+#  reset (e.g. by a server restart after the highest IDs were archived), so
+#  the same ID can be archived more than once.
+#
+
@@ -9,6 +9,16 @@ CREATE TABLE `book_tbl` (
   `modified_date` datetime DEFAULT NULL,
   `modified_by` varchar(100) DEFAULT NULL,
   `active` int(1) DEFAULT 1,
-  PRIMARY KEY (`book_Id`)
+  PRIMARY KEY (`book_Id`),
+  KEY `book_tbl_title_idx` (`title`),
+  KEY `book_tbl_authors_idx` (`authors`),
+  KEY `book_tbl_active_isbn_idx` (`active`, `isbn_number`)
 ) ENGINE=InnoDB AUTO_INCREMENT=50 DEFAULT CHARSET=latin1;
 
+#
+#  MySQL doesn't support partial indexes. Indexes which start with the active
+#  column keep the active rows together, so that queries with active = 1
+#  and the archive job (active = 0) only read the rows they need. Removed
+#  rows are moved to book_archive_tbl by the archive job.
+#
+
@@ -1,6 +1,5 @@
 package chapter09.code.listing.base;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Enumeration;
@@ -16,6 +15,7 @@ import javax.portlet.PortalContext;
 import javax.portlet.PortletException;
 import javax.portlet.PortletMode;
 import javax.portlet.PortletRequest;
+import javax.portlet.PortletSession;
 import javax.portlet.ProcessAction;
 import javax.portlet.RenderMode;
 import javax.portlet.RenderRequest;
@@ -35,6 +35,8 @@ import chapter09.code.listing.domain.Book;
 import chapter09.code.listing.domain.ToC;
 import chapter09.code.listing.service.BookService;
 import chapter09.code.listing.utils.Constants;
+import chapter09.code.listing.utils.ReadWriteRoutingContext;
+import chapter09.code.listing.utils.StaticAssets;
 
 /**
  * BookCatalogPortlet class represents the portlet class responsible for
@@ -46,24 +48,55 @@ public class BookCatalogPortlet extends GenericPortlet {
 
 	// -- represents the maximum size of the uploaded file = 1 MB
 	private static final long MAX_UPLOAD_FILE_SIZE = 1024 * 1024;
+	// -- session attribute which holds the time of the last write made by the user
+	private static final String LAST_WRITE_TIME_ATTR = "lastWriteTime";
 	private Logger logger = Logger.getLogger(BookCatalogPortlet.class);
-	private static BookService bookService;
+	private static volatile BookService bookService;
+	private long readYourWritesMillis;
 
 	/*
-	 * Overrides the init method of the GenericPortlet class to set the
-	 * BookService. BookService is simply a service which retrieves data from
-	 * the PortletContext. The data was put into the PortletContext by
-	 * BookCatalogContextListener, configured in web.xml file.
+	 * Overrides the init method of the GenericPortlet class to read the
+	 * init parameters. The BookService is looked up on first use.
 	 * 
 	 * @see javax.portlet.GenericPortlet#init()
 	 */
 	public void init() {
-		bookService = getBookService();
+		readYourWritesMillis = Long.parseLong(getInitParameter("readYourWritesMillis"));
+	}
+
+	/*
+	 * Action, render and resource requests are wrapped so that, for
+	 * readYourWritesMillis after a write, the user's reads go to the primary
+	 * database instead of a replica.
+	 */
+	public void processAction(ActionRequest request, ActionResponse response)
+			throws PortletException, IOException {
+		beginRouting(request);
+		try {
+			super.processAction(request, response);
+		} finally {
+			endRouting(request);
+		}
+	}
+
+	public void render(RenderRequest request, RenderResponse response)
+			throws PortletException, IOException {
+		beginRouting(request);
+		try {
+			super.render(request, response);
+		} finally {
+			endRouting(request);
+		}
 	}
 
 	public BookService getBookService() {
-		ApplicationContext springCtx = PortletApplicationContextUtils.getWebApplicationContext(getPortletContext());
-		return (BookService)springCtx.getBean("bookService");
+		BookService service = bookService;
+		if (service == null) {
+			ApplicationContext springCtx = PortletApplicationContextUtils.getWebApplicationContext(getPortletContext());
+			service = (BookService)springCtx.getBean("bookService");
+			bookService = service;
+		}
+		return service;
 	}
 	
 	/*
@@ -88,19 +121,22 @@ public class BookCatalogPortlet extends GenericPortlet {
 			Element cssElement = response.createElement("link");
 			// --encoding URLs is important
 			cssElement.setAttribute("href", response.encodeURL((request
-					.getContextPath() + "/css/bookCatalog.css")));
+					.getContextPath() + StaticAssets.getPath("/css/bookCatalog.css"))));
 			cssElement.setAttribute("rel", "stylesheet");
 			cssElement.setAttribute("type", "text/css");
 			response.addProperty(MimeResponse.MARKUP_HEAD_ELEMENT, cssElement);
 
-			// -- add JavaScript
-			Element jsElement = response.createElement("script");
+			// -- add JavaScript, if the portlet has any
+			String jsPath = StaticAssets.getOptionalPath("/js/bookCatalog.js");
+			if (jsPath != null) {
+				Element jsElement = response.createElement("script");
 
-			// --encoding URLs to resources is important
-			jsElement.setAttribute("src", response.encodeURL((request
-					.getContextPath() + "/js/bookCatalog.js")));
-			jsElement.setAttribute("type", "text/javascript");
-			response.addProperty(MimeResponse.MARKUP_HEAD_ELEMENT, jsElement);
+				// --encoding URLs to resources is important
+				jsElement.setAttribute("src", response.encodeURL((request
+						.getContextPath() + jsPath)));
+				jsElement.setAttribute("type", "text/javascript");
+				response.addProperty(MimeResponse.MARKUP_HEAD_ELEMENT, jsElement);
+			}
 		}
 	}
 
@@ -118,7 +154,7 @@ public class BookCatalogPortlet extends GenericPortlet {
 	public void showPrint(RenderRequest request, RenderResponse response)
 			throws IOException, PortletException {
 		logger.info("Generating printable version of catalog");
-		request.setAttribute("books", bookService.getBooks());
+		request.setAttribute("books", getBookService().getBooks());
 		getPortletContext().getRequestDispatcher(
 				response.encodeURL(Constants.PATH_TO_JSP_PAGE
 						+ "printCatalog.jsp")).include(request, response);
@@ -235,7 +271,7 @@ public class BookCatalogPortlet extends GenericPortlet {
 		String jspPage = "error.jsp";
 		if (myaction == null || "showCatalog".equalsIgnoreCase(myaction)
 				|| "".equals(myaction)) {
-			request.setAttribute(Constants.BOOKS_ATTR, bookService.getBooks());
+			request.setAttribute(Constants.BOOKS_ATTR, getBookService().getBooks());
 			jspPage = "home.jsp";
 		}
 		if ("showSearchResults".equalsIgnoreCase(myaction)) {
@@ -269,7 +305,7 @@ public class BookCatalogPortlet extends GenericPortlet {
 			logger.info("Searching for books with name : "
 					+ bookNameSearchField + " and author name : "
 					+ authorNameSearchField);
-			List<Book> matchingBooks = bookService.searchBooks(
+			List<Book> matchingBooks = getBookService().searchBooks(
 					bookNameSearchField, authorNameSearchField);
 			request.setAttribute(Constants.BOOKS_ATTR, matchingBooks);
 			jspPage = "home.jsp";
@@ -291,14 +327,14 @@ public class BookCatalogPortlet extends GenericPortlet {
 	public void removeBook(ActionRequest request, ActionResponse response)
 			throws PortletException, IOException {
 		logger.info("Inside removeBook action method");
-		bookService
-				.removeBook(Long.valueOf(request.getParameter("isbnNumber")));
+		getBookService()
+				.removeBook(Long.valueOf(request.getParameter("isbnNumber")), getLoginId(request));
 		response.setRenderParameter(Constants.MYACTION_PARAM, "showCatalog");
 	}
 
 	/**
-	 * Uploads book's TOC. The TOC is uploaded to the folder identified
-	 * by uploadFolder portlet initialization parameter.
+	 * Uploads book's TOC. The uploaded file stream is handed over to the
+	 * BookService as is, so the TOC is never buffered in memory.
 	 * Method makes use of Commons FileUpload library to upload files.
 	 * Make sure that you are using Commons FileUpload 1.1 or later.
 	 * 
@@ -314,7 +350,6 @@ public class BookCatalogPortlet extends GenericPortlet {
 		PortletFileUpload pfu = new PortletFileUpload();
 		pfu.setFileSizeMax(MAX_UPLOAD_FILE_SIZE);
 		String fileExtension = null;
-		ByteArrayOutputStream outStream = null;
 		try {
 			FileItemIterator iter = pfu.getItemIterator(request);
 			while (iter.hasNext()) {
@@ -323,21 +358,12 @@ public class BookCatalogPortlet extends GenericPortlet {
 				fileExtension = fileName.substring(fileName.lastIndexOf(".") + 1, //skip the  '.' in extension
 						fileName.length());
 
-				outStream = new ByteArrayOutputStream();
 				InputStream stream = item.openStream();
 				if (!item.isFormField()) {
-					byte[] buffer = new byte[1024];
-					while (true) {
-						int bytes = stream.read(buffer);
-						if (bytes <= 0) {
-							break;
-						}
-						outStream.write(buffer, 0, bytes);
-					}
-					outStream.flush();
-					ToC toc = new ToC(Long.valueOf(request.getParameter("book_id")), fileName, fileExtension, outStream.toByteArray());
-					bookService.uploadToc(toc);
+					ToC toc = new ToC(Long.valueOf(request.getParameter("book_id")), fileName, fileExtension);
+					getBookService().uploadToc(toc, stream, getLoginId(request));
 				}
+				stream.close();
 			}
 			response
 					.setRenderParameter(Constants.MYACTION_PARAM, "showCatalog");
@@ -393,7 +419,7 @@ public class BookCatalogPortlet extends GenericPortlet {
 		List<Book> matchingBooks = null;
 		if (request.getParameter("bookNameSearchField") != null
 				&& request.getParameter("authorNameSearchField") != null) {
-			matchingBooks = bookService.searchBooks(request
+			matchingBooks = getBookService().searchBooks(request
 					.getParameter("bookNameSearchField"), request
 					.getParameter("authorNameSearchField"));
 		}
@@ -415,7 +441,6 @@ public class BookCatalogPortlet extends GenericPortlet {
 	 * @throws PortletException
 	 * @throws IOException
 	 */
-	@SuppressWarnings("unchecked")
 	@ProcessAction(name = "addBookAction")
 	public void addBook(ActionRequest request, ActionResponse response)
 			throws PortletException, IOException {
@@ -447,10 +472,8 @@ public class BookCatalogPortlet extends GenericPortlet {
 		if (errorMap.isEmpty()) {
 			logger.info("adding book to the data store");
 			try {
-				Map<String, Object> userAttributeMap = (Map<String, Object>) request
-				.getAttribute(PortletRequest.USER_INFO);
-				bookService.addBook(new Book(name, author, Long
-					.valueOf(isbnNumber)), (String)userAttributeMap.get("user.login.id"));
+				getBookService().addBook(new Book(name, author, Long
+					.valueOf(isbnNumber)), getLoginId(request));
 			} catch(Exception ex) {
 				response.setRenderParameter(Constants.MYACTION_PARAM, "error");
 				response
@@ -484,6 +507,34 @@ public class BookCatalogPortlet extends GenericPortlet {
 		}
 	}
 
+	//-- login id of the user, which the BookService records in the audit trail
+	@SuppressWarnings("unchecked")
+	private String getLoginId(PortletRequest request) {
+		Map<String, Object> userAttributeMap = (Map<String, Object>) request
+				.getAttribute(PortletRequest.USER_INFO);
+		if (userAttributeMap == null) {
+			return null;
+		}
+		return (String) userAttributeMap.get("user.login.id");
+	}
+
+	private void beginRouting(PortletRequest request) {
+		PortletSession session = request.getPortletSession(false);
+		Long lastWriteTime = null;
+		if (session != null) {
+			lastWriteTime = (Long) session.getAttribute(LAST_WRITE_TIME_ATTR);
+		}
+		ReadWriteRoutingContext.begin(lastWriteTime != null
+				&& System.currentTimeMillis() - lastWriteTime < readYourWritesMillis);
+	}
+
+	private void endRouting(PortletRequest request) {
+		if (ReadWriteRoutingContext.end()) {
+			request.getPortletSession().setAttribute(LAST_WRITE_TIME_ATTR,
+					Long.valueOf(System.currentTimeMillis()));
+		}
+	}
+
 	//-- Print supported portlet modes by the portal server
 	private void printSupportedPortletModes(PortalContext context) {
 		// -- supported portlet modes by the portal server
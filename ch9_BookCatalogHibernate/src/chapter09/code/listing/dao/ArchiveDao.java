@@ -0,0 +1,10 @@
+package chapter09.code.listing.dao;
+
+import java.util.List;
+
+public interface ArchiveDao {
+	List<Long> getRemovedBookIds(int batchSize);
+	int archiveBooks(List<Long> bookIds);
+	List<Long> getRemovedTocIds(int batchSize);
+	int archiveTocs(List<Long> tocIds);
+}
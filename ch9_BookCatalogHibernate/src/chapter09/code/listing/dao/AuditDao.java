@@ -0,0 +1,9 @@
+package chapter09.code.listing.dao;
+
+import java.util.List;
+
+import chapter09.code.listing.domain.AuditEvent;
+
+public interface AuditDao {
+	void addAuditEvents(List<AuditEvent> events);
+}
@@ -7,6 +7,7 @@ import chapter09.code.listing.domain.Book;
 public interface BookDao {
 	List<Book> getBooks();
 	List<Book> searchBooks(String bookName, String authorName);
+	List<Book> searchBooks(String bookName, String authorName, int firstResult, int maxResults);
 	void addBook(Book book);
 	void removeBook(Long id);
 	boolean isUniqueISBN(Long isbnNumber);
@@ -0,0 +1,12 @@
+package chapter09.code.listing.dao;
+
+import org.hibernate.Criteria;
+
+/**
+ * Adds the restrictions for the book name and author name entered by the
+ * user to the Criteria used for searching books. Blank search fields don't
+ * add any restriction.
+ */
+public interface BookSearchStrategy {
+	void addRestrictions(Criteria criteria, String bookName, String authorName);
+}
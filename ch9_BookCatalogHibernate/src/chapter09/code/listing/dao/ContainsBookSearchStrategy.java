@@ -0,0 +1,16 @@
+package chapter09.code.listing.dao;
+
+import org.hibernate.criterion.MatchMode;
+
+/**
+ * Matches books whose title and authors contain the search text anywhere,
+ * like the Spring JDBC version of the portlet does. This is the default
+ * strategy. A 'like %text%' restriction can't use an index, so every active
+ * row is scanned.
+ */
+public class ContainsBookSearchStrategy extends LikeBookSearchStrategy {
+
+	public ContainsBookSearchStrategy() {
+		super(MatchMode.ANYWHERE);
+	}
+}
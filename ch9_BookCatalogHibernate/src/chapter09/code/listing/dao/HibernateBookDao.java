@@ -2,24 +2,53 @@ package chapter09.code.listing.dao;
 
 import java.util.List;
 
+import org.hibernate.Criteria;
 import org.hibernate.SessionFactory;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Restrictions;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Repository;
 
 import chapter09.code.listing.domain.Book;
 
 @Repository("bookDao")
 public class HibernateBookDao implements BookDao {
+	//-- number of rows fetched from the database in one round-trip while searching
+	private static final int SEARCH_FETCH_SIZE = 50;
+	
 	@Autowired
 	private SessionFactory sessionFactory;
 	
+	@Autowired
+	@Qualifier("bookSearchStrategy")
+	private BookSearchStrategy searchStrategy;
+	
 	@SuppressWarnings("unchecked")
 	public List<Book> getBooks() {
-		return sessionFactory.getCurrentSession().createQuery("from MyBook as book where book.active=1").list();
+		return sessionFactory.getCurrentSession().getNamedQuery("MyBook.getBooks").list();
 	}
 
 	public List<Book> searchBooks(String bookName, String authorName) {
-		return null;
+		return searchBooks(bookName, authorName, 0, 0);
+	}
+
+	/**
+	 * Searches active books using the configured BookSearchStrategy. The
+	 * results are ordered by title; maxResults of 0 returns all the matching
+	 * books.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Book> searchBooks(String bookName, String authorName, int firstResult, int maxResults) {
+		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Book.class)
+				.add(Restrictions.eq("active", 1));
+		searchStrategy.addRestrictions(criteria, bookName, authorName);
+		criteria.addOrder(Order.asc("name")).setFetchSize(SEARCH_FETCH_SIZE)
+				.setFirstResult(firstResult);
+		if (maxResults > 0) {
+			criteria.setMaxResults(maxResults);
+		}
+		return criteria.list();
 	}
 
 	public void addBook(final Book book) {
@@ -28,13 +57,13 @@ public class HibernateBookDao implements BookDao {
 	}
 
 	public Book getBook(Long id) {
-		String hql = "from MyBook as book where book.active=1 and id=" + id;
-		return (Book) sessionFactory.getCurrentSession().createQuery(hql).uniqueResult();
+		return (Book) sessionFactory.getCurrentSession().getNamedQuery("MyBook.getBook")
+				.setInteger("id", id.intValue()).uniqueResult();
 	}
 
 	public boolean isUniqueISBN(Long isbnNumber) {
-		String hql = "from MyBook as book where book.active=1 and book.isbnNumber=" + isbnNumber;
-		Book book = (Book)sessionFactory.getCurrentSession().createQuery(hql).uniqueResult();
+		Book book = (Book)sessionFactory.getCurrentSession().getNamedQuery("MyBook.getBookByIsbn")
+				.setLong("isbnNumber", isbnNumber).uniqueResult();
 		if(book == null) {
 			return true;
 		} else {
@@ -43,8 +72,8 @@ public class HibernateBookDao implements BookDao {
 	}
 
 	public void removeBook(Long book_id) {
-		String hql = "from MyBook as book where book.id=" + book_id;
-		Book book = (Book)sessionFactory.getCurrentSession().createQuery(hql).uniqueResult();
+		Book book = (Book)sessionFactory.getCurrentSession().getNamedQuery("MyBook.getAnyBook")
+				.setInteger("id", book_id.intValue()).uniqueResult();
 		if(book != null) {
 			book.setActive(0);
 			sessionFactory.getCurrentSession().save(book);
@@ -1,7 +1,17 @@
 package chapter09.code.listing.dao;
 
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.jdbc.Work;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.support.lob.LobCreator;
+import org.springframework.jdbc.support.lob.LobHandler;
 import org.springframework.stereotype.Repository;
 
 import chapter09.code.listing.domain.ToC;
@@ -12,17 +22,46 @@ public class HibernateTocDao implements ToCDao {
 	@Autowired
 	private SessionFactory sessionFactory;
 	
-	public void uploadToc(final ToC toc) {
+	@Autowired
+	@Qualifier("lobHandler")
+	private LobHandler lobHandler;
+	
+	/**
+	 * Saves the ToC details, and then hands the uploaded stream over to the
+	 * JDBC driver to write the toc_file column of the same row, the column
+	 * mapped by ToCContent. The length of a multipart file stream is not known
+	 * up front, so -1 is passed as content length and the driver reads the
+	 * stream till the end.
+	 */
+	public void uploadToc(final ToC toc, final InputStream tocStream) {
+		Session session = sessionFactory.getCurrentSession();
 		toc.setActive(1);
-		sessionFactory.getCurrentSession().save(toc);
+		session.save(toc);
+		//-- the row must exist before its toc_file column is written
+		session.flush();
+		session.doWork(new Work() {
+			public void execute(Connection connection) throws SQLException {
+				PreparedStatement ps = connection
+						.prepareStatement("update toc_tbl set toc_file = ? where toc_id = ?");
+				LobCreator lobCreator = lobHandler.getLobCreator();
+				try {
+					lobCreator.setBlobAsBinaryStream(ps, 1, tocStream, -1);
+					ps.setLong(2, toc.getToc_id());
+					ps.executeUpdate();
+				} finally {
+					lobCreator.close();
+					ps.close();
+				}
+			}
+		});
 	}
 
+	/**
+	 * Deactivates the ToC of the book using a bulk update, so that the ToC
+	 * isn't loaded into the session.
+	 */
 	public void removeToc(long bookId) {
-		String hql = "from ToC as toc where toc.active=1 and toc.book_id=" + bookId;
-		ToC toc = (ToC)sessionFactory.getCurrentSession().createQuery(hql).uniqueResult();
-		if(toc != null) {
-			toc.setActive(0);
-			sessionFactory.getCurrentSession().saveOrUpdate(toc);
-		}
+		sessionFactory.getCurrentSession().getNamedQuery("ToC.removeToc")
+				.setLong("bookId", bookId).executeUpdate();
 	}
 }
@@ -0,0 +1,50 @@
+package chapter09.code.listing.dao;
+
+import org.hibernate.Criteria;
+import org.hibernate.criterion.LikeExpression;
+import org.hibernate.criterion.MatchMode;
+
+/**
+ * Base class of the search strategies that match the title and authors with
+ * a 'like' restriction. The '%' and '_' wildcards entered by the user are
+ * escaped, so they are matched as plain characters.
+ */
+public abstract class LikeBookSearchStrategy implements BookSearchStrategy {
+	//-- '!' rather than '\', which MySQL treats as an escape in string literals
+	static final char ESCAPE_CHAR = '!';
+
+	private final MatchMode matchMode;
+
+	protected LikeBookSearchStrategy(MatchMode matchMode) {
+		this.matchMode = matchMode;
+	}
+
+	public void addRestrictions(Criteria criteria, String bookName, String authorName) {
+		if (bookName != null && !"".equals(bookName.trim())) {
+			criteria.add(new EscapedLikeExpression("name", escape(bookName.trim()), matchMode));
+		}
+		if (authorName != null && !"".equals(authorName.trim())) {
+			criteria.add(new EscapedLikeExpression("author", escape(authorName.trim()), matchMode));
+		}
+	}
+
+	static String escape(String text) {
+		StringBuilder escaped = new StringBuilder(text.length() + 8);
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '%' || c == '_' || c == ESCAPE_CHAR) {
+				escaped.append(ESCAPE_CHAR);
+			}
+			escaped.append(c);
+		}
+		return escaped.toString();
+	}
+
+	private static class EscapedLikeExpression extends LikeExpression {
+		private static final long serialVersionUID = 1L;
+
+		EscapedLikeExpression(String propertyName, String value, MatchMode matchMode) {
+			super(propertyName, value, matchMode, Character.valueOf(ESCAPE_CHAR), false);
+		}
+	}
+}
@@ -0,0 +1,16 @@
+package chapter09.code.listing.dao;
+
+import org.hibernate.criterion.MatchMode;
+
+/**
+ * Matches books whose title and authors start with the search text. A
+ * 'like text%' restriction can make use of the indexes on the title and
+ * authors columns, but books are no longer found by a word in the middle
+ * of the title, so the strategy has to be chosen explicitly.
+ */
+public class PrefixBookSearchStrategy extends LikeBookSearchStrategy {
+
+	public PrefixBookSearchStrategy() {
+		super(MatchMode.START);
+	}
+}
@@ -1,8 +1,10 @@
 package chapter09.code.listing.dao;
 
+import java.io.InputStream;
+
 import chapter09.code.listing.domain.ToC;
 
 public interface ToCDao {
-	void uploadToc(ToC toc);
+	void uploadToc(ToC toc, InputStream tocStream);
 	void removeToc(long book_id);
 }
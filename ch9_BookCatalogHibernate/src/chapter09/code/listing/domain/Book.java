@@ -7,8 +7,20 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NamedQueries;
+import org.hibernate.annotations.NamedQuery;
+
 @Entity(name="MyBook")
 @Table(name="book_tbl")
+@Cache(usage=CacheConcurrencyStrategy.READ_WRITE)
+@NamedQueries({
+	@NamedQuery(name="MyBook.getBooks", query="from MyBook as book where book.active=1", cacheable=true),
+	@NamedQuery(name="MyBook.getBook", query="from MyBook as book where book.active=1 and book.id=:id", cacheable=true),
+	@NamedQuery(name="MyBook.getBookByIsbn", query="from MyBook as book where book.active=1 and book.isbnNumber=:isbnNumber", cacheable=true),
+	@NamedQuery(name="MyBook.getAnyBook", query="from MyBook as book where book.id=:id")
+})
 public class Book extends AuditFields {
 	@Id
 	@GeneratedValue(strategy=GenerationType.AUTO)
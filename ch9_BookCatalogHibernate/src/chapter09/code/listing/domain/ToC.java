@@ -7,8 +7,11 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.NamedQuery;
+
 @Entity(name="ToC")
 @Table(name="toc_tbl")
+@NamedQuery(name="ToC.removeToc", query="update ToC as toc set toc.active=0 where toc.active=1 and toc.book_id=:bookId")
 public class ToC {
 	@Id
 	@GeneratedValue(strategy=GenerationType.AUTO)
@@ -18,9 +21,6 @@ public class ToC {
 	@Column(name="book_id")
 	private long book_id;
 
-	@Column(name="toc_file")
-	private byte[] toc_file;
-
 	@Column(name="file_name")
 	private String file_name;
 
@@ -34,11 +34,10 @@ public class ToC {
 		
 	}
 	
-	public ToC(long book_id, String file, String extension, byte[] toc_file) {
+	public ToC(long book_id, String file, String extension) {
 		this.book_id = book_id;
 		this.file_name = file;
 		this.extension = extension;
-		this.toc_file = toc_file;
 	}
 	public long getToc_id() {
 		return toc_id;
@@ -52,12 +51,6 @@ public class ToC {
 	public void setBook_id(long bookId) {
 		book_id = bookId;
 	}
-	public byte[] getToc_file() {
-		return toc_file;
-	}
-	public void setToc_file(byte[] tocFile) {
-		toc_file = tocFile;
-	}
 	public String getFile_name() {
 		return file_name;
 	}
@@ -0,0 +1,47 @@
+package chapter09.code.listing.domain;
+
+import java.sql.Blob;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+
+/**
+ * Maps the toc_file column of toc_tbl. The file content is kept out of the
+ * ToC entity so that loading a ToC doesn't read the whole file; the content
+ * is fetched separately, using the toc_id of the ToC, only when it's needed.
+ */
+@Entity(name="ToCContent")
+@Table(name="toc_tbl")
+public class ToCContent {
+	@Id
+	@Column(name="toc_id")
+	private long toc_id;
+
+	@Lob
+	@Column(name="toc_file")
+	private Blob toc_file;
+	
+	public ToCContent() {
+		
+	}
+	
+	public ToCContent(long toc_id, Blob toc_file) {
+		this.toc_id = toc_id;
+		this.toc_file = toc_file;
+	}
+	public long getToc_id() {
+		return toc_id;
+	}
+	public void setToc_id(long tocId) {
+		toc_id = tocId;
+	}
+	public Blob getToc_file() {
+		return toc_file;
+	}
+	public void setToc_file(Blob tocFile) {
+		toc_file = tocFile;
+	}
+}
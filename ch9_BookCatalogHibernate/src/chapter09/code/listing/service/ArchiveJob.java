@@ -0,0 +1,73 @@
+package chapter09.code.listing.service;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.log4j.Logger;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+/**
+ * Background job which moves removed books and ToCs to the archive tables.
+ * The job is scheduled in applicationContext.xml; the schedule, batch size
+ * and the maximum number of batches archived in one run are read from
+ * archive.properties.
+ *
+ * The scheduler runs the job for the first time while the application
+ * context is still creating its singletons. The job waits for the context to
+ * be refreshed before it uses the ArchiveService: with startup.lazyDaos the
+ * first call creates the DAOs, and creating beans on the scheduler thread
+ * while the context creates its singletons can deadlock.
+ */
+public class ArchiveJob implements ApplicationListener<ContextRefreshedEvent> {
+	private Logger logger = Logger.getLogger(ArchiveJob.class);
+	private ArchiveService archiveService;
+	private int batchSize = 500;
+	private int maxBatchesPerRun = 100;
+	private final CountDownLatch refreshed = new CountDownLatch(1);
+
+	public void onApplicationEvent(ContextRefreshedEvent event) {
+		refreshed.countDown();
+	}
+
+	public void archive() {
+		try {
+			refreshed.await();
+		} catch (InterruptedException e) {
+			// the scheduler is shut down before the context was refreshed
+			Thread.currentThread().interrupt();
+			return;
+		}
+		int books = 0;
+		int tocs = 0;
+		int batches = 0;
+		while (batches < maxBatchesPerRun) {
+			int archived = archiveService.archiveRemovedTocs(batchSize);
+			tocs = tocs + archived;
+			batches++;
+			if (archived < batchSize) {
+				break;
+			}
+		}
+		while (batches < maxBatchesPerRun) {
+			int archived = archiveService.archiveRemovedBooks(batchSize);
+			books = books + archived;
+			batches++;
+			if (archived < batchSize) {
+				break;
+			}
+		}
+		logger.info("Archived " + books + " books and " + tocs + " ToCs in " + batches + " batches");
+	}
+
+	public void setArchiveService(ArchiveService archiveService) {
+		this.archiveService = archiveService;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public void setMaxBatchesPerRun(int maxBatchesPerRun) {
+		this.maxBatchesPerRun = maxBatchesPerRun;
+	}
+}
@@ -0,0 +1,6 @@
+package chapter09.code.listing.service;
+
+public interface ArchiveService {
+	int archiveRemovedBooks(int batchSize);
+	int archiveRemovedTocs(int batchSize);
+}
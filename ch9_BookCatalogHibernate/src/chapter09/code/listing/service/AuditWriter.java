@@ -0,0 +1,172 @@
+package chapter09.code.listing.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.log4j.Logger;
+
+import chapter09.code.listing.dao.AuditDao;
+import chapter09.code.listing.domain.AuditEvent;
+import chapter09.code.listing.utils.BoundedRingBuffer;
+
+/**
+ * Writes audit events to audit_tbl in the background. AuditAspect hands over
+ * the events to the audit method, which only adds them to a bounded ring
+ * buffer; a single writer thread takes the events out of the buffer and
+ * inserts them in batches of batchSize.
+ * 
+ * What happens when the buffer is full depends on the overflowPolicy:
+ * DROP_NEWEST drops the new event, DROP_OLDEST drops the oldest buffered
+ * event, and BLOCK makes the caller wait up to maxBlockMillis for space
+ * before dropping the new event.
+ */
+public class AuditWriter implements AuditWriterMBean, Runnable {
+	public enum OverflowPolicy {
+		DROP_NEWEST, DROP_OLDEST, BLOCK
+	}
+
+	//-- time the writer thread and blocked callers wait before checking the buffer again
+	private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private Logger logger = Logger.getLogger(AuditWriter.class);
+	private AuditDao auditDao;
+	private BoundedRingBuffer<AuditEvent> buffer;
+	private int capacity = 8192;
+	private int batchSize = 100;
+	private long flushIntervalMillis = 1000;
+	private long maxBlockMillis = 100;
+	private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_NEWEST;
+	private final AtomicLong droppedEvents = new AtomicLong();
+	private final AtomicLong writtenEvents = new AtomicLong();
+	private final AtomicLong failedEvents = new AtomicLong();
+	private volatile boolean running;
+	private Thread writerThread;
+
+	public void start() {
+		buffer = new BoundedRingBuffer<AuditEvent>(capacity);
+		running = true;
+		writerThread = new Thread(this, "audit-writer");
+		writerThread.setDaemon(true);
+		writerThread.start();
+	}
+
+	/**
+	 * Stops the writer thread once the buffered events are written.
+	 */
+	public void stop() throws InterruptedException {
+		running = false;
+		LockSupport.unpark(writerThread);
+		writerThread.join();
+	}
+
+	public void audit(AuditEvent event) {
+		if (buffer.offer(event)) {
+			return;
+		}
+		switch (overflowPolicy) {
+		case DROP_OLDEST:
+			while (!buffer.offer(event)) {
+				if (buffer.poll() != null) {
+					droppedEvents.incrementAndGet();
+				}
+			}
+			break;
+		case BLOCK:
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxBlockMillis);
+			while (!buffer.offer(event)) {
+				if (System.nanoTime() - deadline >= 0) {
+					droppedEvents.incrementAndGet();
+					break;
+				}
+				LockSupport.parkNanos(PARK_NANOS);
+			}
+			break;
+		default:
+			droppedEvents.incrementAndGet();
+		}
+	}
+
+	public void run() {
+		List<AuditEvent> batch = new ArrayList<AuditEvent>(batchSize);
+		long lastFlush = System.currentTimeMillis();
+		while (running || buffer.size() > 0) {
+			AuditEvent event = buffer.poll();
+			if (event != null) {
+				batch.add(event);
+			}
+			boolean flushDue = System.currentTimeMillis() - lastFlush >= flushIntervalMillis;
+			if (batch.size() >= batchSize || (!batch.isEmpty() && (event == null || flushDue))) {
+				write(batch);
+				batch.clear();
+				lastFlush = System.currentTimeMillis();
+			}
+			if (event == null) {
+				LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis));
+			}
+		}
+		if (!batch.isEmpty()) {
+			write(batch);
+		}
+	}
+
+	private void write(List<AuditEvent> batch) {
+		try {
+			auditDao.addAuditEvents(batch);
+			writtenEvents.addAndGet(batch.size());
+		} catch (RuntimeException ex) {
+			failedEvents.addAndGet(batch.size());
+			logger.error("Unable to write " + batch.size() + " audit events", ex);
+		}
+	}
+
+	public long getDroppedEvents() {
+		return droppedEvents.get();
+	}
+
+	public long getWrittenEvents() {
+		return writtenEvents.get();
+	}
+
+	public long getFailedEvents() {
+		return failedEvents.get();
+	}
+
+	public int getQueueDepth() {
+		return buffer.size();
+	}
+
+	public int getQueueCapacity() {
+		return buffer.capacity();
+	}
+
+	public String getOverflowPolicy() {
+		return overflowPolicy.name();
+	}
+
+	public void setOverflowPolicy(String overflowPolicy) {
+		this.overflowPolicy = OverflowPolicy.valueOf(overflowPolicy);
+	}
+
+	public void setAuditDao(AuditDao auditDao) {
+		this.auditDao = auditDao;
+	}
+
+	public void setCapacity(int capacity) {
+		this.capacity = capacity;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public void setFlushIntervalMillis(long flushIntervalMillis) {
+		this.flushIntervalMillis = flushIntervalMillis;
+	}
+
+	public void setMaxBlockMillis(long maxBlockMillis) {
+		this.maxBlockMillis = maxBlockMillis;
+	}
+}
@@ -1,5 +1,6 @@
 package chapter09.code.listing.service;
 
+import java.io.InputStream;
 import java.util.List;
 
 import chapter09.code.listing.base.BookAlreadyExistsException;
@@ -12,7 +13,16 @@ public interface BookService {
 	void addBook(Book book, String user) throws BookAlreadyExistsException, UserNotLoggedInException;
 	boolean isUniqueISBN(Long isbnNumber);
 	Book getBook(Long isbnNumber);
-	void removeBook(Long isbnNumber);
+	/**
+	 * @param user the login id of the user, which AuditAspect records in the
+	 *            audit trail; the implementations don't use it
+	 */
+	void removeBook(Long isbnNumber, String user);
 	List<Book> searchBooks(String bookName, String authorName);
-	void uploadToc(ToC toc);
+	List<Book> searchBooks(String bookName, String authorName, int firstResult, int maxResults);
+	/**
+	 * @param user the login id of the user, which AuditAspect records in the
+	 *            audit trail; the implementations don't use it
+	 */
+	void uploadToc(ToC toc, InputStream tocStream, String user);
 }
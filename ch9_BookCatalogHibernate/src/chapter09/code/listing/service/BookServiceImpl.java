@@ -1,5 +1,6 @@
 package chapter09.code.listing.service;
 
+import java.io.InputStream;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,15 +25,20 @@ public class BookServiceImpl implements BookService {
 	@Qualifier("tocDao")
 	private ToCDao tocDao;
 	
-	@Transactional
+	@Transactional(readOnly = true)
 	public List<Book> getBooks() {
 		return bookDao.getBooks();
 	}
 	
-	@Transactional
+	@Transactional(readOnly = true)
 	public List<Book> searchBooks(String bookName, String authorName) {
 		return bookDao.searchBooks(bookName, authorName);
 	}
+
+	@Transactional(readOnly = true)
+	public List<Book> searchBooks(String bookName, String authorName, int firstResult, int maxResults) {
+		return bookDao.searchBooks(bookName, authorName, firstResult, maxResults);
+	}
 	
 	@Transactional
 	public void addBook(Book book, String user) throws BookAlreadyExistsException, UserNotLoggedInException {
@@ -47,25 +53,26 @@ public class BookServiceImpl implements BookService {
 		}
 	}
 	
+	//-- the user is recorded by the AuditAspect
 	@Transactional
-	public void removeBook(Long book_id) {
+	public void removeBook(Long book_id, String user) {
 		bookDao.removeBook(book_id);
 		tocDao.removeToc(book_id);
 	}
 	
-	@Transactional
+	@Transactional(readOnly = true)
 	public boolean isUniqueISBN(Long isbnNumber) {
 		return bookDao.isUniqueISBN(isbnNumber);
 	}
 
-	@Transactional
+	@Transactional(readOnly = true)
 	public Book getBook(Long isbnNumber) {
 		return bookDao.getBook(isbnNumber);
 	}
 	
 	@Transactional
-	public void uploadToc(ToC toc) {
+	public void uploadToc(ToC toc, InputStream tocStream, String user) {
 		tocDao.removeToc(toc.getBook_id());
-		tocDao.uploadToc(toc);
+		tocDao.uploadToc(toc, tocStream);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+package chapter09.code.listing.utils;
+
+/**
+ * Keeps track, for the request being processed by the current thread, of
+ * whether reads must go to the primary DataSource and whether the request
+ * wrote to the primary DataSource. The portlet uses this information to give
+ * a user read-your-writes consistency for some time after a write, while the
+ * replicas catch up.
+ */
+public final class ReadWriteRoutingContext {
+	private static final ThreadLocal<Boolean> primaryRequired = new ThreadLocal<Boolean>();
+	private static final ThreadLocal<Boolean> written = new ThreadLocal<Boolean>();
+
+	private ReadWriteRoutingContext() {
+	}
+
+	public static void begin(boolean readFromPrimary) {
+		primaryRequired.set(Boolean.valueOf(readFromPrimary));
+		written.set(Boolean.FALSE);
+	}
+
+	/**
+	 * Clears the state of the current thread and returns true if the request
+	 * wrote to the primary DataSource.
+	 */
+	public static boolean end() {
+		boolean wrote = Boolean.TRUE.equals(written.get());
+		primaryRequired.remove();
+		written.remove();
+		return wrote;
+	}
+
+	static boolean isPrimaryRequired() {
+		return Boolean.TRUE.equals(primaryRequired.get());
+	}
+
+	static void primaryWritten() {
+		//-- only requests which called begin are tracked
+		if (written.get() != null) {
+			written.set(Boolean.TRUE);
+			primaryRequired.set(Boolean.TRUE);
+		}
+	}
+}
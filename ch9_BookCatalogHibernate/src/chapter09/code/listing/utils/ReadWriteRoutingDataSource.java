@@ -0,0 +1,73 @@
+package chapter09.code.listing.utils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * DataSource which sends read-only transactions to the replica DataSources,
+ * in round-robin order, and everything else to the primary DataSource.
+ * Read-only transactions are sent to the primary as well if no replica is
+ * configured or if ReadWriteRoutingContext says that the current request
+ * must read its own writes.
+ * 
+ * The transaction flags are set by Spring after the transaction manager
+ * obtains the connection, so this DataSource must be wrapped in a
+ * LazyConnectionDataSourceProxy.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+	private static final String PRIMARY = "primary";
+	private static final String REPLICA = "replica";
+
+	private DataSource primaryDataSource;
+	private List<DataSource> replicaDataSources;
+	private final AtomicInteger nextReplica = new AtomicInteger();
+
+	public void afterPropertiesSet() {
+		Map<Object, Object> targetDataSources = new HashMap<Object, Object>();
+		targetDataSources.put(PRIMARY, primaryDataSource);
+		if (replicaDataSources != null) {
+			for (int i = 0; i < replicaDataSources.size(); i++) {
+				targetDataSources.put(REPLICA + i, replicaDataSources.get(i));
+			}
+		}
+		setTargetDataSources(targetDataSources);
+		setDefaultTargetDataSource(primaryDataSource);
+		super.afterPropertiesSet();
+	}
+
+	protected Object determineCurrentLookupKey() {
+		if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+			return PRIMARY;
+		}
+		if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+			ReadWriteRoutingContext.primaryWritten();
+			return PRIMARY;
+		}
+		if (replicaDataSources == null || replicaDataSources.isEmpty()
+				|| ReadWriteRoutingContext.isPrimaryRequired()) {
+			return PRIMARY;
+		}
+		int replica = (nextReplica.getAndIncrement() & Integer.MAX_VALUE) % replicaDataSources.size();
+		return REPLICA + replica;
+	}
+
+	//-- required by JDBC 4.1 (Java 7) DataSource interface
+	public java.util.logging.Logger getParentLogger() {
+		return java.util.logging.Logger.getLogger(java.util.logging.Logger.GLOBAL_LOGGER_NAME);
+	}
+
+	public void setPrimaryDataSource(DataSource primaryDataSource) {
+		this.primaryDataSource = primaryDataSource;
+	}
+
+	public void setReplicaDataSources(List<DataSource> replicaDataSources) {
+		this.replicaDataSources = replicaDataSources;
+	}
+}
@@ -0,0 +1,174 @@
+package chapter09.code.listing.utils;
+
+import java.beans.PropertyDescriptor;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.PropertyValues;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+/**
+ * Measures the startup of the application context and logs, once the context
+ * is refreshed, the time spent in each phase and the beans which took the
+ * most time to create. The phases are:
+ *
+ * - bean definitions: loading the XML files and running the
+ *   BeanFactoryPostProcessors registered before this bean
+ * - post processors: creating the BeanPostProcessors, the message source
+ *   and the event multicaster
+ * - singletons: creating the non-lazy singleton beans
+ *
+ * The time of a bean is the time from its instantiation till the end of its
+ * initialization, minus the time spent creating the beans it depends on.
+ * BeanPostProcessors are created before this bean is registered and are
+ * therefore not timed individually.
+ */
+public class StartupTimer implements BeanFactoryPostProcessor,
+		InstantiationAwareBeanPostProcessor,
+		ApplicationListener<ContextRefreshedEvent>, ApplicationContextAware {
+	private Logger logger = Logger.getLogger(StartupTimer.class);
+
+	private ApplicationContext applicationContext;
+	private int topBeans = 10;
+
+	private long definitionsEndMillis;
+	private long definitionsEndNanos;
+	private long singletonsStartNanos;
+	private final List<BeanTiming> timings = new ArrayList<BeanTiming>();
+	private final ThreadLocal<LinkedList<BeanTiming>> creating = new ThreadLocal<LinkedList<BeanTiming>>() {
+		protected LinkedList<BeanTiming> initialValue() {
+			return new LinkedList<BeanTiming>();
+		}
+	};
+
+	public void setApplicationContext(ApplicationContext applicationContext) {
+		this.applicationContext = applicationContext;
+	}
+
+	/**
+	 * Number of beans, from the slowest, whose time is logged at INFO level.
+	 * The time of every bean is logged at DEBUG level.
+	 */
+	public void setTopBeans(int topBeans) {
+		this.topBeans = topBeans;
+	}
+
+	public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+		definitionsEndMillis = System.currentTimeMillis();
+		definitionsEndNanos = System.nanoTime();
+	}
+
+	public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) {
+		long now = System.nanoTime();
+		if (singletonsStartNanos == 0) {
+			singletonsStartNanos = now;
+		}
+		creating.get().addFirst(new BeanTiming(beanName, now));
+		return null;
+	}
+
+	public boolean postProcessAfterInstantiation(Object bean, String beanName) {
+		return true;
+	}
+
+	public PropertyValues postProcessPropertyValues(PropertyValues pvs,
+			PropertyDescriptor[] pds, Object bean, String beanName) {
+		return pvs;
+	}
+
+	public Object postProcessBeforeInitialization(Object bean, String beanName) {
+		return bean;
+	}
+
+	public Object postProcessAfterInitialization(Object bean, String beanName) {
+		LinkedList<BeanTiming> stack = creating.get();
+		//-- objects returned by FactoryBeans and beans whose creation failed
+		//-- have no matching entry, or are above the entry of this bean
+		if (!containsBean(stack, beanName)) {
+			return bean;
+		}
+		BeanTiming timing;
+		do {
+			timing = stack.removeFirst();
+		} while (!timing.beanName.equals(beanName));
+		long total = System.nanoTime() - timing.startNanos;
+		timing.selfNanos = total - timing.dependenciesNanos;
+		if (!stack.isEmpty()) {
+			stack.getFirst().dependenciesNanos += total;
+		}
+		synchronized (timings) {
+			timings.add(timing);
+		}
+		return bean;
+	}
+
+	public void onApplicationEvent(ContextRefreshedEvent event) {
+		//-- events of child contexts are published to this context as well
+		if (event.getApplicationContext() != applicationContext
+				|| definitionsEndNanos == 0) {
+			return;
+		}
+		long now = System.nanoTime();
+		long singletonsStart = singletonsStartNanos == 0 ? now : singletonsStartNanos;
+		long definitionsMillis = definitionsEndMillis - applicationContext.getStartupDate();
+		long postProcessorsMillis = (singletonsStart - definitionsEndNanos) / 1000000;
+		long singletonsMillis = (now - singletonsStart) / 1000000;
+		logger.info("Context " + applicationContext.getDisplayName()
+				+ " started in " + (definitionsMillis + postProcessorsMillis + singletonsMillis)
+				+ " ms: bean definitions " + definitionsMillis
+				+ " ms, post processors " + postProcessorsMillis
+				+ " ms, singletons " + singletonsMillis + " ms");
+
+		List<BeanTiming> sorted;
+		synchronized (timings) {
+			sorted = new ArrayList<BeanTiming>(timings);
+			timings.clear();
+		}
+		Collections.sort(sorted, new Comparator<BeanTiming>() {
+			public int compare(BeanTiming t1, BeanTiming t2) {
+				return t1.selfNanos < t2.selfNanos ? 1 : (t1.selfNanos == t2.selfNanos ? 0 : -1);
+			}
+		});
+		for (int i = 0; i < sorted.size(); i++) {
+			BeanTiming timing = sorted.get(i);
+			String message = "Bean " + timing.beanName + " created in "
+					+ timing.selfNanos / 1000 + " us";
+			if (i < topBeans) {
+				logger.info(message);
+			} else if (logger.isDebugEnabled()) {
+				logger.debug(message);
+			}
+		}
+	}
+
+	private boolean containsBean(List<BeanTiming> stack, String beanName) {
+		for (BeanTiming timing : stack) {
+			if (timing.beanName.equals(beanName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static class BeanTiming {
+		private final String beanName;
+		private final long startNanos;
+		private long dependenciesNanos;
+		private long selfNanos;
+
+		BeanTiming(String beanName, long startNanos) {
+			this.beanName = beanName;
+			this.startNanos = startNanos;
+		}
+	}
+}
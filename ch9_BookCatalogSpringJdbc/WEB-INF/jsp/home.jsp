@@ -103,8 +103,9 @@
 			<td valign="top"><c:out value="${book.isbnNumber}" /></td>
 			<td valign="top"><fmt:formatDate value="${book.createdDate}" pattern="MM-dd-yyyy HH:mm:ss"/></td>
 			<td valign="top"><fmt:formatDate value="${book.modifiedDate}" pattern="MM-dd-yyyy HH:mm:ss"/></td>
-			<td valign="top"><a class="anchor" href="#"
-				onclick="window.alert('This feature is not implemented. Refer chapter 12 sample code');"><b>&nbsp;&nbsp;<fmt:message
+			<td valign="top"><a class="anchor" href='
+				<portlet:resourceURL id="${book.id}"/>
+				'><b>&nbsp;&nbsp;<fmt:message
 				key="label.download" /></a>/<a class="anchor"
 				href='
 				<portlet:renderURL>
@@ -0,0 +1,11 @@
+DROP TABLE IF EXISTS `audit_tbl`;
+CREATE TABLE `audit_tbl` (
+  `audit_Id` int(11) NOT NULL AUTO_INCREMENT,
+  `action` varchar(50) NOT NULL,
+  `details` varchar(250) DEFAULT NULL,
+  `user_name` varchar(100) DEFAULT NULL,
+  `event_date` datetime NOT NULL,
+  PRIMARY KEY (`audit_Id`),
+  KEY `audit_tbl_event_date_idx` (`event_date`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+
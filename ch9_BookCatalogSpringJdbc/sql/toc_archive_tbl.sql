@@ -0,0 +1,19 @@
+DROP TABLE IF EXISTS `toc_archive_tbl`;
+CREATE TABLE `toc_archive_tbl` (
+  `archive_Id` int(11) NOT NULL AUTO_INCREMENT,
+  `toc_Id` int(11) NOT NULL,
+  `book_id` int(11) NOT NULL,
+  `toc_file` mediumblob DEFAULT NULL,  
+  `file_name` varchar(100) DEFAULT NULL,
+  `extension` varchar(3) DEFAULT NULL,
+  `active` int(1) DEFAULT 0,
+  `archived_date` datetime NOT NULL,
+  PRIMARY KEY (`archive_Id`),
+  KEY `toc_archive_tbl_toc_idx` (`toc_Id`),
+  KEY `toc_archive_tbl_book_idx` (`book_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+
+#
+#  toc_Id isn't unique here, for the same reason as book_Id in book_archive_tbl.
+#
+
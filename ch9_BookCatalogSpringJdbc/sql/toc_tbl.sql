@@ -6,7 +6,8 @@ CREATE TABLE `toc_tbl` (
   `file_name` varchar(100) DEFAULT NULL,
   `extension` varchar(3) DEFAULT NULL,
   `active` int(1) DEFAULT 1,
-  PRIMARY KEY (`toc_Id`)
+  PRIMARY KEY (`toc_Id`),
+  KEY `toc_tbl_book_active_idx` (`book_id`, `active`)
 ) ENGINE=InnoDB AUTO_INCREMENT=50 DEFAULT CHARSET=latin1;
 
 #
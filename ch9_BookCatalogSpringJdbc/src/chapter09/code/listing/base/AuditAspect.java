@@ -2,13 +2,18 @@ package chapter09.code.listing.base;
 
 import java.util.Date;
 
+import org.aspectj.lang.annotation.AfterReturning;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Before;
 
+import chapter09.code.listing.domain.AuditEvent;
 import chapter09.code.listing.domain.Book;
+import chapter09.code.listing.domain.ToC;
+import chapter09.code.listing.service.AuditWriter;
 
 @Aspect
 public class AuditAspect {
+	private AuditWriter auditWriter;
 
 	@Before("execution(* chapter09.code.listing.service.BookService.addBook(..)) && args(book,..)")
 	public void before(Book book) {
@@ -18,4 +23,26 @@ public class AuditAspect {
 			book.setModifiedDate(new Date());
 		}
 	}
+
+	//-- the audit events are written to audit_tbl asynchronously by AuditWriter;
+	//-- argNames binds the parameters of classes compiled without debug info
+	@AfterReturning(pointcut = "execution(* chapter09.code.listing.service.BookService.addBook(..)) && args(book, user)", argNames = "book,user")
+	public void afterAddBook(Book book, String user) {
+		auditWriter.audit(new AuditEvent("addBook", "isbnNumber " + book.getIsbnNumber()
+				+ " name " + book.getName(), user));
+	}
+
+	@AfterReturning(pointcut = "execution(* chapter09.code.listing.service.BookService.removeBook(..)) && args(bookId, user)", argNames = "bookId,user")
+	public void afterRemoveBook(Long bookId, String user) {
+		auditWriter.audit(new AuditEvent("removeBook", "book_id " + bookId, user));
+	}
+
+	@AfterReturning(pointcut = "execution(* chapter09.code.listing.service.BookService.uploadToc(..)) && args(toc, *, user)", argNames = "toc,user")
+	public void afterUploadToc(ToC toc, String user) {
+		auditWriter.audit(new AuditEvent("uploadToc", toc.toString(), user));
+	}
+
+	public void setAuditWriter(AuditWriter auditWriter) {
+		this.auditWriter = auditWriter;
+	}
 }
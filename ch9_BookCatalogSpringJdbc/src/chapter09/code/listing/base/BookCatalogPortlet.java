@@ -1,8 +1,8 @@
 package chapter09.code.listing.base;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.List;
@@ -16,10 +16,13 @@ import javax.portlet.PortalContext;
 import javax.portlet.PortletException;
 import javax.portlet.PortletMode;
 import javax.portlet.PortletRequest;
+import javax.portlet.PortletSession;
 import javax.portlet.ProcessAction;
 import javax.portlet.RenderMode;
 import javax.portlet.RenderRequest;
 import javax.portlet.RenderResponse;
+import javax.portlet.ResourceRequest;
+import javax.portlet.ResourceResponse;
 import javax.portlet.WindowState;
 
 import org.apache.commons.fileupload.FileItemIterator;
@@ -31,10 +34,13 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.web.portlet.context.PortletApplicationContextUtils;
 import org.w3c.dom.Element;
 
+import chapter09.code.listing.dao.ToCOutput;
 import chapter09.code.listing.domain.Book;
 import chapter09.code.listing.domain.ToC;
 import chapter09.code.listing.service.BookService;
 import chapter09.code.listing.utils.Constants;
+import chapter09.code.listing.utils.ReadWriteRoutingContext;
+import chapter09.code.listing.utils.StaticAssets;
 
 /**
  * BookCatalogPortlet class represents the portlet class responsible for
@@ -46,22 +52,55 @@ public class BookCatalogPortlet extends GenericPortlet {
 
 	// -- represents the maximum size of the uploaded file = 1 MB
 	private static final long MAX_UPLOAD_FILE_SIZE = 1024 * 1024;
+	// -- session attribute which holds the time of the last write made by the user
+	private static final String LAST_WRITE_TIME_ATTR = "lastWriteTime";
 	private Logger logger = Logger.getLogger(BookCatalogPortlet.class);
-	private BookService bookService;
+	private volatile BookService bookService;
+	private long readYourWritesMillis;
 
 	/*
-	 * Overrides the init method of the GenericPortlet class to set the
-	 * BookService. 
+	 * Overrides the init method of the GenericPortlet class to read the
+	 * init parameters. The BookService is looked up on first use. 
 	 * 
 	 * @see javax.portlet.GenericPortlet#init()
 	 */
 	public void init() {
-		bookService = getBookService();
+		readYourWritesMillis = Long.parseLong(getInitParameter("readYourWritesMillis"));
+	}
+
+	/*
+	 * Action, render and resource requests are wrapped so that, for
+	 * readYourWritesMillis after a write, the user's reads go to the primary
+	 * database instead of a replica.
+	 */
+	public void processAction(ActionRequest request, ActionResponse response)
+			throws PortletException, IOException {
+		beginRouting(request);
+		try {
+			super.processAction(request, response);
+		} finally {
+			endRouting(request);
+		}
+	}
+
+	public void render(RenderRequest request, RenderResponse response)
+			throws PortletException, IOException {
+		beginRouting(request);
+		try {
+			super.render(request, response);
+		} finally {
+			endRouting(request);
+		}
 	}
 
 	public BookService getBookService() {
-		ApplicationContext springCtx = PortletApplicationContextUtils.getWebApplicationContext(getPortletContext());
-		return (BookService)springCtx.getBean("bookService");
+		BookService service = bookService;
+		if (service == null) {
+			ApplicationContext springCtx = PortletApplicationContextUtils.getWebApplicationContext(getPortletContext());
+			service = (BookService)springCtx.getBean("bookService");
+			bookService = service;
+		}
+		return service;
 	}
 	
 	/*
@@ -86,19 +125,22 @@ public class BookCatalogPortlet extends GenericPortlet {
 			Element cssElement = response.createElement("link");
 			// --encoding URLs is important
 			cssElement.setAttribute("href", response.encodeURL((request
-					.getContextPath() + "/css/bookCatalog.css")));
+					.getContextPath() + StaticAssets.getPath("/css/bookCatalog.css"))));
 			cssElement.setAttribute("rel", "stylesheet");
 			cssElement.setAttribute("type", "text/css");
 			response.addProperty(MimeResponse.MARKUP_HEAD_ELEMENT, cssElement);
 
-			// -- add JavaScript
-			Element jsElement = response.createElement("script");
+			// -- add JavaScript, if the portlet has any
+			String jsPath = StaticAssets.getOptionalPath("/js/bookCatalog.js");
+			if (jsPath != null) {
+				Element jsElement = response.createElement("script");
 
-			// --encoding URLs to resources is important
-			jsElement.setAttribute("src", response.encodeURL((request
-					.getContextPath() + "/js/bookCatalog.js")));
-			jsElement.setAttribute("type", "text/javascript");
-			response.addProperty(MimeResponse.MARKUP_HEAD_ELEMENT, jsElement);
+				// --encoding URLs to resources is important
+				jsElement.setAttribute("src", response.encodeURL((request
+						.getContextPath() + jsPath)));
+				jsElement.setAttribute("type", "text/javascript");
+				response.addProperty(MimeResponse.MARKUP_HEAD_ELEMENT, jsElement);
+			}
 		}
 	}
 
@@ -116,7 +158,7 @@ public class BookCatalogPortlet extends GenericPortlet {
 	public void showPrint(RenderRequest request, RenderResponse response)
 			throws IOException, PortletException {
 		logger.info("Generating printable version of catalog");
-		request.setAttribute("books", bookService.getBooks());
+		request.setAttribute("books", getBookService().getBooks());
 		getPortletContext().getRequestDispatcher(
 				response.encodeURL(Constants.PATH_TO_JSP_PAGE
 						+ "printCatalog.jsp")).include(request, response);
@@ -233,7 +275,7 @@ public class BookCatalogPortlet extends GenericPortlet {
 		String jspPage = "error.jsp";
 		if (myaction == null || "showCatalog".equalsIgnoreCase(myaction)
 				|| "".equals(myaction)) {
-			request.setAttribute(Constants.BOOKS_ATTR, bookService.getBooks());
+			request.setAttribute(Constants.BOOKS_ATTR, getBookService().getBooks());
 			jspPage = "home.jsp";
 		}
 		if ("showSearchResults".equalsIgnoreCase(myaction)) {
@@ -267,7 +309,7 @@ public class BookCatalogPortlet extends GenericPortlet {
 			logger.info("Searching for books with name : "
 					+ bookNameSearchField + " and author name : "
 					+ authorNameSearchField);
-			List<Book> matchingBooks = bookService.searchBooks(
+			List<Book> matchingBooks = getBookService().searchBooks(
 					bookNameSearchField, authorNameSearchField);
 			request.setAttribute(Constants.BOOKS_ATTR, matchingBooks);
 			jspPage = "home.jsp";
@@ -289,14 +331,62 @@ public class BookCatalogPortlet extends GenericPortlet {
 	public void removeBook(ActionRequest request, ActionResponse response)
 			throws PortletException, IOException {
 		logger.info("Inside removeBook action method");
-		bookService
-				.removeBook(Long.valueOf(request.getParameter("isbnNumber")));
+		getBookService()
+				.removeBook(Long.valueOf(request.getParameter("isbnNumber")), request.getRemoteUser());
 		response.setRenderParameter(Constants.MYACTION_PARAM, "showCatalog");
 	}
 
 	/**
-	 * Uploads book's TOC. The TOC is uploaded to the folder identified
-	 * by uploadFolder portlet initialization parameter.
+	 * Downloads the ToC of the book identified by the resource ID. The toc_file
+	 * column is copied straight to the portlet output stream, without reading
+	 * the whole file into memory.
+	 */
+	public void serveResource(ResourceRequest request, ResourceResponse response)
+			throws IOException, PortletException {
+		beginRouting(request);
+		try {
+			serveToc(request, response);
+		} finally {
+			endRouting(request);
+		}
+	}
+
+	private void serveToc(ResourceRequest request, final ResourceResponse response)
+			throws IOException, PortletException {
+		//-- the resource ID is the ID of the book
+		long bookId;
+		try {
+			bookId = Long.parseLong(request.getResourceID());
+		} catch (NumberFormatException e) {
+			//-- thrown for a missing resource ID too
+			logger.warn("Invalid ToC resource ID " + request.getResourceID());
+			response.setProperty(ResourceResponse.HTTP_STATUS_CODE, "400");
+			return;
+		}
+		//-- the attachment headers are set only once the ToC is found, by
+		//-- the same query which reads the file
+		boolean found = getBookService().writeToc(bookId, new ToCOutput() {
+			public OutputStream open(ToC toc) throws IOException {
+				response.setContentType("application/octet-stream");
+				response.setProperty("Content-disposition", "attachment; filename=\""
+						+ toc.getFile_name() + "\"");
+				return response.getPortletOutputStream();
+			}
+		});
+		if (!found) {
+			response.setProperty(ResourceResponse.HTTP_STATUS_CODE, "404");
+			response.setContentType("text/html");
+			response.getPortletOutputStream().write(
+					"<i>Unable to find the specified file</i>".getBytes());
+		}
+		OutputStream outStream = response.getPortletOutputStream();
+		outStream.flush();
+		outStream.close();
+	}
+
+	/**
+	 * Uploads book's TOC. The uploaded file stream is handed over to the
+	 * BookService as is, so the TOC is never buffered in memory.
 	 * Method makes use of Commons FileUpload library to upload files.
 	 * Make sure that you are using Commons FileUpload 1.1 or later.
 	 * 
@@ -312,7 +402,6 @@ public class BookCatalogPortlet extends GenericPortlet {
 		PortletFileUpload pfu = new PortletFileUpload();
 		pfu.setFileSizeMax(MAX_UPLOAD_FILE_SIZE);
 		String fileExtension = null;
-		ByteArrayOutputStream outStream = null;
 		try {
 			FileItemIterator iter = pfu.getItemIterator(request);
 			while (iter.hasNext()) {
@@ -321,21 +410,12 @@ public class BookCatalogPortlet extends GenericPortlet {
 				fileExtension = fileName.substring(fileName.lastIndexOf(".") + 1, //skip the  '.' in extension
 						fileName.length());
 
-				outStream = new ByteArrayOutputStream();
 				InputStream stream = item.openStream();
 				if (!item.isFormField()) {
-					byte[] buffer = new byte[1024];
-					while (true) {
-						int bytes = stream.read(buffer);
-						if (bytes <= 0) {
-							break;
-						}
-						outStream.write(buffer, 0, bytes);
-					}
-					outStream.flush();
-					ToC toc = new ToC(Long.valueOf(request.getParameter("book_id")), fileName, fileExtension, outStream.toByteArray());
-					bookService.uploadToc(toc);
+					ToC toc = new ToC(Long.valueOf(request.getParameter("book_id")), fileName, fileExtension);
+					getBookService().uploadToc(toc, stream, request.getRemoteUser());
 				}
+				stream.close();
 			}
 			response
 					.setRenderParameter(Constants.MYACTION_PARAM, "showCatalog");
@@ -391,7 +471,7 @@ public class BookCatalogPortlet extends GenericPortlet {
 		List<Book> matchingBooks = null;
 		if (request.getParameter("bookNameSearchField") != null
 				&& request.getParameter("authorNameSearchField") != null) {
-			matchingBooks = bookService.searchBooks(request
+			matchingBooks = getBookService().searchBooks(request
 					.getParameter("bookNameSearchField"), request
 					.getParameter("authorNameSearchField"));
 		}
@@ -444,7 +524,7 @@ public class BookCatalogPortlet extends GenericPortlet {
 		if (errorMap.isEmpty()) {
 			logger.info("adding book to the data store");
 			try {
-			bookService.addBook(new Book(name, author, Long
+			getBookService().addBook(new Book(name, author, Long
 					.valueOf(isbnNumber)), request.getRemoteUser());
 			} catch(Exception ex) {
 				response.setRenderParameter(Constants.MYACTION_PARAM, "error");
@@ -480,6 +560,23 @@ public class BookCatalogPortlet extends GenericPortlet {
 		}
 	}
 
+	private void beginRouting(PortletRequest request) {
+		PortletSession session = request.getPortletSession(false);
+		Long lastWriteTime = null;
+		if (session != null) {
+			lastWriteTime = (Long) session.getAttribute(LAST_WRITE_TIME_ATTR);
+		}
+		ReadWriteRoutingContext.begin(lastWriteTime != null
+				&& System.currentTimeMillis() - lastWriteTime < readYourWritesMillis);
+	}
+
+	private void endRouting(PortletRequest request) {
+		if (ReadWriteRoutingContext.end()) {
+			request.getPortletSession().setAttribute(LAST_WRITE_TIME_ATTR,
+					Long.valueOf(System.currentTimeMillis()));
+		}
+	}
+
 	//-- Print supported portlet modes by the portal server
 	private void printSupportedPortletModes(PortalContext context) {
 		// -- supported portlet modes by the portal server
@@ -0,0 +1,106 @@
+package chapter09.code.listing.base;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Call statistics of a BookService method. Latencies are counted in a
+ * histogram whose bucket i holds the calls that took less than 2^i
+ * microseconds. All the counters are atomic variables, so recording a call
+ * never takes a lock.
+ */
+public class MethodMetrics {
+	private static final int BUCKETS = 32;
+	private static final int SLOW_CALLS_KEPT = 10;
+
+	private final String methodName;
+	private final Logger logger;
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final AtomicLong calls = new AtomicLong();
+	private final AtomicLong errors = new AtomicLong();
+	private final AtomicLong totalMicros = new AtomicLong();
+	private final AtomicLong maxMicros = new AtomicLong();
+	private final AtomicReferenceArray<String> slowCalls = new AtomicReferenceArray<String>(SLOW_CALLS_KEPT);
+	private final AtomicInteger nextSlowCall = new AtomicInteger();
+
+	public MethodMetrics(String methodName, Logger logger) {
+		this.methodName = methodName;
+		this.logger = logger;
+	}
+
+	public Logger getLogger() {
+		return logger;
+	}
+
+	public void record(long micros, boolean failed) {
+		int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+		buckets.incrementAndGet(bucket);
+		calls.incrementAndGet();
+		totalMicros.addAndGet(micros);
+		if (failed) {
+			errors.incrementAndGet();
+		}
+		long max = maxMicros.get();
+		while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+			max = maxMicros.get();
+		}
+	}
+
+	//-- keeps the last SLOW_CALLS_KEPT slow calls
+	public void recordSlowCall(String description) {
+		int index = (nextSlowCall.getAndIncrement() & Integer.MAX_VALUE) % SLOW_CALLS_KEPT;
+		slowCalls.set(index, description);
+	}
+
+	public String[] getSlowCalls() {
+		int count = 0;
+		for (int i = 0; i < SLOW_CALLS_KEPT; i++) {
+			if (slowCalls.get(i) != null) {
+				count++;
+			}
+		}
+		String[] result = new String[count];
+		int index = 0;
+		for (int i = 0; i < SLOW_CALLS_KEPT && index < count; i++) {
+			String slowCall = slowCalls.get(i);
+			if (slowCall != null) {
+				result[index++] = slowCall;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the upper bound, in microseconds, of the histogram bucket which
+	 * contains the given percentile of the calls.
+	 */
+	public long getPercentileMicros(double percentile) {
+		long[] counts = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets.get(i);
+			total = total + counts[i];
+		}
+		long threshold = (long) Math.ceil(total * percentile / 100);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen = seen + counts[i];
+			if (seen >= threshold && seen > 0) {
+				return 1L << i;
+			}
+		}
+		return 0;
+	}
+
+	public String toString() {
+		long count = calls.get();
+		long mean = count == 0 ? 0 : totalMicros.get() / count;
+		return methodName + " calls=" + count + " errors=" + errors.get()
+				+ " meanMicros=" + mean + " p50Micros<=" + getPercentileMicros(50)
+				+ " p99Micros<=" + getPercentileMicros(99) + " maxMicros=" + maxMicros.get();
+	}
+}
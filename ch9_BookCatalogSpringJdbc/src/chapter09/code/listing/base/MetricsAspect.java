@@ -0,0 +1,87 @@
+package chapter09.code.listing.base;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.log4j.Logger;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+
+/**
+ * Records the latency and errors of BookService methods in a MethodMetrics
+ * per method. Calls slower than slowCallThresholdMillis are logged with their
+ * arguments. The statistics are exported as an MBean in applicationContext.xml.
+ */
+@Aspect
+public class MetricsAspect implements MetricsAspectMBean {
+	private final ConcurrentMap<Object, MethodMetrics> metrics = new ConcurrentHashMap<Object, MethodMetrics>();
+	private volatile long slowCallThresholdMillis = 500;
+
+	@Around("execution(* chapter09.code.listing.service.BookService.*(..))")
+	public Object recordMetrics(ProceedingJoinPoint pjp) throws Throwable {
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			Object returnValue = pjp.proceed();
+			failed = false;
+			return returnValue;
+		} finally {
+			long micros = (System.nanoTime() - start) / 1000;
+			MethodMetrics methodMetrics = getMethodMetrics(pjp);
+			methodMetrics.record(micros, failed);
+			if (micros >= slowCallThresholdMillis * 1000) {
+				String slowCall = pjp.getSignature().getName() + Arrays.toString(pjp.getArgs())
+						+ " took " + micros / 1000 + " ms";
+				methodMetrics.recordSlowCall(slowCall);
+				methodMetrics.getLogger().warn("Slow call " + slowCall);
+			}
+		}
+	}
+
+	private MethodMetrics getMethodMetrics(ProceedingJoinPoint pjp) {
+		Object key = ((MethodSignature) pjp.getSignature()).getMethod();
+		MethodMetrics methodMetrics = metrics.get(key);
+		if (methodMetrics == null) {
+			methodMetrics = new MethodMetrics(pjp.getSignature().getName(),
+					Logger.getLogger(pjp.getTarget().getClass()));
+			MethodMetrics existing = metrics.putIfAbsent(key, methodMetrics);
+			if (existing != null) {
+				methodMetrics = existing;
+			}
+		}
+		return methodMetrics;
+	}
+
+	public String[] getMethodStatistics() {
+		List<String> statistics = new ArrayList<String>();
+		for (MethodMetrics methodMetrics : metrics.values()) {
+			statistics.add(methodMetrics.toString());
+		}
+		return statistics.toArray(new String[statistics.size()]);
+	}
+
+	public String[] getSlowCalls() {
+		List<String> slowCalls = new ArrayList<String>();
+		for (MethodMetrics methodMetrics : metrics.values()) {
+			slowCalls.addAll(Arrays.asList(methodMetrics.getSlowCalls()));
+		}
+		return slowCalls.toArray(new String[slowCalls.size()]);
+	}
+
+	public long getSlowCallThresholdMillis() {
+		return slowCallThresholdMillis;
+	}
+
+	public void setSlowCallThresholdMillis(long slowCallThresholdMillis) {
+		this.slowCallThresholdMillis = slowCallThresholdMillis;
+	}
+
+	public void reset() {
+		metrics.clear();
+	}
+}
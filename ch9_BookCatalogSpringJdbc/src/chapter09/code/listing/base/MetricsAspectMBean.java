@@ -0,0 +1,12 @@
+package chapter09.code.listing.base;
+
+/**
+ * JMX management interface of MetricsAspect.
+ */
+public interface MetricsAspectMBean {
+	String[] getMethodStatistics();
+	String[] getSlowCalls();
+	long getSlowCallThresholdMillis();
+	void setSlowCallThresholdMillis(long slowCallThresholdMillis);
+	void reset();
+}
@@ -0,0 +1,88 @@
+package chapter09.code.listing.dao;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Moves removed (active = 0) rows of book_tbl and toc_tbl to book_archive_tbl
+ * and toc_archive_tbl. The rows to archive are identified by their IDs, so
+ * that the rows copied to the archive table are the same rows that are
+ * deleted from the hot table.
+ */
+@Repository("archiveDao")
+public class JdbcArchiveDao implements ArchiveDao {
+	private static final String BOOK_COLUMNS = "book_id, title, isbn_number, authors, created_date, "
+			+ "created_by, modified_date, modified_by, active";
+	private static final String TOC_COLUMNS = "toc_id, book_id, toc_file, file_name, extension, active";
+
+	@Autowired
+	@Qualifier("jdbcTemplate")
+	private JdbcTemplate jdbcTemplate;
+
+	public List<Long> getRemovedBookIds(int batchSize) {
+		return this.jdbcTemplate.queryForList(
+				"select book_id from book_tbl where active = 0 order by book_id limit ?",
+				new Object[] { batchSize }, Long.class);
+	}
+
+	/**
+	 * Archives the removed books along with all their ToCs. ToCs are archived
+	 * first because of the toc_tbl_fk1 foreign key.
+	 */
+	public int archiveBooks(List<Long> bookIds) {
+		if (bookIds.isEmpty()) {
+			return 0;
+		}
+		Object[] args = bookIds.toArray();
+		String inClause = inClause(bookIds.size());
+		Object[] archiveArgs = archiveArgs(args);
+		this.jdbcTemplate.update("insert into toc_archive_tbl (" + TOC_COLUMNS + ", archived_date) select "
+				+ TOC_COLUMNS + ", ? from toc_tbl where book_id in " + inClause, archiveArgs);
+		this.jdbcTemplate.update("delete from toc_tbl where book_id in " + inClause, args);
+		this.jdbcTemplate.update("insert into book_archive_tbl (" + BOOK_COLUMNS + ", archived_date) select "
+				+ BOOK_COLUMNS + ", ? from book_tbl where active = 0 and book_id in " + inClause, archiveArgs);
+		return this.jdbcTemplate.update("delete from book_tbl where active = 0 and book_id in " + inClause, args);
+	}
+
+	public List<Long> getRemovedTocIds(int batchSize) {
+		return this.jdbcTemplate.queryForList(
+				"select toc_id from toc_tbl where active = 0 order by toc_id limit ?",
+				new Object[] { batchSize }, Long.class);
+	}
+
+	public int archiveTocs(List<Long> tocIds) {
+		if (tocIds.isEmpty()) {
+			return 0;
+		}
+		Object[] args = tocIds.toArray();
+		String inClause = inClause(tocIds.size());
+		this.jdbcTemplate.update("insert into toc_archive_tbl (" + TOC_COLUMNS + ", archived_date) select "
+				+ TOC_COLUMNS + ", ? from toc_tbl where active = 0 and toc_id in " + inClause, archiveArgs(args));
+		return this.jdbcTemplate.update("delete from toc_tbl where active = 0 and toc_id in " + inClause, args);
+	}
+
+	//-- returns (?, ?, ..., ?) with one placeholder for each ID
+	private String inClause(int size) {
+		StringBuilder inClause = new StringBuilder("(");
+		for (int i = 0; i < size; i++) {
+			if (i > 0) {
+				inClause.append(", ");
+			}
+			inClause.append("?");
+		}
+		return inClause.append(")").toString();
+	}
+
+	//-- archived_date followed by the IDs
+	private Object[] archiveArgs(Object[] ids) {
+		Object[] archiveArgs = new Object[ids.length + 1];
+		archiveArgs[0] = new Timestamp(System.currentTimeMillis());
+		System.arraycopy(ids, 0, archiveArgs, 1, ids.length);
+		return archiveArgs;
+	}
+}
@@ -0,0 +1,39 @@
+package chapter09.code.listing.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import chapter09.code.listing.domain.AuditEvent;
+
+@Repository("auditDao")
+public class JdbcAuditDao implements AuditDao {
+	@Autowired
+	@Qualifier("jdbcTemplate")
+	private JdbcTemplate jdbcTemplate;
+
+	public void addAuditEvents(final List<AuditEvent> events) {
+		this.jdbcTemplate.batchUpdate(
+				"insert into audit_tbl (action, details, user_name, event_date) values(?, ?, ?, ?)",
+				new BatchPreparedStatementSetter() {
+					public void setValues(PreparedStatement ps, int i) throws SQLException {
+						AuditEvent event = events.get(i);
+						ps.setString(1, event.getAction());
+						ps.setString(2, event.getDetails());
+						ps.setString(3, event.getUser());
+						ps.setTimestamp(4, new Timestamp(event.getEventDate().getTime()));
+					}
+
+					public int getBatchSize() {
+						return events.size();
+					}
+				});
+	}
+}
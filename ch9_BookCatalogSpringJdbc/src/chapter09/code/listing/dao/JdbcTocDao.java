@@ -1,39 +1,61 @@
 package chapter09.code.listing.dao;
 
-import java.io.ByteArrayInputStream;
-import java.sql.Connection;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.List;
 
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.dao.support.DataAccessUtils;
+import org.springframework.jdbc.LobRetrievalFailureException;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.support.AbstractLobCreatingPreparedStatementCallback;
+import org.springframework.jdbc.support.lob.LobCreator;
+import org.springframework.jdbc.support.lob.LobHandler;
 import org.springframework.stereotype.Repository;
 
 import chapter09.code.listing.domain.ToC;
 
 @Repository("tocDao")
 public class JdbcTocDao implements ToCDao {
+	//-- size of the buffer used to copy the toc_file column to the output stream
+	private static final int BUFFER_SIZE = 4096;
+	
 	@Autowired
 	@Qualifier("jdbcTemplate")
 	private JdbcTemplate jdbcTemplate;
+	
+	@Autowired
+	@Qualifier("lobHandler")
+	private LobHandler lobHandler;
 	private Logger logger = Logger.getLogger(JdbcTocDao.class);
 	
-	public void uploadToc(final ToC toc) {
-		this.jdbcTemplate.update(new PreparedStatementCreator() {
-			public PreparedStatement createPreparedStatement(
-					Connection connection) throws SQLException {
-				logger.info(toc.toString());
-				PreparedStatement ps = connection.prepareStatement("insert into toc_tbl(book_id, toc_file, file_name, extension) values(?, ?, ?, ?)");
-				ps.setLong(1, toc.getBook_id());
-				ps.setBinaryStream(2, new ByteArrayInputStream(toc.getToc_file()), toc.getToc_file().length);
-				ps.setString(3, toc.getFile_name());
-				ps.setString(4, toc.getExtension());
-				return ps;
-			}
-		});
+	/**
+	 * Inserts the ToC by handing the uploaded stream over to the JDBC driver. The
+	 * length of a multipart file stream is not known up front, so -1 is passed as
+	 * content length and the driver reads the stream till the end.
+	 */
+	public void uploadToc(final ToC toc, final InputStream tocStream) {
+		logger.info(toc.toString());
+		this.jdbcTemplate.execute("insert into toc_tbl(book_id, toc_file, file_name, extension) values(?, ?, ?, ?)",
+				new AbstractLobCreatingPreparedStatementCallback(lobHandler) {
+					protected void setValues(PreparedStatement ps, LobCreator lobCreator)
+							throws SQLException {
+						ps.setLong(1, toc.getBook_id());
+						lobCreator.setBlobAsBinaryStream(ps, 2, tocStream, -1);
+						ps.setString(3, toc.getFile_name());
+						ps.setString(4, toc.getExtension());
+					}
+				});
 	}
 
 	public void removeToc(long bookId) {
@@ -41,4 +63,79 @@ public class JdbcTocDao implements ToCDao {
 				new Object[] { bookId });
 		throw new RuntimeException();
 	}
+
+	/**
+	 * Returns the ToC details without the toc_file column. Returns null if the
+	 * book doesn't have an active ToC.
+	 */
+	public ToC getToc(long bookId) {
+		List<ToC> tocs = this.jdbcTemplate.query(
+				"select toc_id, book_id, file_name, extension from toc_tbl where book_id = ? and active = 1",
+				new Object[] { bookId }, new ToCMapper());
+		return DataAccessUtils.singleResult(tocs);
+	}
+
+	/**
+	 * Copies the toc_file column of the active ToC of the book to the stream
+	 * opened by the output, one buffer at a time. The ToC details and the file
+	 * are read by one query, so a ToC replaced or removed in the meantime
+	 * can't be described by the details of another one. Returns false, without
+	 * opening the output, if the book has no active ToC. Like Spring's
+	 * AbstractLobStreamingResultSetExtractor, which isn't generic in Spring
+	 * 3.0, it fails if the book has more than one.
+	 */
+	public boolean writeToc(final long bookId, final ToCOutput output) {
+		return this.jdbcTemplate.query(
+				"select toc_id, book_id, file_name, extension, toc_file from toc_tbl where book_id = ? and active = 1",
+				new Object[] { bookId },
+				new ResultSetExtractor<Boolean>() {
+					public Boolean extractData(ResultSet rs) throws SQLException,
+							DataAccessException {
+						if (!rs.next()) {
+							return Boolean.FALSE;
+						}
+						try {
+							OutputStream outStream = output.open(new ToCMapper().mapRow(rs, 0));
+							streamData(rs, outStream);
+						} catch (IOException e) {
+							throw new LobRetrievalFailureException(
+									"Could not copy the ToC to the output stream", e);
+						}
+						if (rs.next()) {
+							throw new IncorrectResultSizeDataAccessException(
+									"More than one active ToC found for book " + bookId, 1);
+						}
+						return Boolean.TRUE;
+					}
+				});
+	}
+
+	private void streamData(ResultSet rs, OutputStream outStream)
+			throws SQLException, IOException {
+		InputStream inStream = lobHandler.getBlobAsBinaryStream(rs, "toc_file");
+		if (inStream == null) {
+			return;
+		}
+		try {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			while (true) {
+				int bytes = inStream.read(buffer);
+				if (bytes <= 0) {
+					break;
+				}
+				outStream.write(buffer, 0, bytes);
+			}
+		} finally {
+			inStream.close();
+		}
+	}
+
+	private static final class ToCMapper implements RowMapper<ToC> {
+		public ToC mapRow(ResultSet rs, int rowNumber) throws SQLException {
+			ToC toc = new ToC(rs.getLong("book_id"), rs.getString("file_name"),
+					rs.getString("extension"));
+			toc.setToc_id(rs.getLong("toc_id"));
+			return toc;
+		}
+	}
 }
@@ -0,0 +1,15 @@
+package chapter09.code.listing.dao;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import chapter09.code.listing.domain.ToC;
+
+/**
+ * Where ToCDao.writeToc copies a ToC file. The details of the ToC are read
+ * by the same query as the file, and passed to open before the file is
+ * copied, so they always describe the file which is copied.
+ */
+public interface ToCOutput {
+	OutputStream open(ToC toc) throws IOException;
+}
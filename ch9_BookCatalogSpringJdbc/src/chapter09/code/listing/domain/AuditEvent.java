@@ -0,0 +1,37 @@
+package chapter09.code.listing.domain;
+
+import java.util.Date;
+
+public class AuditEvent {
+	private final String action;
+	private final String details;
+	private final String user;
+	private final Date eventDate;
+
+	public AuditEvent(String action, String details, String user) {
+		this.action = action;
+		this.details = details;
+		this.user = user;
+		this.eventDate = new Date();
+	}
+
+	public String getAction() {
+		return action;
+	}
+
+	public String getDetails() {
+		return details;
+	}
+
+	public String getUser() {
+		return user;
+	}
+
+	public Date getEventDate() {
+		return eventDate;
+	}
+
+	public String toString() {
+		return "action " + action + " details " + details + " user " + user;
+	}
+}
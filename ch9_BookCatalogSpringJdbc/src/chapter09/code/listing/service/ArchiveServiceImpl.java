@@ -0,0 +1,30 @@
+package chapter09.code.listing.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import chapter09.code.listing.dao.ArchiveDao;
+
+/**
+ * Each method call archives one batch of removed rows in its own transaction.
+ * If archiving is interrupted, only the current batch is rolled back and the
+ * remaining rows are picked up by the next call.
+ */
+@Service("archiveService")
+public class ArchiveServiceImpl implements ArchiveService {
+	@Autowired
+	@Qualifier("archiveDao")
+	private ArchiveDao archiveDao;
+
+	@Transactional
+	public int archiveRemovedBooks(int batchSize) {
+		return archiveDao.archiveBooks(archiveDao.getRemovedBookIds(batchSize));
+	}
+
+	@Transactional
+	public int archiveRemovedTocs(int batchSize) {
+		return archiveDao.archiveTocs(archiveDao.getRemovedTocIds(batchSize));
+	}
+}
@@ -0,0 +1,14 @@
+package chapter09.code.listing.service;
+
+/**
+ * JMX management interface of AuditWriter.
+ */
+public interface AuditWriterMBean {
+	long getDroppedEvents();
+	long getWrittenEvents();
+	long getFailedEvents();
+	int getQueueDepth();
+	int getQueueCapacity();
+	String getOverflowPolicy();
+	void setOverflowPolicy(String overflowPolicy);
+}
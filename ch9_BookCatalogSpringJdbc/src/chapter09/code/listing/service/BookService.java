@@ -1,9 +1,11 @@
 package chapter09.code.listing.service;
 
+import java.io.InputStream;
 import java.util.List;
 
 import chapter09.code.listing.base.BookAlreadyExistsException;
 import chapter09.code.listing.base.UserNotLoggedInException;
+import chapter09.code.listing.dao.ToCOutput;
 import chapter09.code.listing.domain.Book;
 import chapter09.code.listing.domain.ToC;
 
@@ -12,7 +14,21 @@ public interface BookService {
 	void addBook(Book book, String user) throws BookAlreadyExistsException, UserNotLoggedInException;
 	boolean isUniqueISBN(Long isbnNumber);
 	Book getBook(Long isbnNumber);
-	void removeBook(Long isbnNumber);
+	/**
+	 * @param user the login id of the user, which AuditAspect records in the
+	 *            audit trail; the implementations don't use it
+	 */
+	void removeBook(Long isbnNumber, String user);
 	List<Book> searchBooks(String bookName, String authorName);
-	void uploadToc(ToC toc);
+	/**
+	 * @param user the login id of the user, which AuditAspect records in the
+	 *            audit trail; the implementations don't use it
+	 */
+	void uploadToc(ToC toc, InputStream tocStream, String user);
+	ToC getToc(long book_id);
+	/**
+	 * Copies the active ToC of the book to the output. Returns false if the
+	 * book has no active ToC.
+	 */
+	boolean writeToc(long book_id, ToCOutput output);
 }
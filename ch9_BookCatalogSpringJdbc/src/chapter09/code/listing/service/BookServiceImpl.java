@@ -1,5 +1,6 @@
 package chapter09.code.listing.service;
 
+import java.io.InputStream;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,6 +12,7 @@ import chapter09.code.listing.base.BookAlreadyExistsException;
 import chapter09.code.listing.base.UserNotLoggedInException;
 import chapter09.code.listing.dao.BookDao;
 import chapter09.code.listing.dao.ToCDao;
+import chapter09.code.listing.dao.ToCOutput;
 import chapter09.code.listing.domain.Book;
 import chapter09.code.listing.domain.ToC;
 
@@ -24,14 +26,17 @@ public class BookServiceImpl implements BookService {
 	@Qualifier("tocDao")
 	private ToCDao tocDao;
 	
+	@Transactional(readOnly = true)
 	public List<Book> getBooks() {
 		return bookDao.getBooks();
 	}
 
+	@Transactional(readOnly = true)
 	public List<Book> searchBooks(String bookName, String authorName) {
 		return bookDao.searchBooks(bookName, authorName);
 	}
 	
+	@Transactional
 	public void addBook(Book book, String user) throws BookAlreadyExistsException, UserNotLoggedInException {
 		if(user == null || "".equals(user)) {
 			throw new UserNotLoggedInException("Please login to add book");
@@ -44,23 +49,36 @@ public class BookServiceImpl implements BookService {
 		}
 	}
 	
+	//-- the user is recorded by the AuditAspect
 	@Transactional
-	public void removeBook(Long book_id) {
+	public void removeBook(Long book_id, String user) {
 		bookDao.removeBook(book_id);
 		tocDao.removeToc(book_id);
 	}
 	
+	@Transactional(readOnly = true)
 	public boolean isUniqueISBN(Long isbnNumber) {
 		return bookDao.isUniqueISBN(isbnNumber);
 	}
 
+	@Transactional(readOnly = true)
 	public Book getBook(Long isbnNumber) {
 		return bookDao.getBook(isbnNumber);
 	}
 	
 	@Transactional
-	public void uploadToc(ToC toc) {
+	public void uploadToc(ToC toc, InputStream tocStream, String user) {
 		tocDao.removeToc(toc.getBook_id());
-		tocDao.uploadToc(toc);
+		tocDao.uploadToc(toc, tocStream);
+	}
+
+	@Transactional(readOnly = true)
+	public ToC getToc(long book_id) {
+		return tocDao.getToc(book_id);
+	}
+
+	@Transactional(readOnly = true)
+	public boolean writeToc(long book_id, ToCOutput output) {
+		return tocDao.writeToc(book_id, output);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,86 @@
+package chapter09.code.listing.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded multi-producer, multi-consumer queue backed by an array. Each slot
+ * has a sequence number which tells producers and consumers whether the slot
+ * is free or filled, so offer and poll only use compare-and-set and never
+ * block. The capacity is rounded up to a power of two.
+ */
+public class BoundedRingBuffer<E> {
+	private final AtomicReferenceArray<E> buffer;
+	private final AtomicLongArray sequences;
+	private final int mask;
+	private final AtomicLong enqueuePosition = new AtomicLong();
+	private final AtomicLong dequeuePosition = new AtomicLong();
+
+	public BoundedRingBuffer(int capacity) {
+		int size = 1;
+		while (size < capacity) {
+			size = size << 1;
+		}
+		buffer = new AtomicReferenceArray<E>(size);
+		sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+		mask = size - 1;
+	}
+
+	/**
+	 * Adds the element to the queue. Returns false if the queue is full.
+	 */
+	public boolean offer(E element) {
+		while (true) {
+			long position = enqueuePosition.get();
+			int index = (int) (position & mask);
+			long difference = sequences.get(index) - position;
+			if (difference == 0) {
+				if (enqueuePosition.compareAndSet(position, position + 1)) {
+					buffer.set(index, element);
+					sequences.set(index, position + 1);
+					return true;
+				}
+			} else if (difference < 0) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Removes and returns the oldest element. Returns null if the queue is
+	 * empty.
+	 */
+	public E poll() {
+		while (true) {
+			long position = dequeuePosition.get();
+			int index = (int) (position & mask);
+			long difference = sequences.get(index) - (position + 1);
+			if (difference == 0) {
+				if (dequeuePosition.compareAndSet(position, position + 1)) {
+					E element = buffer.get(index);
+					buffer.set(index, null);
+					sequences.set(index, position + mask + 1);
+					return element;
+				}
+			} else if (difference < 0) {
+				return null;
+			}
+		}
+	}
+
+	public int size() {
+		long size = enqueuePosition.get() - dequeuePosition.get();
+		if (size < 0) {
+			return 0;
+		}
+		return (int) Math.min(size, mask + 1);
+	}
+
+	public int capacity() {
+		return mask + 1;
+	}
+}
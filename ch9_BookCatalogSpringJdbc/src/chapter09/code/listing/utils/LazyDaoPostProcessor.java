@@ -0,0 +1,77 @@
+package chapter09.code.listing.utils;
+
+import org.apache.log4j.Logger;
+import org.springframework.aop.framework.ProxyFactoryBean;
+import org.springframework.aop.target.LazyInitTargetSource;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Makes the given DAO beans lazy, so that they, and the beans which only
+ * they use, are created when a DAO method is called for the first time
+ * instead of when the application context starts.
+ *
+ * Marking a bean lazy-init is not enough, because the services which have
+ * the DAO injected would create it anyway. The definition of each DAO is
+ * therefore renamed to <name>Target and made lazy, and a proxy implementing
+ * the interfaces of the DAO is registered under the original name. The proxy
+ * creates the DAO on the first method call.
+ */
+public class LazyDaoPostProcessor implements BeanFactoryPostProcessor {
+	private static final String TARGET_SUFFIX = "Target";
+	private Logger logger = Logger.getLogger(LazyDaoPostProcessor.class);
+
+	private boolean enabled;
+	private String[] beanNames = new String[0];
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public void setBeanNames(String[] beanNames) {
+		this.beanNames = beanNames;
+	}
+
+	public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+		if (!enabled) {
+			return;
+		}
+		if (!(beanFactory instanceof BeanDefinitionRegistry)) {
+			throw new BeanInitializationException("Bean factory "
+					+ beanFactory + " does not allow registering bean definitions");
+		}
+		BeanDefinitionRegistry registry = (BeanDefinitionRegistry) beanFactory;
+		for (String beanName : beanNames) {
+			BeanDefinition dao = registry.getBeanDefinition(beanName);
+			Class<?>[] interfaces;
+			try {
+				interfaces = ClassUtils.getAllInterfacesForClass(ClassUtils.forName(
+						dao.getBeanClassName(), beanFactory.getBeanClassLoader()));
+			} catch (ClassNotFoundException e) {
+				throw new BeanInitializationException("Class of bean "
+						+ beanName + " not found", e);
+			}
+			String targetName = beanName + TARGET_SUFFIX;
+			registry.removeBeanDefinition(beanName);
+			dao.setLazyInit(true);
+			registry.registerBeanDefinition(targetName, dao);
+
+			BeanDefinition targetSource = BeanDefinitionBuilder
+					.rootBeanDefinition(LazyInitTargetSource.class)
+					.addPropertyValue("targetBeanName", targetName)
+					.getBeanDefinition();
+			registry.registerBeanDefinition(beanName, BeanDefinitionBuilder
+					.rootBeanDefinition(ProxyFactoryBean.class)
+					.addPropertyValue("proxyInterfaces", interfaces)
+					.addPropertyValue("targetSource", targetSource)
+					.getBeanDefinition());
+			logger.info("Bean " + beanName + " will be created on first use");
+		}
+	}
+}
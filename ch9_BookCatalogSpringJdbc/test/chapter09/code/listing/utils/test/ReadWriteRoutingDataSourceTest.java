@@ -0,0 +1,163 @@
+package chapter09.code.listing.utils.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import chapter09.code.listing.utils.ReadWriteRoutingContext;
+import chapter09.code.listing.utils.ReadWriteRoutingDataSource;
+
+/**
+ * JUnit test for ReadWriteRoutingDataSource, with a primary and a replica
+ * embedded H2 database. Each database has a db_role table holding its name,
+ * so a query shows which database the connection was routed to.
+ */
+public class ReadWriteRoutingDataSourceTest {
+	private DriverManagerDataSource primary;
+	private DriverManagerDataSource replica;
+	private JdbcTemplate jdbcTemplate;
+	private TransactionTemplate writeTemplate;
+	private TransactionTemplate readOnlyTemplate;
+
+	@Before
+	public void setUp() {
+		primary = createDatabase("primary");
+		replica = createDatabase("replica");
+		ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource();
+		routingDataSource.setPrimaryDataSource(primary);
+		routingDataSource.setReplicaDataSources(Collections.<DataSource> singletonList(replica));
+		routingDataSource.afterPropertiesSet();
+		//-- wrapped as in applicationContext.xml
+		DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		DataSourceTransactionManager txManager = new DataSourceTransactionManager(dataSource);
+		writeTemplate = new TransactionTemplate(txManager);
+		readOnlyTemplate = new TransactionTemplate(txManager);
+		readOnlyTemplate.setReadOnly(true);
+	}
+
+	@After
+	public void tearDown() {
+		ReadWriteRoutingContext.end();
+		new JdbcTemplate(primary).execute("drop table db_role");
+		new JdbcTemplate(replica).execute("drop table db_role");
+	}
+
+	@Test
+	public void testReadOnlyTransactionUsesReplica() {
+		assertEquals("replica", readDatabase(readOnlyTemplate));
+	}
+
+	@Test
+	public void testWriteTransactionUsesPrimary() {
+		assertEquals("primary", readDatabase(writeTemplate));
+	}
+
+	@Test
+	public void testNoTransactionUsesPrimary() {
+		assertEquals("primary", jdbcTemplate.queryForObject("select name from db_role", String.class));
+	}
+
+	@Test
+	public void testReadInWriteTransactionUsesPrimary() {
+		String database = writeTemplate.execute(new TransactionCallback<String>() {
+			public String doInTransaction(TransactionStatus status) {
+				jdbcTemplate.update("update db_role set updates = updates + 1");
+				//-- the read-only call joins the write transaction
+				return readDatabase(readOnlyTemplate);
+			}
+		});
+		assertEquals("primary", database);
+		assertEquals(1, new JdbcTemplate(primary).queryForInt("select updates from db_role"));
+		assertEquals(0, new JdbcTemplate(replica).queryForInt("select updates from db_role"));
+	}
+
+	@Test
+	public void testReadsFollowWriteInSameRequest() {
+		ReadWriteRoutingContext.begin(false);
+		assertEquals("replica", readDatabase(readOnlyTemplate));
+		assertEquals("primary", readDatabase(writeTemplate));
+		assertEquals("primary", readDatabase(readOnlyTemplate));
+		assertTrue(ReadWriteRoutingContext.end());
+	}
+
+	@Test
+	public void testReadYourWritesUsesPrimary() {
+		ReadWriteRoutingContext.begin(true);
+		assertEquals("primary", readDatabase(readOnlyTemplate));
+		assertFalse(ReadWriteRoutingContext.end());
+	}
+
+	@Test
+	public void testContextClearedAfterException() {
+		ReadWriteRoutingContext.begin(false);
+		try {
+			writeTemplate.execute(new TransactionCallback<Object>() {
+				public Object doInTransaction(TransactionStatus status) {
+					jdbcTemplate.update("update db_role set updates = updates + 1");
+					throw new IllegalStateException("write failed");
+				}
+			});
+			fail("the exception must be passed on");
+		} catch (IllegalStateException e) {
+			//-- expected
+		} finally {
+			//-- as in BookCatalogPortlet
+			assertTrue(ReadWriteRoutingContext.end());
+		}
+		assertEquals(0, new JdbcTemplate(primary).queryForInt("select updates from db_role"));
+		//-- neither the request state nor the transaction flags are left over
+		assertEquals("replica", readDatabase(readOnlyTemplate));
+		assertFalse(ReadWriteRoutingContext.end());
+	}
+
+	@Test
+	public void testReadOnlyFlagClearedAfterException() {
+		try {
+			readOnlyTemplate.execute(new TransactionCallback<Object>() {
+				public Object doInTransaction(TransactionStatus status) {
+					jdbcTemplate.queryForObject("select name from db_role", String.class);
+					throw new IllegalStateException("read failed");
+				}
+			});
+			fail("the exception must be passed on");
+		} catch (IllegalStateException e) {
+			//-- expected
+		}
+		assertEquals("primary", readDatabase(writeTemplate));
+	}
+
+	private String readDatabase(TransactionTemplate template) {
+		return template.execute(new TransactionCallback<String>() {
+			public String doInTransaction(TransactionStatus status) {
+				return jdbcTemplate.queryForObject("select name from db_role", String.class);
+			}
+		});
+	}
+
+	private static DriverManagerDataSource createDatabase(String name) {
+		DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name
+				+ ";DB_CLOSE_DELAY=-1", "sa", "");
+		dataSource.setDriverClassName("org.h2.Driver");
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("create table db_role (name varchar(10), updates int)");
+		jdbcTemplate.update("insert into db_role values (?, 0)", new Object[] { name });
+		return dataSource;
+	}
+}